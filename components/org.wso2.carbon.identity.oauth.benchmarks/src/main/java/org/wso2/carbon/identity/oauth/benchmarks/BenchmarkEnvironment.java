@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.benchmarks;
+
+import org.apache.oltu.oauth2.as.issuer.OAuthIssuerImpl;
+import org.apache.oltu.oauth2.as.issuer.UUIDValueGenerator;
+import org.wso2.carbon.identity.application.authentication.framework.model.AuthenticatedUser;
+import org.wso2.carbon.identity.core.util.IdentityTenantUtil;
+import org.wso2.carbon.identity.oauth.config.OAuthServerConfiguration;
+import org.wso2.carbon.identity.oauth.tokenprocessor.PlainTextPersistenceProcessor;
+import org.wso2.carbon.identity.oauth2.dao.AccessTokenDAO;
+import org.wso2.carbon.identity.oauth2.dao.OAuthTokenPersistenceFactory;
+import org.wso2.carbon.identity.oauth2.internal.OAuth2ServiceComponentHolder;
+import org.wso2.carbon.identity.oauth2.keyidprovider.DefaultKeyIDProviderImpl;
+import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
+import org.wso2.carbon.identity.oauth2.signing.SigningKeyLoader;
+import org.wso2.carbon.identity.oauth2.signing.SigningKeyRegistry;
+import org.wso2.carbon.identity.oauth2.token.OauthTokenIssuer;
+import org.wso2.carbon.identity.oauth2.token.OauthTokenIssuerImpl;
+import org.wso2.carbon.user.core.service.RealmService;
+import org.wso2.carbon.user.core.tenant.TenantManager;
+import org.wso2.carbon.utils.multitenancy.MultitenantConstants;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.cert.Certificate;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Sets up the minimum server environment needed to run the OAuth2 hot paths outside of a Carbon runtime. Server
+ * configuration, the realm service and the access token DAO are mocked, an in memory RSA key pair is registered as the
+ * super tenant signing key, and a Carbon home with a minimal carbon.xml and identity.xml is extracted to a temporary
+ * directory.
+ */
+final class BenchmarkEnvironment {
+
+    static final String CLIENT_ID = "Pq9Gkf5b3oB0RQyQMcSe4zDp_Gka";
+    static final String USER_NAME = "admin";
+    static final String USER_ID = "4b4414e1-916b-4475-aaee-6b0751c29ff6";
+    static final String[] SCOPES = {"openid", "profile", "email", "internal_login", "address", "phone"};
+    static final String HASH_ALGORITHM = "SHA-256";
+    static final String SIGNATURE_ALGORITHM = "SHA256withRSA";
+    static final String OIDC_DISCOVERY_URL = "https://localhost:9443/oauth2/oidcdiscovery";
+
+    private static final String[] CARBON_HOME_RESOURCES = {
+            "repository/conf/carbon.xml",
+            "repository/conf/identity/identity.xml"
+    };
+
+    private static boolean initialized;
+
+    private BenchmarkEnvironment() {
+
+    }
+
+    /**
+     * Initialize the environment. Subsequent calls have no effect.
+     *
+     * @throws Exception If the environment could not be set up.
+     */
+    static synchronized void init() throws Exception {
+
+        if (initialized) {
+            return;
+        }
+        System.setProperty("carbon.home", extractCarbonHome().toString());
+
+        OAuthServerConfiguration serverConfiguration = mock(OAuthServerConfiguration.class);
+        when(serverConfiguration.getHashAlgorithm()).thenReturn(HASH_ALGORITHM);
+        when(serverConfiguration.getSignatureAlgorithm()).thenReturn(SIGNATURE_ALGORITHM);
+        when(serverConfiguration.getUseSPTenantDomainValue()).thenReturn(false);
+        when(serverConfiguration.getOAuthTokenGenerator())
+                .thenReturn(new OAuthIssuerImpl(new UUIDValueGenerator()));
+        when(serverConfiguration.getPersistenceProcessor()).thenReturn(new PlainTextPersistenceProcessor());
+        when(serverConfiguration.getTokenValidatorClassNames()).thenReturn(Collections.emptyMap());
+        when(serverConfiguration.isAuthContextTokGenEnabled()).thenReturn(false);
+        when(serverConfiguration.getAllowedScopes()).thenReturn(Collections.emptyList());
+        when(serverConfiguration.getOidcDiscoveryUrl()).thenReturn(OIDC_DISCOVERY_URL);
+        setStaticField(OAuthServerConfiguration.class, "instance", serverConfiguration);
+
+        // Token issuers read the server configuration when they are created.
+        Map<String, OauthTokenIssuer> tokenIssuers = new HashMap<>();
+        tokenIssuers.put(OAuthServerConfiguration.DEFAULT_TOKEN_TYPE, new OauthTokenIssuerImpl());
+        when(serverConfiguration.getOauthTokenIssuerMap()).thenReturn(tokenIssuers);
+
+        TenantManager tenantManager = mock(TenantManager.class);
+        when(tenantManager.getTenantId(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME))
+                .thenReturn(MultitenantConstants.SUPER_TENANT_ID);
+        RealmService realmService = mock(RealmService.class);
+        when(realmService.getTenantManager()).thenReturn(tenantManager);
+        IdentityTenantUtil.setRealmService(realmService);
+
+        registerSigningKey();
+        OAuth2ServiceComponentHolder.setKeyIDProvider(new DefaultKeyIDProviderImpl());
+
+        AccessTokenDAO accessTokenDAO = mock(AccessTokenDAO.class);
+        // Callers modify the returned token, hence a new copy is returned for every lookup like the JDBC DAO does.
+        when(accessTokenDAO.getAccessToken(anyString(), anyBoolean()))
+                .thenAnswer(invocation -> newAccessTokenDO((String) invocation.getArguments()[0]));
+        setField(OAuthTokenPersistenceFactory.getInstance(), "tokenDAO", accessTokenDAO);
+
+        initialized = true;
+    }
+
+    /**
+     * Create the authenticated user used by the benchmarks.
+     *
+     * @return Super tenant user.
+     */
+    static AuthenticatedUser newAuthenticatedUser() {
+
+        AuthenticatedUser user = new AuthenticatedUser();
+        user.setUserName(USER_NAME);
+        user.setUserId(USER_ID);
+        user.setUserStoreDomain("PRIMARY");
+        user.setTenantDomain(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME);
+        user.setAuthenticatedSubjectIdentifier(USER_NAME);
+        return user;
+    }
+
+    /**
+     * Create an active access token which never expires.
+     *
+     * @param accessToken Access token identifier.
+     * @return Access token.
+     */
+    static AccessTokenDO newAccessTokenDO(String accessToken) {
+
+        Timestamp issuedTime = new Timestamp(System.currentTimeMillis());
+        AccessTokenDO accessTokenDO = new AccessTokenDO(CLIENT_ID, newAuthenticatedUser(), SCOPES.clone(), null,
+                issuedTime, issuedTime, -1000L, -1000L, "APPLICATION_USER");
+        accessTokenDO.setValidityPeriod(-1L);
+        accessTokenDO.setAccessToken(accessToken);
+        accessTokenDO.setTokenId(USER_ID);
+        accessTokenDO.setTokenState("ACTIVE");
+        return accessTokenDO;
+    }
+
+    private static void registerSigningKey() throws Exception {
+
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+        keyPairGenerator.initialize(2048);
+        KeyPair keyPair = keyPairGenerator.generateKeyPair();
+        Certificate certificate = new SigningCertificate(keyPair.getPublic());
+        SigningKeyLoader loader = new SigningKeyLoader() {
+
+            @Override
+            public Key loadPrivateKey(String tenantDomain, int tenantId) {
+
+                return keyPair.getPrivate();
+            }
+
+            @Override
+            public Certificate loadCertificate(String tenantDomain, int tenantId) {
+
+                return certificate;
+            }
+        };
+        setStaticField(SigningKeyRegistry.class, "instance", new SigningKeyRegistry(loader, 16, 0));
+    }
+
+    private static Path extractCarbonHome() throws IOException {
+
+        Path carbonHome = Files.createTempDirectory("oauth-benchmarks");
+        carbonHome.toFile().deleteOnExit();
+        for (String resource : CARBON_HOME_RESOURCES) {
+            Path target = carbonHome.resolve(resource.replace('/', File.separatorChar));
+            Files.createDirectories(target.getParent());
+            try (InputStream inputStream = BenchmarkEnvironment.class.getResourceAsStream(
+                    "/carbon-home/" + resource)) {
+                if (inputStream == null) {
+                    throw new IOException("Benchmark resource: " + resource + " is not available.");
+                }
+                Files.copy(inputStream, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            target.toFile().deleteOnExit();
+        }
+        return carbonHome;
+    }
+
+    private static void setStaticField(Class<?> clazz, String name, Object value) throws ReflectiveOperationException {
+
+        Field field = clazz.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(null, value);
+    }
+
+    private static void setField(Object target, String name, Object value) throws ReflectiveOperationException {
+
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    /**
+     * Minimal certificate exposing the generated public key. Only the encoded form is used, to derive the thumbprint
+     * and key id of signed tokens.
+     */
+    private static class SigningCertificate extends Certificate {
+
+        private static final long serialVersionUID = 1L;
+        private final PublicKey publicKey;
+
+        SigningCertificate(PublicKey publicKey) {
+
+            super("X.509");
+            this.publicKey = publicKey;
+        }
+
+        @Override
+        public byte[] getEncoded() {
+
+            return publicKey.getEncoded();
+        }
+
+        @Override
+        public void verify(PublicKey key) {
+
+        }
+
+        @Override
+        public void verify(PublicKey key, String sigProvider) {
+
+        }
+
+        @Override
+        public String toString() {
+
+            return "Benchmark signing certificate";
+        }
+
+        @Override
+        public PublicKey getPublicKey() {
+
+            return publicKey;
+        }
+    }
+}
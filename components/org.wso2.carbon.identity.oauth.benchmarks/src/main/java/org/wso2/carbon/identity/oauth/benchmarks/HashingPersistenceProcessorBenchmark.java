@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.benchmarks;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.identity.oauth.tokenprocessor.HashingPersistenceProcessor;
+import org.wso2.carbon.identity.oauth.tokenprocessor.TokenHashEngine;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the per call {@link MessageDigest} and {@link JSONObject} based hashing previously used by
+ * {@link HashingPersistenceProcessor} with the reusable {@link TokenHashEngine}, and measures the processor itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class HashingPersistenceProcessorBenchmark {
+
+    @Param({"SHA-256", "SHA-512"})
+    private String algorithm;
+
+    private String token;
+    private TokenHashEngine engine;
+    private HashingPersistenceProcessor persistenceProcessor;
+
+    @Setup
+    public void setUp() throws Exception {
+
+        BenchmarkEnvironment.init();
+        token = UUID.randomUUID().toString();
+        engine = TokenHashEngine.getInstance(algorithm);
+        persistenceProcessor = new HashingPersistenceProcessor();
+    }
+
+    @Benchmark
+    public String legacyHash() throws NoSuchAlgorithmException {
+
+        MessageDigest messageDigest = MessageDigest.getInstance(algorithm);
+        messageDigest.update(token.getBytes(StandardCharsets.UTF_8));
+        byte[] hash = messageDigest.digest();
+        StringBuilder result = new StringBuilder();
+        for (byte byt : hash) {
+            result.append(Integer.toString((byt & 0xff) + 0x100, 16).substring(1));
+        }
+        JSONObject object = new JSONObject();
+        object.put(HashingPersistenceProcessor.ALGORITHM, algorithm);
+        object.put(HashingPersistenceProcessor.HASH, result.toString());
+        return object.toString();
+    }
+
+    @Benchmark
+    public String engineHash() {
+
+        return engine.hashToJson(token);
+    }
+
+    @Benchmark
+    public String processedAccessTokenIdentifier() throws IdentityOAuth2Exception {
+
+        // The processor hashes with the algorithm configured in the benchmark environment.
+        return persistenceProcessor.getProcessedAccessTokenIdentifier(token);
+    }
+}
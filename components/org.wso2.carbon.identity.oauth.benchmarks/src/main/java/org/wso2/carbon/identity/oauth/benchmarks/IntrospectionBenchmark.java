@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+import org.wso2.carbon.identity.oauth2.dto.OAuth2IntrospectionResponseDTO;
+import org.wso2.carbon.identity.oauth2.dto.OAuth2TokenValidationRequestDTO;
+import org.wso2.carbon.identity.oauth2.validators.DefaultOAuth2TokenValidator;
+import org.wso2.carbon.identity.oauth2.validators.OAuth2TokenValidationMessageContext;
+import org.wso2.carbon.identity.oauth2.validators.TokenValidationHandler;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Introspection of an opaque bearer token through {@link TokenValidationHandler#buildIntrospectionResponse}. The
+ * token is loaded from a mocked access token DAO, and the bearer validator accepts every token, so that the handler's
+ * own lookup and response building is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class IntrospectionBenchmark {
+
+    private TokenValidationHandler tokenValidationHandler;
+    private String accessToken;
+
+    @Setup
+    public void setUp() throws Exception {
+
+        BenchmarkEnvironment.init();
+        tokenValidationHandler = TokenValidationHandler.getInstance();
+        tokenValidationHandler.addTokenValidator(DefaultOAuth2TokenValidator.TOKEN_TYPE, new AcceptingTokenValidator());
+        accessToken = UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    public OAuth2IntrospectionResponseDTO buildIntrospectionResponse() throws IdentityOAuth2Exception {
+
+        OAuth2TokenValidationRequestDTO validationRequest = new OAuth2TokenValidationRequestDTO();
+        OAuth2TokenValidationRequestDTO.OAuth2AccessToken token = validationRequest.new OAuth2AccessToken();
+        token.setIdentifier(accessToken);
+        token.setTokenType(DefaultOAuth2TokenValidator.TOKEN_TYPE);
+        validationRequest.setAccessToken(token);
+        return tokenValidationHandler.buildIntrospectionResponse(validationRequest);
+    }
+
+    /**
+     * Bearer token validator which accepts every token, delegation and scope.
+     */
+    private static class AcceptingTokenValidator extends DefaultOAuth2TokenValidator {
+
+        @Override
+        public boolean validateAccessDelegation(OAuth2TokenValidationMessageContext messageContext) {
+
+            return true;
+        }
+
+        @Override
+        public boolean validateScope(OAuth2TokenValidationMessageContext messageContext) {
+
+            return true;
+        }
+
+        @Override
+        public boolean validateAccessToken(OAuth2TokenValidationMessageContext messageContext) {
+
+            return true;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.identity.oauth.cache.OAuthCacheKey;
+import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construction of the {@link OAuthCacheKey} used to look up an existing token for a client, user and scope
+ * combination, and a lookup of that key in a populated map.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class OAuthCacheKeyBenchmark {
+
+    private static final String AUTHENTICATED_IDP = "LOCAL";
+    private static final String TOKEN_BINDING_REFERENCE = "NONE";
+    private static final int CACHE_SIZE = 10000;
+
+    private String scopeHash;
+    private final Map<OAuthCacheKey, String> cache = new ConcurrentHashMap<>();
+
+    @Setup
+    public void setUp() throws Exception {
+
+        // OAuth2Util reads the server configuration when it is loaded.
+        BenchmarkEnvironment.init();
+        scopeHash = OAuth2Util.hashScopes(BenchmarkEnvironment.SCOPES.clone());
+        for (int i = 0; i < CACHE_SIZE; i++) {
+            cache.put(new OAuthCacheKey(buildCacheKeyString(BenchmarkEnvironment.CLIENT_ID + i)), "token-" + i);
+        }
+    }
+
+    @Benchmark
+    public OAuthCacheKey buildCacheKey() {
+
+        return new OAuthCacheKey(buildCacheKeyString(BenchmarkEnvironment.CLIENT_ID));
+    }
+
+    @Benchmark
+    public String lookupCacheKey() {
+
+        return cache.get(new OAuthCacheKey(buildCacheKeyString(BenchmarkEnvironment.CLIENT_ID + (CACHE_SIZE / 2))));
+    }
+
+    private String buildCacheKeyString(String clientId) {
+
+        return OAuth2Util.buildCacheKeyStringForTokenWithUserId(clientId, scopeHash, BenchmarkEnvironment.USER_ID,
+                AUTHENTICATED_IDP, TOKEN_BINDING_REFERENCE);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.identity.oauth2.model.ScopeSet;
+import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scope string building and hashing done for every token request to build cache keys and look up existing tokens.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class ScopeBenchmark {
+
+    private String[] scopes;
+    private String scopeString;
+
+    @Setup
+    public void setUp() throws Exception {
+
+        // OAuth2Util reads the server configuration when it is loaded.
+        BenchmarkEnvironment.init();
+        scopes = BenchmarkEnvironment.SCOPES.clone();
+        scopeString = String.join(" ", scopes);
+    }
+
+    @Benchmark
+    public String buildScopeString() {
+
+        // The scope array is sorted in place, hence a copy of the unsorted request scopes is used for each call.
+        return OAuth2Util.buildScopeString(scopes.clone());
+    }
+
+    @Benchmark
+    public String hashScopesArray() {
+
+        return OAuth2Util.hashScopes(scopes.clone());
+    }
+
+    @Benchmark
+    public String hashScopesString() {
+
+        return OAuth2Util.hashScopes(scopeString);
+    }
+
+    @Benchmark
+    public String hashScopeSet() {
+
+        // Scope sets are interned, hence the scope hash is computed once and looked up for each call.
+        return OAuth2Util.hashScopes(ScopeSet.of(scopes));
+    }
+}
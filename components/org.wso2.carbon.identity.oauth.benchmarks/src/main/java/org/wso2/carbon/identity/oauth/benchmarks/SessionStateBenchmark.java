@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.benchmarks;
+
+import org.apache.commons.codec.binary.Base64;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.identity.oidc.session.DefaultOIDCSessionStateManager;
+import org.wso2.carbon.identity.oidc.session.SessionStateEngine;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the session_state generation previously done by {@link DefaultOIDCSessionStateManager}, which resolved the
+ * random generator and the digest and built the strings for every authorization response, with the reusable
+ * {@link SessionStateEngine}, and measures the manager itself including the origin lookup of the callback url. OP
+ * browser state generation is compared with {@link UUID#randomUUID()}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class SessionStateBenchmark {
+
+    private static final String CALLBACK_URL = "https://localhost:8080/playground2/oauth2client";
+    private static final String ORIGIN = "https://localhost:8080";
+
+    private String opBrowserState;
+    private SessionStateEngine engine;
+    private DefaultOIDCSessionStateManager sessionStateManager;
+
+    @Setup
+    public void setUp() throws Exception {
+
+        BenchmarkEnvironment.init();
+        opBrowserState = UUID.randomUUID().toString();
+        engine = SessionStateEngine.getInstance();
+        sessionStateManager = new DefaultOIDCSessionStateManager();
+    }
+
+    @Benchmark
+    public String legacySessionState() throws NoSuchAlgorithmException {
+
+        byte[] bytes = new byte[16];
+        SecureRandom secureRandom = SecureRandom.getInstance("SHA1PRNG");
+        secureRandom.nextBytes(bytes);
+        String salt = Base64.encodeBase64URLSafeString(bytes);
+        String sessionStateDataString = BenchmarkEnvironment.CLIENT_ID + " " + ORIGIN + " " + opBrowserState + " " +
+                salt;
+
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        digest.update(sessionStateDataString.getBytes(StandardCharsets.UTF_8));
+        StringBuilder result = new StringBuilder();
+        for (byte byt : digest.digest()) {
+            result.append(Integer.toString((byt & 0xff) + 0x100, 16).substring(1));
+        }
+        return result.toString() + "." + salt;
+    }
+
+    @Benchmark
+    public String engineSessionState() {
+
+        return engine.generateSessionState(BenchmarkEnvironment.CLIENT_ID, ORIGIN, opBrowserState);
+    }
+
+    @Benchmark
+    public String managerSessionState() {
+
+        return sessionStateManager.getSessionStateParam(BenchmarkEnvironment.CLIENT_ID, CALLBACK_URL, opBrowserState);
+    }
+
+    @Benchmark
+    public String legacyBrowserState() {
+
+        return UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    public String engineBrowserState() {
+
+        return engine.generateBrowserState();
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.benchmarks;
+
+import com.nimbusds.jwt.JWTClaimsSet;
+import org.apache.oltu.oauth2.common.exception.OAuthSystemException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+import org.wso2.carbon.identity.oauth2.authz.OAuthAuthzReqMessageContext;
+import org.wso2.carbon.identity.oauth2.dto.OAuth2AccessTokenReqDTO;
+import org.wso2.carbon.identity.oauth2.token.JWTTokenIssuer;
+import org.wso2.carbon.identity.oauth2.token.OAuthTokenReqMessageContext;
+import org.wso2.carbon.identity.oauth2.token.OauthTokenIssuerImpl;
+import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
+import org.wso2.carbon.utils.multitenancy.MultitenantConstants;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token generation by the opaque {@link OauthTokenIssuerImpl} and the self contained {@link JWTTokenIssuer}, and the
+ * RSA signing step of the JWT issuer on its own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class TokenIssuerBenchmark {
+
+    private static final String ISSUER = "https://localhost:9443/oauth2/token";
+
+    private OauthTokenIssuerImpl oauthTokenIssuer;
+    private BenchmarkJWTTokenIssuer jwtTokenIssuer;
+    private OAuthTokenReqMessageContext tokenReqMessageContext;
+    private JWTClaimsSet claimsSet;
+
+    @Setup
+    public void setUp() throws Exception {
+
+        BenchmarkEnvironment.init();
+        oauthTokenIssuer = new OauthTokenIssuerImpl();
+        jwtTokenIssuer = new BenchmarkJWTTokenIssuer();
+
+        OAuth2AccessTokenReqDTO tokenReqDTO = new OAuth2AccessTokenReqDTO();
+        tokenReqDTO.setClientId(BenchmarkEnvironment.CLIENT_ID);
+        tokenReqDTO.setGrantType("client_credentials");
+        tokenReqDTO.setTenantDomain(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME);
+        tokenReqMessageContext = new OAuthTokenReqMessageContext(tokenReqDTO);
+        tokenReqMessageContext.setAuthorizedUser(BenchmarkEnvironment.newAuthenticatedUser());
+        tokenReqMessageContext.setScope(BenchmarkEnvironment.SCOPES.clone());
+        claimsSet = BenchmarkJWTTokenIssuer.buildClaimsSet(BenchmarkEnvironment.SCOPES.clone());
+    }
+
+    @Benchmark
+    public String oauthTokenIssuerAccessToken() throws OAuthSystemException {
+
+        return oauthTokenIssuer.accessToken(tokenReqMessageContext);
+    }
+
+    @Benchmark
+    public String jwtTokenIssuerAccessToken() throws OAuthSystemException {
+
+        return jwtTokenIssuer.accessToken(tokenReqMessageContext);
+    }
+
+    @Benchmark
+    public String signJWTWithRSA() throws IdentityOAuth2Exception {
+
+        return jwtTokenIssuer.signWithRSA(claimsSet, tokenReqMessageContext);
+    }
+
+    /**
+     * JWT token issuer which builds the claim set from the request alone. The default implementation loads the
+     * application from the OAuth app DAO and resolves the issuer from the tenant configuration, neither of which is
+     * part of what is being measured here.
+     */
+    private static class BenchmarkJWTTokenIssuer extends JWTTokenIssuer {
+
+        BenchmarkJWTTokenIssuer() throws IdentityOAuth2Exception {
+
+            super();
+        }
+
+        @Override
+        protected JWTClaimsSet createJWTClaimSet(OAuthAuthzReqMessageContext authAuthzReqMessageContext,
+                                                 OAuthTokenReqMessageContext tokenReqMessageContext,
+                                                 String consumerKey) {
+
+            return buildClaimsSet(tokenReqMessageContext.getScope());
+        }
+
+        String signWithRSA(JWTClaimsSet jwtClaimsSet, OAuthTokenReqMessageContext tokenContext)
+                throws IdentityOAuth2Exception {
+
+            return signJWTWithRSA(jwtClaimsSet, tokenContext, null);
+        }
+
+        static JWTClaimsSet buildClaimsSet(String[] scopes) {
+
+            long currentTime = System.currentTimeMillis();
+            return new JWTClaimsSet.Builder()
+                    .issuer(ISSUER)
+                    .subject(BenchmarkEnvironment.USER_NAME)
+                    .claim("azp", BenchmarkEnvironment.CLIENT_ID)
+                    .issueTime(new Date(currentTime))
+                    .jwtID(UUID.randomUUID().toString())
+                    .notBeforeTime(new Date(currentTime))
+                    .claim("client_id", BenchmarkEnvironment.CLIENT_ID)
+                    .claim("scope", OAuth2Util.buildScopeString(scopes))
+                    .claim("aut", "APPLICATION_USER")
+                    .expirationTime(new Date(currentTime + TimeUnit.HOURS.toMillis(1)))
+                    .audience(Collections.singletonList(BenchmarkEnvironment.CLIENT_ID))
+                    .build();
+        }
+    }
+}
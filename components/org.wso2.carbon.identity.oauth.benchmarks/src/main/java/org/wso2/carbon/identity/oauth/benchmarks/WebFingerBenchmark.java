@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.base.ServerConfigurationException;
+import org.wso2.carbon.identity.core.util.IdentityTenantUtil;
+import org.wso2.carbon.identity.webfinger.DefaultWebFingerProcessor;
+import org.wso2.carbon.identity.webfinger.WebFingerConstants;
+import org.wso2.carbon.identity.webfinger.WebFingerEndpointException;
+import org.wso2.carbon.identity.webfinger.WebFingerProcessor;
+import org.wso2.carbon.identity.webfinger.WebFingerResponse;
+import org.wso2.carbon.identity.webfinger.internal.WebFingerServiceComponentHolder;
+import org.wso2.carbon.identity.webfinger.servlet.WebFingerServlet;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Issuer lookup through {@link WebFingerServlet}. The default processor serves the serialized links of the tenant from
+ * the issuer link cache, while the uncached processor builds and serializes the whole response for every lookup, the
+ * way processors other than the default one are handled. Request and response are mocked and the written response is
+ * discarded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class WebFingerBenchmark {
+
+    private static final String RESOURCE = "acct:" + BenchmarkEnvironment.USER_NAME + "@localhost";
+
+    private final WebFingerServlet webFingerServlet = new WebFingerServlet();
+    private final WebFingerProcessor uncachedProcessor = new UncachedWebFingerProcessor();
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+
+    @Setup
+    public void setUp() throws Exception {
+
+        BenchmarkEnvironment.init();
+        WebFingerServiceComponentHolder.setRealmService(IdentityTenantUtil.getRealmService());
+
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put(WebFingerConstants.RESOURCE, RESOURCE);
+        parameters.put(WebFingerConstants.REL, WebFingerConstants.OPENID_CONNETCT_ISSUER_REL);
+        request = mock(HttpServletRequest.class);
+        // The request builder consumes the parameter names, hence a new enumeration is returned for every call.
+        when(request.getParameterNames()).thenAnswer(
+                invocation -> Collections.enumeration(Arrays.asList(WebFingerConstants.REL,
+                        WebFingerConstants.RESOURCE)));
+        when(request.getParameter(anyString()))
+                .thenAnswer(invocation -> parameters.get((String) invocation.getArguments()[0]));
+
+        PrintWriter writer = new PrintWriter(new DiscardingWriter());
+        response = mock(HttpServletResponse.class);
+        when(response.getWriter()).thenReturn(writer);
+
+        // The servlet only sets an error status on failures, hence make sure that the lookup succeeds up front.
+        DefaultWebFingerProcessor.getInstance().getSerializedResponse(request);
+    }
+
+    @Benchmark
+    public void cachedIssuerLookup() throws IOException {
+
+        WebFingerServiceComponentHolder.setWebFingerProcessor(DefaultWebFingerProcessor.getInstance());
+        webFingerServlet.getOIDProviderIssuer(request, response);
+    }
+
+    @Benchmark
+    public void uncachedIssuerLookup() throws IOException {
+
+        WebFingerServiceComponentHolder.setWebFingerProcessor(uncachedProcessor);
+        webFingerServlet.getOIDProviderIssuer(request, response);
+    }
+
+    /**
+     * Processor which delegates to the default processor without being one, so that the servlet builds and
+     * serializes the whole response for every lookup.
+     */
+    private static class UncachedWebFingerProcessor implements WebFingerProcessor {
+
+        @Override
+        public WebFingerResponse getResponse(HttpServletRequest request) throws WebFingerEndpointException,
+                ServerConfigurationException {
+
+            return DefaultWebFingerProcessor.getInstance().getResponse(request);
+        }
+
+        @Override
+        public int handleError(WebFingerEndpointException error) {
+
+            return DefaultWebFingerProcessor.getInstance().handleError(error);
+        }
+    }
+
+    /**
+     * Writer which discards everything written to it.
+     */
+    private static class DiscardingWriter extends Writer {
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+
+        }
+
+        @Override
+        public void flush() {
+
+        }
+
+        @Override
+        public void close() {
+
+        }
+    }
+}
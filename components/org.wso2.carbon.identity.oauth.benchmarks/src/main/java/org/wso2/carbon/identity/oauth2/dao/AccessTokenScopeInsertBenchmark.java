@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.dao;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Access token scope inserts against an in memory H2 database, committing after each token as token issuance does.
+ * Compares one statement per scope, a JDBC batch and multi row insert statements. Placed in the package of the DAO to
+ * call its package private insert methods.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccessTokenScopeInsertBenchmark {
+
+    private static final String DB_URL = "jdbc:h2:mem:tokenScopeInsertBenchmark;DB_CLOSE_DELAY=-1";
+    private static final String CREATE_SCOPE_TABLE = "CREATE TABLE IF NOT EXISTS IDN_OAUTH2_ACCESS_TOKEN_SCOPE (" +
+            "TOKEN_ID VARCHAR (255), TOKEN_SCOPE VARCHAR (60), TENANT_ID INTEGER DEFAULT -1, " +
+            "PRIMARY KEY (TOKEN_ID, TOKEN_SCOPE))";
+    private static final String DELETE_SCOPES = "DELETE FROM IDN_OAUTH2_ACCESS_TOKEN_SCOPE";
+
+    @Param({"1", "5", "10", "30", "50", "100"})
+    private int scopeCount;
+
+    private Connection connection;
+    private String[] scopes;
+    private long tokenCount;
+
+    @Setup
+    public void setUp() throws Exception {
+
+        Class.forName("org.h2.Driver");
+        connection = DriverManager.getConnection(DB_URL, "username", "password");
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate(CREATE_SCOPE_TABLE);
+        }
+        connection.commit();
+        scopes = new String[scopeCount];
+        for (int i = 0; i < scopeCount; i++) {
+            scopes[i] = "scope_" + i;
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void clearScopes() throws SQLException {
+
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate(DELETE_SCOPES);
+        }
+        connection.commit();
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+
+        connection.close();
+    }
+
+    @Benchmark
+    public void insertPerStatement() throws SQLException {
+
+        String tokenId = nextTokenId();
+        for (String scope : scopes) {
+            AccessTokenDAOImpl.insertTokenScopesInBatch(connection, SQLQueries.INSERT_OAUTH2_TOKEN_SCOPE, tokenId,
+                    new String[]{scope}, 1);
+        }
+        connection.commit();
+    }
+
+    @Benchmark
+    public void insertBatch() throws SQLException {
+
+        AccessTokenDAOImpl.insertTokenScopesInBatch(connection, SQLQueries.INSERT_OAUTH2_TOKEN_SCOPE, nextTokenId(),
+                scopes, 1);
+        connection.commit();
+    }
+
+    @Benchmark
+    public void insertMultiRow() throws SQLException {
+
+        AccessTokenDAOImpl.insertTokenScopesWithMultiRowStatement(connection, SQLQueries.INSERT_OAUTH2_TOKEN_SCOPES,
+                nextTokenId(), scopes, 1);
+        connection.commit();
+    }
+
+    private String nextTokenId() {
+
+        return Thread.currentThread().getId() + "_" + tokenCount++;
+    }
+}
@@ -43,6 +43,7 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
+import static org.wso2.carbon.identity.oauth2.util.OAuth2ConfigUtil.readIntProperty;
 import static org.wso2.carbon.identity.oauth2.util.OAuth2Util.triggerOnIntrospectionExceptionListeners;
 
 /**
@@ -60,6 +61,8 @@ public class OAuth2IntrospectionEndpoint {
     private static final String INVALID_INPUT = "Invalid input";
 
     private static final String ACCESS_TOKEN_HINT = "access_token";
+    private static final String MAX_BATCH_SIZE = "OAuth.Introspection.MaxBatchSize";
+    private static final int DEFAULT_MAX_BATCH_SIZE = 100;
 
     /**
      * Token introspection endpoint.
@@ -111,15 +114,114 @@ public class OAuth2IntrospectionEndpoint {
                     entity("{\"error\": \"" + INVALID_INPUT + "\"}").build();
         }
 
+        String[] claimsUris = getRequiredClaimURIs(requiredClaims);
+
+        // validate the access token against the OAuth2TokenValidationService OSGi service.
+        introspectionRequest = buildIntrospectionRequest(token, tokenTypeHint, claimsUris);
+
+        OAuth2TokenValidationService tokenService = (OAuth2TokenValidationService) PrivilegedCarbonContext
+                .getThreadLocalCarbonContext().getOSGiService(OAuth2TokenValidationService.class);
+
+        introspectionResponse = tokenService.buildIntrospectionResponse(introspectionRequest);
+
+        try {
+            return Response.ok(buildResponseBody(introspectionRequest, introspectionResponse, requiredClaims),
+                    MediaType.APPLICATION_JSON).status(Response.Status.OK).build();
+        } catch (IdentityOAuth2Exception e) {
+            return buildAdditionalDataErrorResponse(e);
+        } catch (JSONException e) {
+            return buildJSONErrorResponse(e);
+        }
+    }
+
+    /**
+     * Batch token introspection endpoint for resource servers which introspect many tokens at once. Each token is
+     * introspected as done by the token introspection endpoint, while the access tokens of the batch are looked up
+     * in bulk.
+     *
+     * @param tokens         access tokens or refresh tokens
+     * @param tokenTypeHint  hint for the type of the tokens submitted for introspection
+     * @param requiredClaims comma separated list of claims to be returned in JWT
+     * @return JSON array of the introspection responses, in the order of the given tokens
+     */
+    @POST
+    @Path("/batch")
+    public Response introspectBatch(@FormParam("token") List<String> tokens,
+                                    @FormParam("token_type_hint") String tokenTypeHint,
+                                    @FormParam("required_claims") String requiredClaims) {
+
+        if (tokens == null || tokens.isEmpty() || tokens.stream().anyMatch(StringUtils::isBlank)) {
+            OAuth2IntrospectionResponseDTO introspectionResponse = new OAuth2IntrospectionResponseDTO();
+            introspectionResponse.setError(INVALID_INPUT);
+            triggerOnIntrospectionExceptionListeners(null, introspectionResponse);
+            return Response.status(Response.Status.BAD_REQUEST).
+                    entity("{\"error\": \"" + INVALID_INPUT + "\"}").build();
+        }
+        int maxBatchSize = readIntProperty(MAX_BATCH_SIZE, DEFAULT_MAX_BATCH_SIZE);
+        if (tokens.size() > maxBatchSize) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("{\"error\": \"Number of tokens exceeds " +
+                    "the maximum batch size of " + maxBatchSize + "\"}").build();
+        }
+
+        if (LoggerUtils.isDiagnosticLogsEnabled()) {
+            Map<String, Object> params = new HashMap<>();
+            params.put("tokenCount", tokens.size());
+            if (StringUtils.isNotBlank(tokenTypeHint)) {
+                params.put("tokenTypeHint", tokenTypeHint);
+            }
+            LoggerUtils.triggerDiagnosticLogEvent(OAuthConstants.LogConstants.OAUTH_INBOUND_SERVICE, params,
+                    OAuthConstants.LogConstants.SUCCESS, "Successfully received batch introspect request.",
+                    "receive-introspect-request", null);
+        }
+
+        String[] claimsUris = getRequiredClaimURIs(requiredClaims);
+        OAuth2TokenValidationRequestDTO[] introspectionRequests = new OAuth2TokenValidationRequestDTO[tokens.size()];
+        for (int i = 0; i < tokens.size(); i++) {
+            introspectionRequests[i] = buildIntrospectionRequest(tokens.get(i), tokenTypeHint, claimsUris);
+        }
+
+        OAuth2TokenValidationService tokenService = (OAuth2TokenValidationService) PrivilegedCarbonContext
+                .getThreadLocalCarbonContext().getOSGiService(OAuth2TokenValidationService.class);
+
+        OAuth2IntrospectionResponseDTO[] introspectionResponses =
+                tokenService.buildIntrospectionResponses(introspectionRequests);
+
+        StringBuilder responseBody = new StringBuilder("[");
+        try {
+            for (int i = 0; i < introspectionResponses.length; i++) {
+                if (i > 0) {
+                    responseBody.append(',');
+                }
+                try {
+                    responseBody.append(buildResponseBody(introspectionRequests[i], introspectionResponses[i],
+                            requiredClaims));
+                } catch (IdentityOAuth2Exception e) {
+                    // A failing data provider only fails the introspection of its own token.
+                    responseBody.append(buildAdditionalDataErrorBody(e));
+                }
+            }
+        } catch (JSONException e) {
+            return buildJSONErrorResponse(e);
+        }
+        responseBody.append(']');
+        return Response.ok(responseBody.toString(), MediaType.APPLICATION_JSON).status(Response.Status.OK).build();
+    }
+
+    private String[] getRequiredClaimURIs(String requiredClaims) {
+
         String[] claimsUris = null;
         if (StringUtils.isNotEmpty(requiredClaims)) {
             claimsUris = requiredClaims.split(",");
         } else if (requiredClaims != null && requiredClaims.length() == 0) {
             claimsUris = new String[0];
         }
+        return claimsUris;
+    }
 
-        // validate the access token against the OAuth2TokenValidationService OSGi service.
-        introspectionRequest = new OAuth2TokenValidationRequestDTO();
+    private OAuth2TokenValidationRequestDTO buildIntrospectionRequest(String token, String tokenTypeHint,
+                                                                      String[] claimsUris) {
+
+        OAuth2TokenValidationRequestDTO introspectionRequest = new OAuth2TokenValidationRequestDTO();
         OAuth2TokenValidationRequestDTO.OAuth2AccessToken oAuth2Token = introspectionRequest.new OAuth2AccessToken();
 
         if (tokenTypeHint == null || StringUtils.equals(tokenTypeHint, ACCESS_TOKEN_HINT)) {
@@ -131,17 +233,28 @@ public class OAuth2IntrospectionEndpoint {
         oAuth2Token.setIdentifier(token);
         introspectionRequest.setAccessToken(oAuth2Token);
         introspectionRequest.setRequiredClaimURIs(claimsUris);
+        return introspectionRequest;
+    }
 
-        OAuth2TokenValidationService tokenService = (OAuth2TokenValidationService) PrivilegedCarbonContext
-                .getThreadLocalCarbonContext().getOSGiService(OAuth2TokenValidationService.class);
-
-        introspectionResponse = tokenService.buildIntrospectionResponse(introspectionRequest);
+    /**
+     * Build the JSON introspection response of a token.
+     *
+     * @param introspectionRequest  Introspection request of the token.
+     * @param introspectionResponse Introspection result of the token.
+     * @param requiredClaims        Claims requested to be returned in JWT.
+     * @return JSON introspection response.
+     * @throws IdentityOAuth2Exception If an introspection data provider fails.
+     * @throws JSONException           If the JSON response cannot be built.
+     */
+    private String buildResponseBody(OAuth2TokenValidationRequestDTO introspectionRequest,
+                                     OAuth2IntrospectionResponseDTO introspectionResponse, String requiredClaims)
+            throws IdentityOAuth2Exception, JSONException {
 
         if (introspectionResponse.getError() != null) {
             if (log.isDebugEnabled()) {
                 log.debug("The error why token is made inactive: " + introspectionResponse.getError());
             }
-            return Response.status(Response.Status.OK).entity("{\"active\":false}").build();
+            return "{\"active\":false}";
         }
 
         IntrospectionResponseBuilder respBuilder = new IntrospectionResponseBuilder()
@@ -193,32 +306,43 @@ public class OAuth2IntrospectionEndpoint {
                 if (log.isDebugEnabled()) {
                     log.debug("Executing introspection data provider: " + dataProvider.getClass().getName());
                 }
-                try {
-                    respBuilder.setAdditionalData(
-                            (((IntrospectionDataProvider) dataProvider).getIntrospectionData(
-                                    introspectionRequest, introspectionResponse)));
-                } catch (IdentityOAuth2Exception e) {
-                    LoggerUtils.triggerDiagnosticLogEvent(OAuthConstants.LogConstants.OAUTH_INBOUND_SERVICE, null,
-                            OAuthConstants.LogConstants.FAILED, "System error occurred.",
-                            "generate-introspect-response", null);
-                    log.error("Error occurred while processing additional token introspection data.", e);
-
-                    return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                            .entity("{\"error\": \"Error occurred while building the introspection " +
-                                    "response.\"}")
-                            .build();
-                }
+                respBuilder.setAdditionalData(
+                        (((IntrospectionDataProvider) dataProvider).getIntrospectionData(
+                                introspectionRequest, introspectionResponse)));
             }
         }
+        return respBuilder.build();
+    }
 
-        try {
-            return Response.ok(respBuilder.build(), MediaType.APPLICATION_JSON).status(Response.Status.OK).build();
-        } catch (JSONException e) {
-            LoggerUtils.triggerDiagnosticLogEvent(OAuthConstants.LogConstants.OAUTH_INBOUND_SERVICE, null,
-                    OAuthConstants.LogConstants.FAILED, "System error occurred.", "generate-introspect-response", null);
-            log.error("Error occurred while building the json response.", e);
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity("{\"error\": \"Error occurred while building the json response.\"}").build();
-        }
+    private String buildAdditionalDataErrorBody(IdentityOAuth2Exception e) {
+
+        LoggerUtils.triggerDiagnosticLogEvent(OAuthConstants.LogConstants.OAUTH_INBOUND_SERVICE, null,
+                OAuthConstants.LogConstants.FAILED, "System error occurred.",
+                "generate-introspect-response", null);
+        log.error("Error occurred while processing additional token introspection data.", e);
+
+        return "{\"active\": false, \"error\": \"Error occurred while building the introspection response.\"}";
+    }
+
+    private Response buildAdditionalDataErrorResponse(IdentityOAuth2Exception e) {
+
+        LoggerUtils.triggerDiagnosticLogEvent(OAuthConstants.LogConstants.OAUTH_INBOUND_SERVICE, null,
+                OAuthConstants.LogConstants.FAILED, "System error occurred.",
+                "generate-introspect-response", null);
+        log.error("Error occurred while processing additional token introspection data.", e);
+
+        return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                .entity("{\"error\": \"Error occurred while building the introspection " +
+                        "response.\"}")
+                .build();
+    }
+
+    private Response buildJSONErrorResponse(JSONException e) {
+
+        LoggerUtils.triggerDiagnosticLogEvent(OAuthConstants.LogConstants.OAUTH_INBOUND_SERVICE, null,
+                OAuthConstants.LogConstants.FAILED, "System error occurred.", "generate-introspect-response", null);
+        log.error("Error occurred while building the json response.", e);
+        return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                .entity("{\"error\": \"Error occurred while building the json response.\"}").build();
     }
 }
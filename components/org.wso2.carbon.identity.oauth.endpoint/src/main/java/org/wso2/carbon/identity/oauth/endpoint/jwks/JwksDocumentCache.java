@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.endpoint.jwks;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.oauth2.signing.SigningKeyChangeListener;
+import org.wso2.carbon.identity.oauth2.signing.SigningKeyRegistry;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.wso2.carbon.identity.oauth2.util.OAuth2ConfigUtil.readIntProperty;
+
+/**
+ * Per tenant cache of the serialized JWKS document. Serving a cached document does not read the key store or compute
+ * key ids.
+ * <p>
+ * A cached document is kept until the {@link SigningKeyRegistry} reports that the signing key of its tenant is
+ * invalidated or that its key store is changed. The entity tag is derived from the document, so that a rebuilt but
+ * unchanged document keeps getting not modified responses from conditional requests of resource servers. The number
+ * of cached documents is bounded, and arbitrary documents are evicted once the bound is reached.
+ */
+public class JwksDocumentCache implements SigningKeyChangeListener {
+
+    private static final Log log = LogFactory.getLog(JwksDocumentCache.class);
+
+    private static final String MAX_SIZE = "OAuth.JWKSEndpoint.Cache.MaxSize";
+    private static final String MAX_AGE = "OAuth.JWKSEndpoint.Cache.MaxAgeInSeconds";
+    private static final int DEFAULT_MAX_SIZE = 1000;
+    private static final int DEFAULT_MAX_AGE = 60;
+
+    private static volatile JwksDocumentCache instance;
+
+    private final Map<String, JwksDocument> documents = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final int maxAgeInSeconds;
+    // Incremented on every signing key change, to drop documents built while the signing key was changing.
+    private final AtomicLong changeCount = new AtomicLong();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * Create a cache.
+     *
+     * @param maxSize         Maximum number of cached tenant documents.
+     * @param maxAgeInSeconds Max age advertised to clients in the Cache-Control header.
+     */
+    public JwksDocumentCache(int maxSize, int maxAgeInSeconds) {
+
+        this.maxSize = Math.max(maxSize, 1);
+        this.maxAgeInSeconds = Math.max(maxAgeInSeconds, 0);
+    }
+
+    /**
+     * Get the cache configured in identity.xml. The cache is registered to be notified of signing key changes.
+     *
+     * @return JWKS document cache.
+     */
+    public static JwksDocumentCache getInstance() {
+
+        if (instance == null) {
+            synchronized (JwksDocumentCache.class) {
+                if (instance == null) {
+                    JwksDocumentCache cache = new JwksDocumentCache(readIntProperty(MAX_SIZE, DEFAULT_MAX_SIZE),
+                            readIntProperty(MAX_AGE, DEFAULT_MAX_AGE));
+                    SigningKeyRegistry.addChangeListener(cache);
+                    instance = cache;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Get the JWKS document of a tenant, building it if it is not cached.
+     *
+     * @param tenantDomain Tenant domain.
+     * @param builder      Builder of the document.
+     * @return JWKS document.
+     * @throws Exception When the document is not cached and building it failed.
+     */
+    public JwksDocument getDocument(String tenantDomain, JwksDocumentBuilder builder) throws Exception {
+
+        JwksDocument document = documents.get(tenantDomain);
+        if (document != null) {
+            hitCount.incrementAndGet();
+            return document;
+        }
+        missCount.incrementAndGet();
+        long changes = changeCount.get();
+        document = builder.build(tenantDomain);
+        if (documents.size() >= maxSize && !documents.containsKey(tenantDomain)) {
+            evict();
+        }
+        documents.put(tenantDomain, document);
+        if (changeCount.get() != changes) {
+            // The document may hold the signing key which was replaced while building it.
+            documents.remove(tenantDomain, document);
+        }
+        return document;
+    }
+
+    /**
+     * Drop the cached document of a tenant.
+     *
+     * @param tenantDomain Tenant domain.
+     */
+    public void invalidate(String tenantDomain) {
+
+        documents.remove(tenantDomain);
+    }
+
+    /**
+     * Drop every cached document.
+     */
+    public void invalidateAll() {
+
+        documents.clear();
+    }
+
+    @Override
+    public void onSigningKeyChange(int tenantId) {
+
+        changeCount.incrementAndGet();
+        boolean removed = documents.values().removeIf(document -> document.getTenantId() == tenantId);
+        if (removed && log.isDebugEnabled()) {
+            log.debug("Dropped cached JWKS document of tenant: " + tenantId);
+        }
+    }
+
+    public int getMaxAgeInSeconds() {
+
+        return maxAgeInSeconds;
+    }
+
+    public long getHitCount() {
+
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+
+        return evictionCount.get();
+    }
+
+    public int getSize() {
+
+        return documents.size();
+    }
+
+    private void evict() {
+
+        // Evict a tenth of the documents at once, so that the cache is not scanned for every new tenant once full.
+        int targetSize = maxSize - Math.max(1, maxSize / 10);
+        Iterator<Map.Entry<String, JwksDocument>> iterator = documents.entrySet().iterator();
+        while (documents.size() > targetSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictionCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Builds the JWKS document of a tenant.
+     */
+    public interface JwksDocumentBuilder {
+
+        JwksDocument build(String tenantDomain) throws Exception;
+    }
+
+    /**
+     * Serialized JWKS document along with its entity tag.
+     */
+    public static class JwksDocument {
+
+        private final String json;
+        private final String entityTag;
+        private final int tenantId;
+
+        public JwksDocument(String json, int tenantId) {
+
+            this.json = json;
+            this.entityTag = computeEntityTag(json);
+            this.tenantId = tenantId;
+        }
+
+        public String getJson() {
+
+            return json;
+        }
+
+        /**
+         * Get the entity tag of the document, without quotes.
+         *
+         * @return Entity tag.
+         */
+        public String getEntityTag() {
+
+            return entityTag;
+        }
+
+        public int getTenantId() {
+
+            return tenantId;
+        }
+
+        /**
+         * Whether the value of an If-None-Match header matches this document.
+         *
+         * @param ifNoneMatch If-None-Match header value.
+         * @return True if the client already holds this document.
+         */
+        public boolean matches(String ifNoneMatch) {
+
+            if (StringUtils.isBlank(ifNoneMatch)) {
+                return false;
+            }
+            for (String tag : ifNoneMatch.split(",")) {
+                tag = tag.trim();
+                if ("*".equals(tag)) {
+                    return true;
+                }
+                // Weak comparison is used for If-None-Match.
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+                    tag = tag.substring(1, tag.length() - 1);
+                }
+                if (entityTag.equals(tag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static String computeEntityTag(String json) {
+
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(json.getBytes(StandardCharsets.UTF_8));
+                return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+            } catch (NoSuchAlgorithmException e) {
+                // SHA-256 is supported by every Java platform.
+                throw new IllegalStateException("SHA-256 is not available.", e);
+            }
+        }
+    }
+}
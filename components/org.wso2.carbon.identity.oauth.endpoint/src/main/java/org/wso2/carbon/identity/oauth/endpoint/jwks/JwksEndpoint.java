@@ -32,6 +32,7 @@ import org.wso2.carbon.identity.core.util.IdentityTenantUtil;
 import org.wso2.carbon.identity.core.util.IdentityUtil;
 import org.wso2.carbon.identity.oauth.common.OAuthConstants;
 import org.wso2.carbon.identity.oauth.config.OAuthServerConfiguration;
+import org.wso2.carbon.identity.oauth.endpoint.jwks.JwksDocumentCache.JwksDocument;
 import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
 import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
 import org.wso2.carbon.utils.CarbonUtils;
@@ -49,9 +50,14 @@ import java.util.Map;
 
 import javax.jws.WebService;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 
 /**
  * Rest implementation for JWKS endpoint.
@@ -68,21 +74,58 @@ public class JwksEndpoint {
     @GET
     @Path(value = "/jwks")
     @Produces(MediaType.APPLICATION_JSON)
+    public Response jwks(@HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) {
+
+        String tenantDomain = getTenantDomain();
+        JwksDocumentCache cache = JwksDocumentCache.getInstance();
+        JwksDocument document;
+        try {
+            document = cache.getDocument(tenantDomain, this::buildJwksDocument);
+        } catch (Exception e) {
+            String errorMessage = "Error while generating the keyset for tenant domain: " + tenantDomain;
+            return Response.ok(logAndReturnError(errorMessage, e)).build();
+        }
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setMaxAge(cache.getMaxAgeInSeconds());
+        EntityTag entityTag = new EntityTag(document.getEntityTag());
+        if (document.matches(ifNoneMatch)) {
+            return Response.notModified(entityTag).cacheControl(cacheControl).build();
+        }
+        return Response.ok(document.getJson()).tag(entityTag).cacheControl(cacheControl).build();
+    }
+
+    /**
+     * Get the JWKS of the tenant in the request context.
+     *
+     * @return Serialized JWKS, or an error message if the keyset could not be generated.
+     */
     public String jwks() {
 
         String tenantDomain = getTenantDomain();
+        try {
+            return JwksDocumentCache.getInstance().getDocument(tenantDomain, this::buildJwksDocument).getJson();
+        } catch (Exception e) {
+            String errorMessage = "Error while generating the keyset for tenant domain: " + tenantDomain;
+            return logAndReturnError(errorMessage, e);
+        }
+    }
+
+    private JwksDocument buildJwksDocument(String tenantDomain) throws Exception {
+
         String keystorePath = CarbonUtils.getServerConfiguration().getFirstProperty(SECURITY_KEY_STORE_LOCATION);
 
         try (FileInputStream file = new FileInputStream(keystorePath)) {
             final KeyStore keystore;
+            final int tenantId;
             Map<String, Certificate> certificatesWithAliases = new HashMap<>();
             if (MultitenantConstants.SUPER_TENANT_DOMAIN_NAME.equalsIgnoreCase(tenantDomain)) {
+                tenantId = MultitenantConstants.SUPER_TENANT_ID;
                 keystore = KeyStore.getInstance(KeyStore.getDefaultType());
                 String password = CarbonUtils.getServerConfiguration().getFirstProperty(SECURITY_KEY_STORE_PW);
                 keystore.load(file, password.toCharArray());
             } else {
                 try {
-                    int tenantId = IdentityTenantUtil.getTenantId(tenantDomain);
+                    tenantId = IdentityTenantUtil.getTenantId(tenantDomain);
                     IdentityTenantUtil.initializeRegistry(tenantId);
                     FrameworkUtils.startTenantFlow(tenantDomain);
                     KeyStoreManager keyStoreManager = KeyStoreManager.getInstance(tenantId);
@@ -99,14 +142,11 @@ public class JwksEndpoint {
                     certificatesWithAliases.put(alias, cert);
                 }
             }
-            return buildResponse(certificatesWithAliases);
-        } catch (Exception e) {
-            String errorMessage = "Error while generating the keyset for tenant domain: " + tenantDomain;
-            return logAndReturnError(errorMessage, e);
+            return new JwksDocument(buildResponse(certificatesWithAliases, tenantDomain), tenantId);
         }
     }
 
-    private String buildResponse(Map<String, Certificate> certificates)
+    private String buildResponse(Map<String, Certificate> certificates, String tenantDomain)
             throws IdentityOAuth2Exception, ParseException {
 
         JSONArray jwksArray = new JSONArray();
@@ -123,7 +163,7 @@ public class JwksEndpoint {
                 String alias = (String) certificateWithAlias.getKey();
                 RSAPublicKey publicKey = (RSAPublicKey) cert.getPublicKey();
                 RSAKey.Builder jwk = new RSAKey.Builder(publicKey);
-                jwk.keyID(OAuth2Util.getKID(cert, algorithm, getTenantDomain()));
+                jwk.keyID(OAuth2Util.getKID(cert, algorithm, tenantDomain));
                 jwk.algorithm(algorithm);
                 jwk.keyUse(KeyUse.parse(KEY_USE));
                 jwksArray.put(jwk.build().toJSONObject());
@@ -25,11 +25,16 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.wso2.carbon.base.MultitenantConstants;
 import org.wso2.carbon.base.ServerConfigurationException;
 import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.discovery.DefaultOIDCProcessor;
 import org.wso2.carbon.identity.discovery.OIDCDiscoveryEndPointException;
 import org.wso2.carbon.identity.discovery.OIDCProcessor;
 import org.wso2.carbon.identity.discovery.builders.OIDProviderResponseBuilder;
 import org.wso2.carbon.identity.oauth.common.OAuthConstants;
 import org.wso2.carbon.identity.oauth.endpoint.util.EndpointUtil;
+import org.wso2.carbon.identity.openidconnect.cache.OIDCDiscoveryDocumentCache;
+import org.wso2.carbon.identity.openidconnect.cache.OIDCDiscoveryDocumentCacheEntry;
+
+import java.util.Date;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -38,6 +43,8 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 
 /**
@@ -49,6 +56,7 @@ public class OIDCDiscoveryEndpoint {
     private static final Log log = LogFactory.getLog(OIDCDiscoveryEndpoint.class);
     private static final String DISCOVERY_ENDPOINT_PATH_COMPONENT_VALUE_TOKEN = "token";
     private static final String DISCOVERY_ENDPOINT_PATH_COMPONENT_VALUE_OIDCDISCOVERY = "oidcdiscovery";
+    private static final String ANY_ENTITY_TAG = "*";
     private OIDProviderResponseBuilder oidProviderResponseBuilder;
 
     @GET
@@ -96,21 +104,66 @@ public class OIDCDiscoveryEndpoint {
 
     private Response getResponse(HttpServletRequest request, String tenant) {
 
-        String response;
         OIDCProcessor processor = EndpointUtil.getOIDCService();
-        try {
-            OIDProviderResponseBuilder responseBuilder = getOidProviderResponseBuilder();
-            response = responseBuilder.getOIDProviderConfigString(processor.getResponse(request, tenant));
-        } catch (OIDCDiscoveryEndPointException e) {
-            Response.ResponseBuilder errorResponse = Response.status(processor.handleError(e));
-            return errorResponse.entity(e.getMessage()).build();
-        } catch (ServerConfigurationException e) {
-            log.error("Server Configuration error occurred.", e);
-            Response.ResponseBuilder errorResponse = Response.status(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-            return errorResponse.entity("Error in reading configuration.").build();
+        // Only the document built by the default processor is known to depend on nothing but the tenant.
+        boolean cacheable = processor instanceof DefaultOIDCProcessor;
+        OIDCDiscoveryDocumentCacheEntry document = null;
+        if (cacheable) {
+            document = OIDCDiscoveryDocumentCache.getInstance().getDocument(tenant);
+        }
+        if (document == null) {
+            try {
+                OIDProviderResponseBuilder responseBuilder = getOidProviderResponseBuilder();
+                document = new OIDCDiscoveryDocumentCacheEntry(
+                        responseBuilder.getOIDProviderConfigString(processor.getResponse(request, tenant)),
+                        System.currentTimeMillis());
+            } catch (OIDCDiscoveryEndPointException e) {
+                Response.ResponseBuilder errorResponse = Response.status(processor.handleError(e));
+                return errorResponse.entity(e.getMessage()).build();
+            } catch (ServerConfigurationException e) {
+                log.error("Server Configuration error occurred.", e);
+                Response.ResponseBuilder errorResponse = Response.status(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                return errorResponse.entity("Error in reading configuration.").build();
+            }
+            if (cacheable) {
+                OIDCDiscoveryDocumentCache.getInstance().addDocument(tenant, document);
+            }
+        }
+
+        EntityTag eTag = new EntityTag(document.getETag());
+        Date lastModified = new Date(document.getLastModified());
+        if (isNotModified(request, document)) {
+            return Response.notModified(eTag).lastModified(lastModified).build();
         }
         Response.ResponseBuilder responseBuilder = Response.status(HttpServletResponse.SC_OK);
-        return responseBuilder.entity(response).build();
+        return responseBuilder.entity(document.getDocument()).tag(eTag).lastModified(lastModified).build();
+    }
+
+    /**
+     * Whether the client already holds the current discovery document. If-None-Match takes precedence over
+     * If-Modified-Since, as required by RFC 7232.
+     */
+    private boolean isNotModified(HttpServletRequest request, OIDCDiscoveryDocumentCacheEntry document) {
+
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (StringUtils.isNotBlank(ifNoneMatch)) {
+            for (String tag : ifNoneMatch.split(",")) {
+                String value = StringUtils.removeStart(tag.trim(), "W/");
+                if (ANY_ENTITY_TAG.equals(value) || ("\"" + document.getETag() + "\"").equals(value)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        try {
+            long ifModifiedSince = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+            return ifModifiedSince >= 0 && document.getLastModified() <= ifModifiedSince;
+        } catch (IllegalArgumentException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Ignoring invalid " + HttpHeaders.IF_MODIFIED_SINCE + " header of the discovery request.");
+            }
+            return false;
+        }
     }
 
     @Autowired
@@ -18,12 +18,18 @@ import org.wso2.carbon.identity.central.log.mgt.utils.LoggerUtils;
 import org.wso2.carbon.identity.core.util.IdentityTenantUtil;
 import org.wso2.carbon.identity.oauth.config.OAuthServerConfiguration;
 import org.wso2.carbon.identity.oauth.tokenprocessor.TokenPersistenceProcessor;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+import org.wso2.carbon.identity.oauth2.IntrospectionDataProvider;
 import org.wso2.carbon.identity.oauth2.OAuth2TokenValidationService;
 import org.wso2.carbon.identity.oauth2.dto.OAuth2IntrospectionResponseDTO;
+import org.wso2.carbon.identity.oauth2.dto.OAuth2TokenValidationRequestDTO;
 import org.wso2.carbon.identity.testutil.powermock.PowerMockIdentityBaseTest;
 
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 
 import javax.ws.rs.core.Response;
 
@@ -31,10 +37,12 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.anyVararg;
+import static org.mockito.Matchers.same;
 import static org.powermock.api.mockito.PowerMockito.mock;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
 import static org.powermock.api.mockito.PowerMockito.when;
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNotNull;
 
 @PrepareForTest({PrivilegedCarbonContext.class, LoggerUtils.class, IdentityTenantUtil.class,
         OAuthServerConfiguration.class, TokenPersistenceProcessor.class})
@@ -108,6 +116,111 @@ public class OAuth2IntrospectionEndpointTest extends PowerMockIdentityBaseTest {
 
     }
 
+    @Test
+    public void testBatchIntrospection() throws Exception {
+
+        OAuth2TokenValidationService mockedTokenService = mock(OAuth2TokenValidationService.class);
+        OAuth2IntrospectionResponseDTO inactiveIntrospectionResponse = new OAuth2IntrospectionResponseDTO();
+        inactiveIntrospectionResponse.setError("Invalid input");
+
+        mockStatic(LoggerUtils.class);
+        when(LoggerUtils.isDiagnosticLogsEnabled()).thenReturn(true);
+        mockStatic(IdentityTenantUtil.class);
+        when(IdentityTenantUtil.getTenantDomain(anyInt())).thenReturn(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME);
+        when(IdentityTenantUtil.getTenantId(anyString())).thenReturn(MultitenantConstants.SUPER_TENANT_ID);
+        mockOAuthServerConfiguration();
+        mockStatic(PrivilegedCarbonContext.class);
+        when(PrivilegedCarbonContext.getThreadLocalCarbonContext()).thenReturn(mockedPrivilegedCarbonContext);
+        when(mockedPrivilegedCarbonContext.getOSGiService(any())).thenReturn(mockedTokenService);
+
+        when(mockedTokenService.buildIntrospectionResponses(any(OAuth2TokenValidationRequestDTO[].class)))
+                .thenReturn(new OAuth2IntrospectionResponseDTO[]{mockedIntrospectionResponse,
+                        inactiveIntrospectionResponse});
+        when(mockedIntrospectionResponse.getError()).thenReturn(null);
+        when(mockedIntrospectionResponse.isActive()).thenReturn(true);
+        when(mockedIntrospectionResponse.getTokenType()).thenReturn("Bearer");
+
+        Response response = oAuth2IntrospectionEndpoint.introspectBatch(Arrays.asList("TOKEN1", "TOKEN2"),
+                BEARER_TOKEN_TYPE_HINT, null);
+
+        assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
+        List<HashMap<String, Object>> responses = new Gson().fromJson((String) response.getEntity(),
+                new TypeToken<List<HashMap<String, Object>>>() {
+                }.getType());
+        assertEquals(responses.size(), 2);
+        assertEquals(responses.get(0).get("active"), true);
+        assertEquals(responses.get(0).get("token_type"), "Bearer");
+        assertEquals(responses.get(1).get("active"), false);
+    }
+
+    @Test
+    public void testBatchIntrospectionWithFailingDataProvider() throws Exception {
+
+        OAuth2TokenValidationService mockedTokenService = mock(OAuth2TokenValidationService.class);
+        OAuth2IntrospectionResponseDTO failingIntrospectionResponse = new OAuth2IntrospectionResponseDTO();
+        failingIntrospectionResponse.setActive(true);
+        IntrospectionDataProvider dataProvider = mock(IntrospectionDataProvider.class);
+
+        mockStatic(LoggerUtils.class);
+        when(LoggerUtils.isDiagnosticLogsEnabled()).thenReturn(false);
+        mockStatic(IdentityTenantUtil.class);
+        when(IdentityTenantUtil.getTenantDomain(anyInt())).thenReturn(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME);
+        when(IdentityTenantUtil.getTenantId(anyString())).thenReturn(MultitenantConstants.SUPER_TENANT_ID);
+        mockOAuthServerConfiguration();
+        mockStatic(PrivilegedCarbonContext.class);
+        when(PrivilegedCarbonContext.getThreadLocalCarbonContext()).thenReturn(mockedPrivilegedCarbonContext);
+        when(mockedPrivilegedCarbonContext.getOSGiService(any())).thenReturn(mockedTokenService);
+        when(mockedPrivilegedCarbonContext.getOSGiServices(any(), any()))
+                .thenReturn(Collections.<Object>singletonList(dataProvider));
+
+        when(mockedTokenService.buildIntrospectionResponses(any(OAuth2TokenValidationRequestDTO[].class)))
+                .thenReturn(new OAuth2IntrospectionResponseDTO[]{mockedIntrospectionResponse,
+                        failingIntrospectionResponse});
+        when(mockedIntrospectionResponse.getError()).thenReturn(null);
+        when(mockedIntrospectionResponse.isActive()).thenReturn(true);
+        when(mockedIntrospectionResponse.getTokenType()).thenReturn("Bearer");
+        when(dataProvider.getIntrospectionData(any(OAuth2TokenValidationRequestDTO.class),
+                same(mockedIntrospectionResponse)))
+                .thenReturn(Collections.<String, Object>singletonMap("custom", "value"));
+        when(dataProvider.getIntrospectionData(any(OAuth2TokenValidationRequestDTO.class),
+                same(failingIntrospectionResponse))).thenThrow(new IdentityOAuth2Exception("Data provider failed"));
+
+        Response response = oAuth2IntrospectionEndpoint.introspectBatch(Arrays.asList("TOKEN1", "TOKEN2"),
+                BEARER_TOKEN_TYPE_HINT, null);
+
+        // Only the token whose data provider failed is reported as failed.
+        assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
+        List<HashMap<String, Object>> responses = new Gson().fromJson((String) response.getEntity(),
+                new TypeToken<List<HashMap<String, Object>>>() {
+                }.getType());
+        assertEquals(responses.size(), 2);
+        assertEquals(responses.get(0).get("active"), true);
+        assertEquals(responses.get(0).get("custom"), "value");
+        assertEquals(responses.get(1).get("active"), false);
+        assertNotNull(responses.get(1).get("error"));
+    }
+
+    @DataProvider(name = "provideInvalidBatches")
+    public Object[][] provideInvalidBatches() {
+
+        return new Object[][]{
+                {null},
+                {Collections.emptyList()},
+                {Arrays.asList("TOKEN1", "")},
+                {Collections.nCopies(101, "TOKEN")}
+        };
+    }
+
+    @Test(dataProvider = "provideInvalidBatches")
+    public void testInvalidBatchIntrospection(List<String> tokens) {
+
+        mockStatic(LoggerUtils.class);
+        when(LoggerUtils.isDiagnosticLogsEnabled()).thenReturn(false);
+
+        Response response = oAuth2IntrospectionEndpoint.introspectBatch(tokens, BEARER_TOKEN_TYPE_HINT, null);
+        assertEquals(response.getStatus(), Response.Status.BAD_REQUEST.getStatusCode());
+    }
+
     private void mockOAuthServerConfiguration() throws Exception {
 
         mockStatic(OAuthServerConfiguration.class);
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.endpoint.jwks;
+
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.oauth.endpoint.jwks.JwksDocumentCache.JwksDocument;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class JwksDocumentCacheTest {
+
+    private static final String TENANT_DOMAIN = "foo.com";
+    private static final int TENANT_ID = 1;
+
+    @Test
+    public void testCachedDocumentIsServed() throws Exception {
+
+        JwksDocumentCache cache = new JwksDocumentCache(10, 60);
+        AtomicInteger builds = new AtomicInteger();
+        JwksDocument first = cache.getDocument(TENANT_DOMAIN, tenantDomain -> {
+            builds.incrementAndGet();
+            return new JwksDocument("{\"keys\":[]}", TENANT_ID);
+        });
+        JwksDocument second = cache.getDocument(TENANT_DOMAIN, tenantDomain -> {
+            builds.incrementAndGet();
+            return new JwksDocument("{\"keys\":[]}", TENANT_ID);
+        });
+
+        assertSame(second, first);
+        assertEquals(builds.get(), 1, "Cached document should not be rebuilt.");
+        assertEquals(cache.getMissCount(), 1);
+        assertEquals(cache.getHitCount(), 1);
+    }
+
+    @Test
+    public void testDocumentIsKeptUntilSigningKeyChange() throws Exception {
+
+        JwksDocumentCache cache = new JwksDocumentCache(10, 60);
+        JwksDocument cached = cache.getDocument(TENANT_DOMAIN, tenantDomain ->
+                new JwksDocument("{\"keys\":[]}", TENANT_ID));
+        assertSame(cache.getDocument(TENANT_DOMAIN, tenantDomain -> {
+            throw new IllegalStateException("Key store should not be read.");
+        }), cached);
+
+        cache.onSigningKeyChange(TENANT_ID);
+        JwksDocument rebuilt = cache.getDocument(TENANT_DOMAIN, tenantDomain ->
+                new JwksDocument("{\"keys\":[]}", TENANT_ID));
+        assertNotSame(rebuilt, cached);
+        assertEquals(rebuilt.getEntityTag(), cached.getEntityTag(),
+                "An unchanged document should keep its entity tag.");
+    }
+
+    @Test
+    public void testDocumentBuiltDuringSigningKeyChangeIsNotCached() throws Exception {
+
+        JwksDocumentCache cache = new JwksDocumentCache(10, 60);
+        JwksDocument stale = cache.getDocument(TENANT_DOMAIN, tenantDomain -> {
+            cache.onSigningKeyChange(TENANT_ID);
+            return new JwksDocument("{\"keys\":[]}", TENANT_ID);
+        });
+        JwksDocument current = cache.getDocument(TENANT_DOMAIN, tenantDomain ->
+                new JwksDocument("{\"keys\":[{}]}", TENANT_ID));
+        assertNotEquals(current.getEntityTag(), stale.getEntityTag());
+    }
+
+    @Test
+    public void testSizeIsBounded() throws Exception {
+
+        JwksDocumentCache cache = new JwksDocumentCache(10, 60);
+        for (int i = 0; i < 25; i++) {
+            int tenantId = i;
+            cache.getDocument("tenant" + i + ".com", tenantDomain -> new JwksDocument("{\"keys\":[]}", tenantId));
+            assertTrue(cache.getSize() <= 10, "Cache size should not exceed the maximum size.");
+        }
+        assertTrue(cache.getEvictionCount() > 0);
+    }
+
+    @Test
+    public void testFailedBuildIsNotCached() throws Exception {
+
+        JwksDocumentCache cache = new JwksDocumentCache(10, 60);
+        try {
+            cache.getDocument(TENANT_DOMAIN, tenantDomain -> {
+                throw new IllegalStateException("Key store is not available.");
+            });
+            fail("Build failure should be propagated.");
+        } catch (IllegalStateException e) {
+            // Expected.
+        }
+        JwksDocument document = cache.getDocument(TENANT_DOMAIN, tenantDomain ->
+                new JwksDocument("{\"keys\":[]}", TENANT_ID));
+        assertEquals(document.getJson(), "{\"keys\":[]}");
+    }
+
+    @Test
+    public void testSigningKeyChangeDropsDocument() throws Exception {
+
+        JwksDocumentCache cache = new JwksDocumentCache(10, 60);
+        JwksDocument cached = cache.getDocument(TENANT_DOMAIN, tenantDomain ->
+                new JwksDocument("{\"keys\":[]}", TENANT_ID));
+
+        cache.onSigningKeyChange(TENANT_ID + 1);
+        assertSame(cache.getDocument(TENANT_DOMAIN, tenantDomain -> new JwksDocument("{}", TENANT_ID)), cached);
+
+        cache.onSigningKeyChange(TENANT_ID);
+        assertNotEquals(cache.getDocument(TENANT_DOMAIN, tenantDomain -> new JwksDocument("{}", TENANT_ID))
+                .getEntityTag(), cached.getEntityTag());
+    }
+
+    @Test
+    public void testIfNoneMatch() {
+
+        JwksDocument document = new JwksDocument("{\"keys\":[]}", TENANT_ID);
+        String entityTag = document.getEntityTag();
+
+        assertTrue(document.matches("\"" + entityTag + "\""));
+        assertTrue(document.matches("W/\"" + entityTag + "\""));
+        assertTrue(document.matches("\"other\", \"" + entityTag + "\""));
+        assertTrue(document.matches("*"));
+        assertFalse(document.matches("\"other\""));
+        assertFalse(document.matches(null));
+        assertFalse(document.matches(""));
+    }
+}
@@ -52,6 +52,8 @@ import java.security.KeyStore;
 import java.util.HashMap;
 import java.util.Map;
 
+import javax.ws.rs.core.Response;
+
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
@@ -59,6 +61,7 @@ import static org.powermock.api.mockito.PowerMockito.doNothing;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
 import static org.powermock.api.mockito.PowerMockito.when;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
@@ -112,6 +115,7 @@ public class JwksEndpointTest extends PowerMockIdentityBaseTest {
     @Test(dataProvider = "provideTenantDomain")
     public void testJwks(String tenantDomain, int tenantId) throws Exception {
 
+        JwksDocumentCache.getInstance().invalidateAll();
         Path keystorePath = Paths.get(System.getProperty(CarbonBaseConstants.CARBON_HOME), "repository", "resources",
                 "security", "wso2carbon.jks");
         mockOAuthServerConfiguration();
@@ -192,6 +196,45 @@ public class JwksEndpointTest extends PowerMockIdentityBaseTest {
         threadLocalProperties.get().remove(OAuthConstants.TENANT_NAME_FROM_CONTEXT);
     }
 
+    @Test(dependsOnMethods = "testJwks")
+    public void testConditionalJwksRequest() throws Exception {
+
+        JwksDocumentCache.getInstance().invalidateAll();
+        Path keystorePath = Paths.get(System.getProperty(CarbonBaseConstants.CARBON_HOME), "repository", "resources",
+                "security", "wso2carbon.jks");
+        mockOAuthServerConfiguration();
+        mockStatic(CarbonUtils.class);
+        when(CarbonUtils.getServerConfiguration()).thenReturn(serverConfiguration);
+        when(serverConfiguration.getFirstProperty("Security.KeyStore.Location")).thenReturn(keystorePath.toString());
+        when(serverConfiguration.getFirstProperty("Security.KeyStore.Password")).thenReturn("wso2carbon");
+
+        mockStatic(OAuth2Util.class);
+        when(OAuth2Util.getKID(any(), any(), anyString())).thenReturn(CERT_THUMB_PRINT);
+        when(OAuth2Util.mapSignatureAlgorithmForJWSAlgorithm("SHA256withRSA")).thenReturn(JWSAlgorithm.RS256);
+        when(OAuth2Util.mapSignatureAlgorithmForJWSAlgorithm("SHA512withRSA")).thenReturn(JWSAlgorithm.RS512);
+        when(OAuth2Util.mapSignatureAlgorithmForJWSAlgorithm("SHA384withRSA")).thenReturn(JWSAlgorithm.RS384);
+
+        Response response = jwksEndpoint.jwks((String) null);
+        assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
+        assertNotNull(response.getEntityTag(), "Entity tag is not set");
+        String entityTag = response.getEntityTag().getValue();
+        String json = (String) response.getEntity();
+
+        // The cached document is served without reading the key store again.
+        when(serverConfiguration.getFirstProperty("Security.KeyStore.Location")).thenReturn("invalid.jks");
+        response = jwksEndpoint.jwks((String) null);
+        assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
+        assertEquals(response.getEntity(), json, "Cached JWKS document is not served");
+
+        response = jwksEndpoint.jwks("\"" + entityTag + "\"");
+        assertEquals(response.getStatus(), Response.Status.NOT_MODIFIED.getStatusCode());
+        assertEquals(response.getEntityTag().getValue(), entityTag, "Incorrect entity tag");
+
+        response = jwksEndpoint.jwks("\"stale\"");
+        assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
+        JwksDocumentCache.getInstance().invalidateAll();
+    }
+
     private void mockOAuthServerConfiguration() throws Exception {
 
         mockStatic(OAuthServerConfiguration.class);
@@ -39,6 +39,8 @@ import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 
 import static org.mockito.Matchers.any;
@@ -88,6 +90,43 @@ public class OIDCDiscoveryEndpointTest extends PowerMockIdentityBaseTest {
             String tokenEp, Map<String, Object> configMap, int expectedResponse)
             throws Exception {
 
+        ThreadLocal<Map<String, Object>> threadLocalProperties = mockDiscoveryRequest(configMap);
+        Response response = oidcDiscoveryEndpoint.getOIDProviderConfiguration(tokenEp, httpServletRequest);
+        Assert.assertEquals(expectedResponse, response.getStatus());
+        threadLocalProperties.get().remove(OAuthConstants.TENANT_NAME_FROM_CONTEXT);
+    }
+
+    @Test
+    public void testConditionalDiscoveryRequest() throws Exception {
+
+        ThreadLocal<Map<String, Object>> threadLocalProperties = mockDiscoveryRequest(getSampleConfigMap());
+        when(httpServletRequest.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE)).thenReturn(-1L);
+        Response response = oidcDiscoveryEndpoint.getOIDProviderConfiguration("token", httpServletRequest);
+        Assert.assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+        EntityTag eTag = response.getEntityTag();
+        Assert.assertNotNull(eTag);
+        Assert.assertNotNull(response.getLastModified());
+
+        when(httpServletRequest.getHeader(HttpHeaders.IF_NONE_MATCH)).thenReturn("\"" + eTag.getValue() + "\"");
+        response = oidcDiscoveryEndpoint.getOIDProviderConfiguration("token", httpServletRequest);
+        Assert.assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.getStatus());
+        Assert.assertNull(response.getEntity());
+
+        when(httpServletRequest.getHeader(HttpHeaders.IF_NONE_MATCH)).thenReturn("\"stale\"");
+        when(httpServletRequest.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE))
+                .thenReturn(System.currentTimeMillis() + 60000);
+        response = oidcDiscoveryEndpoint.getOIDProviderConfiguration("token", httpServletRequest);
+        Assert.assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+
+        when(httpServletRequest.getHeader(HttpHeaders.IF_NONE_MATCH)).thenReturn(null);
+        response = oidcDiscoveryEndpoint.getOIDProviderConfiguration("token", httpServletRequest);
+        Assert.assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.getStatus());
+        when(httpServletRequest.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE)).thenReturn(-1L);
+        threadLocalProperties.get().remove(OAuthConstants.TENANT_NAME_FROM_CONTEXT);
+    }
+
+    private ThreadLocal<Map<String, Object>> mockDiscoveryRequest(Map<String, Object> configMap) throws Exception {
+
         ThreadLocal<Map<String, Object>> threadLocalProperties = new ThreadLocal() {
             protected Map<String, Object> initialValue() {
 
@@ -114,9 +153,7 @@ public class OIDCDiscoveryEndpointTest extends PowerMockIdentityBaseTest {
         when(defaultOIDCProcessor.handleError(any(OIDCDiscoveryEndPointException.class)))
                 .thenReturn(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
         oidcDiscoveryEndpoint.setOidProviderResponseBuilder(new OIDProviderJSONResponseBuilder());
-        Response response = oidcDiscoveryEndpoint.getOIDProviderConfiguration(tokenEp, httpServletRequest);
-        Assert.assertEquals(expectedResponse, response.getStatus());
-        threadLocalProperties.get().remove(OAuthConstants.TENANT_NAME_FROM_CONTEXT);
+        return threadLocalProperties;
     }
 
     private Map<String, Object> getSampleConfigMap() {
@@ -860,7 +860,7 @@ public class OAuthAdminServiceImpl {
                 OAuthCacheKey cacheKeyToken = new OAuthCacheKey(token);
                 OAuthCache.getInstance().clearCacheEntry(cacheKeyToken);
 
-                String scope = buildScopeString(detailToken.getScope());
+                String scope = buildScopeString(detailToken.getScopeSet());
                 String authorizedUser = detailToken.getAuthzUser().getUserId();
                 String authenticatedIDP = detailToken.getAuthzUser().getFederatedIdPName();
                 boolean isUsernameCaseSensitive = IdentityUtil.isUserStoreInUsernameCaseSensitive(authorizedUser);
@@ -878,7 +878,7 @@ public class OAuthAdminServiceImpl {
                     tokenBindingRef = detailToken.getTokenBinding().getBindingReference();
                 }
                 OAuthUtil.clearOAuthCache(consumerKey, detailToken.getAuthzUser(),
-                        OAuth2Util.buildScopeString(detailToken.getScope()), tokenBindingRef);
+                        OAuth2Util.buildScopeString(detailToken.getScopeSet()), tokenBindingRef);
             }
 
             if (LOG.isDebugEnabled()) {
@@ -1020,7 +1020,7 @@ public class OAuthAdminServiceImpl {
                 Set<String> distinctClientUserScopeCombo = new HashSet<String>();
                 for (AccessTokenDO accessTokenDO : accessTokenDOs) {
                     AccessTokenDO scopedToken;
-                    String scopeString = buildScopeString(accessTokenDO.getScope());
+                    String scopeString = buildScopeString(accessTokenDO.getScopeSet());
                     try {
                         scopedToken = OAuthTokenPersistenceFactory.getInstance().
                                 getAccessTokenDAO().getLatestAccessToken(clientId, loggedInUser, userStoreDomain,
@@ -1108,9 +1108,9 @@ public class OAuthAdminServiceImpl {
                                 tokenBindingReference = accessTokenDO.getTokenBinding().getBindingReference();
                             }
                             OAuthUtil.clearOAuthCache(accessTokenDO.getConsumerKey(), authzUser,
-                                    buildScopeString(accessTokenDO.getScope()), tokenBindingReference);
+                                    buildScopeString(accessTokenDO.getScopeSet()), tokenBindingReference);
                             OAuthUtil.clearOAuthCache(accessTokenDO.getConsumerKey(), authzUser,
-                                    buildScopeString(accessTokenDO.getScope()));
+                                    buildScopeString(accessTokenDO.getScopeSet()));
                             OAuthUtil.clearOAuthCache(accessTokenDO.getConsumerKey(), authzUser);
                             OAuthUtil.clearOAuthCache(accessTokenDO);
                             AccessTokenDO scopedToken;
@@ -1122,13 +1122,13 @@ public class OAuthAdminServiceImpl {
                                                 appDTO.getOauthConsumerKey(), user,
                                                 userStoreDomain,
                                                 buildScopeString(
-                                                        accessTokenDO.getScope()),
+                                                        accessTokenDO.getScopeSet()),
                                                 true);
                             } catch (IdentityOAuth2Exception e) {
                                 String errorMsg = "Error occurred while retrieving latest " +
                                         "access token issued for Client ID : " +
                                         appDTO.getOauthConsumerKey() + ", User ID : " + userName +
-                                        " and Scope : " + buildScopeString(accessTokenDO.getScope());
+                                        " and Scope : " + buildScopeString(accessTokenDO.getScopeSet());
                                 throw handleError(errorMsg, e);
                             }
                             if (scopedToken != null) {
@@ -1213,6 +1213,9 @@ public class OAuthAdminServiceImpl {
             }
 
             revokeAccessTokens(accessTokens, consumerKey, tenantDomain);
+            for (AccessTokenDO accessTokenDO : accessTokenDOs) {
+                OAuthUtil.clearOAuthCacheOfRevokedToken(consumerKey, accessTokenDO);
+            }
             revokeOAuthConsentsForApplication(applicationName, tenantDomain);
         }
         triggerPostApplicationTokenRevokeListeners(application, revokeRespDTO, accessTokenDOs);
@@ -1385,7 +1388,7 @@ public class OAuthAdminServiceImpl {
         AuthenticatedUser authenticatedUser = accessTokenDO.getAuthzUser();
 
         OAuthCacheKey cacheKeyToken = new OAuthCacheKey(token);
-        String scope = buildScopeString(accessTokenDO.getScope());
+        String scope = buildScopeString(accessTokenDO.getScopeSet());
         TokenBinding tokenBinding = accessTokenDO.getTokenBinding();
         String tokenBindingReference = (tokenBinding != null &&
                 StringUtils.isNotBlank(tokenBinding.getBindingReference())) ?
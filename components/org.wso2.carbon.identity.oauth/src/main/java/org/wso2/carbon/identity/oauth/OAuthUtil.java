@@ -40,9 +40,11 @@ import org.wso2.carbon.identity.oauth.util.ClaimCacheKey;
 import org.wso2.carbon.identity.oauth2.IdentityOAuth2ClientException;
 import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
 import org.wso2.carbon.identity.oauth2.IdentityOAuth2ServerException;
+import org.wso2.carbon.identity.oauth2.cache.UserRoleCache;
 import org.wso2.carbon.identity.oauth2.dao.OAuthTokenPersistenceFactory;
 import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
 import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
+import org.wso2.carbon.identity.oauth2.validators.VerifiedJWTCache;
 import org.wso2.carbon.registry.core.utils.UUIDGenerator;
 import org.wso2.carbon.user.core.UserStoreException;
 import org.wso2.carbon.user.core.UserStoreManager;
@@ -325,6 +327,8 @@ public final class OAuthUtil {
 
         OAuthCacheKey cacheKey = new OAuthCacheKey(oauthCacheKey);
         OAuthCache.getInstance().clearCacheEntry(cacheKey);
+        // Revoked self-contained access tokens are cleared by their token value.
+        VerifiedJWTCache.getInstance().invalidate(oauthCacheKey);
     }
 
     public static void clearOAuthCacheByTenant(String oauthCacheKey, String tenantDomain) {
@@ -342,6 +346,7 @@ public final class OAuthUtil {
         OAuthCacheKey cacheKey = new OAuthCacheKey(accessTokenDO.getAccessToken());
         String tenantDomain = accessTokenDO.getAuthzUser().getTenantDomain();
         OAuthCache.getInstance().clearCacheEntry(cacheKey,  tenantDomain);
+        VerifiedJWTCache.getInstance().invalidate(accessTokenDO.getAccessToken());
     }
 
     public static AuthenticatedUser getAuthenticatedUser(String fullyQualifiedUserName) {
@@ -502,6 +507,8 @@ public final class OAuthUtil {
         if (cacheKey != null) {
             claimCache.clearCacheEntry(cacheKey, userStoreManager.getTenantId());
         }
+        // Roles of the user are cached for scope validation as well.
+        UserRoleCache.getInstance().invalidate(authenticatedUser);
         return true;
     }
 
@@ -586,15 +593,15 @@ public final class OAuthUtil {
                     }
                 }
                 OAuthUtil.clearOAuthCache(accessTokenDO.getConsumerKey(), accessTokenDO.getAuthzUser(),
-                        OAuth2Util.buildScopeString(accessTokenDO.getScope()), tokenBindingReference);
+                        OAuth2Util.buildScopeString(accessTokenDO.getScopeSet()), tokenBindingReference);
                 OAuthUtil.clearOAuthCache(accessTokenDO.getConsumerKey(), accessTokenDO.getAuthzUser(),
-                        OAuth2Util.buildScopeString(accessTokenDO.getScope()), tokenBindingReference);
+                        OAuth2Util.buildScopeString(accessTokenDO.getScopeSet()), tokenBindingReference);
                 OAuthUtil.clearOAuthCache(accessTokenDO.getConsumerKey(), accessTokenDO.getAuthzUser(),
-                        OAuth2Util.buildScopeString(accessTokenDO.getScope()));
+                        OAuth2Util.buildScopeString(accessTokenDO.getScopeSet()));
                 OAuthUtil.clearOAuthCache(accessTokenDO.getConsumerKey(), accessTokenDO.getAuthzUser());
                 OAuthUtil.clearOAuthCache(accessTokenDO);
                 // Get unique scopes list
-                scopes.add(OAuth2Util.buildScopeString(accessTokenDO.getScope()));
+                scopes.add(OAuth2Util.buildScopeString(accessTokenDO.getScopeSet()));
                 accessTokens.add(accessTokenDO);
             }
 
@@ -625,12 +632,39 @@ public final class OAuthUtil {
                 OAuthUtil.invokePreRevocationBySystemListeners(accessToken, Collections.emptyMap());
                 OAuthTokenPersistenceFactory.getInstance().getAccessTokenDAO()
                         .revokeAccessTokens(new String[]{accessToken.getAccessToken()}, OAuth2Util.isHashEnabled());
+                clearOAuthCacheOfRevokedToken(accessToken.getConsumerKey(), accessToken);
                 OAuthUtil.invokePostRevocationBySystemListeners(accessToken, Collections.emptyMap());
             }
         }
         return true;
     }
 
+    /**
+     * Clear the cache entries of a revoked token once its revocation is committed. The DAO clears the entries of
+     * plain text tokens by their token value, but a hashed token is not the key its entries were added under, hence
+     * the entries of hashed tokens are cleared here through the token data. Entries added while the token was being
+     * revoked are cleared as well.
+     *
+     * @param consumerKey   Consumer key of the token.
+     * @param accessTokenDO Revoked token.
+     */
+    public static void clearOAuthCacheOfRevokedToken(String consumerKey, AccessTokenDO accessTokenDO) {
+
+        if (!OAuth2Util.isHashEnabled()) {
+            return;
+        }
+        String scope = OAuth2Util.buildScopeString(accessTokenDO.getScopeSet());
+        String tokenBindingReference = NONE;
+        if (accessTokenDO.getTokenBinding() != null &&
+                StringUtils.isNotBlank(accessTokenDO.getTokenBinding().getBindingReference())) {
+            tokenBindingReference = accessTokenDO.getTokenBinding().getBindingReference();
+        }
+        clearOAuthCache(consumerKey, accessTokenDO.getAuthzUser(), scope, tokenBindingReference);
+        clearOAuthCache(consumerKey, accessTokenDO.getAuthzUser(), scope);
+        clearOAuthCache(consumerKey, accessTokenDO.getAuthzUser());
+        clearOAuthCache(accessTokenDO);
+    }
+
     private static boolean revokeLatestTokensWithScopes(Set<String> scopes, String clientId,
                                                         AuthenticatedUser authenticatedUser) throws
             UserStoreException {
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.cache;
+
+/**
+ * Count-min sketch estimating how often keys were accessed recently, used to decide which entries are worth keeping
+ * in {@link OAuthNearCache}. Counters saturate at 15 and are halved once the number of recorded accesses reaches ten
+ * times the tracked capacity, so that keys which were hot in the past lose their weight over time.
+ * <p>
+ * Counters are updated without synchronization. A lost update only makes an estimate less accurate.
+ */
+final class FrequencySketch {
+
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    private static final int[] SEEDS = {0x97cb3127, 0xc2b2ae35, 0x85ebca6b, 0x27d4eb2f};
+
+    private final int[] table;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * Create a sketch.
+     *
+     * @param capacity Number of keys expected to be tracked.
+     */
+    FrequencySketch(int capacity) {
+
+        int width = 16;
+        int requested = Math.min(Math.max(capacity, 1), 1 << 24);
+        while (width < requested) {
+            width <<= 1;
+        }
+        this.table = new int[width * DEPTH];
+        this.mask = width - 1;
+        this.sampleSize = 10 * Math.max(capacity, 1);
+    }
+
+    /**
+     * Record an access of a key.
+     *
+     * @param key Key.
+     */
+    void increment(Object key) {
+
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int i = 0; i < DEPTH; i++) {
+            int index = indexOf(hash, i);
+            if (table[index] < MAX_COUNT) {
+                table[index]++;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * Get the estimated number of recent accesses of a key.
+     *
+     * @param key Key.
+     * @return Estimated access count, at most 15.
+     */
+    int frequency(Object key) {
+
+        int hash = spread(key.hashCode());
+        int frequency = MAX_COUNT;
+        for (int i = 0; i < DEPTH; i++) {
+            frequency = Math.min(frequency, table[indexOf(hash, i)]);
+        }
+        return frequency;
+    }
+
+    private void reset() {
+
+        for (int i = 0; i < table.length; i++) {
+            table[i] >>>= 1;
+        }
+        additions = 0;
+    }
+
+    private int indexOf(int hash, int row) {
+
+        int h = (hash ^ SEEDS[row]) * SEEDS[row];
+        h ^= h >>> 16;
+        return row * (mask + 1) + (h & mask);
+    }
+
+    private static int spread(int hash) {
+
+        int h = hash * 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -21,6 +21,7 @@ package org.wso2.carbon.identity.oauth.cache;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.identity.application.authentication.framework.cache.AuthenticationBaseCache;
 import org.wso2.carbon.identity.core.cache.AbstractCacheListener;
 import org.wso2.carbon.identity.oauth.listener.OAuthCacheRemoveListener;
@@ -40,12 +41,15 @@ public class OAuthCache extends AuthenticationBaseCache<OAuthCacheKey, CacheEntr
     private static volatile OAuthCache instance;
     private static final Log LOG = LogFactory.getLog(OAuthCache.class);
 
+    private final OAuthNearCache nearCache;
+
     static {
         cacheListeners.add(new OAuthCacheRemoveListener());
     }
 
     private OAuthCache() {
         super(OAUTH_CACHE_NAME, cacheListeners);
+        nearCache = OAuthNearCache.fromConfig();
     }
 
     public static OAuthCache getInstance() {
@@ -60,6 +64,16 @@ public class OAuthCache extends AuthenticationBaseCache<OAuthCacheKey, CacheEntr
         return instance;
     }
 
+    /**
+     * Get the node local tier of this cache.
+     *
+     * @return Near cache.
+     */
+    public OAuthNearCache getNearCache() {
+
+        return nearCache;
+    }
+
     @Override
     public void addToCache(OAuthCacheKey key, CacheEntry entry) {
 
@@ -71,8 +85,10 @@ public class OAuthCache extends AuthenticationBaseCache<OAuthCacheKey, CacheEntr
                         ((AccessTokenDO) entry).getTokenId(), tenantDomain));
             }
             super.addToCache(key, entry, tenantDomain);
+            addToNearCache(key, entry, tenantDomain);
         } else {
             super.addToCache(key, entry);
+            addToNearCache(key, entry, getNearCacheTenantDomain(null));
         }
     }
 
@@ -82,9 +98,7 @@ public class OAuthCache extends AuthenticationBaseCache<OAuthCacheKey, CacheEntr
         if (LOG.isDebugEnabled()) {
             LOG.debug("Hit OAuthCache for clearing in tenant domain: " + tenantDomain);
         }
-        if (LOG.isDebugEnabled() && getValueFromCache(key, tenantDomain) == null) {
-            LOG.debug(String.format("No cache entry found for the given cache key in the tenant: %s.", tenantDomain));
-        }
+        nearCache.invalidate(key, getNearCacheTenantDomain(tenantDomain));
         if (StringUtils.isNotBlank(tenantDomain)) {
             super.clearCacheEntry(key, tenantDomain);
         } else {
@@ -96,6 +110,11 @@ public class OAuthCache extends AuthenticationBaseCache<OAuthCacheKey, CacheEntr
         }
     }
 
+    @Override
+    public void clearCacheEntry(OAuthCacheKey key) {
+
+        clearCacheEntry(key, null);
+    }
 
     @Override
     public CacheEntry getValueFromCache(OAuthCacheKey key, String tenantDomain) {
@@ -103,6 +122,14 @@ public class OAuthCache extends AuthenticationBaseCache<OAuthCacheKey, CacheEntr
         if (LOG.isDebugEnabled()) {
             LOG.debug("Hit OAuthCache for getting the cache entry in tenant domain: " + tenantDomain);
         }
+        boolean nearCacheEnabled = nearCache.isEnabled() && isEnabled();
+        if (nearCacheEnabled) {
+            CacheEntry cacheEntry = nearCache.get(key, getNearCacheTenantDomain(tenantDomain));
+            if (cacheEntry != null) {
+                return cacheEntry;
+            }
+        }
+        long invalidationStamp = nearCache.getInvalidationStamp();
         CacheEntry cacheEntry;
         if (StringUtils.isNotBlank(tenantDomain)) {
             cacheEntry = super.getValueFromCache(key, tenantDomain);
@@ -112,6 +139,38 @@ public class OAuthCache extends AuthenticationBaseCache<OAuthCacheKey, CacheEntr
         if (LOG.isDebugEnabled() && cacheEntry != null) {
             LOG.debug("Successfully retrieved cache entry from OauthCache for tenant domain: " + tenantDomain);
         }
+        if (nearCacheEnabled && cacheEntry != null) {
+            nearCache.put(key, cacheEntry, getNearCacheTenantDomain(tenantDomain), invalidationStamp);
+        }
         return cacheEntry;
     }
+
+    @Override
+    public CacheEntry getValueFromCache(OAuthCacheKey key) {
+
+        return getValueFromCache(key, null);
+    }
+
+    /**
+     * Resolve the tenant domain the distributed cache is partitioned by for an operation, which is the given tenant
+     * domain, or the tenant domain of the current carbon context when none is given.
+     *
+     * @param tenantDomain Tenant domain given for the operation.
+     * @return Tenant domain the near cache entry is kept in.
+     */
+    String getNearCacheTenantDomain(String tenantDomain) {
+
+        if (StringUtils.isNotBlank(tenantDomain)) {
+            return tenantDomain;
+        }
+        return PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantDomain();
+    }
+
+    private void addToNearCache(OAuthCacheKey key, CacheEntry entry, String tenantDomain) {
+
+        // Entries are not kept locally when the distributed cache is disabled, as they would never be invalidated.
+        if (nearCache.isEnabled() && isEnabled()) {
+            nearCache.put(key, entry, tenantDomain);
+        }
+    }
 }
@@ -0,0 +1,421 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.cache;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
+import org.wso2.carbon.utils.multitenancy.MultitenantConstants;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.wso2.carbon.identity.oauth2.util.OAuth2ConfigUtil.readIntProperty;
+import static org.wso2.carbon.identity.oauth2.util.OAuth2ConfigUtil.readLongProperty;
+
+/**
+ * Node local tier in front of {@link OAuthCache}, so that frequently used entries such as the access tokens
+ * validated by a gateway on every request are served without going to the distributed cache.
+ * <p>
+ * The number of entries is bounded. Once full, a new entry is only admitted if it was accessed at least as often
+ * recently as the least frequently accessed of a sample of the cached entries, which is then evicted. Access
+ * frequencies are estimated with a {@link FrequencySketch}, hence hot tokens stay resident while entries which are
+ * used once do not push them out. Entries expire after a short timeout, which bounds how long an entry can be served
+ * after it was changed in the distributed cache without an invalidation reaching this node. Access tokens expire after
+ * a shorter timeout, since a revoked token must stop being served quickly.
+ * <p>
+ * Entries are cached per tenant, as the distributed cache is, hence the same key cached in two tenants maps to two
+ * separate entries. Hits, misses, evictions and rejected admissions are counted per tenant.
+ */
+public class OAuthNearCache {
+
+    private static final Log log = LogFactory.getLog(OAuthNearCache.class);
+
+    private static final String ENABLE = "OAuth.OAuthCache.NearCache.Enable";
+    private static final String MAX_SIZE = "OAuth.OAuthCache.NearCache.MaxSize";
+    private static final String TIMEOUT = "OAuth.OAuthCache.NearCache.TimeoutInSeconds";
+    private static final String ACCESS_TOKEN_TIMEOUT = "OAuth.OAuthCache.NearCache.AccessTokenTimeoutInSeconds";
+    private static final int DEFAULT_MAX_SIZE = 10000;
+    private static final long DEFAULT_TIMEOUT = 30;
+    private static final long DEFAULT_ACCESS_TOKEN_TIMEOUT = 5;
+    private static final int EVICTION_SAMPLE_SIZE = 8;
+
+    private final Map<NearCacheKey, NearCacheEntry> entries = new ConcurrentHashMap<>();
+    private final Map<String, TenantMetrics> metrics = new ConcurrentHashMap<>();
+    private final FrequencySketch sketch;
+    private final boolean enabled;
+    private final int maxSize;
+    private final long timeoutInMillis;
+    private final long accessTokenTimeoutInMillis;
+    private final AtomicLong invalidationStamp = new AtomicLong();
+
+    /**
+     * Create a near cache.
+     *
+     * @param enabled         Whether entries are cached.
+     * @param maxSize         Maximum number of cached entries.
+     * @param timeoutInMillis Time an entry is cached for.
+     */
+    public OAuthNearCache(boolean enabled, int maxSize, long timeoutInMillis) {
+
+        this(enabled, maxSize, timeoutInMillis, timeoutInMillis);
+    }
+
+    /**
+     * Create a near cache.
+     *
+     * @param enabled                    Whether entries are cached.
+     * @param maxSize                    Maximum number of cached entries.
+     * @param timeoutInMillis            Time an entry is cached for.
+     * @param accessTokenTimeoutInMillis Time an access token is cached for, at most the time of other entries.
+     */
+    public OAuthNearCache(boolean enabled, int maxSize, long timeoutInMillis, long accessTokenTimeoutInMillis) {
+
+        this.enabled = enabled;
+        this.maxSize = Math.max(maxSize, 1);
+        this.timeoutInMillis = timeoutInMillis;
+        this.accessTokenTimeoutInMillis = Math.min(accessTokenTimeoutInMillis, timeoutInMillis);
+        this.sketch = new FrequencySketch(this.maxSize);
+    }
+
+    /**
+     * Create a near cache configured in identity.xml.
+     *
+     * @return Near cache.
+     */
+    static OAuthNearCache fromConfig() {
+
+        String enable = IdentityUtil.getProperty(ENABLE);
+        return new OAuthNearCache(StringUtils.isBlank(enable) || Boolean.parseBoolean(enable.trim()),
+                readIntProperty(MAX_SIZE, DEFAULT_MAX_SIZE),
+                TimeUnit.SECONDS.toMillis(readLongProperty(TIMEOUT, DEFAULT_TIMEOUT)),
+                TimeUnit.SECONDS.toMillis(readLongProperty(ACCESS_TOKEN_TIMEOUT, DEFAULT_ACCESS_TOKEN_TIMEOUT)));
+    }
+
+    public boolean isEnabled() {
+
+        return enabled;
+    }
+
+    /**
+     * Get a cached entry.
+     *
+     * @param key          Cache key.
+     * @param tenantDomain Tenant domain the entry is looked up in.
+     * @return Cached entry, or null if the entry is not cached or has expired.
+     */
+    public CacheEntry get(OAuthCacheKey key, String tenantDomain) {
+
+        if (!enabled) {
+            return null;
+        }
+        NearCacheKey nearCacheKey = new NearCacheKey(key, tenantDomain);
+        sketch.increment(nearCacheKey);
+        NearCacheEntry entry = entries.get(nearCacheKey);
+        if (entry != null && entry.isExpired(System.currentTimeMillis())) {
+            entries.remove(nearCacheKey, entry);
+            entry = null;
+        }
+        if (entry == null) {
+            getMetrics(nearCacheKey.getTenantDomain()).missCount.incrementAndGet();
+            return null;
+        }
+        getMetrics(nearCacheKey.getTenantDomain()).hitCount.incrementAndGet();
+        return entry.getValue();
+    }
+
+    /**
+     * Get the current invalidation stamp, to be passed to {@link #put(OAuthCacheKey, CacheEntry, String, long)}
+     * along with an entry read from the distributed cache after this call.
+     *
+     * @return Invalidation stamp.
+     */
+    public long getInvalidationStamp() {
+
+        return invalidationStamp.get();
+    }
+
+    /**
+     * Cache an entry read from the distributed cache, unless an entry was invalidated since the given stamp was
+     * taken. Otherwise an entry invalidated while it was being read could be cached again.
+     *
+     * @param key          Cache key.
+     * @param value        Entry.
+     * @param tenantDomain Tenant domain the entry is cached in.
+     * @param stamp        Invalidation stamp taken before the entry was read.
+     */
+    public void put(OAuthCacheKey key, CacheEntry value, String tenantDomain, long stamp) {
+
+        if (!enabled || invalidationStamp.get() != stamp) {
+            return;
+        }
+        NearCacheKey nearCacheKey = new NearCacheKey(key, tenantDomain);
+        NearCacheEntry entry = add(nearCacheKey, value);
+        if (entry != null && invalidationStamp.get() != stamp) {
+            entries.remove(nearCacheKey, entry);
+        }
+    }
+
+    /**
+     * Cache an entry, subject to admission once the cache is full.
+     *
+     * @param key          Cache key.
+     * @param value        Entry.
+     * @param tenantDomain Tenant domain the entry is cached in.
+     */
+    public void put(OAuthCacheKey key, CacheEntry value, String tenantDomain) {
+
+        if (enabled) {
+            add(new NearCacheKey(key, tenantDomain), value);
+        }
+    }
+
+    /**
+     * Drop a cached entry.
+     *
+     * @param key          Cache key.
+     * @param tenantDomain Tenant domain the entry is cached in.
+     */
+    public void invalidate(OAuthCacheKey key, String tenantDomain) {
+
+        if (!enabled || key == null) {
+            return;
+        }
+        invalidationStamp.incrementAndGet();
+        NearCacheKey nearCacheKey = new NearCacheKey(key, tenantDomain);
+        if (entries.remove(nearCacheKey) != null) {
+            getMetrics(nearCacheKey.getTenantDomain()).invalidationCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Drop every cached entry.
+     */
+    public void clear() {
+
+        invalidationStamp.incrementAndGet();
+        entries.clear();
+    }
+
+    public int getSize() {
+
+        return entries.size();
+    }
+
+    /**
+     * Get the metrics of a tenant.
+     *
+     * @param tenantDomain Tenant domain.
+     * @return Metrics of the tenant.
+     */
+    public TenantMetrics getMetrics(String tenantDomain) {
+
+        return metrics.computeIfAbsent(resolveTenantDomain(tenantDomain), TenantMetrics::new);
+    }
+
+    /**
+     * Get the metrics of every tenant which used the cache.
+     *
+     * @return Metrics keyed by tenant domain.
+     */
+    public Map<String, TenantMetrics> getAllMetrics() {
+
+        return Collections.unmodifiableMap(new HashMap<>(metrics));
+    }
+
+    private NearCacheEntry add(NearCacheKey key, CacheEntry value) {
+
+        if (value == null) {
+            return null;
+        }
+        long timeout = value instanceof AccessTokenDO ? accessTokenTimeoutInMillis : timeoutInMillis;
+        NearCacheEntry entry = new NearCacheEntry(value, System.currentTimeMillis() + timeout);
+        if (entries.size() >= maxSize && !entries.containsKey(key) && !admit(key)) {
+            getMetrics(key.getTenantDomain()).rejectionCount.incrementAndGet();
+            return null;
+        }
+        entries.put(key, entry);
+        return entry;
+    }
+
+    /**
+     * Decide whether a new entry is admitted into the full cache. The least frequently accessed of a sample of the
+     * cached entries, preferring expired ones, is evicted if the new entry was accessed at least as often.
+     */
+    private boolean admit(NearCacheKey candidate) {
+
+        long now = System.currentTimeMillis();
+        // Start sampling at a random position so that the same entries are not always the ones sampled.
+        int skip = ThreadLocalRandom.current().nextInt(Math.max(1, Math.min(entries.size(), 64)));
+        Iterator<Map.Entry<NearCacheKey, NearCacheEntry>> iterator = entries.entrySet().iterator();
+        for (int i = 0; i < skip && iterator.hasNext(); i++) {
+            iterator.next();
+        }
+        Map.Entry<NearCacheKey, NearCacheEntry> victim = null;
+        int victimFrequency = Integer.MAX_VALUE;
+        for (int sampled = 0; sampled < EVICTION_SAMPLE_SIZE && iterator.hasNext(); sampled++) {
+            Map.Entry<NearCacheKey, NearCacheEntry> entry = iterator.next();
+            if (entry.getValue().isExpired(now)) {
+                entries.remove(entry.getKey(), entry.getValue());
+                return true;
+            }
+            int frequency = sketch.frequency(entry.getKey());
+            if (frequency < victimFrequency) {
+                victim = entry;
+                victimFrequency = frequency;
+            }
+        }
+        if (victim == null || sketch.frequency(candidate) < victimFrequency) {
+            return false;
+        }
+        if (entries.remove(victim.getKey(), victim.getValue())) {
+            getMetrics(victim.getKey().getTenantDomain()).evictionCount.incrementAndGet();
+            if (log.isDebugEnabled()) {
+                log.debug("Evicted an entry accessed " + victimFrequency + " times recently from the OAuth near " +
+                        "cache in tenant domain: " + victim.getKey().getTenantDomain());
+            }
+        }
+        return true;
+    }
+
+    private static String resolveTenantDomain(String tenantDomain) {
+
+        return StringUtils.isBlank(tenantDomain) ? MultitenantConstants.SUPER_TENANT_DOMAIN_NAME : tenantDomain;
+    }
+
+    /**
+     * Hit, miss, eviction, rejected admission and invalidation counts of a tenant.
+     */
+    public static class TenantMetrics {
+
+        private final String tenantDomain;
+        private final AtomicLong hitCount = new AtomicLong();
+        private final AtomicLong missCount = new AtomicLong();
+        private final AtomicLong evictionCount = new AtomicLong();
+        private final AtomicLong rejectionCount = new AtomicLong();
+        private final AtomicLong invalidationCount = new AtomicLong();
+
+        TenantMetrics(String tenantDomain) {
+
+            this.tenantDomain = tenantDomain;
+        }
+
+        public String getTenantDomain() {
+
+            return tenantDomain;
+        }
+
+        public long getHitCount() {
+
+            return hitCount.get();
+        }
+
+        public long getMissCount() {
+
+            return missCount.get();
+        }
+
+        public long getEvictionCount() {
+
+            return evictionCount.get();
+        }
+
+        public long getRejectionCount() {
+
+            return rejectionCount.get();
+        }
+
+        public long getInvalidationCount() {
+
+            return invalidationCount.get();
+        }
+    }
+
+    /**
+     * Cache key along with the tenant the entry is cached in.
+     */
+    private static final class NearCacheKey {
+
+        private final OAuthCacheKey key;
+        private final String tenantDomain;
+
+        NearCacheKey(OAuthCacheKey key, String tenantDomain) {
+
+            this.key = key;
+            this.tenantDomain = resolveTenantDomain(tenantDomain);
+        }
+
+        String getTenantDomain() {
+
+            return tenantDomain;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof NearCacheKey)) {
+                return false;
+            }
+            NearCacheKey that = (NearCacheKey) o;
+            return key.equals(that.key) && tenantDomain.equals(that.tenantDomain);
+        }
+
+        @Override
+        public int hashCode() {
+
+            return 31 * key.hashCode() + tenantDomain.hashCode();
+        }
+    }
+
+    /**
+     * Cached entry along with its expiry time.
+     */
+    private static final class NearCacheEntry {
+
+        private final CacheEntry value;
+        private final long expiryTime;
+
+        NearCacheEntry(CacheEntry value, long expiryTime) {
+
+            this.value = value;
+            this.expiryTime = expiryTime;
+        }
+
+        CacheEntry getValue() {
+
+            return value;
+        }
+
+        boolean isExpired(long now) {
+
+            return now >= expiryTime;
+        }
+    }
+}
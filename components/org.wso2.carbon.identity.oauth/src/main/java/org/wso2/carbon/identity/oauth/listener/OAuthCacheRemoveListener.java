@@ -20,6 +20,7 @@ package org.wso2.carbon.identity.oauth.listener;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.identity.application.authentication.framework.exception.UserIdNotFoundException;
 import org.wso2.carbon.identity.core.cache.AbstractCacheListener;
 import org.wso2.carbon.identity.oauth.cache.CacheEntry;
@@ -44,6 +45,13 @@ public class OAuthCacheRemoveListener extends AbstractCacheListener<OAuthCacheKe
     public void entryRemoved(CacheEntryEvent<? extends OAuthCacheKey, ? extends CacheEntry> cacheEntryEvent)
             throws CacheEntryListenerException {
 
+        OAuthCache oauthCache = OAuthCache.getInstance();
+        // Entries removed from the distributed cache, including removals invalidated from other nodes, are dropped
+        // from the node local tier as well. Removals are notified within the tenant flow of the cache they were
+        // removed from.
+        oauthCache.getNearCache().invalidate(cacheEntryEvent.getKey(),
+                PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantDomain());
+
         CacheEntry cacheEntry = cacheEntryEvent.getValue();
         if (!(cacheEntry instanceof AccessTokenDO)) {
             return;
@@ -61,8 +69,6 @@ public class OAuthCacheRemoveListener extends AbstractCacheListener<OAuthCacheKe
             }
         }
 
-        OAuthCache oauthCache = OAuthCache.getInstance();
-
         OAuthCacheKey oauthcacheKey = new OAuthCacheKey(accessTokenDO.getAccessToken());
         oauthCache.clearCacheEntry(oauthcacheKey, accessTokenDO.getAuthzUser().getTenantDomain());
 
@@ -70,7 +76,7 @@ public class OAuthCacheRemoveListener extends AbstractCacheListener<OAuthCacheKe
             String userId = accessTokenDO.getAuthzUser().getUserId();
             String cacheKeyString;
             cacheKeyString = accessTokenDO.getConsumerKey() + ":" + userId + ":" +
-                    OAuth2Util.buildScopeString(accessTokenDO.getScope()) + ":" +
+                    OAuth2Util.buildScopeString(accessTokenDO.getScopeSet()) + ":" +
                     accessTokenDO.getAuthzUser().getFederatedIdPName();
 
             oauthcacheKey = new OAuthCacheKey(cacheKeyString);
@@ -22,12 +22,9 @@ package org.wso2.carbon.identity.oauth.tokenprocessor;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.json.JSONObject;
 import org.wso2.carbon.identity.oauth.config.OAuthServerConfiguration;
 import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
 
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
 /**
@@ -40,6 +37,8 @@ public class HashingPersistenceProcessor implements TokenPersistenceProcessor {
     public static final String ALGORITHM = "algorithm";
     public static final String HASH = "hash";
 
+    private volatile TokenHashEngine hashEngine;
+
     @Override
     public String getProcessedClientId(String clientId) throws IdentityOAuth2Exception {
 
@@ -113,30 +112,17 @@ public class HashingPersistenceProcessor implements TokenPersistenceProcessor {
             throw new IdentityOAuth2Exception("plainText value is null or empty to be hash.");
         }
 
-        MessageDigest messageDigest = null;
-        byte[] hash = null;
         String hashAlgorithm = OAuthServerConfiguration.getInstance().getHashAlgorithm();
-        try {
-            messageDigest = MessageDigest.getInstance(hashAlgorithm);
-            messageDigest.update(plainText.getBytes(StandardCharsets.UTF_8));
-            hash = messageDigest.digest();
-
-        } catch (NoSuchAlgorithmException e) {
-            throw new IdentityOAuth2Exception(
-                    "Error while retrieving MessageDigest for the provided hash algorithm: " + hashAlgorithm, e);
-        }
-        JSONObject object = new JSONObject();
-        object.put(ALGORITHM, hashAlgorithm);
-        object.put(HASH, bytesToHex(hash));
-        return object.toString();
-    }
-
-    private static String bytesToHex(byte[] bytes) {
-
-        StringBuilder result = new StringBuilder();
-        for (byte byt : bytes) {
-            result.append(Integer.toString((byt & 0xff) + 0x100, 16).substring(1));
+        TokenHashEngine engine = hashEngine;
+        if (engine == null || !engine.getAlgorithm().equals(hashAlgorithm)) {
+            try {
+                engine = TokenHashEngine.getInstance(hashAlgorithm);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IdentityOAuth2Exception(
+                        "Error while retrieving MessageDigest for the provided hash algorithm: " + hashAlgorithm, e);
+            }
+            hashEngine = engine;
         }
-        return result.toString();
+        return engine.hashToJson(plainText);
     }
 }
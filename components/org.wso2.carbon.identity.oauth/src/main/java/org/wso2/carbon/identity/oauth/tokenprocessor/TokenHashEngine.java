@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.tokenprocessor;
+
+import org.json.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Reusable digest engine used to hash tokens, authorization codes and client secrets. A {@link MessageDigest} is
+ * kept per thread and algorithm, input and output buffers are reused by each thread, and the persisted JSON form of
+ * the hash is assembled from a per algorithm template instead of building a {@link JSONObject} for every value.
+ */
+public final class TokenHashEngine {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final String HASH_PLACEHOLDER = "HASH_PLACEHOLDER";
+    // Larger buffers are not retained by the thread, to avoid holding memory after hashing unusually long values.
+    private static final int MAX_RETAINED_BUFFER_SIZE = 8192;
+    private static final int INITIAL_BUFFER_SIZE = 256;
+
+    private static final ConcurrentMap<String, TokenHashEngine> ENGINES = new ConcurrentHashMap<>();
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+    private final String algorithm;
+    private final String jsonPrefix;
+    private final String jsonSuffix;
+    private final MessageDigest prototype;
+    private final ThreadLocal<MessageDigest> digests;
+
+    private TokenHashEngine(String algorithm) throws NoSuchAlgorithmException {
+
+        this.algorithm = algorithm;
+        this.prototype = MessageDigest.getInstance(algorithm);
+        this.digests = ThreadLocal.withInitial(this::newMessageDigest);
+
+        // Derive the persisted form from JSONObject once, so that the key order and escaping of existing hashes are
+        // preserved exactly.
+        JSONObject template = new JSONObject();
+        template.put(HashingPersistenceProcessor.ALGORITHM, algorithm);
+        template.put(HashingPersistenceProcessor.HASH, HASH_PLACEHOLDER);
+        String json = template.toString();
+        int index = json.indexOf(HASH_PLACEHOLDER);
+        this.jsonPrefix = json.substring(0, index);
+        this.jsonSuffix = json.substring(index + HASH_PLACEHOLDER.length());
+    }
+
+    /**
+     * Get the engine for the given hash algorithm.
+     *
+     * @param algorithm Hash algorithm name as accepted by {@link MessageDigest#getInstance(String)}.
+     * @return Digest engine.
+     * @throws NoSuchAlgorithmException If the algorithm is not supported.
+     */
+    public static TokenHashEngine getInstance(String algorithm) throws NoSuchAlgorithmException {
+
+        if (algorithm == null) {
+            throw new NoSuchAlgorithmException("Hash algorithm is not provided.");
+        }
+        TokenHashEngine engine = ENGINES.get(algorithm);
+        if (engine == null) {
+            engine = new TokenHashEngine(algorithm);
+            TokenHashEngine existing = ENGINES.putIfAbsent(algorithm, engine);
+            if (existing != null) {
+                engine = existing;
+            }
+        }
+        return engine;
+    }
+
+    /**
+     * Get the hash algorithm of this engine.
+     *
+     * @return Hash algorithm name.
+     */
+    public String getAlgorithm() {
+
+        return algorithm;
+    }
+
+    /**
+     * Hash the UTF-8 bytes of the given value and return the lower case hex encoded digest.
+     *
+     * @param plainText Value to hash.
+     * @return Hex encoded hash.
+     */
+    public String hash(String plainText) {
+
+        Buffers buffers = BUFFERS.get();
+        int digestLength = digest(plainText, buffers);
+        char[] chars = buffers.chars(digestLength * 2);
+        int length = appendHex(buffers.digestBuffer, digestLength, chars, 0);
+        return new String(chars, 0, length);
+    }
+
+    /**
+     * Hash the UTF-8 bytes of the given value and return the JSON form persisted by
+     * {@link HashingPersistenceProcessor}, which holds both the algorithm and the hex encoded hash.
+     *
+     * @param plainText Value to hash.
+     * @return JSON string with the algorithm and the hash.
+     */
+    public String hashToJson(String plainText) {
+
+        Buffers buffers = BUFFERS.get();
+        int digestLength = digest(plainText, buffers);
+        char[] chars = buffers.chars(jsonPrefix.length() + digestLength * 2 + jsonSuffix.length());
+        jsonPrefix.getChars(0, jsonPrefix.length(), chars, 0);
+        int length = appendHex(buffers.digestBuffer, digestLength, chars, jsonPrefix.length());
+        jsonSuffix.getChars(0, jsonSuffix.length(), chars, length);
+        length += jsonSuffix.length();
+        return new String(chars, 0, length);
+    }
+
+    private int digest(String plainText, Buffers buffers) {
+
+        MessageDigest messageDigest = digests.get();
+        messageDigest.reset();
+        int length = plainText.length();
+        byte[] input = buffers.input(length);
+        boolean ascii = true;
+        for (int i = 0; i < length; i++) {
+            char c = plainText.charAt(i);
+            if (c >= 0x80) {
+                ascii = false;
+                break;
+            }
+            input[i] = (byte) c;
+        }
+        if (ascii) {
+            messageDigest.update(input, 0, length);
+        } else {
+            messageDigest.update(plainText.getBytes(StandardCharsets.UTF_8));
+        }
+
+        int digestLength = messageDigest.getDigestLength();
+        if (digestLength > 0) {
+            byte[] output = buffers.digest(digestLength);
+            try {
+                return messageDigest.digest(output, 0, digestLength);
+            } catch (DigestException e) {
+                // Not expected since the buffer is sized to the digest length. Fall through to an allocating digest.
+                messageDigest.reset();
+                messageDigest.update(plainText.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        byte[] hash = messageDigest.digest();
+        System.arraycopy(hash, 0, buffers.digest(hash.length), 0, hash.length);
+        return hash.length;
+    }
+
+    private static int appendHex(byte[] bytes, int length, char[] chars, int offset) {
+
+        int position = offset;
+        for (int i = 0; i < length; i++) {
+            int value = bytes[i] & 0xff;
+            chars[position++] = HEX_DIGITS[value >>> 4];
+            chars[position++] = HEX_DIGITS[value & 0x0f];
+        }
+        return position;
+    }
+
+    private MessageDigest newMessageDigest() {
+
+        try {
+            return (MessageDigest) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            try {
+                return MessageDigest.getInstance(algorithm);
+            } catch (NoSuchAlgorithmException ex) {
+                // The algorithm was resolved when the engine was created.
+                throw new IllegalStateException("Hash algorithm: " + algorithm + " is no longer available.", ex);
+            }
+        }
+    }
+
+    /**
+     * Per thread buffers shared by all engines.
+     */
+    private static class Buffers {
+
+        private byte[] inputBuffer = new byte[INITIAL_BUFFER_SIZE];
+        private byte[] digestBuffer = new byte[64];
+        private char[] charBuffer = new char[INITIAL_BUFFER_SIZE];
+
+        byte[] input(int size) {
+
+            if (inputBuffer.length >= size) {
+                return inputBuffer;
+            }
+            byte[] buffer = new byte[size];
+            if (size <= MAX_RETAINED_BUFFER_SIZE) {
+                inputBuffer = buffer;
+            }
+            return buffer;
+        }
+
+        byte[] digest(int size) {
+
+            if (digestBuffer.length < size) {
+                digestBuffer = new byte[size];
+            }
+            return digestBuffer;
+        }
+
+        char[] chars(int size) {
+
+            if (charBuffer.length >= size) {
+                return charBuffer;
+            }
+            char[] buffer = new char[size];
+            if (size <= MAX_RETAINED_BUFFER_SIZE) {
+                charBuffer = buffer;
+            }
+            return buffer;
+        }
+    }
+}
@@ -27,6 +27,7 @@ import org.wso2.carbon.identity.oauth.cache.OAuthScopeCacheKey;
 import org.wso2.carbon.identity.oauth.common.exception.InvalidOAuthClientException;
 import org.wso2.carbon.identity.oauth.dao.OAuthAppDO;
 import org.wso2.carbon.identity.oauth2.bean.Scope;
+import org.wso2.carbon.identity.oauth2.cache.TenantScopeSnapshotCache;
 import org.wso2.carbon.identity.oauth2.dao.OAuthTokenPersistenceFactory;
 import org.wso2.carbon.identity.oauth2.model.OAuth2ScopeConsentResponse;
 import org.wso2.carbon.identity.oauth2.model.UserApplicationScopeConsentDO;
@@ -87,6 +88,7 @@ public class OAuth2ScopeService {
         }
 
         OAuthScopeCache.getInstance().addToCache(new OAuthScopeCacheKey(scope.getName()), scope, tenantID);
+        TenantScopeSnapshotCache.getInstance().invalidate(tenantID);
         return scope;
     }
 
@@ -330,6 +332,7 @@ public class OAuth2ScopeService {
             throw Oauth2ScopeUtils.generateServerException(Oauth2ScopeConstants.ErrorMessages.
                     ERROR_CODE_FAILED_TO_DELETE_SCOPE_BY_NAME, name, e);
         }
+        TenantScopeSnapshotCache.getInstance().invalidate(tenantID);
     }
 
     /**
@@ -356,6 +359,7 @@ public class OAuth2ScopeService {
         OAuthScopeCache.getInstance().addToCache(new OAuthScopeCacheKey(updatedScope.getName()), updatedScope,
                 tenantID);
         OIDCScopeClaimCache.getInstance().clearScopeClaimMap(tenantID);
+        TenantScopeSnapshotCache.getInstance().invalidate(tenantID);
         return updatedScope;
     }
 
@@ -49,6 +49,7 @@ import org.wso2.carbon.identity.oauth2.dto.OAuth2TokenValidationResponseDTO;
 import org.wso2.carbon.identity.oauth2.dto.OAuthRevocationRequestDTO;
 import org.wso2.carbon.identity.oauth2.dto.OAuthRevocationResponseDTO;
 import org.wso2.carbon.identity.oauth2.internal.OAuth2ServiceComponentHolder;
+import org.wso2.carbon.identity.oauth2.lock.IssuanceLock;
 import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
 import org.wso2.carbon.identity.oauth2.model.OAuth2Parameters;
 import org.wso2.carbon.identity.oauth2.model.RefreshTokenValidationDataDO;
@@ -516,9 +517,9 @@ public class OAuth2Service extends AbstractAdmin {
                         tokenBindingReference = refreshTokenDO.getTokenBindingReference();
                     }
                     OAuthUtil.clearOAuthCache(revokeRequestDTO.getConsumerKey(), refreshTokenDO.getAuthorizedUser(),
-                            OAuth2Util.buildScopeString(refreshTokenDO.getScope()), tokenBindingReference);
+                            OAuth2Util.buildScopeString(refreshTokenDO.getScopeSet()), tokenBindingReference);
                     OAuthUtil.clearOAuthCache(revokeRequestDTO.getConsumerKey(), refreshTokenDO.getAuthorizedUser(),
-                            OAuth2Util.buildScopeString(refreshTokenDO.getScope()));
+                            OAuth2Util.buildScopeString(refreshTokenDO.getScopeSet()));
                     OAuthUtil.clearOAuthCache(revokeRequestDTO.getConsumerKey(), refreshTokenDO.getAuthorizedUser());
                     OAuthUtil.clearOAuthCache(refreshTokenDO.getAccessToken());
                     OAuthTokenPersistenceFactory.getInstance().getAccessTokenDAO()
@@ -559,15 +560,16 @@ public class OAuth2Service extends AbstractAdmin {
                             tokenBindingReference = accessTokenDO.getTokenBinding().getBindingReference();
                         }
                         OAuthUtil.clearOAuthCache(revokeRequestDTO.getConsumerKey(), accessTokenDO.getAuthzUser(),
-                                OAuth2Util.buildScopeString(accessTokenDO.getScope()), tokenBindingReference);
+                                OAuth2Util.buildScopeString(accessTokenDO.getScopeSet()), tokenBindingReference);
                         OAuthUtil.clearOAuthCache(revokeRequestDTO.getConsumerKey(), accessTokenDO.getAuthzUser(),
-                                OAuth2Util.buildScopeString(accessTokenDO.getScope()));
+                                OAuth2Util.buildScopeString(accessTokenDO.getScopeSet()));
                         OAuthUtil.clearOAuthCache(revokeRequestDTO.getConsumerKey(), accessTokenDO.getAuthzUser());
                         OAuthUtil.clearOAuthCache(accessTokenDO);
-                        String scope = OAuth2Util.buildScopeString(accessTokenDO.getScope());
+                        String scope = OAuth2Util.buildScopeString(accessTokenDO.getScopeSet());
                         String userId = accessTokenDO.getAuthzUser().getUserId();
-                        synchronized ((revokeRequestDTO.getConsumerKey() + ":" + userId + ":" + scope + ":"
-                                + tokenBindingReference).intern()) {
+                        try (IssuanceLock ignored = OAuth2ServiceComponentHolder.getIssuanceLockManager().acquire(
+                                revokeRequestDTO.getConsumerKey() + ":" + userId + ":" + scope + ":"
+                                        + tokenBindingReference)) {
                             OAuthTokenPersistenceFactory.getInstance().getAccessTokenDAO()
                                     .revokeAccessTokens(new String[]{accessTokenDO.getAccessToken()});
                         }
@@ -30,7 +30,9 @@ import org.wso2.carbon.identity.oauth2.dto.OAuth2TokenValidationResponseDTO;
 import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
 import org.wso2.carbon.identity.oauth2.validators.TokenValidationHandler;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.wso2.carbon.identity.oauth2.util.OAuth2Util.triggerOnIntrospectionExceptionListeners;
@@ -128,6 +130,41 @@ public class OAuth2TokenValidationService extends AbstractAdmin {
         return oAuth2IntrospectionResponseDTO;
     }
 
+    /**
+     * Returns back the introspection responses of a batch of tokens, in the order of the given requests. The access
+     * tokens of the batch are looked up in bulk before each token is introspected as in
+     * {@link #buildIntrospectionResponse(OAuth2TokenValidationRequestDTO)}.
+     *
+     * @param validationRequests Validation requests of the tokens.
+     * @return Introspection responses.
+     */
+    public OAuth2IntrospectionResponseDTO[] buildIntrospectionResponses(
+            OAuth2TokenValidationRequestDTO[] validationRequests) {
+
+        List<String> tokenIdentifiers = new ArrayList<>(validationRequests.length);
+        for (OAuth2TokenValidationRequestDTO validationRequest : validationRequests) {
+            if (validationRequest.getAccessToken() != null) {
+                tokenIdentifiers.add(validationRequest.getAccessToken().getIdentifier());
+            }
+        }
+        try {
+            OAuth2Util.prefetchAccessTokens(tokenIdentifiers);
+        } catch (IdentityOAuth2Exception e) {
+            log.error("Error occurred while retrieving a batch of access tokens. Tokens will be retrieved one by one.",
+                    e);
+        }
+        try {
+            OAuth2IntrospectionResponseDTO[] introspectionResponses =
+                    new OAuth2IntrospectionResponseDTO[validationRequests.length];
+            for (int i = 0; i < validationRequests.length; i++) {
+                introspectionResponses[i] = buildIntrospectionResponse(validationRequests[i]);
+            }
+            return introspectionResponses;
+        } finally {
+            OAuth2Util.clearPrefetchedAccessTokens();
+        }
+    }
+
     private void triggerPreValidationListeners(OAuth2TokenValidationRequestDTO requestDTO)
             throws IdentityOAuth2Exception {
         OAuthEventInterceptor oAuthEventInterceptorProxy = OAuthComponentServiceHolder.getInstance()
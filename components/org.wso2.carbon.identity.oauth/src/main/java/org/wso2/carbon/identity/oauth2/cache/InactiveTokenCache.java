@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.cache;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.oauth.tokenprocessor.TokenHashEngine;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.wso2.carbon.identity.oauth2.util.OAuth2ConfigUtil.readIntProperty;
+import static org.wso2.carbon.identity.oauth2.util.OAuth2ConfigUtil.readLongProperty;
+
+/**
+ * Node local negative cache of access token identifiers which were looked up and not found among the active tokens,
+ * so that repeatedly presenting unknown or revoked tokens does not query the access token table every time.
+ * <p>
+ * Entries expire after the configured timeout, which bounds how long a node may report a token as inactive after it
+ * was persisted by another node. Tokens persisted by this node are dropped from the cache once committed. Lookups which
+ * include expired tokens are only answered by entries recorded for identifiers which were not found at all. Keys are
+ * hashes of the identifiers, hence the memory held does not depend on the length of the presented values.
+ */
+public class InactiveTokenCache {
+
+    private static final Log log = LogFactory.getLog(InactiveTokenCache.class);
+
+    private static final String ENABLE = "OAuth.InactiveTokenCache.Enable";
+    private static final String MAX_SIZE = "OAuth.InactiveTokenCache.MaxSize";
+    private static final String TIMEOUT = "OAuth.InactiveTokenCache.TimeoutInSeconds";
+    private static final int DEFAULT_MAX_SIZE = 10000;
+    private static final long DEFAULT_TIMEOUT = 30;
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    private static volatile InactiveTokenCache instance;
+
+    private final Map<String, InactiveToken> inactiveTokens = new ConcurrentHashMap<>();
+    private final boolean enabled;
+    private final int maxSize;
+    private final long timeoutInMillis;
+    private final TokenHashEngine hashEngine;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * Create a cache.
+     *
+     * @param enabled         Whether inactive tokens are cached.
+     * @param maxSize         Maximum number of cached identifiers.
+     * @param timeoutInMillis Time an identifier is reported as inactive without querying the database again.
+     */
+    public InactiveTokenCache(boolean enabled, int maxSize, long timeoutInMillis) {
+
+        this.enabled = enabled && timeoutInMillis > 0;
+        this.maxSize = Math.max(maxSize, 1);
+        this.timeoutInMillis = timeoutInMillis;
+        try {
+            this.hashEngine = TokenHashEngine.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is supported by every Java platform.
+            throw new IllegalStateException("Hash algorithm: " + HASH_ALGORITHM + " is not available.", e);
+        }
+    }
+
+    /**
+     * Get the cache configured in identity.xml.
+     *
+     * @return Inactive token cache.
+     */
+    public static InactiveTokenCache getInstance() {
+
+        if (instance == null) {
+            synchronized (InactiveTokenCache.class) {
+                if (instance == null) {
+                    String enable = IdentityUtil.getProperty(ENABLE);
+                    instance = new InactiveTokenCache(
+                            StringUtils.isBlank(enable) || Boolean.parseBoolean(enable.trim()),
+                            readIntProperty(MAX_SIZE, DEFAULT_MAX_SIZE),
+                            TimeUnit.SECONDS.toMillis(readLongProperty(TIMEOUT, DEFAULT_TIMEOUT)));
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Whether the given identifier was recently found to be inactive.
+     *
+     * @param tokenIdentifier Access token identifier used for the lookup.
+     * @param includeExpired  Whether the lookup includes tokens which are not active.
+     * @return True if the lookup is known to find no token.
+     */
+    public boolean isInactive(String tokenIdentifier, boolean includeExpired) {
+
+        if (!enabled || tokenIdentifier == null) {
+            return false;
+        }
+        String key = hashEngine.hash(tokenIdentifier);
+        InactiveToken inactiveToken = inactiveTokens.get(key);
+        if (inactiveToken == null) {
+            missCount.incrementAndGet();
+            return false;
+        }
+        if (inactiveToken.isExpired(System.currentTimeMillis())) {
+            inactiveTokens.remove(key, inactiveToken);
+            missCount.incrementAndGet();
+            return false;
+        }
+        if (includeExpired && !inactiveToken.isUnknown()) {
+            // Only known to have no active token. An expired or revoked token may still exist.
+            missCount.incrementAndGet();
+            return false;
+        }
+        hitCount.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Record that a lookup for the given identifier found no token.
+     *
+     * @param tokenIdentifier Access token identifier used for the lookup.
+     * @param includeExpired  Whether the lookup included tokens which are not active.
+     */
+    public void addInactive(String tokenIdentifier, boolean includeExpired) {
+
+        if (!enabled || tokenIdentifier == null) {
+            return;
+        }
+        if (inactiveTokens.size() >= maxSize) {
+            evict();
+        }
+        inactiveTokens.put(hashEngine.hash(tokenIdentifier),
+                new InactiveToken(System.currentTimeMillis() + timeoutInMillis, includeExpired));
+    }
+
+    /**
+     * Drop the given identifier from the cache. Called once a token is committed to the database.
+     *
+     * @param tokenIdentifier Access token identifier.
+     */
+    public void invalidate(String tokenIdentifier) {
+
+        if (!enabled || tokenIdentifier == null || inactiveTokens.isEmpty()) {
+            return;
+        }
+        inactiveTokens.remove(hashEngine.hash(tokenIdentifier));
+    }
+
+    /**
+     * Drop every cached identifier.
+     */
+    public void clear() {
+
+        inactiveTokens.clear();
+    }
+
+    public int getSize() {
+
+        return inactiveTokens.size();
+    }
+
+    public long getHitCount() {
+
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+
+        return evictionCount.get();
+    }
+
+    private void evict() {
+
+        // Evict a tenth of the entries at once, so that a flood of unknown tokens does not scan the cache every time.
+        int targetSize = maxSize - Math.max(1, maxSize / 10);
+        long now = System.currentTimeMillis();
+        inactiveTokens.values().removeIf(inactiveToken -> inactiveToken.isExpired(now));
+        Iterator<InactiveToken> iterator = inactiveTokens.values().iterator();
+        while (inactiveTokens.size() > targetSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictionCount.incrementAndGet();
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Inactive token cache reached the maximum size of " + maxSize + ". Evicted " +
+                    evictionCount.get() + " entries so far.");
+        }
+    }
+
+    /**
+     * Lookup result recorded for an identifier.
+     */
+    private static final class InactiveToken {
+
+        private final long expiryTime;
+        private final boolean unknown;
+
+        InactiveToken(long expiryTime, boolean unknown) {
+
+            this.expiryTime = expiryTime;
+            this.unknown = unknown;
+        }
+
+        boolean isExpired(long now) {
+
+            return now >= expiryTime;
+        }
+
+        /**
+         * Whether no token at all, including expired and revoked tokens, exists for the identifier.
+         */
+        boolean isUnknown() {
+
+            return unknown;
+        }
+    }
+}
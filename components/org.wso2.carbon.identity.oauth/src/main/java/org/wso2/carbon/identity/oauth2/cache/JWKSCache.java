@@ -23,7 +23,12 @@ import org.wso2.carbon.utils.CarbonUtils;
 
 /**
  * JWKS cache enables caching responses from JWK URIs
+ *
+ * @deprecated JWK sets of remote jwks_uris are held by
+ *             {@link org.wso2.carbon.identity.oauth2.validators.jwt.JWKSourceDataProvider}. This class is no longer
+ *             used.
  */
+@Deprecated
 public class JWKSCache extends AuthenticationBaseCache<JWKSCacheKey, JWKSCacheEntry> {
 
     private static final String JWKS_CACHE_NAME = "JWKSCache";
@@ -23,7 +23,12 @@ import com.nimbusds.jose.proc.SecurityContext;
 
 /**
  * JWKSCacheEntry wraps RemoteJWKSet cache value to make them serializable. This will be used with JWKSCache.
+ *
+ * @deprecated JWK sets of remote jwks_uris are held by
+ *             {@link org.wso2.carbon.identity.oauth2.validators.jwt.JWKSourceDataProvider}. This class is no longer
+ *             used.
  */
+@Deprecated
 public class JWKSCacheEntry extends org.wso2.carbon.identity.application.common.cache.CacheEntry {
 
     private transient RemoteJWKSet<SecurityContext> jwkSet;
@@ -23,7 +23,12 @@ import java.io.Serializable;
 
 /**
  * Key attribute of JWKSCache is jwksUri. JWKS cache is stored against this key.
+ *
+ * @deprecated JWK sets of remote jwks_uris are held by
+ *             {@link org.wso2.carbon.identity.oauth2.validators.jwt.JWKSourceDataProvider}. This class is no longer
+ *             used.
  */
+@Deprecated
 public class JWKSCacheKey implements Serializable {
 
     private static final long serialVersionUID = 5023478840178743769L;
@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.cache;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2ScopeServerException;
+import org.wso2.carbon.identity.oauth2.bean.Scope;
+import org.wso2.carbon.identity.oauth2.bean.ScopeBinding;
+import org.wso2.carbon.identity.oauth2.dao.OAuthTokenPersistenceFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.wso2.carbon.identity.oauth2.util.OAuth2ConfigUtil.readLongProperty;
+
+/**
+ * Node local cache holding an immutable snapshot of the OAuth2 scopes of each tenant together with their bindings,
+ * so that scope validation does not query the scope tables for every requested scope.
+ * <p>
+ * A snapshot is loaded with a single query the first time a tenant's scopes are needed, and is replaced as a whole
+ * when the scopes of the tenant are changed through this node. Snapshots expire after the configured timeout, which
+ * bounds how long a node may use the scopes of a tenant after they were changed through another node.
+ */
+public class TenantScopeSnapshotCache {
+
+    private static final Log log = LogFactory.getLog(TenantScopeSnapshotCache.class);
+
+    private static final String ENABLE = "OAuth.ScopeValidation.TenantScopeSnapshot.Enable";
+    private static final String TIMEOUT = "OAuth.ScopeValidation.TenantScopeSnapshot.TimeoutInSeconds";
+    private static final long DEFAULT_TIMEOUT = 60;
+
+    private static volatile TenantScopeSnapshotCache instance;
+
+    private final Map<Integer, TenantEntry> tenantEntries = new ConcurrentHashMap<>();
+    private final boolean enabled;
+    private final long timeoutInMillis;
+
+    /**
+     * Create a cache.
+     *
+     * @param enabled         Whether scope snapshots are cached.
+     * @param timeoutInMillis Time a snapshot is used without loading the scopes of the tenant again.
+     */
+    public TenantScopeSnapshotCache(boolean enabled, long timeoutInMillis) {
+
+        this.enabled = enabled && timeoutInMillis > 0;
+        this.timeoutInMillis = timeoutInMillis;
+    }
+
+    /**
+     * Get the cache configured in identity.xml.
+     *
+     * @return Tenant scope snapshot cache.
+     */
+    public static TenantScopeSnapshotCache getInstance() {
+
+        if (instance == null) {
+            synchronized (TenantScopeSnapshotCache.class) {
+                if (instance == null) {
+                    String enable = IdentityUtil.getProperty(ENABLE);
+                    instance = new TenantScopeSnapshotCache(
+                            StringUtils.isBlank(enable) || Boolean.parseBoolean(enable.trim()),
+                            TimeUnit.SECONDS.toMillis(readLongProperty(TIMEOUT, DEFAULT_TIMEOUT)));
+                }
+            }
+        }
+        return instance;
+    }
+
+    public boolean isEnabled() {
+
+        return enabled;
+    }
+
+    /**
+     * Get the scope snapshot of a tenant, loading it if it is not cached or has expired.
+     *
+     * @param tenantId Tenant id.
+     * @return Scope snapshot of the tenant, or null if the cache is disabled.
+     * @throws IdentityOAuth2ScopeServerException When an error occurs while loading the scopes of the tenant.
+     */
+    public TenantScopeSnapshot getSnapshot(int tenantId) throws IdentityOAuth2ScopeServerException {
+
+        if (!enabled) {
+            return null;
+        }
+        TenantEntry tenantEntry = tenantEntries.computeIfAbsent(tenantId, k -> new TenantEntry());
+        TenantScopeSnapshot snapshot = tenantEntry.snapshot;
+        if (snapshot != null && !snapshot.isExpired(System.currentTimeMillis())) {
+            return snapshot;
+        }
+        // Loading and invalidation of a tenant are serialized, hence a snapshot loaded before the scopes of the
+        // tenant are changed is always dropped by the invalidation following the change.
+        synchronized (tenantEntry) {
+            snapshot = tenantEntry.snapshot;
+            if (snapshot == null || snapshot.isExpired(System.currentTimeMillis())) {
+                snapshot = load(tenantId);
+                tenantEntry.snapshot = snapshot;
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Drop the scope snapshot of a tenant. Called when the scopes of the tenant are changed.
+     *
+     * @param tenantId Tenant id.
+     */
+    public void invalidate(int tenantId) {
+
+        if (!enabled) {
+            return;
+        }
+        TenantEntry tenantEntry = tenantEntries.get(tenantId);
+        if (tenantEntry != null) {
+            synchronized (tenantEntry) {
+                tenantEntry.snapshot = null;
+            }
+        }
+    }
+
+    /**
+     * Drop the scope snapshots of every tenant.
+     */
+    public void clear() {
+
+        tenantEntries.clear();
+    }
+
+    private TenantScopeSnapshot load(int tenantId) throws IdentityOAuth2ScopeServerException {
+
+        Set<Scope> scopes = OAuthTokenPersistenceFactory.getInstance().getOAuthScopeDAO().getAllScopes(tenantId);
+        Map<String, Set<String>> bindingsOfScopes = new HashMap<>();
+        for (Scope scope : scopes) {
+            Set<String> bindings = new HashSet<>();
+            if (scope.getScopeBindings() != null) {
+                for (ScopeBinding scopeBinding : scope.getScopeBindings()) {
+                    for (String binding : scopeBinding.getBindings()) {
+                        if (StringUtils.isNotEmpty(binding)) {
+                            bindings.add(binding);
+                        }
+                    }
+                }
+            }
+            bindingsOfScopes.put(scope.getName(), Collections.unmodifiableSet(bindings));
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Loaded " + bindingsOfScopes.size() + " scopes of tenant: " + tenantId);
+        }
+        return new TenantScopeSnapshot(Collections.unmodifiableMap(bindingsOfScopes),
+                System.currentTimeMillis() + timeoutInMillis);
+    }
+
+    /**
+     * Holder of the current snapshot of a tenant.
+     */
+    private static final class TenantEntry {
+
+        private volatile TenantScopeSnapshot snapshot;
+    }
+
+    /**
+     * Immutable view of the OAuth2 scopes of a tenant and the bindings of each scope.
+     */
+    public static final class TenantScopeSnapshot {
+
+        private final Map<String, Set<String>> bindingsOfScopes;
+        private final long expiryTime;
+
+        TenantScopeSnapshot(Map<String, Set<String>> bindingsOfScopes, long expiryTime) {
+
+            this.bindingsOfScopes = bindingsOfScopes;
+            this.expiryTime = expiryTime;
+        }
+
+        /**
+         * Whether a scope with the given name is registered in the tenant.
+         *
+         * @param scopeName Scope name.
+         * @return True if the scope exists.
+         */
+        public boolean hasScope(String scopeName) {
+
+            return bindingsOfScopes.containsKey(scopeName);
+        }
+
+        /**
+         * Get the bindings of a scope, of every binding type.
+         *
+         * @param scopeName Scope name.
+         * @return Unmodifiable set of bindings. Empty if the scope has no bindings or does not exist.
+         */
+        public Set<String> getBindings(String scopeName) {
+
+            Set<String> bindings = bindingsOfScopes.get(scopeName);
+            return bindings == null ? Collections.emptySet() : bindings;
+        }
+
+        public int getScopeCount() {
+
+            return bindingsOfScopes.size();
+        }
+
+        boolean isExpired(long now) {
+
+            return now >= expiryTime;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.cache;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.application.common.model.User;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.wso2.carbon.identity.oauth2.util.OAuth2ConfigUtil.readIntProperty;
+import static org.wso2.carbon.identity.oauth2.util.OAuth2ConfigUtil.readLongProperty;
+
+/**
+ * Node local cache of the roles of users used for scope validation, so that validating the scopes of consecutive
+ * requests of a user does not read the roles of the user from the user store every time.
+ * <p>
+ * Entries expire after a short timeout, which bounds how long a node may use the roles of a user after they were
+ * changed through another node. Role changes made through this node drop the roles of the affected users right
+ * away. The number of entries is bounded.
+ */
+public class UserRoleCache {
+
+    private static final Log log = LogFactory.getLog(UserRoleCache.class);
+
+    private static final String ENABLE = "OAuth.ScopeValidation.UserRoleCache.Enable";
+    private static final String MAX_SIZE = "OAuth.ScopeValidation.UserRoleCache.MaxSize";
+    private static final String TIMEOUT = "OAuth.ScopeValidation.UserRoleCache.TimeoutInSeconds";
+    private static final int DEFAULT_MAX_SIZE = 10000;
+    private static final long DEFAULT_TIMEOUT = 15;
+
+    private static volatile UserRoleCache instance;
+
+    private final Map<String, UserRoles> userRoles = new ConcurrentHashMap<>();
+    private final boolean enabled;
+    private final int maxSize;
+    private final long timeoutInMillis;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * Create a cache.
+     *
+     * @param enabled         Whether roles of users are cached.
+     * @param maxSize         Maximum number of cached users.
+     * @param timeoutInMillis Time the roles of a user are used without reading them from the user store again.
+     */
+    public UserRoleCache(boolean enabled, int maxSize, long timeoutInMillis) {
+
+        this.enabled = enabled && timeoutInMillis > 0;
+        this.maxSize = Math.max(maxSize, 1);
+        this.timeoutInMillis = timeoutInMillis;
+    }
+
+    /**
+     * Get the cache configured in identity.xml.
+     *
+     * @return User role cache.
+     */
+    public static UserRoleCache getInstance() {
+
+        if (instance == null) {
+            synchronized (UserRoleCache.class) {
+                if (instance == null) {
+                    String enable = IdentityUtil.getProperty(ENABLE);
+                    instance = new UserRoleCache(
+                            StringUtils.isBlank(enable) || Boolean.parseBoolean(enable.trim()),
+                            readIntProperty(MAX_SIZE, DEFAULT_MAX_SIZE),
+                            TimeUnit.SECONDS.toMillis(readLongProperty(TIMEOUT, DEFAULT_TIMEOUT)));
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Get the cached roles of a user.
+     *
+     * @param user User.
+     * @return Roles of the user, or null if they are not cached or have expired.
+     */
+    public String[] getRoles(User user) {
+
+        if (!enabled) {
+            return null;
+        }
+        String key = getKey(user);
+        UserRoles roles = userRoles.get(key);
+        if (roles == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        if (roles.isExpired(System.currentTimeMillis())) {
+            userRoles.remove(key, roles);
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return roles.getRoles().clone();
+    }
+
+    /**
+     * Cache the roles of a user read from the user store.
+     *
+     * @param user  User.
+     * @param roles Roles of the user.
+     */
+    public void addRoles(User user, String[] roles) {
+
+        if (!enabled || roles == null) {
+            return;
+        }
+        if (userRoles.size() >= maxSize) {
+            evict();
+        }
+        userRoles.put(getKey(user), new UserRoles(roles.clone(), System.currentTimeMillis() + timeoutInMillis));
+    }
+
+    /**
+     * Drop the cached roles of a user. Called when the roles of the user are changed.
+     *
+     * @param user User.
+     */
+    public void invalidate(User user) {
+
+        if (!enabled || userRoles.isEmpty()) {
+            return;
+        }
+        userRoles.remove(getKey(user));
+    }
+
+    /**
+     * Drop the cached roles of every user.
+     */
+    public void clear() {
+
+        userRoles.clear();
+    }
+
+    public int getSize() {
+
+        return userRoles.size();
+    }
+
+    public long getHitCount() {
+
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+
+        return evictionCount.get();
+    }
+
+    private String getKey(User user) {
+
+        return user.toFullQualifiedUsername();
+    }
+
+    private void evict() {
+
+        // Evict a tenth of the entries at once, so that the cache is not scanned for every new user once full.
+        int targetSize = maxSize - Math.max(1, maxSize / 10);
+        long now = System.currentTimeMillis();
+        userRoles.values().removeIf(roles -> roles.isExpired(now));
+        Iterator<UserRoles> iterator = userRoles.values().iterator();
+        while (userRoles.size() > targetSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictionCount.incrementAndGet();
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("User role cache reached the maximum size of " + maxSize + ". Evicted " +
+                    evictionCount.get() + " entries so far.");
+        }
+    }
+
+    /**
+     * Roles read for a user.
+     */
+    private static final class UserRoles {
+
+        private final String[] roles;
+        private final long expiryTime;
+
+        UserRoles(String[] roles, long expiryTime) {
+
+            this.roles = roles;
+            this.expiryTime = expiryTime;
+        }
+
+        String[] getRoles() {
+
+            return roles;
+        }
+
+        boolean isExpired(long now) {
+
+            return now >= expiryTime;
+        }
+    }
+}
@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.cleanup;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+import org.wso2.carbon.identity.oauth2.dao.ExpiredTokenCleanupDAO;
+import org.wso2.carbon.identity.oauth2.dao.ExpiredTokenCleanupDAO.CleanupPage;
+import org.wso2.carbon.identity.oauth2.dao.ExpiredTokenCleanupDAO.CleanupTarget;
+import org.wso2.carbon.identity.oauth2.lock.IssuanceLock;
+import org.wso2.carbon.identity.oauth2.lock.JDBCClusterLockProvider;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.wso2.carbon.identity.oauth2.util.OAuth2ConfigUtil.readLongProperty;
+
+/**
+ * Periodically removes expired access tokens, authorization codes, device codes and CIBA authentication codes. Inline
+ * cleanup only handles tokens which are touched again, hence expired tokens which are never refreshed or revoked
+ * would otherwise stay in the access token table.
+ * <p>
+ * Each run scans the tables in primary key order, one page at a time, pausing between pages to limit the load on the
+ * database. A run stops once its time budget is used up and the next run continues from where it stopped. When
+ * cluster coordination is enabled, a run only starts on the node holding the cleanup lease row of the
+ * IDN_OAUTH2_ISSUANCE_LOCK table. Cluster coordination is disabled by default, as existing databases may not have
+ * that table yet.
+ */
+public class ExpiredTokenCleanupService {
+
+    private static final Log log = LogFactory.getLog(ExpiredTokenCleanupService.class);
+
+    private static final String CLEANUP_ENABLE = "OAuth.TokenCleanup.Scheduler.Enable";
+    private static final String CLEANUP_INITIAL_DELAY = "OAuth.TokenCleanup.Scheduler.InitialDelayInMinutes";
+    private static final String CLEANUP_INTERVAL = "OAuth.TokenCleanup.Scheduler.IntervalInMinutes";
+    private static final String CLEANUP_BATCH_SIZE = "OAuth.TokenCleanup.Scheduler.BatchSize";
+    private static final String CLEANUP_BATCH_INTERVAL = "OAuth.TokenCleanup.Scheduler.BatchIntervalInMillis";
+    private static final String CLEANUP_SAFE_PERIOD = "OAuth.TokenCleanup.Scheduler.SafePeriodInMinutes";
+    private static final String CLEANUP_MAX_RUN_TIME = "OAuth.TokenCleanup.Scheduler.MaxRunTimeInMinutes";
+    private static final String CLEANUP_CLUSTER_COORDINATION = "OAuth.TokenCleanup.Scheduler.ClusterCoordination";
+    private static final long DEFAULT_INITIAL_DELAY = 5;
+    private static final long DEFAULT_INTERVAL = 60;
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final long DEFAULT_BATCH_INTERVAL = 100;
+    private static final long DEFAULT_SAFE_PERIOD = 60;
+    private static final long DEFAULT_MAX_RUN_TIME = 30;
+    // Issuance lock keys always contain the client id, hence never clash with this key.
+    private static final String CLEANUP_LOCK_KEY = "OAUTH2_EXPIRED_TOKEN_CLEANUP";
+    private static final long CLEANUP_LOCK_TIMEOUT = 1000;
+    private static final String CLEANUP_THREAD_NAME = "oauth2-expired-token-cleanup";
+
+    private static volatile ExpiredTokenCleanupService instance;
+
+    private final ExpiredTokenCleanupDAO cleanupDAO;
+    private final JDBCClusterLockProvider clusterLockProvider;
+    private final int batchSize;
+    private final long batchIntervalInMillis;
+    private final long safePeriodInMillis;
+    private final long maxRunTimeInMillis;
+    private final Map<CleanupTarget, String> resumeKeys = new EnumMap<>(CleanupTarget.class);
+    private final Map<CleanupTarget, AtomicLong> removedCounts = new EnumMap<>(CleanupTarget.class);
+    private final Set<CleanupTarget> unavailableTargets = ConcurrentHashMap.newKeySet();
+    private final AtomicLong runCount = new AtomicLong();
+    private final AtomicLong skippedRunCount = new AtomicLong();
+    private volatile long lastRunDurationInMillis;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Create a cleanup service.
+     *
+     * @param cleanupDAO            Cleanup DAO.
+     * @param clusterLockProvider   Cluster lock provider used to run the cleanup on a single node, or null to run on
+     *                              every node.
+     * @param batchSize             Number of entries scanned per page.
+     * @param batchIntervalInMillis Pause between two pages.
+     * @param safePeriodInMillis    Entries are removed only once they have been expired for this long.
+     * @param maxRunTimeInMillis    Time budget of a single run.
+     */
+    public ExpiredTokenCleanupService(ExpiredTokenCleanupDAO cleanupDAO, JDBCClusterLockProvider clusterLockProvider,
+                                      int batchSize, long batchIntervalInMillis, long safePeriodInMillis,
+                                      long maxRunTimeInMillis) {
+
+        this.cleanupDAO = cleanupDAO;
+        this.clusterLockProvider = clusterLockProvider;
+        this.batchSize = Math.max(batchSize, 1);
+        this.batchIntervalInMillis = Math.max(batchIntervalInMillis, 0);
+        this.safePeriodInMillis = Math.max(safePeriodInMillis, 0);
+        this.maxRunTimeInMillis = Math.max(maxRunTimeInMillis, 1);
+        for (CleanupTarget target : CleanupTarget.values()) {
+            resumeKeys.put(target, StringUtils.EMPTY);
+            removedCounts.put(target, new AtomicLong());
+        }
+    }
+
+    /**
+     * Start the cleanup configured in identity.xml, if enabled.
+     */
+    public static synchronized void startIfEnabled() {
+
+        if (instance != null || !Boolean.parseBoolean(IdentityUtil.getProperty(CLEANUP_ENABLE))) {
+            return;
+        }
+        String clusterCoordination = IdentityUtil.getProperty(CLEANUP_CLUSTER_COORDINATION);
+        JDBCClusterLockProvider clusterLockProvider = null;
+        if (Boolean.parseBoolean(clusterCoordination)) {
+            clusterLockProvider = new JDBCClusterLockProvider(TimeUnit.MINUTES.toMillis(readLongProperty(
+                    CLEANUP_MAX_RUN_TIME, DEFAULT_MAX_RUN_TIME)));
+        }
+        ExpiredTokenCleanupService service = new ExpiredTokenCleanupService(new ExpiredTokenCleanupDAO(),
+                clusterLockProvider, (int) readLongProperty(CLEANUP_BATCH_SIZE, DEFAULT_BATCH_SIZE),
+                readLongProperty(CLEANUP_BATCH_INTERVAL, DEFAULT_BATCH_INTERVAL),
+                TimeUnit.MINUTES.toMillis(readLongProperty(CLEANUP_SAFE_PERIOD, DEFAULT_SAFE_PERIOD)),
+                TimeUnit.MINUTES.toMillis(readLongProperty(CLEANUP_MAX_RUN_TIME, DEFAULT_MAX_RUN_TIME)));
+        service.start(readLongProperty(CLEANUP_INITIAL_DELAY, DEFAULT_INITIAL_DELAY),
+                readLongProperty(CLEANUP_INTERVAL, DEFAULT_INTERVAL), TimeUnit.MINUTES);
+        instance = service;
+    }
+
+    /**
+     * Stop the cleanup started through {@link #startIfEnabled()}.
+     */
+    public static synchronized void stopInstance() {
+
+        if (instance != null) {
+            instance.stop();
+            instance = null;
+        }
+    }
+
+    /**
+     * Get the running cleanup service.
+     *
+     * @return Cleanup service, or null if the cleanup is not enabled.
+     */
+    public static ExpiredTokenCleanupService getInstance() {
+
+        return instance;
+    }
+
+    public synchronized void start(long initialDelay, long interval, TimeUnit timeUnit) {
+
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, CLEANUP_THREAD_NAME);
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::runCleanup, initialDelay, Math.max(interval, 1), timeUnit);
+        if (log.isDebugEnabled()) {
+            log.debug("Expired token cleanup scheduled every " + interval + " " + timeUnit + ".");
+        }
+    }
+
+    public synchronized void stop() {
+
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Run a single cleanup. Also invoked by the scheduler.
+     */
+    public void runCleanup() {
+
+        try {
+            if (clusterLockProvider == null) {
+                cleanup();
+                return;
+            }
+            // The lease outlives the run, which stops once its time budget is used up.
+            try (IssuanceLock lock = clusterLockProvider.acquire(CLEANUP_LOCK_KEY, CLEANUP_LOCK_TIMEOUT,
+                    maxRunTimeInMillis + TimeUnit.MINUTES.toMillis(1))) {
+                if (!lock.isAcquired()) {
+                    skippedRunCount.incrementAndGet();
+                    if (log.isDebugEnabled()) {
+                        log.debug("Expired token cleanup is running on another node. Skipping this run.");
+                    }
+                    return;
+                }
+                cleanup();
+            }
+        } catch (IdentityOAuth2Exception | RuntimeException e) {
+            log.error("Error while running the expired token cleanup.", e);
+        }
+    }
+
+    private synchronized void cleanup() {
+
+        long start = System.currentTimeMillis();
+        long deadline = start + maxRunTimeInMillis;
+        long expiredBefore = start - safePeriodInMillis;
+        Map<CleanupTarget, Long> removed = new EnumMap<>(CleanupTarget.class);
+        try {
+            for (CleanupTarget target : CleanupTarget.values()) {
+                if (unavailableTargets.contains(target)) {
+                    continue;
+                }
+                removed.put(target, cleanup(target, expiredBefore, deadline));
+                if (System.currentTimeMillis() >= deadline) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        runCount.incrementAndGet();
+        lastRunDurationInMillis = System.currentTimeMillis() - start;
+        log.info("Expired token cleanup completed in " + lastRunDurationInMillis + "ms. Removed entries: " + removed);
+    }
+
+    private long cleanup(CleanupTarget target, long expiredBefore, long deadline) throws InterruptedException {
+
+        long removed = 0;
+        String lastKey = resumeKeys.get(target);
+        while (true) {
+            CleanupPage page;
+            try {
+                page = cleanupDAO.cleanupPage(target, lastKey, batchSize, expiredBefore);
+            } catch (IdentityOAuth2Exception e) {
+                if (StringUtils.isEmpty(lastKey)) {
+                    // The very first page failed, which usually means the table is not available in this deployment.
+                    unavailableTargets.add(target);
+                    log.warn("Disabling the expired entry cleanup of " + target + " as the first page failed.", e);
+                } else {
+                    log.error("Error while cleaning up expired entries of " + target + ". The cleanup will be " +
+                            "resumed in the next run.", e);
+                }
+                break;
+            }
+            removed += page.getDeletedCount();
+            removedCounts.get(target).addAndGet(page.getDeletedCount());
+            lastKey = page.hasMore() ? page.getLastKey() : StringUtils.EMPTY;
+            if (!page.hasMore()) {
+                break;
+            }
+            if (batchIntervalInMillis > 0) {
+                Thread.sleep(batchIntervalInMillis);
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                break;
+            }
+        }
+        resumeKeys.put(target, lastKey);
+        return removed;
+    }
+
+    /**
+     * Get the number of entries removed from the given table since the service started.
+     *
+     * @param target Cleanup target.
+     * @return Removed entry count.
+     */
+    public long getRemovedCount(CleanupTarget target) {
+
+        return removedCounts.get(target).get();
+    }
+
+    public long getRunCount() {
+
+        return runCount.get();
+    }
+
+    public long getSkippedRunCount() {
+
+        return skippedRunCount.get();
+    }
+
+    public long getLastRunDurationInMillis() {
+
+        return lastRunDurationInMillis;
+    }
+}
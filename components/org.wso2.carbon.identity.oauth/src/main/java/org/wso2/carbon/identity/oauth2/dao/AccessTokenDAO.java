@@ -24,8 +24,11 @@ import org.wso2.carbon.identity.application.authentication.framework.model.Authe
 import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
 import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
 
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -40,6 +43,21 @@ public interface AccessTokenDAO {
                               AccessTokenDO newAccessTokenDO, AccessTokenDO existingAccessTokenDO,
                               String rawUserStoreDomain) throws IdentityOAuth2Exception;
 
+    /**
+     * Insert a batch of access tokens. Existing tokens of the batch entries are marked as expired.
+     *
+     * @param accessContextTokens Access tokens to be persisted.
+     * @throws IdentityOAuth2Exception in case of failure.
+     */
+    default void insertAccessTokens(List<AccessContextTokenDO> accessContextTokens) throws IdentityOAuth2Exception {
+
+        for (AccessContextTokenDO accessContextTokenDO : accessContextTokens) {
+            insertAccessToken(accessContextTokenDO.getAccessToken(), accessContextTokenDO.getConsumerKey(),
+                    accessContextTokenDO.getNewAccessTokenDO(), accessContextTokenDO.getExistingAccessTokenDO(),
+                    accessContextTokenDO.getUserStoreDomain());
+        }
+    }
+
     AccessTokenDO getLatestAccessToken(String consumerKey, AuthenticatedUser authzUser, String userStoreDomain,
                                        String scope, boolean includeExpiredTokens) throws IdentityOAuth2Exception;
 
@@ -89,6 +107,26 @@ public interface AccessTokenDAO {
 
     AccessTokenDO getAccessToken(String accessTokenIdentifier, boolean includeExpired) throws IdentityOAuth2Exception;
 
+    /**
+     * Get the active access tokens of the given identifiers.
+     *
+     * @param accessTokenIdentifiers Access token identifiers.
+     * @return Active access tokens keyed by their identifier. Identifiers without an active token are not included.
+     * @throws IdentityOAuth2Exception in case of failure.
+     */
+    default Map<String, AccessTokenDO> getActiveAccessTokens(Collection<String> accessTokenIdentifiers)
+            throws IdentityOAuth2Exception {
+
+        Map<String, AccessTokenDO> accessTokenDOs = new HashMap<>();
+        for (String accessTokenIdentifier : accessTokenIdentifiers) {
+            AccessTokenDO accessTokenDO = getAccessToken(accessTokenIdentifier, false);
+            if (accessTokenDO != null) {
+                accessTokenDOs.put(accessTokenIdentifier, accessTokenDO);
+            }
+        }
+        return accessTokenDOs;
+    }
+
     Set<String> getAccessTokensByUser(AuthenticatedUser authenticatedUser) throws IdentityOAuth2Exception;
 
     default Set<AccessTokenDO> getAccessTokensByUserForOpenidScope(AuthenticatedUser authenticatedUser)
@@ -37,12 +37,17 @@ import org.wso2.carbon.identity.base.IdentityConstants;
 import org.wso2.carbon.identity.core.util.IdentityDatabaseUtil;
 import org.wso2.carbon.identity.core.util.IdentityTenantUtil;
 import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.oauth.cache.OAuthCache;
+import org.wso2.carbon.identity.oauth.cache.OAuthCacheKey;
 import org.wso2.carbon.identity.oauth.common.OAuthConstants;
 import org.wso2.carbon.identity.oauth.common.exception.InvalidOAuthClientException;
 import org.wso2.carbon.identity.oauth.config.OAuthServerConfiguration;
 import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+import org.wso2.carbon.identity.oauth2.cache.InactiveTokenCache;
 import org.wso2.carbon.identity.oauth2.internal.OAuth2ServiceComponentHolder;
+import org.wso2.carbon.identity.oauth2.lock.ClusteredIssuanceLockManager;
 import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
+import org.wso2.carbon.identity.oauth2.model.ScopeSet;
 import org.wso2.carbon.identity.oauth2.token.OAuthTokenReqMessageContext;
 import org.wso2.carbon.identity.oauth2.token.OauthTokenIssuer;
 import org.wso2.carbon.identity.oauth2.token.bindings.TokenBinding;
@@ -59,6 +64,7 @@ import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
@@ -84,6 +90,9 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
 
     private static final String OAUTH_TOKEN_PERSISTENCE_RETRY_COUNT = "OAuth.TokenPersistence.RetryCount";
     private static final int DEFAULT_TOKEN_PERSIST_RETRY_COUNT = 5;
+    private static final int CLUSTER_LOCKED_TOKEN_PERSIST_RETRY_COUNT = 1;
+    // Keeps the bind parameters of a multi row scope insert well below the limits of the supported drivers.
+    private static final int MAX_SCOPES_PER_INSERT = 100;
     private static final String IDN_OAUTH2_ACCESS_TOKEN = "IDN_OAUTH2_ACCESS_TOKEN";
     private boolean isTokenCleanupFeatureEnabled = OAuthServerConfiguration.getInstance().isTokenCleanupEnabled();
     private boolean isTenantQualifiedUrlsEnabled = IdentityTenantUtil.isTenantQualifiedUrlsEnabled();
@@ -103,6 +112,7 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
         } catch (SQLException e) {
             throw new IdentityOAuth2Exception("Error while inserting access token.", e);
         }
+        invalidateInactiveTokenCache(accessToken, consumerKey);
     }
 
     private void insertAccessToken(String accessToken, String consumerKey, AccessTokenDO accessTokenDO,
@@ -129,23 +139,7 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
                     "Authorized user should be available for further execution.");
         }
 
-        String accessTokenHash = accessToken;
-        try {
-            OauthTokenIssuer oauthTokenIssuer = OAuth2Util.getOAuthTokenIssuerForOAuthApp(consumerKey);
-            //check for persist alias for the token type
-            if (oauthTokenIssuer.usePersistedAccessTokenAlias()) {
-                accessTokenHash = oauthTokenIssuer.getAccessTokenHash(accessToken);
-            }
-        } catch (OAuthSystemException e) {
-            if (log.isDebugEnabled() && IdentityUtil.isTokenLoggable(IdentityConstants.IdentityTokens.ACCESS_TOKEN)) {
-                log.debug("Error while getting access token hash for token(hashed): " + DigestUtils
-                        .sha256Hex(accessTokenHash));
-            }
-            throw new IdentityOAuth2Exception("Error while getting access token hash.", e);
-        } catch (InvalidOAuthClientException e) {
-            throw new IdentityOAuth2Exception(
-                    "Error while retrieving oauth issuer for the app with clientId: " + consumerKey, e);
-        }
+        String accessTokenHash = getPersistedAccessTokenAlias(accessToken, consumerKey);
 
         if (log.isDebugEnabled()) {
             if (IdentityUtil.isTokenLoggable(IdentityConstants.IdentityTokens.ACCESS_TOKEN)) {
@@ -162,7 +156,6 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
         String userDomain = OAuth2Util.getUserStoreDomain(accessTokenDO.getAuthzUser());
         String authenticatedIDP = OAuth2Util.getAuthenticatedIDP(accessTokenDO.getAuthzUser());
         PreparedStatement insertTokenPrepStmt = null;
-        PreparedStatement addScopePrepStmt = null;
 
         if (log.isDebugEnabled()) {
             String username;
@@ -181,70 +174,17 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
             sql = SQLQueries.INSERT_OAUTH2_ACCESS_TOKEN;
         }
         sql = OAuth2Util.getTokenPartitionedSqlByUserStore(sql, userDomain);
-        String sqlAddScopes = OAuth2Util.getTokenPartitionedSqlByUserStore(SQLQueries.INSERT_OAUTH2_TOKEN_SCOPE,
-                userDomain);
 
         try {
             insertTokenPrepStmt = connection.prepareStatement(sql);
-            insertTokenPrepStmt.setString(1, getPersistenceProcessor().getProcessedAccessTokenIdentifier(
-                    accessTokenHash));
-
-            if (accessTokenDO.getRefreshToken() != null) {
-                insertTokenPrepStmt.setString(2,
-                        getPersistenceProcessor().getProcessedRefreshToken(accessTokenDO.getRefreshToken()));
-            } else {
-                insertTokenPrepStmt.setString(2, accessTokenDO.getRefreshToken());
-            }
-
-            insertTokenPrepStmt.setString(3, accessTokenDO.getAuthzUser().getUserName());
             int tenantId = OAuth2Util.getTenantId(accessTokenDO.getAuthzUser().getTenantDomain());
-            insertTokenPrepStmt.setInt(4, tenantId);
-            insertTokenPrepStmt.setString(5, OAuth2Util.getSanitizedUserStoreDomain(userDomain));
-            insertTokenPrepStmt
-                    .setTimestamp(6, accessTokenDO.getIssuedTime(), Calendar.getInstance(TimeZone.getTimeZone(UTC)));
-            insertTokenPrepStmt.setTimestamp(7, accessTokenDO.getRefreshTokenIssuedTime(), Calendar.getInstance(TimeZone
-                    .getTimeZone(UTC)));
-            insertTokenPrepStmt.setLong(8, accessTokenDO.getValidityPeriodInMillis());
-            insertTokenPrepStmt.setLong(9, accessTokenDO.getRefreshTokenValidityPeriodInMillis());
-            insertTokenPrepStmt.setString(10, OAuth2Util.hashScopes(accessTokenDO.getScope()));
-            insertTokenPrepStmt.setString(11, accessTokenDO.getTokenState());
-            insertTokenPrepStmt.setString(12, accessTokenDO.getTokenType());
-            insertTokenPrepStmt.setString(13, accessTokenDO.getTokenId());
-            insertTokenPrepStmt.setString(14, accessTokenDO.getGrantType());
-            insertTokenPrepStmt.setString(15, accessTokenDO.getAuthzUser().getAuthenticatedSubjectIdentifier());
-            insertTokenPrepStmt
-                    .setString(16, getHashingPersistenceProcessor().getProcessedAccessTokenIdentifier(accessTokenHash));
-            if (accessTokenDO.getRefreshToken() != null) {
-                insertTokenPrepStmt.setString(17,
-                        getHashingPersistenceProcessor().getProcessedRefreshToken(accessTokenDO.getRefreshToken()));
-            } else {
-                insertTokenPrepStmt.setString(17, accessTokenDO.getRefreshToken());
-            }
+            setAccessTokenInsertParameters(insertTokenPrepStmt, accessTokenHash, consumerKey, accessTokenDO,
+                    userDomain, authenticatedIDP, tenantId);
             boolean tokenBindingAvailable = isTokenBindingAvailable(accessTokenDO.getTokenBinding());
-            if (tokenBindingAvailable) {
-                insertTokenPrepStmt.setString(18, accessTokenDO.getTokenBinding().getBindingReference());
-            } else {
-                insertTokenPrepStmt.setString(18, NONE);
-            }
-            insertTokenPrepStmt.setString(19, getPersistenceProcessor().getProcessedClientId(consumerKey));
-            if (OAuth2ServiceComponentHolder.isIDPIdColumnEnabled()) {
-                insertTokenPrepStmt.setString(20, authenticatedIDP);
-                insertTokenPrepStmt.setInt(21, tenantId);
-            }
             insertTokenPrepStmt.execute();
 
             String accessTokenId = accessTokenDO.getTokenId();
-            addScopePrepStmt = connection.prepareStatement(sqlAddScopes);
-
-            if (accessTokenDO.getScope() != null && accessTokenDO.getScope().length > 0) {
-                for (String scope : accessTokenDO.getScope()) {
-                    addScopePrepStmt.setString(1, accessTokenId);
-                    addScopePrepStmt.setString(2, scope);
-                    addScopePrepStmt.setInt(3, tenantId);
-                    addScopePrepStmt.addBatch();
-                }
-            }
-            addScopePrepStmt.executeBatch();
+            insertTokenScopes(connection, accessTokenId, accessTokenDO.getScope(), tenantId, userDomain);
 
             if (tokenBindingAvailable) {
                 if (log.isDebugEnabled()) {
@@ -274,7 +214,7 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
                         getTokenPersistRetryCount());
                 String errorMsg = "Access Token for consumer key : " + consumerKey + ", user : " +
                         accessTokenDO.getAuthzUser() + " and scope : " +
-                        OAuth2Util.buildScopeString(accessTokenDO.getScope()) + "already exists";
+                        OAuth2Util.buildScopeString(accessTokenDO.getScopeSet()) + "already exists";
                 throw new IdentityOAuth2Exception(errorMsg, e);
             }
 
@@ -293,7 +233,7 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
                             getTokenPersistRetryCount());
                     String errorMsg = "Access Token for consumer key : " + consumerKey + ", user : " +
                             accessTokenDO.getAuthzUser() + " and scope : " +
-                            OAuth2Util.buildScopeString(accessTokenDO.getScope()) + "already exists";
+                            OAuth2Util.buildScopeString(accessTokenDO.getScopeSet()) + "already exists";
                     throw new IdentityOAuth2Exception(errorMsg, e);
                 }
 
@@ -316,7 +256,7 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
                             getTokenPersistRetryCount());
                     String errorMsg = "Access Token for consumer key : " + consumerKey + ", user : " +
                             accessTokenDO.getAuthzUser() + " and scope : " +
-                            OAuth2Util.buildScopeString(accessTokenDO.getScope()) + "already exists";
+                            OAuth2Util.buildScopeString(accessTokenDO.getScopeSet()) + "already exists";
                     throw new IdentityOAuth2Exception(errorMsg, e);
                 }
 
@@ -327,12 +267,227 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
                         "Error when storing the access token for consumer key : " + consumerKey, e);
             }
         } finally {
-            IdentityDatabaseUtil.closeStatement(addScopePrepStmt);
             IdentityDatabaseUtil.closeStatement(insertTokenPrepStmt);
         }
 
     }
 
+    /**
+     * Get the value persisted as the access token identifier. This is the token alias when the token issuer of the
+     * application persists an alias instead of the token.
+     *
+     * @param accessToken Access token.
+     * @param consumerKey Consumer key of the application.
+     * @return Access token or its alias.
+     * @throws IdentityOAuth2Exception When the token issuer fails to derive the alias.
+     */
+    private String getPersistedAccessTokenAlias(String accessToken, String consumerKey)
+            throws IdentityOAuth2Exception {
+
+        String accessTokenHash = accessToken;
+        try {
+            OauthTokenIssuer oauthTokenIssuer = OAuth2Util.getOAuthTokenIssuerForOAuthApp(consumerKey);
+            //check for persist alias for the token type
+            if (oauthTokenIssuer.usePersistedAccessTokenAlias()) {
+                accessTokenHash = oauthTokenIssuer.getAccessTokenHash(accessToken);
+            }
+        } catch (OAuthSystemException e) {
+            if (log.isDebugEnabled() && IdentityUtil.isTokenLoggable(IdentityConstants.IdentityTokens.ACCESS_TOKEN)) {
+                log.debug("Error while getting access token hash for token(hashed): " + DigestUtils
+                        .sha256Hex(accessTokenHash));
+            }
+            throw new IdentityOAuth2Exception("Error while getting access token hash.", e);
+        } catch (InvalidOAuthClientException e) {
+            throw new IdentityOAuth2Exception(
+                    "Error while retrieving oauth issuer for the app with clientId: " + consumerKey, e);
+        }
+        return accessTokenHash;
+    }
+
+    private void setAccessTokenInsertParameters(PreparedStatement insertTokenPrepStmt, String accessTokenHash,
+                                                String consumerKey, AccessTokenDO accessTokenDO, String userDomain,
+                                                String authenticatedIDP, int tenantId)
+            throws SQLException, IdentityOAuth2Exception {
+
+        insertTokenPrepStmt.setString(1, getPersistenceProcessor().getProcessedAccessTokenIdentifier(
+                accessTokenHash));
+
+        if (accessTokenDO.getRefreshToken() != null) {
+            insertTokenPrepStmt.setString(2,
+                    getPersistenceProcessor().getProcessedRefreshToken(accessTokenDO.getRefreshToken()));
+        } else {
+            insertTokenPrepStmt.setString(2, accessTokenDO.getRefreshToken());
+        }
+
+        insertTokenPrepStmt.setString(3, accessTokenDO.getAuthzUser().getUserName());
+        insertTokenPrepStmt.setInt(4, tenantId);
+        insertTokenPrepStmt.setString(5, OAuth2Util.getSanitizedUserStoreDomain(userDomain));
+        insertTokenPrepStmt
+                .setTimestamp(6, accessTokenDO.getIssuedTime(), Calendar.getInstance(TimeZone.getTimeZone(UTC)));
+        insertTokenPrepStmt.setTimestamp(7, accessTokenDO.getRefreshTokenIssuedTime(), Calendar.getInstance(TimeZone
+                .getTimeZone(UTC)));
+        insertTokenPrepStmt.setLong(8, accessTokenDO.getValidityPeriodInMillis());
+        insertTokenPrepStmt.setLong(9, accessTokenDO.getRefreshTokenValidityPeriodInMillis());
+        insertTokenPrepStmt.setString(10, OAuth2Util.hashScopes(accessTokenDO.getScopeSet()));
+        insertTokenPrepStmt.setString(11, accessTokenDO.getTokenState());
+        insertTokenPrepStmt.setString(12, accessTokenDO.getTokenType());
+        insertTokenPrepStmt.setString(13, accessTokenDO.getTokenId());
+        insertTokenPrepStmt.setString(14, accessTokenDO.getGrantType());
+        insertTokenPrepStmt.setString(15, accessTokenDO.getAuthzUser().getAuthenticatedSubjectIdentifier());
+        insertTokenPrepStmt
+                .setString(16, getHashingPersistenceProcessor().getProcessedAccessTokenIdentifier(accessTokenHash));
+        if (accessTokenDO.getRefreshToken() != null) {
+            insertTokenPrepStmt.setString(17,
+                    getHashingPersistenceProcessor().getProcessedRefreshToken(accessTokenDO.getRefreshToken()));
+        } else {
+            insertTokenPrepStmt.setString(17, accessTokenDO.getRefreshToken());
+        }
+        if (isTokenBindingAvailable(accessTokenDO.getTokenBinding())) {
+            insertTokenPrepStmt.setString(18, accessTokenDO.getTokenBinding().getBindingReference());
+        } else {
+            insertTokenPrepStmt.setString(18, NONE);
+        }
+        insertTokenPrepStmt.setString(19, getPersistenceProcessor().getProcessedClientId(consumerKey));
+        if (OAuth2ServiceComponentHolder.isIDPIdColumnEnabled()) {
+            insertTokenPrepStmt.setString(20, authenticatedIDP);
+            insertTokenPrepStmt.setInt(21, tenantId);
+        }
+    }
+
+    /**
+     * Insert the scopes of an access token. Where the database supports it, the scopes are written with multi row
+     * insert statements so that a token with many scopes costs a single round trip instead of one per scope.
+     *
+     * @param connection      Database connection.
+     * @param accessTokenId   Access token id.
+     * @param scopes          Scopes of the access token.
+     * @param tenantId        Tenant id.
+     * @param userDomain      User store domain used to resolve the token partition.
+     * @throws SQLException When an error occurs while inserting the scopes.
+     */
+    private void insertTokenScopes(Connection connection, String accessTokenId, String[] scopes, int tenantId,
+                                   String userDomain) throws SQLException {
+
+        if (ArrayUtils.isEmpty(scopes)) {
+            return;
+        }
+        if (scopes.length > 1 && isMultiRowInsertSupported(connection)) {
+            String sql = OAuth2Util.getTokenPartitionedSqlByUserStore(SQLQueries.INSERT_OAUTH2_TOKEN_SCOPES,
+                    userDomain);
+            insertTokenScopesWithMultiRowStatement(connection, sql, accessTokenId, scopes, tenantId);
+        } else {
+            String sql = OAuth2Util.getTokenPartitionedSqlByUserStore(SQLQueries.INSERT_OAUTH2_TOKEN_SCOPE,
+                    userDomain);
+            insertTokenScopesInBatch(connection, sql, accessTokenId, scopes, tenantId);
+        }
+    }
+
+    /**
+     * Insert token scopes with one insert statement per {@link #MAX_SCOPES_PER_INSERT} scopes.
+     *
+     * @param connection    Database connection.
+     * @param sql           Multi row insert statement prefix, ending with the VALUES keyword.
+     * @param accessTokenId Access token id.
+     * @param scopes        Scopes of the access token.
+     * @param tenantId      Tenant id.
+     * @throws SQLException When an error occurs while inserting the scopes.
+     */
+    static void insertTokenScopesWithMultiRowStatement(Connection connection, String sql, String accessTokenId,
+                                                       String[] scopes, int tenantId) throws SQLException {
+
+        for (int offset = 0; offset < scopes.length; offset += MAX_SCOPES_PER_INSERT) {
+            int rowCount = Math.min(MAX_SCOPES_PER_INSERT, scopes.length - offset);
+            StringBuilder sqlBuilder = new StringBuilder(sql.length() + rowCount * 8).append(sql);
+            for (int i = 0; i < rowCount; i++) {
+                if (i > 0) {
+                    sqlBuilder.append(',');
+                }
+                sqlBuilder.append(SQLQueries.INSERT_OAUTH2_TOKEN_SCOPES_VALUES);
+            }
+            try (PreparedStatement prepStmt = connection.prepareStatement(sqlBuilder.toString())) {
+                int parameterIndex = 1;
+                for (int i = offset; i < offset + rowCount; i++) {
+                    prepStmt.setString(parameterIndex++, accessTokenId);
+                    prepStmt.setString(parameterIndex++, scopes[i]);
+                    prepStmt.setInt(parameterIndex++, tenantId);
+                }
+                prepStmt.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * Insert the scopes of several access tokens with one insert statement per {@link #MAX_SCOPES_PER_INSERT}
+     * scopes. The lists hold one entry per scope row.
+     *
+     * @param connection Database connection.
+     * @param sql        Multi row insert statement prefix, ending with the VALUES keyword.
+     * @param tokenIds   Access token id of each row.
+     * @param scopes     Scope of each row.
+     * @param tenantIds  Tenant id of each row.
+     * @throws SQLException When an error occurs while inserting the scopes.
+     */
+    static void insertTokenScopesWithMultiRowStatement(Connection connection, String sql, List<String> tokenIds,
+                                                       List<String> scopes, List<Integer> tenantIds)
+            throws SQLException {
+
+        for (int offset = 0; offset < scopes.size(); offset += MAX_SCOPES_PER_INSERT) {
+            int rowCount = Math.min(MAX_SCOPES_PER_INSERT, scopes.size() - offset);
+            StringBuilder sqlBuilder = new StringBuilder(sql.length() + rowCount * 8).append(sql);
+            for (int i = 0; i < rowCount; i++) {
+                if (i > 0) {
+                    sqlBuilder.append(',');
+                }
+                sqlBuilder.append(SQLQueries.INSERT_OAUTH2_TOKEN_SCOPES_VALUES);
+            }
+            try (PreparedStatement prepStmt = connection.prepareStatement(sqlBuilder.toString())) {
+                int parameterIndex = 1;
+                for (int i = offset; i < offset + rowCount; i++) {
+                    prepStmt.setString(parameterIndex++, tokenIds.get(i));
+                    prepStmt.setString(parameterIndex++, scopes.get(i));
+                    prepStmt.setInt(parameterIndex++, tenantIds.get(i));
+                }
+                prepStmt.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * Insert token scopes as a JDBC batch of single row insert statements.
+     *
+     * @param connection    Database connection.
+     * @param sql           Single row insert statement.
+     * @param accessTokenId Access token id.
+     * @param scopes        Scopes of the access token.
+     * @param tenantId      Tenant id.
+     * @throws SQLException When an error occurs while inserting the scopes.
+     */
+    static void insertTokenScopesInBatch(Connection connection, String sql, String accessTokenId, String[] scopes,
+                                         int tenantId) throws SQLException {
+
+        try (PreparedStatement prepStmt = connection.prepareStatement(sql)) {
+            for (String scope : scopes) {
+                prepStmt.setString(1, accessTokenId);
+                prepStmt.setString(2, scope);
+                prepStmt.setInt(3, tenantId);
+                prepStmt.addBatch();
+            }
+            prepStmt.executeBatch();
+        }
+    }
+
+    /**
+     * Oracle and Informix do not support multi row VALUES clauses.
+     */
+    private boolean isMultiRowInsertSupported(Connection connection) throws SQLException {
+
+        String driverName = connection.getMetaData().getDriverName();
+        return driverName.contains("MySQL") || driverName.contains("MariaDB") || driverName.contains("H2")
+                || driverName.contains("PostgreSQL") || driverName.contains("MS SQL")
+                || driverName.contains("Microsoft") || connection.getMetaData().getDatabaseProductName()
+                .contains("DB2");
+    }
+
     @Override
     public boolean insertAccessToken(String accessToken, String consumerKey,
                                      AccessTokenDO newAccessTokenDO, AccessTokenDO existingAccessTokenDO,
@@ -370,13 +525,186 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
                 oldTokenCleanupObject.cleanupTokenByTokenId(existingAccessTokenDO.getTokenId(), connection);
             }
             IdentityDatabaseUtil.commitTransaction(connection);
-            return true;
         } catch (SQLException e) {
             IdentityDatabaseUtil.rollbackTransaction(connection);
             throw new IdentityOAuth2Exception("Error occurred while persisting access token", e);
         } finally {
             IdentityDatabaseUtil.closeConnection(connection);
         }
+        invalidateInactiveTokenCache(accessToken, consumerKey);
+        return true;
+    }
+
+    @Override
+    public void insertAccessTokens(List<AccessContextTokenDO> accessContextTokens) throws IdentityOAuth2Exception {
+
+        if (!isPersistenceEnabled() || accessContextTokens == null || accessContextTokens.isEmpty()) {
+            return;
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("Persisting a batch of " + accessContextTokens.size() + " access tokens.");
+        }
+
+        String insertTokenSql;
+        if (OAuth2ServiceComponentHolder.isIDPIdColumnEnabled()) {
+            insertTokenSql = SQLQueries.INSERT_OAUTH2_ACCESS_TOKEN_WITH_IDP_NAME;
+        } else {
+            insertTokenSql = SQLQueries.INSERT_OAUTH2_ACCESS_TOKEN;
+        }
+
+        // Statements are keyed by the partitioned SQL so that tokens of the same user store share a batch.
+        Map<String, PreparedStatement> insertTokenPrepStmts = new HashMap<>();
+        Map<String, PreparedStatement> addScopePrepStmts = new HashMap<>();
+        Map<String, TokenScopeRows> scopeRows = new HashMap<>();
+        Map<String, String> accessTokenAliases = new HashMap<>();
+        PreparedStatement storeTokenBindingPrepStmt = null;
+        Connection connection = IdentityDatabaseUtil.getDBConnection();
+        try {
+            boolean multiRowInsertSupported = isMultiRowInsertSupported(connection);
+            for (AccessContextTokenDO accessContextTokenDO : accessContextTokens) {
+                AccessTokenDO accessTokenDO = accessContextTokenDO.getNewAccessTokenDO();
+                if (accessTokenDO == null || accessTokenDO.getAuthzUser() == null) {
+                    throw new IdentityOAuth2Exception(
+                            "Access token data object with an authorized user should be available for " +
+                                    "further execution.");
+                }
+                String consumerKey = accessContextTokenDO.getConsumerKey();
+                String userStoreDomain =
+                        OAuth2Util.getSanitizedUserStoreDomain(accessContextTokenDO.getUserStoreDomain());
+                AccessTokenDO existingAccessTokenDO = accessContextTokenDO.getExistingAccessTokenDO();
+                if (existingAccessTokenDO != null) {
+                    //  Mark the existing access token as expired on database if a token exist for the user
+                    updateAccessTokenState(connection, existingAccessTokenDO.getTokenId(), OAuthConstants.TokenStates
+                            .TOKEN_STATE_EXPIRED, UUID.randomUUID().toString(), userStoreDomain,
+                            existingAccessTokenDO.getGrantType());
+                }
+
+                String accessTokenHash = getPersistedAccessTokenAlias(accessContextTokenDO.getAccessToken(),
+                        consumerKey);
+                accessTokenAliases.put(accessContextTokenDO.getAccessToken(), accessTokenHash);
+                String userDomain = OAuth2Util.getUserStoreDomain(accessTokenDO.getAuthzUser());
+                String authenticatedIDP = OAuth2Util.getAuthenticatedIDP(accessTokenDO.getAuthzUser());
+                int tenantId = OAuth2Util.getTenantId(accessTokenDO.getAuthzUser().getTenantDomain());
+
+                String sql = OAuth2Util.getTokenPartitionedSqlByUserStore(insertTokenSql, userDomain);
+                PreparedStatement insertTokenPrepStmt = insertTokenPrepStmts.get(sql);
+                if (insertTokenPrepStmt == null) {
+                    insertTokenPrepStmt = connection.prepareStatement(sql);
+                    insertTokenPrepStmts.put(sql, insertTokenPrepStmt);
+                }
+                setAccessTokenInsertParameters(insertTokenPrepStmt, accessTokenHash, consumerKey, accessTokenDO,
+                        userDomain, authenticatedIDP, tenantId);
+                insertTokenPrepStmt.addBatch();
+
+                ScopeSet scopes = accessTokenDO.getScopeSet();
+                boolean hasScopes = scopes != null && scopes.size() > 0;
+                if (hasScopes && multiRowInsertSupported) {
+                    // Scope rows of all tokens of a partition are written with shared multi row statements.
+                    String sqlAddScopes = OAuth2Util.getTokenPartitionedSqlByUserStore(
+                            SQLQueries.INSERT_OAUTH2_TOKEN_SCOPES, userDomain);
+                    scopeRows.computeIfAbsent(sqlAddScopes, key -> new TokenScopeRows())
+                            .add(accessTokenDO.getTokenId(), scopes, tenantId);
+                } else if (hasScopes) {
+                    String sqlAddScopes = OAuth2Util.getTokenPartitionedSqlByUserStore(
+                            SQLQueries.INSERT_OAUTH2_TOKEN_SCOPE, userDomain);
+                    PreparedStatement addScopePrepStmt = addScopePrepStmts.get(sqlAddScopes);
+                    if (addScopePrepStmt == null) {
+                        addScopePrepStmt = connection.prepareStatement(sqlAddScopes);
+                        addScopePrepStmts.put(sqlAddScopes, addScopePrepStmt);
+                    }
+                    for (String scope : scopes) {
+                        addScopePrepStmt.setString(1, accessTokenDO.getTokenId());
+                        addScopePrepStmt.setString(2, scope);
+                        addScopePrepStmt.setInt(3, tenantId);
+                        addScopePrepStmt.addBatch();
+                    }
+                }
+
+                if (isTokenBindingAvailable(accessTokenDO.getTokenBinding())) {
+                    if (storeTokenBindingPrepStmt == null) {
+                        storeTokenBindingPrepStmt = connection.prepareStatement(STORE_TOKEN_BINDING);
+                    }
+                    storeTokenBindingPrepStmt.setString(1, accessTokenDO.getTokenId());
+                    storeTokenBindingPrepStmt.setString(2, accessTokenDO.getTokenBinding().getBindingType());
+                    storeTokenBindingPrepStmt.setString(3, accessTokenDO.getTokenBinding().getBindingReference());
+                    storeTokenBindingPrepStmt.setString(4, accessTokenDO.getTokenBinding().getBindingValue());
+                    storeTokenBindingPrepStmt.setInt(5, tenantId);
+                    storeTokenBindingPrepStmt.addBatch();
+                }
+            }
+
+            // Tokens have to be inserted before the scopes and bindings referring to them.
+            for (PreparedStatement insertTokenPrepStmt : insertTokenPrepStmts.values()) {
+                insertTokenPrepStmt.executeBatch();
+            }
+            for (Map.Entry<String, TokenScopeRows> entry : scopeRows.entrySet()) {
+                insertTokenScopesWithMultiRowStatement(connection, entry.getKey(), entry.getValue().tokenIds,
+                        entry.getValue().scopes, entry.getValue().tenantIds);
+            }
+            for (PreparedStatement addScopePrepStmt : addScopePrepStmts.values()) {
+                addScopePrepStmt.executeBatch();
+            }
+            if (storeTokenBindingPrepStmt != null) {
+                storeTokenBindingPrepStmt.executeBatch();
+            }
+
+            if (isTokenCleanupFeatureEnabled) {
+                for (AccessContextTokenDO accessContextTokenDO : accessContextTokens) {
+                    if (accessContextTokenDO.getExistingAccessTokenDO() != null) {
+                        oldTokenCleanupObject.cleanupTokenByTokenId(
+                                accessContextTokenDO.getExistingAccessTokenDO().getTokenId(), connection);
+                    }
+                }
+            }
+            IdentityDatabaseUtil.commitTransaction(connection);
+            for (Map.Entry<String, String> accessTokenAlias : accessTokenAliases.entrySet()) {
+                removeFromInactiveTokenCache(accessTokenAlias.getKey(), accessTokenAlias.getValue());
+            }
+        } catch (SQLException e) {
+            IdentityDatabaseUtil.rollbackTransaction(connection);
+            throw new IdentityOAuth2Exception("Error occurred while persisting a batch of access tokens", e);
+        } catch (IdentityOAuth2Exception e) {
+            IdentityDatabaseUtil.rollbackTransaction(connection);
+            throw e;
+        } finally {
+            for (PreparedStatement insertTokenPrepStmt : insertTokenPrepStmts.values()) {
+                IdentityDatabaseUtil.closeStatement(insertTokenPrepStmt);
+            }
+            for (PreparedStatement addScopePrepStmt : addScopePrepStmts.values()) {
+                IdentityDatabaseUtil.closeStatement(addScopePrepStmt);
+            }
+            IdentityDatabaseUtil.closeStatement(storeTokenBindingPrepStmt);
+            IdentityDatabaseUtil.closeConnection(connection);
+        }
+    }
+
+    /**
+     * Drop a persisted token from the inactive token cache, in case it was presented and looked up before. Invoked
+     * once the token is committed, so that a concurrent lookup can not mark the token inactive again.
+     *
+     * @param accessToken Access token.
+     * @param consumerKey Consumer key of the application.
+     * @throws IdentityOAuth2Exception When the token issuer fails to derive the alias.
+     */
+    private void invalidateInactiveTokenCache(String accessToken, String consumerKey) throws IdentityOAuth2Exception {
+
+        removeFromInactiveTokenCache(accessToken, getPersistedAccessTokenAlias(accessToken, consumerKey));
+    }
+
+    /**
+     * Drop a persisted token from the inactive token cache, in case it was presented and looked up before.
+     *
+     * @param accessToken      Access token.
+     * @param accessTokenAlias Persisted alias of the access token.
+     */
+    private void removeFromInactiveTokenCache(String accessToken, String accessTokenAlias) {
+
+        InactiveTokenCache inactiveTokenCache = InactiveTokenCache.getInstance();
+        inactiveTokenCache.invalidate(accessToken);
+        if (accessTokenAlias != null && !accessTokenAlias.equals(accessToken)) {
+            inactiveTokenCache.invalidate(accessTokenAlias);
+        }
     }
 
     @Override
@@ -815,6 +1143,8 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
 
             resultSet = prepStmt.executeQuery();
 
+            // Additional scopes of a token are returned as additional rows.
+            Map<String, List<String>> additionalScopes = new HashMap<>();
             while (resultSet.next()) {
                 String accessToken = getPersistenceProcessor()
                         .getPreprocessedAccessTokenIdentifier(resultSet.getString(1));
@@ -853,11 +1183,11 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
                     }
                     accessTokenDOMap.put(accessToken, dataDO);
                 } else {
-                    String scope = resultSet.getString(8).trim();
-                    AccessTokenDO accessTokenDO = accessTokenDOMap.get(accessToken);
-                    accessTokenDO.setScope((String[]) ArrayUtils.add(accessTokenDO.getScope(), scope));
+                    additionalScopes.computeIfAbsent(accessToken, k -> new ArrayList<>())
+                            .add(resultSet.getString(8).trim());
                 }
             }
+            addAdditionalScopes(accessTokenDOMap, additionalScopes);
         } catch (SQLException e) {
             String errorMsg = "Error occurred while retrieving 'ACTIVE' access tokens for " +
                     "Client ID : " + consumerKey + " and User ID : " + userName;
@@ -941,53 +1271,7 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
             while (resultSet.next()) {
 
                 if (iterateId == 0) {
-
-                    String consumerKey = getPersistenceProcessor().getPreprocessedClientId(resultSet.getString(1));
-                    String authorizedUser = resultSet.getString(2);
-                    int tenantId = resultSet.getInt(3);
-                    tenantDomain = OAuth2Util.getTenantDomain(tenantId);
-                    String userDomain = resultSet.getString(4);
-                    String[] scope = OAuth2Util.buildScopeArray(resultSet.getString(5));
-                    Timestamp issuedTime = resultSet.getTimestamp(6, Calendar.getInstance(TimeZone.getTimeZone(UTC)));
-                    Timestamp refreshTokenIssuedTime = resultSet.getTimestamp(7,
-                            Calendar.getInstance(TimeZone.getTimeZone(UTC)));
-                    long validityPeriodInMillis = resultSet.getLong(8);
-                    long refreshTokenValidityPeriodMillis = resultSet.getLong(9);
-                    String tokenType = resultSet.getString(10);
-                    String refreshToken = resultSet.getString(11);
-                    String tokenId = resultSet.getString(12);
-                    String grantType = resultSet.getString(13);
-                    String subjectIdentifier = resultSet.getString(14);
-                    String authenticatedIDP = null;
-                    String tokenBindingReference = resultSet.getString(15);
-                    if (OAuth2ServiceComponentHolder.isIDPIdColumnEnabled()) {
-                        authenticatedIDP = resultSet.getString(16);
-                    }
-
-                    AuthenticatedUser user = OAuth2Util.createAuthenticatedUser(authorizedUser,
-                            userDomain, tenantDomain, authenticatedIDP);
-                    ServiceProvider serviceProvider;
-                    try {
-                        serviceProvider = OAuth2ServiceComponentHolder.getApplicationMgtService().
-                                getServiceProviderByClientId(consumerKey, OAuthConstants.Scope.OAUTH2, tenantDomain);
-                    } catch (IdentityApplicationManagementException e) {
-                        throw new IdentityOAuth2Exception("Error occurred while retrieving OAuth2 application data " +
-                                "for client id " + consumerKey, e);
-                    }
-
-                    user.setAuthenticatedSubjectIdentifier(subjectIdentifier, serviceProvider);
-
-                    dataDO = new AccessTokenDO(consumerKey, user, scope, issuedTime, refreshTokenIssuedTime,
-                            validityPeriodInMillis, refreshTokenValidityPeriodMillis, tokenType);
-                    dataDO.setAccessToken(accessTokenIdentifier);
-                    dataDO.setRefreshToken(refreshToken);
-                    dataDO.setTokenId(tokenId);
-                    dataDO.setGrantType(grantType);
-                    dataDO.setTenantID(tenantId);
-
-                    if (StringUtils.isNotBlank(tokenBindingReference) && !NONE.equals(tokenBindingReference)) {
-                        setTokenBindingToAccessTokenDO(dataDO, connection, tokenId);
-                    }
+                    dataDO = buildActiveAccessTokenDO(resultSet, accessTokenIdentifier, connection);
                 } else {
                     scopes.add(resultSet.getString(5));
                 }
@@ -1009,6 +1293,180 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
         return dataDO;
     }
 
+    /**
+     * Get the active access tokens of the given identifiers using a single query per chunk of identifiers. Falls back
+     * to a query per identifier when access token partitioning is enabled, since the table to query then depends on
+     * each token.
+     *
+     * @param accessTokenIdentifiers Access token identifiers.
+     * @return Active access tokens keyed by their identifier.
+     * @throws IdentityOAuth2Exception When an error occurs while retrieving the tokens.
+     */
+    @Override
+    public Map<String, AccessTokenDO> getActiveAccessTokens(Collection<String> accessTokenIdentifiers)
+            throws IdentityOAuth2Exception {
+
+        if (OAuth2Util.checkAccessTokenPartitioningEnabled()) {
+            return AccessTokenDAO.super.getActiveAccessTokens(accessTokenIdentifiers);
+        }
+        Map<String, AccessTokenDO> accessTokenDOs = new HashMap<>();
+        if (accessTokenIdentifiers.isEmpty()) {
+            return accessTokenDOs;
+        }
+
+        Map<String, String> identifiersByHash = new HashMap<>();
+        for (String accessTokenIdentifier : accessTokenIdentifiers) {
+            identifiersByHash.put(getHashingPersistenceProcessor()
+                    .getProcessedAccessTokenIdentifier(accessTokenIdentifier), accessTokenIdentifier);
+        }
+        List<String> tokenHashes = new ArrayList<>(identifiersByHash.keySet());
+
+        // Tokens of other tenants are not returned when cross tenant token inspection is not allowed.
+        String tenantDomain = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantDomain();
+        Integer requestTenantId = null;
+        if (isTenantQualifiedUrlsEnabled && !isCrossTenantTokenInspectionAllowed && tenantDomain != null) {
+            requestTenantId = IdentityTenantUtil.getTenantId(tenantDomain);
+        }
+        boolean isIDPIdColumnEnabled = OAuth2ServiceComponentHolder.isIDPIdColumnEnabled();
+        String sql = isIDPIdColumnEnabled ? SQLQueries.RETRIEVE_ACTIVE_ACCESS_TOKENS_BY_TOKEN_HASHES_IDP_NAME :
+                SQLQueries.RETRIEVE_ACTIVE_ACCESS_TOKENS_BY_TOKEN_HASHES;
+        int tokenHashIndex = isIDPIdColumnEnabled ? 17 : 16;
+
+        try (Connection connection = IdentityDatabaseUtil.getDBConnection(false)) {
+            int chunkSize = getInClauseChunkSize(connection);
+            for (int offset = 0; offset < tokenHashes.size(); offset += chunkSize) {
+                List<String> chunk = tokenHashes.subList(offset, Math.min(offset + chunkSize, tokenHashes.size()));
+                String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+                try (PreparedStatement prepStmt = connection.prepareStatement(
+                        sql.replace(SQLQueries.TOKEN_LIST_PLACEHOLDER, placeholders))) {
+                    int parameterIndex = 1;
+                    for (String tokenHash : chunk) {
+                        prepStmt.setString(parameterIndex++, tokenHash);
+                    }
+                    // Additional scopes of a token are returned as additional rows.
+                    Map<String, List<String>> additionalScopes = new HashMap<>();
+                    try (ResultSet resultSet = prepStmt.executeQuery()) {
+                        while (resultSet.next()) {
+                            String accessTokenIdentifier = identifiersByHash.get(resultSet.getString(tokenHashIndex));
+                            if (accessTokenIdentifier == null ||
+                                    (requestTenantId != null && resultSet.getInt(3) != requestTenantId)) {
+                                continue;
+                            }
+                            if (accessTokenDOs.containsKey(accessTokenIdentifier)) {
+                                additionalScopes.computeIfAbsent(accessTokenIdentifier, k -> new ArrayList<>())
+                                        .add(resultSet.getString(5));
+                            } else {
+                                accessTokenDOs.put(accessTokenIdentifier,
+                                        buildActiveAccessTokenDO(resultSet, accessTokenIdentifier, connection));
+                            }
+                        }
+                    }
+                    addAdditionalScopes(accessTokenDOs, additionalScopes);
+                }
+            }
+        } catch (SQLException e) {
+            throw new IdentityOAuth2Exception("Error when retrieving a batch of access tokens.", e);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Retrieved " + accessTokenDOs.size() + " active access tokens out of " +
+                    accessTokenIdentifiers.size() + " requested identifiers.");
+        }
+        return accessTokenDOs;
+    }
+
+    /**
+     * Add the scopes read from the additional rows of the tokens, once all rows are read, so that a single scope set
+     * is built per token instead of one per row.
+     *
+     * @param accessTokenDOs   Access tokens keyed by their identifier.
+     * @param additionalScopes Additional scopes keyed by the token identifier.
+     */
+    private void addAdditionalScopes(Map<String, AccessTokenDO> accessTokenDOs,
+                                     Map<String, List<String>> additionalScopes) {
+
+        for (Map.Entry<String, List<String>> entry : additionalScopes.entrySet()) {
+            AccessTokenDO accessTokenDO = accessTokenDOs.get(entry.getKey());
+            accessTokenDO.setScope((String[]) ArrayUtils.addAll(accessTokenDO.getScope(),
+                    entry.getValue().toArray(new String[0])));
+        }
+    }
+
+    /**
+     * Get the maximum number of token hashes to bind in a single IN clause.
+     *
+     * @param connection Database connection.
+     * @return Number of token hashes per query.
+     * @throws SQLException When the database product cannot be resolved.
+     */
+    int getInClauseChunkSize(Connection connection) throws SQLException {
+
+        return OldTokensCleanDAO.getInClauseChunkSize(connection);
+    }
+
+    /**
+     * Build an access token from a row of an active access token query. Scopes other than the one of the given row
+     * have to be added by the caller.
+     *
+     * @param resultSet             Result set positioned at the row.
+     * @param accessTokenIdentifier Identifier used to look up the token.
+     * @param connection            Database connection.
+     * @return Access token.
+     * @throws SQLException            When an error occurs while reading the row.
+     * @throws IdentityOAuth2Exception When the application of the token cannot be retrieved.
+     */
+    private AccessTokenDO buildActiveAccessTokenDO(ResultSet resultSet, String accessTokenIdentifier,
+                                                   Connection connection)
+            throws SQLException, IdentityOAuth2Exception {
+
+        String consumerKey = getPersistenceProcessor().getPreprocessedClientId(resultSet.getString(1));
+        String authorizedUser = resultSet.getString(2);
+        int tenantId = resultSet.getInt(3);
+        String tenantDomain = OAuth2Util.getTenantDomain(tenantId);
+        String userDomain = resultSet.getString(4);
+        String[] scope = OAuth2Util.buildScopeArray(resultSet.getString(5));
+        Timestamp issuedTime = resultSet.getTimestamp(6, Calendar.getInstance(TimeZone.getTimeZone(UTC)));
+        Timestamp refreshTokenIssuedTime = resultSet.getTimestamp(7,
+                Calendar.getInstance(TimeZone.getTimeZone(UTC)));
+        long validityPeriodInMillis = resultSet.getLong(8);
+        long refreshTokenValidityPeriodMillis = resultSet.getLong(9);
+        String tokenType = resultSet.getString(10);
+        String refreshToken = resultSet.getString(11);
+        String tokenId = resultSet.getString(12);
+        String grantType = resultSet.getString(13);
+        String subjectIdentifier = resultSet.getString(14);
+        String authenticatedIDP = null;
+        String tokenBindingReference = resultSet.getString(15);
+        if (OAuth2ServiceComponentHolder.isIDPIdColumnEnabled()) {
+            authenticatedIDP = resultSet.getString(16);
+        }
+
+        AuthenticatedUser user = OAuth2Util.createAuthenticatedUser(authorizedUser,
+                userDomain, tenantDomain, authenticatedIDP);
+        ServiceProvider serviceProvider;
+        try {
+            serviceProvider = OAuth2ServiceComponentHolder.getApplicationMgtService().
+                    getServiceProviderByClientId(consumerKey, OAuthConstants.Scope.OAUTH2, tenantDomain);
+        } catch (IdentityApplicationManagementException e) {
+            throw new IdentityOAuth2Exception("Error occurred while retrieving OAuth2 application data " +
+                    "for client id " + consumerKey, e);
+        }
+
+        user.setAuthenticatedSubjectIdentifier(subjectIdentifier, serviceProvider);
+
+        AccessTokenDO dataDO = new AccessTokenDO(consumerKey, user, scope, issuedTime, refreshTokenIssuedTime,
+                validityPeriodInMillis, refreshTokenValidityPeriodMillis, tokenType);
+        dataDO.setAccessToken(accessTokenIdentifier);
+        dataDO.setRefreshToken(refreshToken);
+        dataDO.setTokenId(tokenId);
+        dataDO.setGrantType(grantType);
+        dataDO.setTenantID(tenantId);
+
+        if (StringUtils.isNotBlank(tokenBindingReference) && !NONE.equals(tokenBindingReference)) {
+            setTokenBindingToAccessTokenDO(dataDO, connection, tokenId);
+        }
+        return dataDO;
+    }
+
     private void setTokenBindingToAccessTokenDO(AccessTokenDO dataDO, Connection connection, String tokenId)
             throws SQLException {
 
@@ -1281,20 +1739,17 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
         PreparedStatement ps = null;
         if (tokens.length > 1) {
             try {
-                List<String> oldTokens = new ArrayList<>();
+                List<String> oldTokens = getAccessTokenHashes(tokens, isHashedToken);
                 String sqlQuery = SQLQueries.REVOKE_ACCESS_TOKEN.replace(IDN_OAUTH2_ACCESS_TOKEN,
                         accessTokenStoreTable);
                 ps = connection.prepareStatement(sqlQuery);
-                for (String token : tokens) {
+                for (String tokenHash : oldTokens) {
                     ps.setString(1, OAuthConstants.TokenStates.TOKEN_STATE_REVOKED);
+                    // Each token needs its own state id to keep revoked tokens of the same user, client and scope
+                    // distinct.
                     ps.setString(2, UUID.randomUUID().toString());
-                    if (isHashedToken) {
-                        ps.setString(3, token);
-                    } else {
-                        ps.setString(3, getHashingPersistenceProcessor().getProcessedAccessTokenIdentifier(token));
-                    }
+                    ps.setString(3, tokenHash);
                     ps.addBatch();
-                    oldTokens.add(getHashingPersistenceProcessor().getProcessedAccessTokenIdentifier(token));
                 }
                 ps.executeBatch();
                 IdentityDatabaseUtil.commitTransaction(connection);
@@ -1304,6 +1759,7 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
                 if (isTokenCleanupFeatureEnabled) {
                     oldTokenCleanupObject.cleanupTokensInBatch(oldTokens, connection);
                 }
+                clearRevokedTokensFromCache(tokens, isHashedToken);
             } catch (SQLException e) {
                 IdentityDatabaseUtil.rollbackTransaction(connection);
                 throw new IdentityOAuth2Exception("Error occurred while revoking Access Tokens : " +
@@ -1331,9 +1787,10 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
                 OAuth2TokenUtil.postUpdateAccessTokens(Arrays.asList(tokens), OAuthConstants.TokenStates.
                         TOKEN_STATE_REVOKED);
                 if (isTokenCleanupFeatureEnabled) {
-                    oldTokenCleanupObject.cleanupTokenByTokenValue(
-                            getHashingPersistenceProcessor().getProcessedAccessTokenIdentifier(tokens[0]), connection);
+                    oldTokenCleanupObject.cleanupTokensInBatch(getAccessTokenHashes(tokens, isHashedToken),
+                            connection);
                 }
+                clearRevokedTokensFromCache(tokens, isHashedToken);
             } catch (SQLException e) {
                 // IdentityDatabaseUtil.rollbackTransaction(connection);
                 throw new IdentityOAuth2Exception("Error occurred while revoking Access Token : " +
@@ -1344,6 +1801,39 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
         }
     }
 
+    private List<String> getAccessTokenHashes(String[] tokens, boolean isHashedToken)
+            throws IdentityOAuth2Exception {
+
+        List<String> tokenHashes = new ArrayList<>(tokens.length);
+        for (String token : tokens) {
+            if (isHashedToken) {
+                tokenHashes.add(token);
+            } else {
+                tokenHashes.add(getHashingPersistenceProcessor().getProcessedAccessTokenIdentifier(token));
+            }
+        }
+        return tokenHashes;
+    }
+
+    /**
+     * Clear the revoked tokens from the OAuth cache once the revocation is committed. A hashed token is not the key
+     * its cache entries were added under, hence the callers revoking hashed tokens clear those entries after the
+     * revocation through the access token data they hold.
+     *
+     * @param tokens        Revoked tokens.
+     * @param isHashedToken Given tokens are hashed tokens or plain text.
+     */
+    private void clearRevokedTokensFromCache(String[] tokens, boolean isHashedToken) {
+
+        OAuthCache oauthCache = OAuthCache.getInstance();
+        if (isHashedToken || !oauthCache.isEnabled()) {
+            return;
+        }
+        for (String token : tokens) {
+            oauthCache.clearCacheEntry(new OAuthCacheKey(token));
+        }
+    }
+
     /**
      * Revoke the access token(s) individually. Token(s) which is reached here will be a plain text tokens.
      *
@@ -1404,13 +1894,11 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
                         TOKEN_STATE_REVOKED);
             }
 
+            IdentityDatabaseUtil.commitTransaction(connection);
             if (isTokenCleanupFeatureEnabled) {
-                for (String token : tokens) {
-                    oldTokenCleanupObject.cleanupTokenByTokenValue(
-                            getHashingPersistenceProcessor().getProcessedAccessTokenIdentifier(token), connection);
-                }
+                oldTokenCleanupObject.cleanupTokensInBatch(getAccessTokenHashes(tokens, isHashedToken), connection);
             }
-            IdentityDatabaseUtil.commitTransaction(connection);
+            clearRevokedTokensFromCache(tokens, isHashedToken);
         } catch (SQLException e) {
             IdentityDatabaseUtil.rollbackTransaction(connection);
             throw new IdentityOAuth2Exception("Error occurred while revoking Access Token : " +
@@ -1771,15 +2259,12 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
             ps.setString(1, consumerKey);
             ps.setString(2, OAuthConstants.TokenStates.TOKEN_STATE_ACTIVE);
             rs = ps.executeQuery();
+            // Additional scopes of a token are returned as additional rows.
+            Map<String, List<String>> additionalScopes = new HashMap<>();
             while (rs.next()) {
                 String token = rs.getString(2);
                 if (tokenMap.containsKey(token)) {
-                    AccessTokenDO tokenObj = tokenMap.get(token);
-                    String[] previousScope = tokenObj.getScope();
-                    String[] newSope = new String[tokenObj.getScope().length + 1];
-                    System.arraycopy(previousScope, 0, newSope, 0, previousScope.length);
-                    newSope[previousScope.length] = rs.getString(5);
-                    tokenObj.setScope(newSope);
+                    additionalScopes.computeIfAbsent(token, k -> new ArrayList<>()).add(rs.getString(5));
                 } else {
                     String authzUser = rs.getString(1);
                     int tenentId = rs.getInt(3);
@@ -1800,6 +2285,7 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
                     tokenMap.put(token, aTokenDetail);
                 }
             }
+            addAdditionalScopes(tokenMap, additionalScopes);
             activeDetailedTokens = new HashSet<>(tokenMap.values());
         } catch (SQLException e) {
             IdentityDatabaseUtil.rollbackTransaction(connection);
@@ -1891,6 +2377,7 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
             IdentityDatabaseUtil.closeConnection(connection);
         }
         if (tokenUpdateSuccessful) {
+            invalidateInactiveTokenCache(accessTokenDO.getAccessToken(), consumerKey);
             // Post refresh access token event
             if (StringUtils.equals(grantType, OAuthConstants.GrantTypes.CLIENT_CREDENTIALS) ||
                     StringUtils.equals(grantType, OAuthConstants.GrantTypes.PASSWORD)) {
@@ -1954,6 +2441,8 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
             prepStmt.setInt(1, tenantId);
             resultSet = prepStmt.executeQuery();
 
+            // Additional scopes of a token are returned as additional rows.
+            Map<String, List<String>> additionalScopes = new HashMap<>();
             while (resultSet.next()) {
                 String accessToken = getPersistenceProcessor().
                         getPreprocessedAccessTokenIdentifier(resultSet.getString(1));
@@ -1986,11 +2475,11 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
                     dataDO.setTenantID(tenantId);
                     accessTokenDOMap.put(accessToken, dataDO);
                 } else {
-                    String scope = resultSet.getString(8).trim();
-                    AccessTokenDO accessTokenDO = accessTokenDOMap.get(accessToken);
-                    accessTokenDO.setScope((String[]) ArrayUtils.add(accessTokenDO.getScope(), scope));
+                    additionalScopes.computeIfAbsent(accessToken, k -> new ArrayList<>())
+                            .add(resultSet.getString(8).trim());
                 }
             }
+            addAdditionalScopes(accessTokenDOMap, additionalScopes);
         } catch (SQLException e) {
             String errorMsg = "Error occurred while retrieving 'ACTIVE or EXPIRED' access tokens for " +
                     "user  tenant id : " + tenantId;
@@ -2031,6 +2520,8 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
             prepStmt.setString(2, userStoreDomain);
             resultSet = prepStmt.executeQuery();
 
+            // Additional scopes of a token are returned as additional rows.
+            Map<String, List<String>> additionalScopes = new HashMap<>();
             while (resultSet.next()) {
                 String accessToken =
                         getPersistenceProcessor().getPreprocessedAccessTokenIdentifier(resultSet.getString(1));
@@ -2062,11 +2553,11 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
                     dataDO.setTenantID(tenantId);
                     accessTokenDOMap.put(accessToken, dataDO);
                 } else {
-                    String scope = resultSet.getString(8).trim();
-                    AccessTokenDO accessTokenDO = accessTokenDOMap.get(accessToken);
-                    accessTokenDO.setScope((String[]) ArrayUtils.add(accessTokenDO.getScope(), scope));
+                    additionalScopes.computeIfAbsent(accessToken, k -> new ArrayList<>())
+                            .add(resultSet.getString(8).trim());
                 }
             }
+            addAdditionalScopes(accessTokenDOMap, additionalScopes);
         } catch (SQLException e) {
             String errorMsg = "Error occurred while retrieving 'ACTIVE or EXPIRED' access tokens for " +
                     "user in store domain : " + userStoreDomain + " and tenant id : " + tenantId;
@@ -2270,11 +2761,11 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
 
             AccessTokenDO latestNonActiveToken = getLatestAccessTokenByState(connection, consumerKey,
                     accessTokenDO.getAuthzUser(), userStoreDomain,
-                    OAuth2Util.buildScopeString(accessTokenDO.getScope()), false);
+                    OAuth2Util.buildScopeString(accessTokenDO.getScopeSet()), false);
 
             AccessTokenDO latestActiveToken = getLatestAccessTokenByState(connection, consumerKey,
                     accessTokenDO.getAuthzUser(), userStoreDomain,
-                    OAuth2Util.buildScopeString(accessTokenDO.getScope()), true);
+                    OAuth2Util.buildScopeString(accessTokenDO.getScopeSet()), true);
             OauthTokenIssuer oauthTokenIssuer = OAuth2Util.getOAuthTokenIssuerForOAuthApp(consumerKey);
 
             if (latestActiveToken != null) {
@@ -2360,6 +2851,10 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
         int tokenPersistRetryCount = DEFAULT_TOKEN_PERSIST_RETRY_COUNT;
         if (getProperty(OAUTH_TOKEN_PERSISTENCE_RETRY_COUNT) != null) {
             tokenPersistRetryCount = Integer.parseInt(getProperty(OAUTH_TOKEN_PERSISTENCE_RETRY_COUNT));
+        } else if (ClusteredIssuanceLockManager.isClusterLockEnabled()) {
+            // Token issuance is serialized across nodes, hence a 'CON_APP_KEY' violation can only follow a timed out
+            // cluster lock and a single recovery attempt is sufficient.
+            tokenPersistRetryCount = CLUSTER_LOCKED_TOKEN_PERSIST_RETRY_COUNT;
         }
         if (log.isDebugEnabled()) {
             log.debug("OAuth Token Persistence Retry count set to " + tokenPersistRetryCount);
@@ -2701,18 +3196,16 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
                     .GET_ACCESS_TOKENS_BY_BINDING_REFERENCE_AND_USER, user.getUserStoreDomain());
             int tenantId = OAuth2Util.getTenantId(user.getTenantDomain());
             Map<String, AccessTokenDO> tokenMap = new HashMap<>();
+            // Additional scopes of a token are returned as additional rows.
+            Map<String, List<String>> additionalScopes = new HashMap<>();
             jdbcTemplate.executeQuery(sqlQuery,
                     rethrowRowMapper((resultSet, i) -> {
                         String token = getPersistenceProcessor()
                                 .getPreprocessedAccessTokenIdentifier(resultSet.getString("ACCESS_TOKEN"));
                         AccessTokenDO accessTokenDO = new AccessTokenDO();
                         if (tokenMap.containsKey(token)) {
-                            AccessTokenDO tokenObj = tokenMap.get(token);
-                            String[] previousScope = tokenObj.getScope();
-                            String[] newSope = new String[tokenObj.getScope().length + 1];
-                            System.arraycopy(previousScope, 0, newSope, 0, previousScope.length);
-                            newSope[previousScope.length] = resultSet.getString(2);
-                            tokenObj.setScope(newSope);
+                            additionalScopes.computeIfAbsent(token, k -> new ArrayList<>())
+                                    .add(resultSet.getString(2));
                         } else {
                             String consumerKey = resultSet.getString("CONSUMER_KEY");
                             String tokenScope = resultSet.getString("TOKEN_SCOPE");
@@ -2750,6 +3243,7 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
                         preparedStatement.setString(3, user.getUserStoreDomain());
                         preparedStatement.setString(4, bindingRef);
                     });
+            addAdditionalScopes(tokenMap, additionalScopes);
             return new HashSet<>(tokenMap.values());
         } catch (DataAccessException e) {
             throw new IdentityOAuth2Exception("Error occurred while retrieving access tokens.", e);
@@ -2767,18 +3261,16 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
         try {
             String sqlQuery = GET_ACCESS_TOKENS_BY_BINDING_REFERENCE;
             Map<String, AccessTokenDO> tokenMap = new HashMap<>();
+            // Additional scopes of a token are returned as additional rows.
+            Map<String, List<String>> additionalScopes = new HashMap<>();
             jdbcTemplate.executeQuery(sqlQuery,
                     rethrowRowMapper((resultSet, i) -> {
                         String token = getPersistenceProcessor()
                                 .getPreprocessedAccessTokenIdentifier(resultSet.getString("ACCESS_TOKEN"));
                         AccessTokenDO accessTokenDO = new AccessTokenDO();
                         if (tokenMap.containsKey(token)) {
-                            AccessTokenDO tokenObj = tokenMap.get(token);
-                            String[] previousScope = tokenObj.getScope();
-                            String[] newScope = new String[tokenObj.getScope().length + 1];
-                            System.arraycopy(previousScope, 0, newScope, 0, previousScope.length);
-                            newScope[previousScope.length] = resultSet.getString("TOKEN_SCOPE");
-                            tokenObj.setScope(newScope);
+                            additionalScopes.computeIfAbsent(token, k -> new ArrayList<>())
+                                    .add(resultSet.getString("TOKEN_SCOPE"));
                         } else {
                             String consumerKey = resultSet.getString("CONSUMER_KEY");
                             String tokenScope = resultSet.getString("TOKEN_SCOPE");
@@ -2819,9 +3311,29 @@ public class AccessTokenDAOImpl extends AbstractOAuthDAO implements AccessTokenD
                     (PreparedStatement preparedStatement) -> {
                         preparedStatement.setString(1, bindingRef);
                     });
+            addAdditionalScopes(tokenMap, additionalScopes);
             return new HashSet<>(tokenMap.values());
         } catch (DataAccessException e) {
             throw new IdentityOAuth2Exception("Error occurred while retrieving access tokens.", e);
         }
     }
+
+    /**
+     * Scope rows of a batch of access tokens to be inserted into the same partition.
+     */
+    private static class TokenScopeRows {
+
+        private final List<String> tokenIds = new ArrayList<>();
+        private final List<String> scopes = new ArrayList<>();
+        private final List<Integer> tenantIds = new ArrayList<>();
+
+        void add(String tokenId, ScopeSet tokenScopes, int tenantId) {
+
+            for (String scope : tokenScopes) {
+                tokenIds.add(tokenId);
+                scopes.add(scope);
+                tenantIds.add(tenantId);
+            }
+        }
+    }
 }
@@ -0,0 +1,483 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.dao;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.application.authentication.framework.model.AuthenticatedUser;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.oauth.cache.OAuthCache;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
+import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static org.wso2.carbon.identity.oauth2.util.OAuth2ConfigUtil.readIntProperty;
+import static org.wso2.carbon.identity.oauth2.util.OAuth2ConfigUtil.readLongProperty;
+
+/**
+ * Persists issued access tokens in batches. Issuing threads queue their token and wait until the batch holding it is
+ * committed by a single persistence thread, so that concurrent token requests share a few multi row transactions
+ * instead of one transaction each. As the issuing thread waits, the token is only returned to the client, and the
+ * issuance lock only released, once its row exists. Revocation and refresh therefore never see a token which is
+ * issued but not yet persisted.
+ * <p>
+ * The pipeline is only used when the OAuth cache is enabled and token hashing is disabled. When the queue is full,
+ * the pipeline is stopped, or the token is not picked up within the maximum wait time, the issuing thread persists
+ * its own token. A batch never holds two tokens for the same client, user, scope and binding, so that expiring the
+ * previous token and inserting the next one happen in order. A batch which fails as a whole is retried token by
+ * token so that a single conflicting token does not discard the rest of the batch.
+ */
+public class AccessTokenPersistencePipeline {
+
+    private static final Log log = LogFactory.getLog(AccessTokenPersistencePipeline.class);
+
+    private static final String ASYNC_PERSISTENCE_ENABLE = "OAuth.TokenPersistence.Async.Enable";
+    private static final String ASYNC_PERSISTENCE_QUEUE_SIZE = "OAuth.TokenPersistence.Async.QueueSize";
+    private static final String ASYNC_PERSISTENCE_BATCH_SIZE = "OAuth.TokenPersistence.Async.BatchSize";
+    private static final String ASYNC_PERSISTENCE_FLUSH_INTERVAL =
+            "OAuth.TokenPersistence.Async.FlushIntervalInMillis";
+    private static final String ASYNC_PERSISTENCE_MAX_WAIT = "OAuth.TokenPersistence.Async.MaxWaitInMillis";
+    private static final int DEFAULT_QUEUE_SIZE = 10000;
+    private static final int DEFAULT_BATCH_SIZE = 100;
+    private static final long DEFAULT_FLUSH_INTERVAL = 50;
+    private static final long DEFAULT_MAX_WAIT = 5000;
+    private static final long SHUTDOWN_TIMEOUT = 30000;
+    private static final String PERSISTENCE_THREAD_NAME = "oauth2-access-token-persistence";
+
+    private static volatile AccessTokenPersistencePipeline instance;
+
+    private final BlockingQueue<PendingToken> queue;
+    private final AccessTokenDAO accessTokenDAO;
+    private final int batchSize;
+    private final long flushIntervalInMillis;
+    private final long maxWaitInMillis;
+    private final AtomicLong persistedCount = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong callerPersistedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final Object flushLock = new Object();
+    // Offers hold the read lock so that no token is queued after shutdown stopped accepting tokens.
+    private final ReadWriteLock runningLock = new ReentrantReadWriteLock();
+    private volatile boolean running;
+    private Thread persistenceThread;
+
+    public AccessTokenPersistencePipeline(AccessTokenDAO accessTokenDAO, int queueSize, int batchSize,
+                                          long flushIntervalInMillis) {
+
+        this(accessTokenDAO, queueSize, batchSize, flushIntervalInMillis, DEFAULT_MAX_WAIT);
+    }
+
+    /**
+     * Create a pipeline.
+     *
+     * @param accessTokenDAO        Access token DAO used to persist the tokens.
+     * @param queueSize             Maximum number of queued tokens.
+     * @param batchSize             Maximum number of tokens committed together.
+     * @param flushIntervalInMillis Interval at which an idle persistence thread checks whether it should stop.
+     * @param maxWaitInMillis       Time after which an issuing thread persists its token itself if the persistence
+     *                              thread has not picked it up.
+     */
+    public AccessTokenPersistencePipeline(AccessTokenDAO accessTokenDAO, int queueSize, int batchSize,
+                                          long flushIntervalInMillis, long maxWaitInMillis) {
+
+        this.accessTokenDAO = accessTokenDAO;
+        this.queue = new LinkedBlockingQueue<>(Math.max(queueSize, 1));
+        this.batchSize = Math.max(batchSize, 1);
+        this.flushIntervalInMillis = Math.max(flushIntervalInMillis, 1);
+        this.maxWaitInMillis = Math.max(maxWaitInMillis, 1);
+    }
+
+    /**
+     * Get the pipeline configured in identity.xml.
+     *
+     * @return Access token persistence pipeline, or null if asynchronous persistence is not enabled.
+     */
+    public static AccessTokenPersistencePipeline getInstance() {
+
+        if (instance == null && isAsyncPersistenceEnabled()) {
+            synchronized (AccessTokenPersistencePipeline.class) {
+                if (instance == null) {
+                    AccessTokenPersistencePipeline pipeline = new AccessTokenPersistencePipeline(
+                            OAuthTokenPersistenceFactory.getInstance().getAccessTokenDAO(),
+                            readIntProperty(ASYNC_PERSISTENCE_QUEUE_SIZE, DEFAULT_QUEUE_SIZE),
+                            readIntProperty(ASYNC_PERSISTENCE_BATCH_SIZE, DEFAULT_BATCH_SIZE),
+                            readLongProperty(ASYNC_PERSISTENCE_FLUSH_INTERVAL, DEFAULT_FLUSH_INTERVAL),
+                            readLongProperty(ASYNC_PERSISTENCE_MAX_WAIT, DEFAULT_MAX_WAIT));
+                    pipeline.start();
+                    instance = pipeline;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Stop the configured pipeline, persisting any queued tokens.
+     */
+    public static void shutdownInstance() {
+
+        synchronized (AccessTokenPersistencePipeline.class) {
+            if (instance != null) {
+                instance.shutdown();
+                instance = null;
+            }
+        }
+    }
+
+    /**
+     * Whether asynchronous token persistence is enabled and can be used. Issued tokens must be readable from the
+     * OAuth cache, hence the cache has to be enabled and token hashing disabled.
+     *
+     * @return True if asynchronous persistence should be used.
+     */
+    public static boolean isAsyncPersistenceEnabled() {
+
+        if (!Boolean.parseBoolean(IdentityUtil.getProperty(ASYNC_PERSISTENCE_ENABLE))) {
+            return false;
+        }
+        if (!OAuthCache.getInstance().isEnabled() || !OAuth2Util.isHashDisabled()) {
+            if (log.isDebugEnabled()) {
+                log.debug("Asynchronous access token persistence requires the OAuth cache to be enabled and token " +
+                        "hashing to be disabled. Tokens will be persisted synchronously.");
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Start the persistence thread.
+     */
+    public synchronized void start() {
+
+        if (running) {
+            return;
+        }
+        running = true;
+        persistenceThread = new Thread(this::run, PERSISTENCE_THREAD_NAME);
+        persistenceThread.setDaemon(true);
+        persistenceThread.start();
+        if (log.isDebugEnabled()) {
+            log.debug("Access token persistence pipeline started with batch size: " + batchSize + ".");
+        }
+    }
+
+    /**
+     * Stop accepting tokens and wait until the queued tokens are persisted.
+     */
+    public synchronized void shutdown() {
+
+        runningLock.writeLock().lock();
+        try {
+            if (!running) {
+                return;
+            }
+            running = false;
+        } finally {
+            runningLock.writeLock().unlock();
+        }
+        try {
+            persistenceThread.join(SHUTDOWN_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Persist whatever the thread left behind. No token can be queued from here on.
+        flush();
+        if (log.isDebugEnabled()) {
+            log.debug("Access token persistence pipeline stopped. Persisted tokens: " + persistedCount.get() +
+                    " in " + batchCount.get() + " batches.");
+        }
+    }
+
+    /**
+     * Persist an access token as part of the next batch, and wait until the batch is committed. If the pipeline is
+     * not running, the queue is full, or the token is not picked up within the maximum wait time, the token is
+     * persisted by the calling thread.
+     *
+     * @param accessContextTokenDO Access token to be persisted.
+     * @throws IdentityOAuth2Exception When persisting the token fails.
+     */
+    public void persist(AccessContextTokenDO accessContextTokenDO) throws IdentityOAuth2Exception {
+
+        PendingToken pendingToken = new PendingToken(accessContextTokenDO);
+        boolean queued;
+        runningLock.readLock().lock();
+        try {
+            queued = running && queue.offer(pendingToken);
+        } finally {
+            runningLock.readLock().unlock();
+        }
+        if (!queued) {
+            if (log.isDebugEnabled()) {
+                log.debug("Access token persistence queue is full or stopped. Persisting the token synchronously.");
+            }
+            persistByCaller(accessContextTokenDO);
+            return;
+        }
+
+        try {
+            if (!pendingToken.done.await(maxWaitInMillis, TimeUnit.MILLISECONDS)) {
+                if (pendingToken.withdraw()) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("Access token was not picked up for persistence within " + maxWaitInMillis +
+                                "ms. Persisting the token synchronously.");
+                    }
+                    persistByCaller(accessContextTokenDO);
+                    return;
+                }
+                // The batch holding the token is being committed.
+                pendingToken.done.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // A withdrawn token is never persisted. A claimed one is persisted but never handed out.
+            pendingToken.withdraw();
+            throw new IdentityOAuth2Exception("Interrupted while waiting for the access token to be persisted.", e);
+        }
+        if (pendingToken.error != null) {
+            throw new IdentityOAuth2Exception("Error occurred while persisting access token for client: " +
+                    accessContextTokenDO.getConsumerKey(), pendingToken.error);
+        }
+    }
+
+    /**
+     * Persist all queued tokens in the calling thread.
+     */
+    public void flush() {
+
+        List<PendingToken> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            persistBatch(batch);
+            batch.clear();
+        }
+    }
+
+    public int getQueueSize() {
+
+        return queue.size();
+    }
+
+    public long getPersistedCount() {
+
+        return persistedCount.get();
+    }
+
+    public long getBatchCount() {
+
+        return batchCount.get();
+    }
+
+    public long getCallerPersistedCount() {
+
+        return callerPersistedCount.get();
+    }
+
+    public long getFailedCount() {
+
+        return failedCount.get();
+    }
+
+    private void run() {
+
+        List<PendingToken> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingToken first = queue.poll(flushIntervalInMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                // Issuing threads wait for the commit, hence the batch is not held back to fill up. Tokens queued
+                // while the previous batch was being committed go together.
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                persistBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                persistBatch(batch);
+                break;
+            } catch (RuntimeException e) {
+                log.error("Unexpected error in the access token persistence pipeline.", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void persistBatch(List<PendingToken> batch) {
+
+        List<PendingToken> remaining = new ArrayList<>(batch.size());
+        for (PendingToken pendingToken : batch) {
+            if (pendingToken.claim()) {
+                remaining.add(pendingToken);
+            }
+        }
+        synchronized (flushLock) {
+            try {
+                // Tokens sharing a key are split across consecutive transactions, in the order they were queued.
+                while (!remaining.isEmpty()) {
+                    List<PendingToken> round = new ArrayList<>(remaining.size());
+                    List<PendingToken> deferred = new ArrayList<>();
+                    Set<String> keys = new HashSet<>();
+                    for (PendingToken pendingToken : remaining) {
+                        if (keys.add(pendingToken.key)) {
+                            round.add(pendingToken);
+                        } else {
+                            deferred.add(pendingToken);
+                        }
+                    }
+                    persistRound(round);
+                    remaining = deferred;
+                }
+            } finally {
+                // Never leave an issuing thread waiting, even on an unexpected error.
+                for (PendingToken pendingToken : remaining) {
+                    pendingToken.complete(new IdentityOAuth2Exception("Access token persistence was aborted."));
+                }
+            }
+        }
+    }
+
+    private void persistRound(List<PendingToken> round) {
+
+        List<AccessContextTokenDO> accessContextTokens = new ArrayList<>(round.size());
+        for (PendingToken pendingToken : round) {
+            accessContextTokens.add(pendingToken.accessContextTokenDO);
+        }
+        try {
+            accessTokenDAO.insertAccessTokens(accessContextTokens);
+            persistedCount.addAndGet(round.size());
+            batchCount.incrementAndGet();
+            for (PendingToken pendingToken : round) {
+                pendingToken.complete(null);
+            }
+            return;
+        } catch (IdentityOAuth2Exception | RuntimeException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Error while persisting a batch of " + round.size() + " access tokens. Retrying " +
+                        "the tokens individually.", e);
+            }
+        }
+        for (PendingToken pendingToken : round) {
+            try {
+                insert(pendingToken.accessContextTokenDO);
+                persistedCount.incrementAndGet();
+                pendingToken.complete(null);
+            } catch (IdentityOAuth2Exception | RuntimeException e) {
+                failedCount.incrementAndGet();
+                log.error("Error occurred while persisting access token for client: " +
+                        pendingToken.accessContextTokenDO.getConsumerKey(), e);
+                pendingToken.complete(e);
+            }
+        }
+    }
+
+    private void persistByCaller(AccessContextTokenDO accessContextTokenDO) throws IdentityOAuth2Exception {
+
+        callerPersistedCount.incrementAndGet();
+        insert(accessContextTokenDO);
+    }
+
+    private void insert(AccessContextTokenDO accessContextTokenDO) throws IdentityOAuth2Exception {
+
+        accessTokenDAO.insertAccessToken(accessContextTokenDO.getAccessToken(),
+                accessContextTokenDO.getConsumerKey(), accessContextTokenDO.getNewAccessTokenDO(),
+                accessContextTokenDO.getExistingAccessTokenDO(), accessContextTokenDO.getUserStoreDomain());
+    }
+
+    /**
+     * Build the key of the token issuance a token belongs to. Two tokens with the same key must not be committed in
+     * the same transaction, as the second one expires the first.
+     */
+    private static String getIssuanceKey(AccessContextTokenDO accessContextTokenDO) {
+
+        StringBuilder key = new StringBuilder().append(accessContextTokenDO.getConsumerKey());
+        AccessTokenDO accessTokenDO = accessContextTokenDO.getNewAccessTokenDO();
+        if (accessTokenDO != null) {
+            AuthenticatedUser authzUser = accessTokenDO.getAuthzUser();
+            if (authzUser != null) {
+                key.append(':').append(authzUser.getTenantDomain()).append(':')
+                        .append(authzUser.getUserStoreDomain()).append(':').append(authzUser.getUserName())
+                        .append(':').append(authzUser.getFederatedIdPName());
+            } else {
+                key.append(':').append(accessTokenDO.getTokenId());
+            }
+            if (accessTokenDO.getScopeSet() != null) {
+                key.append(':').append(accessTokenDO.getScopeSet().getScopeString());
+            }
+            if (accessTokenDO.getTokenBinding() != null) {
+                key.append(':').append(accessTokenDO.getTokenBinding().getBindingReference());
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Queued token together with the state shared between the issuing thread and the persistence thread. A token is
+     * either claimed by the persistence thread or withdrawn by the issuing thread, never both.
+     */
+    private static class PendingToken {
+
+        private static final int QUEUED = 0;
+        private static final int CLAIMED = 1;
+        private static final int WITHDRAWN = 2;
+
+        private final AccessContextTokenDO accessContextTokenDO;
+        private final String key;
+        private final AtomicInteger state = new AtomicInteger(QUEUED);
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile Exception error;
+
+        PendingToken(AccessContextTokenDO accessContextTokenDO) {
+
+            this.accessContextTokenDO = accessContextTokenDO;
+            this.key = getIssuanceKey(accessContextTokenDO);
+        }
+
+        boolean claim() {
+
+            return state.compareAndSet(QUEUED, CLAIMED);
+        }
+
+        boolean withdraw() {
+
+            return state.compareAndSet(QUEUED, WITHDRAWN);
+        }
+
+        void complete(Exception error) {
+
+            if (done.getCount() > 0) {
+                this.error = error;
+                done.countDown();
+            }
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.dao;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.core.util.IdentityDatabaseUtil;
+import org.wso2.carbon.identity.oauth.common.OAuthConstants;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * DAO used by the scheduled cleanup to remove expired tokens and codes. Each table is scanned in primary key order
+ * one page at a time, so that a cleanup run never holds long running locks and can resume from the last key it saw.
+ */
+public class ExpiredTokenCleanupDAO {
+
+    private static final Log log = LogFactory.getLog(ExpiredTokenCleanupDAO.class);
+    private static final String UTC = "UTC";
+
+    private final OldTokensCleanDAO oldTokensCleanDAO = new OldTokensCleanDAO();
+
+    /**
+     * Tables handled by the cleanup.
+     */
+    public enum CleanupTarget {
+        ACCESS_TOKEN, AUTHORIZATION_CODE, DEVICE_CODE, CIBA_AUTH_CODE
+    }
+
+    /**
+     * Remove the expired entries of one page of the given table.
+     *
+     * @param target        Table to clean up.
+     * @param lastKey       Primary key of the last entry of the previous page. Use an empty string to start from the
+     *                      beginning of the table.
+     * @param pageSize      Maximum number of entries to scan.
+     * @param expiredBefore Entries are removed only if they expired before this time, in milliseconds.
+     * @return Result of the page.
+     * @throws IdentityOAuth2Exception When an error occurs while cleaning up the page.
+     */
+    public CleanupPage cleanupPage(CleanupTarget target, String lastKey, int pageSize, long expiredBefore)
+            throws IdentityOAuth2Exception {
+
+        Connection connection = IdentityDatabaseUtil.getDBConnection(true);
+        try {
+            List<String> expiredKeys = new ArrayList<>();
+            String nextKey = lastKey;
+            int scanned = 0;
+            try (PreparedStatement prepStmt = connection.prepareStatement(getRetrieveSql(target))) {
+                prepStmt.setMaxRows(pageSize);
+                prepStmt.setFetchSize(pageSize);
+                prepStmt.setString(1, lastKey);
+                prepStmt.setTimestamp(2, new Timestamp(expiredBefore), Calendar.getInstance(TimeZone
+                        .getTimeZone(UTC)));
+                try (ResultSet resultSet = prepStmt.executeQuery()) {
+                    while (resultSet.next()) {
+                        scanned++;
+                        nextKey = resultSet.getString(1);
+                        if (isExpired(target, resultSet, expiredBefore)) {
+                            expiredKeys.add(nextKey);
+                        }
+                    }
+                }
+            }
+
+            int deleted = 0;
+            if (!expiredKeys.isEmpty()) {
+                if (target == CleanupTarget.ACCESS_TOKEN) {
+                    // Access tokens are moved to the audit table when old tokens are to be retained.
+                    deleted = oldTokensCleanDAO.cleanupTokensByTokenIds(expiredKeys, connection);
+                } else {
+                    deleted = delete(target, expiredKeys, connection);
+                }
+            }
+            IdentityDatabaseUtil.commitTransaction(connection);
+            if (log.isDebugEnabled()) {
+                log.debug("Scanned " + scanned + " entries of " + target + " and removed " + deleted +
+                        " expired entries.");
+            }
+            return new CleanupPage(nextKey, scanned, deleted, scanned >= pageSize);
+        } catch (SQLException e) {
+            IdentityDatabaseUtil.rollbackTransaction(connection);
+            throw new IdentityOAuth2Exception("Error while cleaning up expired entries of " + target, e);
+        } finally {
+            IdentityDatabaseUtil.closeConnection(connection);
+        }
+    }
+
+    private int delete(CleanupTarget target, List<String> keys, Connection connection) throws SQLException {
+
+        int chunkSize = OldTokensCleanDAO.getInClauseChunkSize(connection);
+        int deleted = 0;
+        for (int offset = 0; offset < keys.size(); offset += chunkSize) {
+            List<String> chunk = keys.subList(offset, Math.min(offset + chunkSize, keys.size()));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            if (target == CleanupTarget.AUTHORIZATION_CODE) {
+                // Authorization code scopes are not removed through a cascading foreign key.
+                executeDelete(SQLQueries.DELETE_AUTHORIZATION_CODE_SCOPES_BY_CODE_IDS, placeholders, chunk,
+                        connection);
+            }
+            deleted += executeDelete(getDeleteSql(target), placeholders, chunk, connection);
+        }
+        return deleted;
+    }
+
+    private int executeDelete(String sql, String placeholders, List<String> keys, Connection connection)
+            throws SQLException {
+
+        try (PreparedStatement prepStmt = connection.prepareStatement(
+                sql.replace(SQLQueries.TOKEN_LIST_PLACEHOLDER, placeholders))) {
+            int parameterIndex = 1;
+            for (String key : keys) {
+                prepStmt.setString(parameterIndex++, key);
+            }
+            return prepStmt.executeUpdate();
+        }
+    }
+
+    private boolean isExpired(CleanupTarget target, ResultSet resultSet, long expiredBefore) throws SQLException {
+
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone(UTC));
+        switch (target) {
+            case ACCESS_TOKEN:
+                String tokenState = resultSet.getString(2);
+                if (OAuthConstants.TokenStates.TOKEN_STATE_REVOKED.equals(tokenState) ||
+                        OAuthConstants.TokenStates.TOKEN_STATE_INACTIVE.equals(tokenState)) {
+                    return true;
+                }
+                // Active and expired tokens are removed only once both the access token and the refresh token
+                // expired, as the refresh token of an expired access token can still be used.
+                return isExpired(resultSet.getTimestamp(3, utc), resultSet.getLong(4), expiredBefore)
+                        && isExpired(resultSet.getTimestamp(5, utc), resultSet.getLong(6), expiredBefore);
+            case AUTHORIZATION_CODE:
+                return isExpired(resultSet.getTimestamp(2, utc), resultSet.getLong(3), expiredBefore);
+            case CIBA_AUTH_CODE:
+                // Expiry of CIBA authentication requests is given in seconds.
+                return isExpired(resultSet.getTimestamp(2, utc), resultSet.getLong(3) * 1000, expiredBefore);
+            default:
+                // Device codes are filtered on their expiry time by the query.
+                return true;
+        }
+    }
+
+    private boolean isExpired(Timestamp timeCreated, long validityPeriodInMillis, long expiredBefore) {
+
+        if (timeCreated == null) {
+            return true;
+        }
+        // A negative validity period never expires.
+        return validityPeriodInMillis >= 0 && timeCreated.getTime() + validityPeriodInMillis < expiredBefore;
+    }
+
+    private String getRetrieveSql(CleanupTarget target) {
+
+        switch (target) {
+            case ACCESS_TOKEN:
+                return SQLQueries.RETRIEVE_ACCESS_TOKENS_FOR_CLEANUP;
+            case AUTHORIZATION_CODE:
+                return SQLQueries.RETRIEVE_AUTHORIZATION_CODES_FOR_CLEANUP;
+            case DEVICE_CODE:
+                return SQLQueries.RETRIEVE_DEVICE_CODES_FOR_CLEANUP;
+            default:
+                return SQLQueries.RETRIEVE_CIBA_AUTH_CODES_FOR_CLEANUP;
+        }
+    }
+
+    private String getDeleteSql(CleanupTarget target) {
+
+        switch (target) {
+            case AUTHORIZATION_CODE:
+                return SQLQueries.DELETE_AUTHORIZATION_CODES_BY_CODE_IDS;
+            case DEVICE_CODE:
+                return SQLQueries.DELETE_DEVICE_CODES_BY_DEVICE_CODES;
+            default:
+                return SQLQueries.DELETE_CIBA_AUTH_CODES_BY_AUTH_CODE_KEYS;
+        }
+    }
+
+    /**
+     * Result of cleaning up one page of a table.
+     */
+    public static class CleanupPage {
+
+        private final String lastKey;
+        private final int scannedCount;
+        private final int deletedCount;
+        private final boolean hasMore;
+
+        public CleanupPage(String lastKey, int scannedCount, int deletedCount, boolean hasMore) {
+
+            this.lastKey = lastKey;
+            this.scannedCount = scannedCount;
+            this.deletedCount = deletedCount;
+            this.hasMore = hasMore;
+        }
+
+        public String getLastKey() {
+
+            return lastKey;
+        }
+
+        public int getScannedCount() {
+
+            return scannedCount;
+        }
+
+        public int getDeletedCount() {
+
+            return deletedCount;
+        }
+
+        public boolean hasMore() {
+
+            return hasMore;
+        }
+    }
+}
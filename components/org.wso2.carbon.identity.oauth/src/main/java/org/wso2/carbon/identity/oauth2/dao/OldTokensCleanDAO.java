@@ -29,6 +29,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -39,6 +40,9 @@ import java.util.List;
 public class OldTokensCleanDAO {
 
     private static final Log log = LogFactory.getLog(OldTokensCleanDAO.class);
+    private static final int DEFAULT_IN_CLAUSE_CHUNK_SIZE = 1000;
+    private static final int MSSQL_IN_CLAUSE_CHUNK_SIZE = 2000;
+    private static final int LARGE_IN_CLAUSE_CHUNK_SIZE = 5000;
 
     public void cleanupTokenByTokenId(String tokenId, Connection connection) throws SQLException {
 
@@ -168,9 +172,107 @@ public class OldTokensCleanDAO {
         }
     }
 
+    /**
+     * Move the tokens with the given access token hashes to the audit table and delete them from the access token
+     * table. The hashes are processed in chunks sized for the database in use, each chunk costing one
+     * INSERT ... SELECT into the audit table and one DELETE.
+     *
+     * @param oldTokens  Access token hashes of the tokens to be cleaned up.
+     * @param connection Database connection.
+     * @throws SQLException When an error occurs while reading the database metadata.
+     */
     public void cleanupTokensInBatch(List<String> oldTokens, Connection connection) throws SQLException {
-        for (String token : oldTokens) {
-            cleanupTokenByTokenValue(token, connection);
+
+        cleanupTokens(oldTokens, SQLQueries.STORE_OLD_TOKENS_IN_AUDIT_BY_TOKEN_HASHES,
+                SQLQueries.STORE_OLD_TOKENS_IN_AUDIT_BY_TOKEN_HASHES_WITH_IDP_NAME,
+                SQLQueries.DELETE_OLD_TOKENS_BY_TOKEN_HASHES, connection);
+    }
+
+    /**
+     * Move the tokens with the given token ids to the audit table and delete them from the access token table.
+     *
+     * @param tokenIds   Ids of the tokens to be cleaned up.
+     * @param connection Database connection.
+     * @return Number of tokens deleted from the access token table.
+     * @throws SQLException When an error occurs while reading the database metadata.
+     */
+    public int cleanupTokensByTokenIds(List<String> tokenIds, Connection connection) throws SQLException {
+
+        return cleanupTokens(tokenIds, SQLQueries.STORE_OLD_TOKENS_IN_AUDIT_BY_TOKEN_IDS,
+                SQLQueries.STORE_OLD_TOKENS_IN_AUDIT_BY_TOKEN_IDS_WITH_IDP_NAME,
+                SQLQueries.DELETE_OLD_TOKENS_BY_TOKEN_IDS, connection);
+    }
+
+    private int cleanupTokens(List<String> tokens, String storeInAuditSql, String storeInAuditWithIdpNameSql,
+                              String deleteSql, Connection connection) throws SQLException {
+
+        if (tokens == null || tokens.isEmpty()) {
+            return 0;
+        }
+        boolean retainOldAccessTokens = OAuthServerConfiguration.getInstance().useRetainOldAccessTokens();
+        int chunkSize = getInClauseChunkSize(connection);
+        int deleted = 0;
+        connection.setAutoCommit(false);
+        for (int offset = 0; offset < tokens.size(); offset += chunkSize) {
+            List<String> chunk = tokens.subList(offset, Math.min(offset + chunkSize, tokens.size()));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            try {
+                if (retainOldAccessTokens) {
+                    String sql;
+                    if (OAuth2ServiceComponentHolder.isIDPIdColumnEnabled()) {
+                        sql = storeInAuditWithIdpNameSql;
+                    } else {
+                        sql = storeInAuditSql;
+                    }
+                    try (PreparedStatement prepStmt = connection.prepareStatement(
+                            sql.replace(SQLQueries.TOKEN_LIST_PLACEHOLDER, placeholders))) {
+                        prepStmt.setTimestamp(1, new Timestamp(System.currentTimeMillis()));
+                        int parameterIndex = 2;
+                        for (String token : chunk) {
+                            prepStmt.setString(parameterIndex++, token);
+                        }
+                        prepStmt.executeUpdate();
+                    }
+                }
+                try (PreparedStatement prepStmt = connection.prepareStatement(
+                        deleteSql.replace(SQLQueries.TOKEN_LIST_PLACEHOLDER, placeholders))) {
+                    int parameterIndex = 1;
+                    for (String token : chunk) {
+                        prepStmt.setString(parameterIndex++, token);
+                    }
+                    int count = prepStmt.executeUpdate();
+                    if (log.isDebugEnabled()) {
+                        log.debug("Successfully cleaned up " + count + " old access tokens out of a chunk of " +
+                                chunk.size() + " tokens.");
+                    }
+                    connection.commit();
+                    deleted += count;
+                }
+            } catch (SQLException e) {
+                connection.rollback();
+                log.error("SQL error occurred while cleaning up a chunk of " + chunk.size() + " tokens", e);
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Get the maximum number of values bound in a single IN clause. Oracle limits IN lists to 1000 entries and
+     * MSSQL limits a statement to 2100 parameters.
+     *
+     * @param connection Database connection.
+     * @return Chunk size.
+     * @throws SQLException When an error occurs while reading the database metadata.
+     */
+    static int getInClauseChunkSize(Connection connection) throws SQLException {
+
+        String driverName = connection.getMetaData().getDriverName();
+        if (driverName.contains("MySQL") || driverName.contains("MariaDB") || driverName.contains("H2")
+                || driverName.contains("PostgreSQL")) {
+            return LARGE_IN_CLAUSE_CHUNK_SIZE;
+        } else if (driverName.contains("MS SQL") || driverName.contains("Microsoft")) {
+            return MSSQL_IN_CLAUSE_CHUNK_SIZE;
         }
+        return DEFAULT_IN_CLAUSE_CHUNK_SIZE;
     }
 }
@@ -632,6 +632,9 @@ public class SQLQueries {
 
     public static final String INSERT_OAUTH2_TOKEN_SCOPE = "INSERT INTO IDN_OAUTH2_ACCESS_TOKEN_SCOPE (TOKEN_ID, " +
             "TOKEN_SCOPE, TENANT_ID) VALUES (?,?,?)";
+    public static final String INSERT_OAUTH2_TOKEN_SCOPES = "INSERT INTO IDN_OAUTH2_ACCESS_TOKEN_SCOPE (TOKEN_ID, " +
+            "TOKEN_SCOPE, TENANT_ID) VALUES ";
+    public static final String INSERT_OAUTH2_TOKEN_SCOPES_VALUES = "(?,?,?)";
     public static final String INSERT_OAUTH2_CODE_SCOPE = "INSERT INTO IDN_OAUTH2_AUTHZ_CODE_SCOPE (CODE_ID, " +
             "SCOPE, TENANT_ID) VALUES (?,?,?)";
     public static final String GET_OAUTH2_CODE_SCOPE = "SELECT SCOPE FROM IDN_OAUTH2_AUTHZ_CODE_SCOPE WHERE " +
@@ -672,6 +675,115 @@ public class SQLQueries {
 
     public static final String DELETE_OLD_TOKEN_BY_ID = "DELETE FROM IDN_OAUTH2_ACCESS_TOKEN WHERE TOKEN_ID = ?";
 
+    public static final String TOKEN_LIST_PLACEHOLDER = "_TOKEN_LIST_";
+
+    public static final String STORE_OLD_TOKENS_IN_AUDIT_BY_TOKEN_HASHES =
+            "INSERT INTO IDN_OAUTH2_ACCESS_TOKEN_AUDIT (TOKEN_ID, ACCESS_TOKEN, REFRESH_TOKEN, CONSUMER_KEY_ID, " +
+                    "AUTHZ_USER, TENANT_ID, USER_DOMAIN, USER_TYPE, GRANT_TYPE, TIME_CREATED, " +
+                    "REFRESH_TOKEN_TIME_CREATED, VALIDITY_PERIOD, REFRESH_TOKEN_VALIDITY_PERIOD, " +
+                    "TOKEN_SCOPE_HASH, TOKEN_STATE, TOKEN_STATE_ID, SUBJECT_IDENTIFIER, ACCESS_TOKEN_HASH, " +
+                    "REFRESH_TOKEN_HASH, INVALIDATED_TIME) SELECT TOKEN_ID, ACCESS_TOKEN, REFRESH_TOKEN, " +
+                    "CONSUMER_KEY_ID, AUTHZ_USER, TENANT_ID, USER_DOMAIN, USER_TYPE, GRANT_TYPE, TIME_CREATED, " +
+                    "REFRESH_TOKEN_TIME_CREATED, VALIDITY_PERIOD, REFRESH_TOKEN_VALIDITY_PERIOD, TOKEN_SCOPE_HASH, " +
+                    "TOKEN_STATE, TOKEN_STATE_ID, SUBJECT_IDENTIFIER, ACCESS_TOKEN_HASH, REFRESH_TOKEN_HASH, ? " +
+                    "FROM IDN_OAUTH2_ACCESS_TOKEN WHERE ACCESS_TOKEN_HASH IN (" + TOKEN_LIST_PLACEHOLDER + ")";
+
+    public static final String STORE_OLD_TOKENS_IN_AUDIT_BY_TOKEN_HASHES_WITH_IDP_NAME =
+            "INSERT INTO IDN_OAUTH2_ACCESS_TOKEN_AUDIT (TOKEN_ID, ACCESS_TOKEN, REFRESH_TOKEN, CONSUMER_KEY_ID, " +
+                    "AUTHZ_USER, TENANT_ID, USER_DOMAIN, USER_TYPE, GRANT_TYPE, TIME_CREATED, " +
+                    "REFRESH_TOKEN_TIME_CREATED, VALIDITY_PERIOD, REFRESH_TOKEN_VALIDITY_PERIOD, " +
+                    "TOKEN_SCOPE_HASH, TOKEN_STATE, TOKEN_STATE_ID, SUBJECT_IDENTIFIER, ACCESS_TOKEN_HASH, " +
+                    "REFRESH_TOKEN_HASH, INVALIDATED_TIME, IDP_ID) SELECT TOKEN_ID, ACCESS_TOKEN, REFRESH_TOKEN, " +
+                    "CONSUMER_KEY_ID, AUTHZ_USER, TENANT_ID, USER_DOMAIN, USER_TYPE, GRANT_TYPE, TIME_CREATED, " +
+                    "REFRESH_TOKEN_TIME_CREATED, VALIDITY_PERIOD, REFRESH_TOKEN_VALIDITY_PERIOD, TOKEN_SCOPE_HASH, " +
+                    "TOKEN_STATE, TOKEN_STATE_ID, SUBJECT_IDENTIFIER, ACCESS_TOKEN_HASH, REFRESH_TOKEN_HASH, ?, " +
+                    "IDP_ID FROM IDN_OAUTH2_ACCESS_TOKEN WHERE ACCESS_TOKEN_HASH IN (" + TOKEN_LIST_PLACEHOLDER +
+                    ")";
+
+    public static final String RETRIEVE_ACTIVE_ACCESS_TOKENS_BY_TOKEN_HASHES = "SELECT CONSUMER_KEY, AUTHZ_USER, " +
+            "ACCESS_TOKEN_TABLE.TENANT_ID, USER_DOMAIN, TOKEN_SCOPE, TIME_CREATED, REFRESH_TOKEN_TIME_CREATED, " +
+            "VALIDITY_PERIOD, REFRESH_TOKEN_VALIDITY_PERIOD, USER_TYPE, REFRESH_TOKEN, ACCESS_TOKEN_TABLE.TOKEN_ID, " +
+            "GRANT_TYPE, SUBJECT_IDENTIFIER, TOKEN_BINDING_REF, ACCESS_TOKEN_HASH FROM (SELECT TOKEN_ID, " +
+            "CONSUMER_KEY, AUTHZ_USER, IDN_OAUTH2_ACCESS_TOKEN.TENANT_ID AS TENANT_ID, " +
+            "IDN_OAUTH2_ACCESS_TOKEN.USER_DOMAIN AS USER_DOMAIN, TIME_CREATED, REFRESH_TOKEN_TIME_CREATED, " +
+            "VALIDITY_PERIOD, REFRESH_TOKEN_VALIDITY_PERIOD, USER_TYPE, REFRESH_TOKEN, " +
+            "IDN_OAUTH2_ACCESS_TOKEN.GRANT_TYPE AS GRANT_TYPE, SUBJECT_IDENTIFIER, TOKEN_BINDING_REF, " +
+            "ACCESS_TOKEN_HASH FROM (SELECT * FROM IDN_OAUTH2_ACCESS_TOKEN WHERE ACCESS_TOKEN_HASH IN (" +
+            TOKEN_LIST_PLACEHOLDER + ") AND TOKEN_STATE='ACTIVE') IDN_OAUTH2_ACCESS_TOKEN JOIN " +
+            "IDN_OAUTH_CONSUMER_APPS ON CONSUMER_KEY_ID = ID) ACCESS_TOKEN_TABLE LEFT JOIN " +
+            "IDN_OAUTH2_ACCESS_TOKEN_SCOPE ON ACCESS_TOKEN_TABLE.TOKEN_ID = IDN_OAUTH2_ACCESS_TOKEN_SCOPE.TOKEN_ID";
+
+    public static final String RETRIEVE_ACTIVE_ACCESS_TOKENS_BY_TOKEN_HASHES_IDP_NAME =
+            "SELECT CONSUMER_KEY, AUTHZ_USER, ACCESS_TOKEN_TABLE.TENANT_ID, " +
+                    "USER_DOMAIN, TOKEN_SCOPE, TIME_CREATED, REFRESH_TOKEN_TIME_CREATED, VALIDITY_PERIOD, " +
+                    "REFRESH_TOKEN_VALIDITY_PERIOD, USER_TYPE, REFRESH_TOKEN, ACCESS_TOKEN_TABLE.TOKEN_ID, " +
+                    "GRANT_TYPE, SUBJECT_IDENTIFIER, TOKEN_BINDING_REF, IDP.NAME, ACCESS_TOKEN_HASH FROM (SELECT " +
+                    "TOKEN_ID, CONSUMER_KEY, AUTHZ_USER, IDN_OAUTH2_ACCESS_TOKEN.TENANT_ID AS TENANT_ID, " +
+                    "IDN_OAUTH2_ACCESS_TOKEN.USER_DOMAIN AS USER_DOMAIN, TIME_CREATED, " +
+                    "REFRESH_TOKEN_TIME_CREATED, VALIDITY_PERIOD, REFRESH_TOKEN_VALIDITY_PERIOD, USER_TYPE, " +
+                    "REFRESH_TOKEN, IDN_OAUTH2_ACCESS_TOKEN.GRANT_TYPE AS GRANT_TYPE, SUBJECT_IDENTIFIER, " +
+                    "IDN_OAUTH2_ACCESS_TOKEN.IDP_ID AS IDP_ID, TOKEN_BINDING_REF, ACCESS_TOKEN_HASH " +
+                    "FROM (SELECT * FROM IDN_OAUTH2_ACCESS_TOKEN WHERE ACCESS_TOKEN_HASH IN (" +
+                    TOKEN_LIST_PLACEHOLDER + ") AND TOKEN_STATE='ACTIVE') IDN_OAUTH2_ACCESS_TOKEN " +
+                    "JOIN IDN_OAUTH_CONSUMER_APPS ON CONSUMER_KEY_ID = ID) ACCESS_TOKEN_TABLE" +
+                    " LEFT JOIN IDN_OAUTH2_ACCESS_TOKEN_SCOPE ON ACCESS_TOKEN_TABLE.TOKEN_ID = " +
+                    "IDN_OAUTH2_ACCESS_TOKEN_SCOPE.TOKEN_ID JOIN IDP ON IDP_ID = IDP.ID";
+
+    public static final String DELETE_OLD_TOKENS_BY_TOKEN_HASHES = "DELETE FROM IDN_OAUTH2_ACCESS_TOKEN WHERE " +
+            "ACCESS_TOKEN_HASH IN (" + TOKEN_LIST_PLACEHOLDER + ")";
+
+    public static final String STORE_OLD_TOKENS_IN_AUDIT_BY_TOKEN_IDS =
+            "INSERT INTO IDN_OAUTH2_ACCESS_TOKEN_AUDIT (TOKEN_ID, ACCESS_TOKEN, REFRESH_TOKEN, CONSUMER_KEY_ID, " +
+                    "AUTHZ_USER, TENANT_ID, USER_DOMAIN, USER_TYPE, GRANT_TYPE, TIME_CREATED, " +
+                    "REFRESH_TOKEN_TIME_CREATED, VALIDITY_PERIOD, REFRESH_TOKEN_VALIDITY_PERIOD, " +
+                    "TOKEN_SCOPE_HASH, TOKEN_STATE, TOKEN_STATE_ID, SUBJECT_IDENTIFIER, ACCESS_TOKEN_HASH, " +
+                    "REFRESH_TOKEN_HASH, INVALIDATED_TIME) SELECT TOKEN_ID, ACCESS_TOKEN, REFRESH_TOKEN, " +
+                    "CONSUMER_KEY_ID, AUTHZ_USER, TENANT_ID, USER_DOMAIN, USER_TYPE, GRANT_TYPE, TIME_CREATED, " +
+                    "REFRESH_TOKEN_TIME_CREATED, VALIDITY_PERIOD, REFRESH_TOKEN_VALIDITY_PERIOD, TOKEN_SCOPE_HASH, " +
+                    "TOKEN_STATE, TOKEN_STATE_ID, SUBJECT_IDENTIFIER, ACCESS_TOKEN_HASH, REFRESH_TOKEN_HASH, ? " +
+                    "FROM IDN_OAUTH2_ACCESS_TOKEN WHERE TOKEN_ID IN (" + TOKEN_LIST_PLACEHOLDER + ")";
+
+    public static final String STORE_OLD_TOKENS_IN_AUDIT_BY_TOKEN_IDS_WITH_IDP_NAME =
+            "INSERT INTO IDN_OAUTH2_ACCESS_TOKEN_AUDIT (TOKEN_ID, ACCESS_TOKEN, REFRESH_TOKEN, CONSUMER_KEY_ID, " +
+                    "AUTHZ_USER, TENANT_ID, USER_DOMAIN, USER_TYPE, GRANT_TYPE, TIME_CREATED, " +
+                    "REFRESH_TOKEN_TIME_CREATED, VALIDITY_PERIOD, REFRESH_TOKEN_VALIDITY_PERIOD, " +
+                    "TOKEN_SCOPE_HASH, TOKEN_STATE, TOKEN_STATE_ID, SUBJECT_IDENTIFIER, ACCESS_TOKEN_HASH, " +
+                    "REFRESH_TOKEN_HASH, INVALIDATED_TIME, IDP_ID) SELECT TOKEN_ID, ACCESS_TOKEN, REFRESH_TOKEN, " +
+                    "CONSUMER_KEY_ID, AUTHZ_USER, TENANT_ID, USER_DOMAIN, USER_TYPE, GRANT_TYPE, TIME_CREATED, " +
+                    "REFRESH_TOKEN_TIME_CREATED, VALIDITY_PERIOD, REFRESH_TOKEN_VALIDITY_PERIOD, TOKEN_SCOPE_HASH, " +
+                    "TOKEN_STATE, TOKEN_STATE_ID, SUBJECT_IDENTIFIER, ACCESS_TOKEN_HASH, REFRESH_TOKEN_HASH, ?, " +
+                    "IDP_ID FROM IDN_OAUTH2_ACCESS_TOKEN WHERE TOKEN_ID IN (" + TOKEN_LIST_PLACEHOLDER + ")";
+
+    public static final String DELETE_OLD_TOKENS_BY_TOKEN_IDS = "DELETE FROM IDN_OAUTH2_ACCESS_TOKEN WHERE " +
+            "TOKEN_ID IN (" + TOKEN_LIST_PLACEHOLDER + ")";
+
+    public static final String RETRIEVE_ACCESS_TOKENS_FOR_CLEANUP = "SELECT TOKEN_ID, TOKEN_STATE, TIME_CREATED, " +
+            "VALIDITY_PERIOD, REFRESH_TOKEN_TIME_CREATED, REFRESH_TOKEN_VALIDITY_PERIOD FROM IDN_OAUTH2_ACCESS_TOKEN " +
+            "WHERE TOKEN_ID > ? AND TIME_CREATED < ? ORDER BY TOKEN_ID";
+
+    public static final String RETRIEVE_AUTHORIZATION_CODES_FOR_CLEANUP = "SELECT CODE_ID, TIME_CREATED, " +
+            "VALIDITY_PERIOD FROM IDN_OAUTH2_AUTHORIZATION_CODE WHERE CODE_ID > ? AND TIME_CREATED < ? " +
+            "ORDER BY CODE_ID";
+
+    public static final String DELETE_AUTHORIZATION_CODES_BY_CODE_IDS = "DELETE FROM IDN_OAUTH2_AUTHORIZATION_CODE " +
+            "WHERE CODE_ID IN (" + TOKEN_LIST_PLACEHOLDER + ")";
+
+    public static final String DELETE_AUTHORIZATION_CODE_SCOPES_BY_CODE_IDS = "DELETE FROM " +
+            "IDN_OAUTH2_AUTHZ_CODE_SCOPE WHERE CODE_ID IN (" + TOKEN_LIST_PLACEHOLDER + ")";
+
+    public static final String RETRIEVE_DEVICE_CODES_FOR_CLEANUP = "SELECT DEVICE_CODE, EXPIRY_TIME FROM " +
+            "IDN_OAUTH2_DEVICE_FLOW WHERE DEVICE_CODE > ? AND EXPIRY_TIME < ? ORDER BY DEVICE_CODE";
+
+    public static final String DELETE_DEVICE_CODES_BY_DEVICE_CODES = "DELETE FROM IDN_OAUTH2_DEVICE_FLOW WHERE " +
+            "DEVICE_CODE IN (" + TOKEN_LIST_PLACEHOLDER + ")";
+
+    public static final String RETRIEVE_CIBA_AUTH_CODES_FOR_CLEANUP = "SELECT AUTH_CODE_KEY, ISSUED_TIME, " +
+            "EXPIRES_IN FROM IDN_OAUTH2_CIBA_AUTH_CODE WHERE AUTH_CODE_KEY > ? AND ISSUED_TIME < ? " +
+            "ORDER BY AUTH_CODE_KEY";
+
+    public static final String DELETE_CIBA_AUTH_CODES_BY_AUTH_CODE_KEYS = "DELETE FROM IDN_OAUTH2_CIBA_AUTH_CODE " +
+            "WHERE AUTH_CODE_KEY IN (" + TOKEN_LIST_PLACEHOLDER + ")";
+
     public static final String DELETE_ACCESS_TOKEN = "DELETE FROM IDN_OAUTH2_ACCESS_TOKEN WHERE ACCESS_TOKEN = ? ";
 
     public static final String REVOKE_SAAS_TOKENS_OF_OTHER_TENANTS = "UPDATE IDN_OAUTH2_ACCESS_TOKEN " +
@@ -1367,6 +1479,15 @@ public class SQLQueries {
     public static final String GET_CONSENT_ID_FOR_CONSENT = "SELECT CONSENT_ID FROM IDN_OAUTH2_USER_CONSENT WHERE " +
             "USER_ID = ? AND APP_ID = ? AND TENANT_ID = ?";
 
+    public static final String INSERT_OAUTH2_ISSUANCE_LOCK = "INSERT INTO IDN_OAUTH2_ISSUANCE_LOCK (LOCK_KEY, " +
+            "LOCK_OWNER, LEASE_EXPIRY) VALUES (?, ?, ?)";
+
+    public static final String TAKE_OVER_EXPIRED_OAUTH2_ISSUANCE_LOCK = "UPDATE IDN_OAUTH2_ISSUANCE_LOCK SET " +
+            "LOCK_OWNER = ?, LEASE_EXPIRY = ? WHERE LOCK_KEY = ? AND LEASE_EXPIRY < ?";
+
+    public static final String DELETE_OAUTH2_ISSUANCE_LOCK = "DELETE FROM IDN_OAUTH2_ISSUANCE_LOCK WHERE " +
+            "LOCK_KEY = ? AND LOCK_OWNER = ?";
+
     private SQLQueries() {
 
     }
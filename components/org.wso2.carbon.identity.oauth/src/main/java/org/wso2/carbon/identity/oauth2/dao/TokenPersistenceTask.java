@@ -25,7 +25,10 @@ import java.util.concurrent.BlockingDeque;
 
 /**
  * OAuth token persistence task.
+ *
+ * @deprecated Use {@link AccessTokenPersistencePipeline} which persists queued tokens in batches.
  */
+@Deprecated
 public class TokenPersistenceTask implements Runnable {
 
     private static final Log log = LogFactory.getLog(TokenPersistenceTask.class);
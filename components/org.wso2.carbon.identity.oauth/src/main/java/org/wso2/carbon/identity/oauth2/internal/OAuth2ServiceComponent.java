@@ -48,22 +48,26 @@ import org.wso2.carbon.identity.oauth2.OAuth2Service;
 import org.wso2.carbon.identity.oauth2.OAuth2TokenValidationService;
 import org.wso2.carbon.identity.oauth2.bean.Scope;
 import org.wso2.carbon.identity.oauth2.bean.ScopeBinding;
+import org.wso2.carbon.identity.oauth2.cleanup.ExpiredTokenCleanupService;
 import org.wso2.carbon.identity.oauth2.client.authentication.BasicAuthClientAuthenticator;
 import org.wso2.carbon.identity.oauth2.client.authentication.OAuthClientAuthenticator;
 import org.wso2.carbon.identity.oauth2.client.authentication.OAuthClientAuthnService;
 import org.wso2.carbon.identity.oauth2.client.authentication.PublicClientAuthenticator;
+import org.wso2.carbon.identity.oauth2.dao.AccessTokenPersistencePipeline;
 import org.wso2.carbon.identity.oauth2.dao.OAuthTokenPersistenceFactory;
 import org.wso2.carbon.identity.oauth2.device.api.DeviceAuthService;
 import org.wso2.carbon.identity.oauth2.device.api.DeviceAuthServiceImpl;
 import org.wso2.carbon.identity.oauth2.keyidprovider.DefaultKeyIDProviderImpl;
 import org.wso2.carbon.identity.oauth2.keyidprovider.KeyIDProvider;
 import org.wso2.carbon.identity.oauth2.listener.TenantCreationEventListener;
+import org.wso2.carbon.identity.oauth2.lock.IssuanceLockManager;
 import org.wso2.carbon.identity.oauth2.token.bindings.TokenBinder;
 import org.wso2.carbon.identity.oauth2.token.bindings.handlers.TokenBindingExpiryEventHandler;
 import org.wso2.carbon.identity.oauth2.token.bindings.impl.CookieBasedTokenBinder;
 import org.wso2.carbon.identity.oauth2.token.bindings.impl.DeviceFlowTokenBinder;
 import org.wso2.carbon.identity.oauth2.token.bindings.impl.SSOSessionBasedTokenBinder;
 import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
+import org.wso2.carbon.identity.oauth2.validators.jwt.JWKSourceDataProvider;
 import org.wso2.carbon.identity.oauth2.validators.scope.ScopeValidator;
 import org.wso2.carbon.identity.openidconnect.OpenIDConnectClaimFilter;
 import org.wso2.carbon.identity.openidconnect.OpenIDConnectClaimFilterImpl;
@@ -265,6 +269,8 @@ public class OAuth2ServiceComponent {
             bundleContext.registerService(OAuth2Service.class.getName(), new OAuth2Service(), null);
             // Registering OAuth2ScopeService as a OSGIService
             bundleContext.registerService(OAuth2ScopeService.class.getName(), new OAuth2ScopeService(), null);
+            // Schedule the cleanup of expired tokens and codes, if enabled.
+            ExpiredTokenCleanupService.startIfEnabled();
             // Note : DO NOT add any activation related code below this point,
             // to make sure the server doesn't start up if any activation failures occur
 
@@ -299,6 +305,17 @@ public class OAuth2ServiceComponent {
         }
     }
 
+    protected void deactivate(ComponentContext context) {
+
+        ExpiredTokenCleanupService.stopInstance();
+        JWKSourceDataProvider.shutdownInstance();
+        // Persist access tokens which are still queued for asynchronous persistence.
+        AccessTokenPersistencePipeline.shutdownInstance();
+        if (log.isDebugEnabled()) {
+            log.debug("Identity OAuth2 bundle is deactivated");
+        }
+    }
+
     /**
      * Set Application management service implementation
      *
@@ -472,6 +489,28 @@ public class OAuth2ServiceComponent {
 
     }
 
+    @Reference(
+            name = "issuance.lock.manager.component",
+            service = IssuanceLockManager.class,
+            cardinality = ReferenceCardinality.OPTIONAL,
+            policy = ReferencePolicy.DYNAMIC,
+            unbind = "unsetIssuanceLockManager"
+    )
+    protected void setIssuanceLockManager(IssuanceLockManager issuanceLockManager) {
+
+        OAuth2ServiceComponentHolder.setIssuanceLockManager(issuanceLockManager);
+        if (log.isDebugEnabled()) {
+            log.debug("Issuance Lock Manager: " + issuanceLockManager.getClass().getSimpleName() +
+                    " registered replacing the default issuance lock manager implementation.");
+        }
+    }
+
+    protected void unsetIssuanceLockManager(IssuanceLockManager issuanceLockManager) {
+
+        // Falls back to the default striped lock manager on the next lookup.
+        OAuth2ServiceComponentHolder.setIssuanceLockManager(null);
+    }
+
     @Reference(
             name = "scope.validator.service",
             service = ScopeValidator.class,
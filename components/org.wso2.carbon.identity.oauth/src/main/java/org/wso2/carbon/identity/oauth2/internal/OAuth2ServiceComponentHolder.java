@@ -28,6 +28,9 @@ import org.wso2.carbon.identity.oauth.dto.ScopeDTO;
 import org.wso2.carbon.identity.oauth2.bean.Scope;
 import org.wso2.carbon.identity.oauth2.client.authentication.OAuthClientAuthenticator;
 import org.wso2.carbon.identity.oauth2.keyidprovider.KeyIDProvider;
+import org.wso2.carbon.identity.oauth2.lock.ClusteredIssuanceLockManager;
+import org.wso2.carbon.identity.oauth2.lock.IssuanceLockManager;
+import org.wso2.carbon.identity.oauth2.lock.StripedIssuanceLockManager;
 import org.wso2.carbon.identity.oauth2.token.bindings.TokenBinder;
 import org.wso2.carbon.identity.openidconnect.ClaimProvider;
 import org.wso2.carbon.identity.openidconnect.dao.ScopeClaimMappingDAO;
@@ -56,6 +59,7 @@ public class OAuth2ServiceComponentHolder {
     private OAuthAdminServiceImpl oauthAdminService;
     private static AuthenticationDataPublisher authenticationDataPublisherProxy;
     private static KeyIDProvider keyIDProvider = null;
+    private static volatile IssuanceLockManager issuanceLockManager = null;
     private IdpManager idpManager;
     private static UserSessionManagementService userSessionManagementService;
     private List<ScopeDTO> oidcScopesClaims = new ArrayList<>();
@@ -254,6 +258,39 @@ public class OAuth2ServiceComponentHolder {
         OAuth2ServiceComponentHolder.keyIDProvider = keyIDProvider;
     }
 
+    /**
+     * Method to get the configured IssuanceLockManager implementation. When no implementation has been registered, the
+     * clustered lock manager is used if cluster wide issuance locking is enabled and the striped lock manager
+     * otherwise.
+     *
+     * @return configured Issuance Lock Manager instance.
+     */
+    public static IssuanceLockManager getIssuanceLockManager() {
+
+        if (issuanceLockManager == null) {
+            synchronized (OAuth2ServiceComponentHolder.class) {
+                if (issuanceLockManager == null) {
+                    if (ClusteredIssuanceLockManager.isClusterLockEnabled()) {
+                        issuanceLockManager = new ClusteredIssuanceLockManager();
+                    } else {
+                        issuanceLockManager = new StripedIssuanceLockManager();
+                    }
+                }
+            }
+        }
+        return issuanceLockManager;
+    }
+
+    /**
+     * Method to set the IssuanceLockManager.
+     *
+     * @param issuanceLockManager instance of IssuanceLockManager.
+     */
+    public static void setIssuanceLockManager(IssuanceLockManager issuanceLockManager) {
+
+        OAuth2ServiceComponentHolder.issuanceLockManager = issuanceLockManager;
+    }
+
     /**
      * Set Idp manager Instance.
      *
@@ -24,6 +24,7 @@ import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
 import org.wso2.carbon.identity.oauth2.dao.OAuthTokenPersistenceFactory;
 import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
 import org.wso2.carbon.identity.oauth2.model.AuthzCodeDO;
+import org.wso2.carbon.identity.oauth2.signing.SigningKeyRegistry;
 import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
 import org.wso2.carbon.stratos.common.exception.StratosException;
 
@@ -41,12 +42,14 @@ public class OAuthTenantMgtListenerImpl extends AbstractIdentityTenantMgtListene
     @Override
     public void onPreDelete(int tenantId) throws StratosException {
 
+        SigningKeyRegistry.getInstance().invalidate(tenantId);
         clearTokenData(tenantId);
     }
 
     @Override
     public void onTenantDeactivation(int tenantId) throws StratosException {
 
+        SigningKeyRegistry.getInstance().invalidate(tenantId);
         clearTokenData(tenantId);
     }
 
@@ -58,7 +61,7 @@ public class OAuthTenantMgtListenerImpl extends AbstractIdentityTenantMgtListene
             Map<String, AccessTokenDO> latestAccessTokens = new HashMap<>();
             for (AccessTokenDO accessTokenDO : accessTokenDOs) {
                 String keyString = accessTokenDO.getConsumerKey() + ":" + accessTokenDO.getAuthzUser() + ":" +
-                        OAuth2Util.buildScopeString(accessTokenDO.getScope()) + ":"
+                        OAuth2Util.buildScopeString(accessTokenDO.getScopeSet()) + ":"
                         + accessTokenDO.getAuthzUser().getFederatedIdPName();
                 AccessTokenDO accessTokenDOFromMap = latestAccessTokens.get(keyString);
                 if (accessTokenDOFromMap != null) {
@@ -71,7 +74,7 @@ public class OAuthTenantMgtListenerImpl extends AbstractIdentityTenantMgtListene
 
                 //Clear cache
                 OAuthUtil.clearOAuthCache(accessTokenDO.getConsumerKey(), accessTokenDO.getAuthzUser(),
-                        OAuth2Util.buildScopeString(accessTokenDO.getScope()));
+                        OAuth2Util.buildScopeString(accessTokenDO.getScopeSet()));
                 OAuthUtil.clearOAuthCache(accessTokenDO.getConsumerKey(), accessTokenDO.getAuthzUser());
                 OAuthUtil.clearOAuthCache(accessTokenDO);
             }
@@ -48,7 +48,7 @@ public class OAuthUserStoreConfigListenerImpl extends AbstractUserStoreConfigLis
             for (AccessTokenDO accessTokenDO : accessTokenDOs) {
                 //Clear cache
                 OAuthUtil.clearOAuthCache(accessTokenDO.getConsumerKey(), accessTokenDO.getAuthzUser(),
-                        OAuth2Util.buildScopeString(accessTokenDO.getScope()));
+                        OAuth2Util.buildScopeString(accessTokenDO.getScopeSet()));
                 OAuthUtil.clearOAuthCache(accessTokenDO.getConsumerKey(), accessTokenDO.getAuthzUser());
                 OAuthUtil.clearOAuthCache(accessTokenDO);
             }
@@ -85,7 +85,7 @@ public class OAuthUserStoreConfigListenerImpl extends AbstractUserStoreConfigLis
             Map<String, AccessTokenDO> latestAccessTokens = new HashMap<>();
             for (AccessTokenDO accessTokenDO : accessTokenDOs) {
                 String keyString = accessTokenDO.getConsumerKey() + ":" + accessTokenDO.getAuthzUser() + ":" +
-                        OAuth2Util.buildScopeString(accessTokenDO.getScope()) + ":"
+                        OAuth2Util.buildScopeString(accessTokenDO.getScopeSet()) + ":"
                         + accessTokenDO.getAuthzUser().getFederatedIdPName();
                 AccessTokenDO accessTokenDOFromMap = latestAccessTokens.get(keyString);
                 if (accessTokenDOFromMap != null) {
@@ -98,7 +98,7 @@ public class OAuthUserStoreConfigListenerImpl extends AbstractUserStoreConfigLis
 
                 //Clear cache
                 OAuthUtil.clearOAuthCache(accessTokenDO.getConsumerKey(), accessTokenDO.getAuthzUser(),
-                        OAuth2Util.buildScopeString(accessTokenDO.getScope()));
+                        OAuth2Util.buildScopeString(accessTokenDO.getScopeSet()));
                 OAuthUtil.clearOAuthCache(accessTokenDO.getConsumerKey(), accessTokenDO.getAuthzUser());
                 OAuthUtil.clearOAuthCache(accessTokenDO);
             }
@@ -112,7 +112,7 @@ public class TenantCreationEventListener implements TenantMgtListener {
 
             for (AccessTokenDO accessTokenDO : accessTokenDOs) {
                 String keyString = accessTokenDO.getConsumerKey() + ":" + accessTokenDO.getAuthzUser() + ":" +
-                        OAuth2Util.buildScopeString(accessTokenDO.getScope()) + ":"
+                        OAuth2Util.buildScopeString(accessTokenDO.getScopeSet()) + ":"
                         + accessTokenDO.getAuthzUser().getFederatedIdPName();
                 AccessTokenDO accessTokenDOFromMap = latestAccessTokens.get(keyString);
                 if (accessTokenDOFromMap != null) {
@@ -124,7 +124,7 @@ public class TenantCreationEventListener implements TenantMgtListener {
                 }
 
                 OAuthUtil.clearOAuthCache(accessTokenDO.getConsumerKey(), accessTokenDO.getAuthzUser(),
-                        OAuth2Util.buildScopeString(accessTokenDO.getScope()));
+                        OAuth2Util.buildScopeString(accessTokenDO.getScopeSet()));
                 OAuthUtil.clearOAuthCache(accessTokenDO.getConsumerKey(), accessTokenDO.getAuthzUser());
                 OAuthUtil.clearOAuthCache(accessTokenDO);
             }
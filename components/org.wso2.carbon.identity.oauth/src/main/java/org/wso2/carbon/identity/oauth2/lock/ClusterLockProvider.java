@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.lock;
+
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+
+/**
+ * This extension is to provide a lock which is shared by all nodes of a cluster. It is used by the
+ * {@link ClusteredIssuanceLockManager} so that two nodes do not issue a token for the same client, user, scope and
+ * token binding combination at the same time.
+ */
+public interface ClusterLockProvider {
+
+    /**
+     * Acquire the cluster wide lock for the given key.
+     *
+     * @param lockKey           Issuance lock key.
+     * @param timeoutInMillis   Maximum time to wait for the lock.
+     * @return Acquired lock. {@link IssuanceLock#isAcquired()} is false if the lock could not be obtained within the
+     * given time.
+     * @throws IdentityOAuth2Exception When an error occurs while acquiring the lock.
+     */
+    IssuanceLock acquire(String lockKey, long timeoutInMillis) throws IdentityOAuth2Exception;
+}
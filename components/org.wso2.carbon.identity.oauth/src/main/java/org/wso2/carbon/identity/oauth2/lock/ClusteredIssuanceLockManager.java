@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.lock;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.wso2.carbon.identity.oauth2.util.OAuth2ConfigUtil.readLongProperty;
+
+/**
+ * {@link IssuanceLockManager} which serializes token issuance across the nodes of a cluster. The node local striped
+ * lock is acquired first so that at most one thread per stripe waits on the cluster lock, and the cluster lock is then
+ * acquired through the configured {@link ClusterLockProvider}. Keys held by the current thread are tracked so that a
+ * nested acquisition of the same key does not wait on the cluster lock it already holds.
+ */
+public class ClusteredIssuanceLockManager implements IssuanceLockManager {
+
+    private static final Log log = LogFactory.getLog(ClusteredIssuanceLockManager.class);
+
+    public static final String CLUSTER_LOCK_ENABLE = "OAuth.TokenIssuanceLock.Cluster.Enable";
+    private static final String CLUSTER_LOCK_LEASE = "OAuth.TokenIssuanceLock.Cluster.LeaseInMillis";
+    private static final String CLUSTER_LOCK_TIMEOUT = "OAuth.TokenIssuanceLock.Cluster.TimeoutInMillis";
+    private static final long DEFAULT_CLUSTER_LOCK_LEASE = 30000;
+    private static final long DEFAULT_CLUSTER_LOCK_TIMEOUT = 5000;
+
+    private final StripedIssuanceLockManager localLockManager;
+    private final ClusterLockProvider clusterLockProvider;
+    private final long clusterLockTimeoutInMillis;
+    private final AtomicLong clusterLockTimeouts = new AtomicLong();
+    // Number of times each key is currently held by the thread.
+    private final ThreadLocal<Map<String, Integer>> heldKeys = ThreadLocal.withInitial(HashMap::new);
+
+    /**
+     * Create a lock manager backed by the {@link JDBCClusterLockProvider} using the values configured in
+     * identity.xml.
+     */
+    public ClusteredIssuanceLockManager() {
+
+        this(new StripedIssuanceLockManager(), new JDBCClusterLockProvider(readLongProperty(CLUSTER_LOCK_LEASE,
+                DEFAULT_CLUSTER_LOCK_LEASE)), readLongProperty(CLUSTER_LOCK_TIMEOUT, DEFAULT_CLUSTER_LOCK_TIMEOUT));
+    }
+
+    public ClusteredIssuanceLockManager(StripedIssuanceLockManager localLockManager,
+                                        ClusterLockProvider clusterLockProvider, long clusterLockTimeoutInMillis) {
+
+        this.localLockManager = localLockManager;
+        this.clusterLockProvider = clusterLockProvider;
+        this.clusterLockTimeoutInMillis = clusterLockTimeoutInMillis;
+    }
+
+    /**
+     * Whether cluster wide issuance locking is enabled in identity.xml.
+     *
+     * @return True if enabled.
+     */
+    public static boolean isClusterLockEnabled() {
+
+        return Boolean.parseBoolean(IdentityUtil.getProperty(CLUSTER_LOCK_ENABLE));
+    }
+
+    @Override
+    public IssuanceLock acquire(String lockKey) throws IdentityOAuth2Exception {
+
+        Map<String, Integer> keys = heldKeys.get();
+        if (keys.containsKey(lockKey)) {
+            // The outer acquisition of this key by this thread already coordinates with the cluster.
+            return new HeldKeyLock(lockKey, localLockManager.acquire(lockKey), null);
+        }
+        IssuanceLock localLock = localLockManager.acquire(lockKey);
+        try {
+            IssuanceLock clusterLock = clusterLockProvider.acquire(lockKey, clusterLockTimeoutInMillis);
+            if (!clusterLock.isAcquired()) {
+                clusterLockTimeouts.incrementAndGet();
+                if (log.isDebugEnabled()) {
+                    log.debug("Cluster issuance lock could not be acquired within " + clusterLockTimeoutInMillis +
+                            "ms. Proceeding with the node local lock only.");
+                }
+            }
+            return new HeldKeyLock(lockKey, localLock, clusterLock);
+        } catch (IdentityOAuth2Exception | RuntimeException e) {
+            localLock.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Get the number of times the cluster lock could not be acquired within the configured timeout.
+     *
+     * @return Cluster lock timeout count.
+     */
+    public long getClusterLockTimeoutCount() {
+
+        return clusterLockTimeouts.get();
+    }
+
+    /**
+     * Get the node local lock manager.
+     *
+     * @return Striped lock manager.
+     */
+    public StripedIssuanceLockManager getLocalLockManager() {
+
+        return localLockManager;
+    }
+
+    /**
+     * Map a lock key onto one of the given number of cluster lock slots. The mapping only depends on
+     * {@link String#hashCode()} and is therefore identical on every node.
+     *
+     * @param lockKey   Issuance lock key.
+     * @param slotCount Number of slots.
+     * @return Slot index.
+     */
+    public static int getSlot(String lockKey, int slotCount) {
+
+        int hash = lockKey == null ? 0 : lockKey.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), slotCount);
+    }
+
+    /**
+     * Lock holding the node local lock and, unless nested in an outer acquisition of the same key, the cluster lock.
+     * Released in the reverse order of acquisition.
+     */
+    private class HeldKeyLock implements IssuanceLock {
+
+        private final String lockKey;
+        private final IssuanceLock localLock;
+        private final IssuanceLock clusterLock;
+        private boolean released;
+
+        HeldKeyLock(String lockKey, IssuanceLock localLock, IssuanceLock clusterLock) {
+
+            this.lockKey = lockKey;
+            this.localLock = localLock;
+            this.clusterLock = clusterLock;
+            heldKeys.get().merge(lockKey, 1, Integer::sum);
+        }
+
+        @Override
+        public boolean isAcquired() {
+
+            return localLock.isAcquired() && (clusterLock == null || clusterLock.isAcquired());
+        }
+
+        @Override
+        public void close() {
+
+            if (released) {
+                return;
+            }
+            released = true;
+            Map<String, Integer> keys = heldKeys.get();
+            keys.computeIfPresent(lockKey, (key, count) -> count > 1 ? count - 1 : null);
+            if (keys.isEmpty()) {
+                heldKeys.remove();
+            }
+            try {
+                if (clusterLock != null) {
+                    clusterLock.close();
+                }
+            } finally {
+                localLock.close();
+            }
+        }
+    }
+}
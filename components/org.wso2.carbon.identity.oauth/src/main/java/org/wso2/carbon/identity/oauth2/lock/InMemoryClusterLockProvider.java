@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.lock;
+
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link ClusterLockProvider} backed by in-memory lock slots. Several lock managers sharing an instance of this
+ * provider behave like the nodes of a cluster. Slots are reentrant so that a thread holding the slot of one key can
+ * take another key mapping onto the same slot. Intended for tests and single node deployments.
+ */
+public class InMemoryClusterLockProvider implements ClusterLockProvider {
+
+    private final ReentrantLock[] slots;
+
+    public InMemoryClusterLockProvider(int slotCount) {
+
+        this.slots = new ReentrantLock[Math.max(slotCount, 1)];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public IssuanceLock acquire(String lockKey, long timeoutInMillis) throws IdentityOAuth2Exception {
+
+        ReentrantLock slot = slots[ClusteredIssuanceLockManager.getSlot(lockKey, slots.length)];
+        try {
+            boolean acquired;
+            if (timeoutInMillis > 0) {
+                acquired = slot.tryLock(timeoutInMillis, TimeUnit.MILLISECONDS);
+            } else {
+                slot.lockInterruptibly();
+                acquired = true;
+            }
+            return new SlotLock(slot, acquired);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdentityOAuth2Exception("Interrupted while waiting for the cluster issuance lock.", e);
+        }
+    }
+
+    /**
+     * Issuance lock backed by a single lock slot.
+     */
+    private static class SlotLock implements IssuanceLock {
+
+        private final ReentrantLock slot;
+        private boolean acquired;
+
+        SlotLock(ReentrantLock slot, boolean acquired) {
+
+            this.slot = slot;
+            this.acquired = acquired;
+        }
+
+        @Override
+        public boolean isAcquired() {
+
+            return acquired;
+        }
+
+        @Override
+        public void close() {
+
+            if (acquired) {
+                acquired = false;
+                slot.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.lock;
+
+/**
+ * Handle of a lock acquired through an {@link IssuanceLockManager}.
+ */
+public interface IssuanceLock extends AutoCloseable {
+
+    /**
+     * Whether the lock is actually held by the current thread. This is false when the lock manager gave up waiting
+     * and allowed the caller to proceed without exclusive access.
+     *
+     * @return True if the lock is held.
+     */
+    boolean isAcquired();
+
+    /**
+     * Release the lock. Releasing a lock which was not acquired is a no-op.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.lock;
+
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+
+/**
+ * This extension is to provide the locking strategy used to serialize token issuance, refresh and revocation
+ * for the same client, user, scope and token binding combination.
+ */
+public interface IssuanceLockManager {
+
+    /**
+     * Acquire the lock guarding the given issuance key. The returned lock must be closed by the caller, preferably
+     * with a try-with-resources block.
+     *
+     * @param lockKey Key built from the consumer key, authorized user, scope and token binding reference.
+     * @return Acquired issuance lock.
+     * @throws IdentityOAuth2Exception When the lock could not be acquired.
+     */
+    IssuanceLock acquire(String lockKey) throws IdentityOAuth2Exception;
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.lock;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.core.util.IdentityDatabaseUtil;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+import org.wso2.carbon.identity.oauth2.dao.SQLQueries;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.UUID;
+
+/**
+ * {@link ClusterLockProvider} which uses lease rows of the IDN_OAUTH2_ISSUANCE_LOCK table. A lock is taken by
+ * inserting a row for the SHA-256 hash of the lock key, or by taking over a row whose lease has expired, and released
+ * by deleting the row. Each of these runs in its own short transaction, hence no database connection is held while
+ * the lock is held and a node which stops without releasing a lock only blocks the key until the lease expires.
+ * <p>
+ * Lease expiry is compared against the clock of the node taking over the lock, hence the lease time should be well
+ * above the expected clock skew between the nodes.
+ */
+public class JDBCClusterLockProvider implements ClusterLockProvider {
+
+    private static final Log log = LogFactory.getLog(JDBCClusterLockProvider.class);
+    private static final long MIN_RETRY_INTERVAL = 10;
+    private static final long MAX_RETRY_INTERVAL = 200;
+    private static final String INTEGRITY_CONSTRAINT_VIOLATION_CLASS = "23";
+
+    private final long leaseInMillis;
+
+    /**
+     * Create a lock provider.
+     *
+     * @param leaseInMillis Time after which a lock which was not released can be taken over by another node.
+     */
+    public JDBCClusterLockProvider(long leaseInMillis) {
+
+        this.leaseInMillis = Math.max(leaseInMillis, 1);
+    }
+
+    @Override
+    public IssuanceLock acquire(String lockKey, long timeoutInMillis) throws IdentityOAuth2Exception {
+
+        return acquire(lockKey, timeoutInMillis, leaseInMillis);
+    }
+
+    /**
+     * Acquire the lock of the given key with a lease other than the configured one. Used by cluster wide tasks which
+     * hold their lock for longer than a token issuance.
+     *
+     * @param lockKey         Lock key.
+     * @param timeoutInMillis Maximum time to wait for the lock. A non positive value waits indefinitely.
+     * @param leaseInMillis   Time after which the lock can be taken over by another node if not released.
+     * @return Acquired lock, or a lock which is not acquired if the timeout elapsed.
+     * @throws IdentityOAuth2Exception When an error occurs while acquiring the lock.
+     */
+    public IssuanceLock acquire(String lockKey, long timeoutInMillis, long leaseInMillis)
+            throws IdentityOAuth2Exception {
+
+        String keyHash = DigestUtils.sha256Hex(lockKey == null ? "" : lockKey);
+        String owner = UUID.randomUUID().toString();
+        long deadline = System.currentTimeMillis() + timeoutInMillis;
+        long retryInterval = MIN_RETRY_INTERVAL;
+        while (true) {
+            if (tryAcquire(keyHash, owner, Math.max(leaseInMillis, 1))) {
+                return new LeaseLock(keyHash, owner);
+            }
+            long remaining = deadline - System.currentTimeMillis();
+            if (timeoutInMillis > 0 && remaining <= 0) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Timed out after " + timeoutInMillis + "ms while waiting for cluster lock: " + keyHash
+                            + ". Proceeding without the lock.");
+                }
+                return new LeaseLock(keyHash, null);
+            }
+            try {
+                Thread.sleep(timeoutInMillis > 0 ? Math.min(retryInterval, remaining) : retryInterval);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IdentityOAuth2Exception("Interrupted while waiting for the cluster lock.", e);
+            }
+            retryInterval = Math.min(retryInterval * 2, MAX_RETRY_INTERVAL);
+        }
+    }
+
+    /**
+     * Insert the lease row of the given key, or take over the row if its lease has expired.
+     *
+     * @return True if this owner now holds the lease.
+     */
+    private boolean tryAcquire(String keyHash, String owner, long lease) throws IdentityOAuth2Exception {
+
+        long now = System.currentTimeMillis();
+        try (Connection connection = IdentityDatabaseUtil.getDBConnection(true)) {
+            try (PreparedStatement prepStmt = connection.prepareStatement(SQLQueries.INSERT_OAUTH2_ISSUANCE_LOCK)) {
+                prepStmt.setString(1, keyHash);
+                prepStmt.setString(2, owner);
+                prepStmt.setLong(3, now + lease);
+                prepStmt.execute();
+                IdentityDatabaseUtil.commitTransaction(connection);
+                return true;
+            } catch (SQLException e) {
+                IdentityDatabaseUtil.rollbackTransaction(connection);
+                // Only an existing row, either held by another owner or left behind with an expired lease, is
+                // contention. Other failures are not retried.
+                if (!isIntegrityConstraintViolation(e)) {
+                    throw e;
+                }
+            }
+            try (PreparedStatement prepStmt = connection.prepareStatement(
+                    SQLQueries.TAKE_OVER_EXPIRED_OAUTH2_ISSUANCE_LOCK)) {
+                prepStmt.setString(1, owner);
+                prepStmt.setLong(2, now + lease);
+                prepStmt.setString(3, keyHash);
+                prepStmt.setLong(4, now);
+                int updated = prepStmt.executeUpdate();
+                IdentityDatabaseUtil.commitTransaction(connection);
+                if (updated > 0 && log.isDebugEnabled()) {
+                    log.debug("Took over the expired cluster lock: " + keyHash);
+                }
+                return updated > 0;
+            } catch (SQLException e) {
+                IdentityDatabaseUtil.rollbackTransaction(connection);
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new IdentityOAuth2Exception("Error while acquiring cluster lock: " + keyHash, e);
+        }
+    }
+
+    /**
+     * Check whether the insert failed as the lease row exists. Drivers which do not throw
+     * SQLIntegrityConstraintViolationException report it with an SQL state of class 23.
+     */
+    private static boolean isIntegrityConstraintViolation(SQLException e) {
+
+        for (Throwable cause = e; cause instanceof SQLException; cause = cause.getCause()) {
+            String sqlState = ((SQLException) cause).getSQLState();
+            if (cause instanceof SQLIntegrityConstraintViolationException
+                    || (sqlState != null && sqlState.startsWith(INTEGRITY_CONSTRAINT_VIOLATION_CLASS))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void release(String keyHash, String owner) {
+
+        try (Connection connection = IdentityDatabaseUtil.getDBConnection(true)) {
+            try (PreparedStatement prepStmt = connection.prepareStatement(SQLQueries.DELETE_OAUTH2_ISSUANCE_LOCK)) {
+                prepStmt.setString(1, keyHash);
+                prepStmt.setString(2, owner);
+                prepStmt.execute();
+                IdentityDatabaseUtil.commitTransaction(connection);
+            } catch (SQLException e) {
+                IdentityDatabaseUtil.rollbackTransaction(connection);
+                throw e;
+            }
+        } catch (SQLException e) {
+            // The lease expires on its own, hence a failed release only delays other nodes.
+            log.error("Error while releasing cluster lock: " + keyHash, e);
+        }
+    }
+
+    /**
+     * Issuance lock backed by a lease row.
+     */
+    private static class LeaseLock implements IssuanceLock {
+
+        private final String keyHash;
+        private String owner;
+
+        LeaseLock(String keyHash, String owner) {
+
+            this.keyHash = keyHash;
+            this.owner = owner;
+        }
+
+        @Override
+        public boolean isAcquired() {
+
+            return owner != null;
+        }
+
+        @Override
+        public void close() {
+
+            if (owner != null) {
+                release(keyHash, owner);
+                owner = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.lock;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.wso2.carbon.identity.oauth2.util.OAuth2ConfigUtil.readIntProperty;
+import static org.wso2.carbon.identity.oauth2.util.OAuth2ConfigUtil.readLongProperty;
+
+/**
+ * Default {@link IssuanceLockManager} implementation which hashes issuance keys onto a fixed set of lock stripes.
+ * Unlike synchronizing on interned strings, the memory used by this lock manager is bounded by the stripe count and
+ * does not grow with the number of distinct client, user and scope combinations.
+ */
+public class StripedIssuanceLockManager implements IssuanceLockManager {
+
+    private static final Log log = LogFactory.getLog(StripedIssuanceLockManager.class);
+
+    private static final String STRIPE_COUNT = "OAuth.TokenIssuanceLock.StripeCount";
+    private static final String LOCK_TIMEOUT = "OAuth.TokenIssuanceLock.TimeoutInMillis";
+    private static final int DEFAULT_STRIPE_COUNT = 1024;
+    private static final int MAX_STRIPE_COUNT = 1 << 16;
+    private static final long DEFAULT_LOCK_TIMEOUT = 0;
+
+    private static final IssuanceLock NOT_ACQUIRED = new IssuanceLock() {
+
+        @Override
+        public boolean isAcquired() {
+
+            return false;
+        }
+
+        @Override
+        public void close() {
+
+        }
+    };
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+    private final long lockTimeoutInMillis;
+    private final AtomicLongArray acquiredCounts;
+    private final AtomicLongArray contendedCounts;
+    private final AtomicLongArray timedOutCounts;
+
+    /**
+     * Create a lock manager using the stripe count and lock timeout configured in identity.xml.
+     */
+    public StripedIssuanceLockManager() {
+
+        this(readIntProperty(STRIPE_COUNT, DEFAULT_STRIPE_COUNT), readLongProperty(LOCK_TIMEOUT,
+                DEFAULT_LOCK_TIMEOUT));
+    }
+
+    /**
+     * Create a lock manager.
+     *
+     * @param stripeCount         Number of lock stripes. Rounded up to the next power of two.
+     * @param lockTimeoutInMillis Maximum time to wait for a stripe. A non positive value waits indefinitely. When the
+     *                            timeout elapses the caller proceeds without the lock, relying on the persistence
+     *                            layer to resolve any resulting duplicate token.
+     */
+    public StripedIssuanceLockManager(int stripeCount, long lockTimeoutInMillis) {
+
+        int size = 1;
+        int requested = Math.min(Math.max(stripeCount, 1), MAX_STRIPE_COUNT);
+        while (size < requested) {
+            size <<= 1;
+        }
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+        this.lockTimeoutInMillis = lockTimeoutInMillis;
+        this.acquiredCounts = new AtomicLongArray(size);
+        this.contendedCounts = new AtomicLongArray(size);
+        this.timedOutCounts = new AtomicLongArray(size);
+    }
+
+    @Override
+    public IssuanceLock acquire(String lockKey) throws IdentityOAuth2Exception {
+
+        int stripeIndex = getStripeIndex(lockKey);
+        ReentrantLock stripe = stripes[stripeIndex];
+        if (!stripe.tryLock()) {
+            contendedCounts.incrementAndGet(stripeIndex);
+            try {
+                if (lockTimeoutInMillis > 0) {
+                    if (!stripe.tryLock(lockTimeoutInMillis, TimeUnit.MILLISECONDS)) {
+                        timedOutCounts.incrementAndGet(stripeIndex);
+                        if (log.isDebugEnabled()) {
+                            log.debug("Timed out after " + lockTimeoutInMillis + "ms while waiting for issuance " +
+                                    "lock stripe: " + stripeIndex + ". Proceeding without the lock.");
+                        }
+                        return NOT_ACQUIRED;
+                    }
+                } else {
+                    stripe.lockInterruptibly();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IdentityOAuth2Exception("Interrupted while waiting for the token issuance lock.", e);
+            }
+        }
+        acquiredCounts.incrementAndGet(stripeIndex);
+        return new StripeLock(stripe);
+    }
+
+    /**
+     * Whether the stripe guarding the given key is held by the current thread.
+     *
+     * @param lockKey Issuance lock key.
+     * @return True if the current thread holds the stripe.
+     */
+    public boolean isHeldByCurrentThread(String lockKey) {
+
+        return stripes[getStripeIndex(lockKey)].isHeldByCurrentThread();
+    }
+
+    /**
+     * Get the number of lock stripes.
+     *
+     * @return Stripe count.
+     */
+    public int getStripeCount() {
+
+        return stripes.length;
+    }
+
+    /**
+     * Get the index of the stripe guarding the given key.
+     *
+     * @param lockKey Issuance lock key.
+     * @return Stripe index.
+     */
+    public int getStripeIndex(String lockKey) {
+
+        int hash = lockKey == null ? 0 : lockKey.hashCode();
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    /**
+     * Get the number of times the given stripe was acquired.
+     *
+     * @param stripeIndex Stripe index.
+     * @return Acquisition count.
+     */
+    public long getAcquiredCount(int stripeIndex) {
+
+        return acquiredCounts.get(stripeIndex);
+    }
+
+    /**
+     * Get the number of times a caller had to wait for the given stripe.
+     *
+     * @param stripeIndex Stripe index.
+     * @return Contention count.
+     */
+    public long getContendedCount(int stripeIndex) {
+
+        return contendedCounts.get(stripeIndex);
+    }
+
+    /**
+     * Get the number of times a caller gave up waiting for the given stripe.
+     *
+     * @param stripeIndex Stripe index.
+     * @return Timeout count.
+     */
+    public long getTimedOutCount(int stripeIndex) {
+
+        return timedOutCounts.get(stripeIndex);
+    }
+
+    /**
+     * Get the number of threads currently waiting for the given stripe.
+     *
+     * @param stripeIndex Stripe index.
+     * @return Estimated queue length.
+     */
+    public int getQueueLength(int stripeIndex) {
+
+        return stripes[stripeIndex].getQueueLength();
+    }
+
+    /**
+     * Issuance lock backed by a single stripe.
+     */
+    private static class StripeLock implements IssuanceLock {
+
+        private final ReentrantLock stripe;
+        private boolean released;
+
+        StripeLock(ReentrantLock stripe) {
+
+            this.stripe = stripe;
+        }
+
+        @Override
+        public boolean isAcquired() {
+
+            return !released;
+        }
+
+        @Override
+        public void close() {
+
+            if (!released) {
+                released = true;
+                stripe.unlock();
+            }
+        }
+    }
+}
@@ -23,6 +23,8 @@ import org.wso2.carbon.identity.application.authentication.framework.model.Authe
 import org.wso2.carbon.identity.oauth.cache.CacheEntry;
 import org.wso2.carbon.identity.oauth2.token.bindings.TokenBinding;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.sql.Timestamp;
 
 /**
@@ -36,8 +38,11 @@ public class AccessTokenDO extends CacheEntry {
 
     private AuthenticatedUser authzUser;
 
+    // Scopes of the scope set, shared with it. Kept as the serialized form of the scopes.
     private String[] scope;
 
+    private transient ScopeSet scopeSet;
+
     private String tokenState;
 
     private String refreshToken;
@@ -74,7 +79,7 @@ public class AccessTokenDO extends CacheEntry {
 
         this.consumerKey = consumerKey;
         this.authzUser = authzUser;
-        this.scope = scope;
+        initScopeSet(ScopeSet.of(scope));
         this.issuedTime = issuedTime;
         this.refreshTokenIssuedTime = refreshTokenIssuedTime;
         this.validityPeriod = validityPeriodInMillis / 1000;
@@ -99,7 +104,7 @@ public class AccessTokenDO extends CacheEntry {
 
         this.consumerKey = consumerKey;
         this.authzUser = authzUser;
-        this.scope = scope;
+        initScopeSet(ScopeSet.of(scope));
         this.issuedTime = issuedTime;
         this.refreshTokenIssuedTime = refreshTokenIssuedTime;
         this.validityPeriodInMillis = validityPeriodInMillis;
@@ -118,13 +123,14 @@ public class AccessTokenDO extends CacheEntry {
         AccessTokenDO newTokenDO =  new AccessTokenDO(
                 tokenDO.getConsumerKey(),
                 tokenDO.getAuthzUser(),
-                tokenDO.getScope(),
+                null,
                 tokenDO.getIssuedTime(),
                 tokenDO.getRefreshTokenIssuedTime(),
                 tokenDO.getValidityPeriodInMillis(),
                 tokenDO.getRefreshTokenValidityPeriodInMillis(),
                 tokenDO.getTokenType()
         );
+        newTokenDO.setScopeSet(tokenDO.getScopeSet());
         newTokenDO.setTenantID(tokenDO.getTenantID());
         newTokenDO.setTokenState(tokenDO.getTokenState());
         newTokenDO.setRefreshToken(tokenDO.getRefreshToken());
@@ -165,12 +171,25 @@ public class AccessTokenDO extends CacheEntry {
         this.authzUser = authzUser;
     }
 
+    /**
+     * Get a copy of the scopes. Use {@link #getScopeSet()} to read the scopes without copying them.
+     *
+     * @return Scopes.
+     */
     public String[] getScope() {
-        return scope;
+        return scopeSet == null ? null : scopeSet.getScopes();
     }
 
     public void setScope(String[] scope) {
-        this.scope = scope;
+        setScopeSet(ScopeSet.of(scope));
+    }
+
+    public ScopeSet getScopeSet() {
+        return scopeSet;
+    }
+
+    public void setScopeSet(ScopeSet scopeSet) {
+        initScopeSet(scopeSet);
     }
 
     public Timestamp getIssuedTime() {
@@ -290,4 +309,16 @@ public class AccessTokenDO extends CacheEntry {
 
         this.tokenBinding = tokenBinding;
     }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+
+        in.defaultReadObject();
+        initScopeSet(ScopeSet.of(scope));
+    }
+
+    private void initScopeSet(ScopeSet scopeSet) {
+
+        this.scopeSet = scopeSet;
+        this.scope = scopeSet == null ? null : scopeSet.getSharedScopes();
+    }
 }
@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.model;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.wso2.carbon.identity.oauth2.util.OAuth2ConfigUtil.readIntProperty;
+
+/**
+ * Immutable scopes of a token. Scope sets are interned, hence tokens bearing the same scopes share a single instance
+ * instead of each holding its own copy of the scope array and scope strings. The sorted, space separated scope string
+ * and its hash used to look up tokens are computed once per scope set.
+ * <p>
+ * Scopes are kept in the order they were given in, and can be iterated without copying them. The number of interned
+ * scope sets is bounded, and scope sets created once the bound is reached are interned after a tenth of the interned
+ * scope sets are dropped.
+ */
+public final class ScopeSet implements Iterable<String>, Serializable {
+
+    private static final long serialVersionUID = 3504862739425196378L;
+    private static final Log log = LogFactory.getLog(ScopeSet.class);
+
+    private static final String MAX_INTERNED = "OAuth.ScopeSet.MaxInternedCount";
+    private static final int DEFAULT_MAX_INTERNED = 10000;
+    private static final String SCOPE_SEPARATOR = " ";
+
+    private static final Map<ScopeSet, ScopeSet> INTERNED = new ConcurrentHashMap<>();
+    private static volatile int maxInterned = -1;
+
+    private final String[] scopes;
+    private transient int hashCode;
+    private transient String scopeString;
+    private transient String scopeHash;
+
+    private ScopeSet(String[] scopes) {
+
+        this.scopes = scopes;
+    }
+
+    /**
+     * Get the interned scope set of the given scopes.
+     *
+     * @param scopes Scopes.
+     * @return Scope set, or null if the given scopes are null.
+     */
+    public static ScopeSet of(String[] scopes) {
+
+        if (scopes == null) {
+            return null;
+        }
+        return intern(new ScopeSet(scopes.clone()));
+    }
+
+    /**
+     * Get the scopes, in the order they were given in.
+     *
+     * @return Copy of the scopes.
+     */
+    public String[] getScopes() {
+
+        return scopes.clone();
+    }
+
+    /**
+     * Get the scopes without copying them, for holders of the scope set which keep the scopes as their serialized
+     * form. The returned array must not be modified.
+     *
+     * @return Scopes.
+     */
+    String[] getSharedScopes() {
+
+        return scopes;
+    }
+
+    public int size() {
+
+        return scopes.length;
+    }
+
+    /**
+     * Check whether the scope set contains the given scope.
+     *
+     * @param scope Scope.
+     * @return True if the scope is in the scope set.
+     */
+    public boolean contains(String scope) {
+
+        for (String value : scopes) {
+            if (StringUtils.equals(value, scope)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Iterate over the scopes, in the order they were given in. The scopes cannot be removed through the iterator.
+     *
+     * @return Scope iterator.
+     */
+    @Override
+    public Iterator<String> iterator() {
+
+        return Collections.unmodifiableList(Arrays.asList(scopes)).iterator();
+    }
+
+    /**
+     * Get the scopes sorted and joined with a space, as built by
+     * {@link org.wso2.carbon.identity.oauth2.util.OAuth2Util#buildScopeString(String[])}.
+     *
+     * @return Scope string.
+     */
+    public String getScopeString() {
+
+        String value = scopeString;
+        if (value == null) {
+            String[] sortedScopes = scopes.clone();
+            Arrays.sort(sortedScopes);
+            value = StringUtils.join(sortedScopes, SCOPE_SEPARATOR);
+            scopeString = value;
+        }
+        return value;
+    }
+
+    /**
+     * Get the hash of the scope string, as built by
+     * {@link org.wso2.carbon.identity.oauth2.util.OAuth2Util#hashScopes(String[])}.
+     *
+     * @return Scope hash.
+     */
+    @SuppressFBWarnings("WEAK_MESSAGE_DIGEST_MD5")
+    public String getScopeHash() {
+
+        String value = scopeHash;
+        if (value == null) {
+            value = DigestUtils.md5Hex(getScopeString());
+            scopeHash = value;
+        }
+        return value;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ScopeSet)) {
+            return false;
+        }
+        return Arrays.equals(scopes, ((ScopeSet) o).scopes);
+    }
+
+    @Override
+    public int hashCode() {
+
+        int value = hashCode;
+        if (value == 0) {
+            value = Arrays.hashCode(scopes);
+            hashCode = value;
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+
+        return Arrays.toString(scopes);
+    }
+
+    /**
+     * Get the number of interned scope sets.
+     *
+     * @return Interned scope set count.
+     */
+    public static int getInternedCount() {
+
+        return INTERNED.size();
+    }
+
+    private Object readResolve() {
+
+        return intern(this);
+    }
+
+    private static ScopeSet intern(ScopeSet scopeSet) {
+
+        ScopeSet interned = INTERNED.get(scopeSet);
+        if (interned != null) {
+            return interned;
+        }
+        int maxSize = getMaxInterned();
+        if (INTERNED.size() >= maxSize) {
+            evict(maxSize);
+        }
+        interned = INTERNED.putIfAbsent(scopeSet, scopeSet);
+        return interned != null ? interned : scopeSet;
+    }
+
+    private static void evict(int maxSize) {
+
+        // Drop a tenth of the scope sets at once, so that the map is not scanned for every new scope set once full.
+        int targetSize = maxSize - Math.max(1, maxSize / 10);
+        Iterator<ScopeSet> iterator = INTERNED.keySet().iterator();
+        while (INTERNED.size() > targetSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Interned scope sets reached the maximum count of " + maxSize + ".");
+        }
+    }
+
+    private static int getMaxInterned() {
+
+        int value = maxInterned;
+        if (value < 0) {
+            value = Math.max(readIntProperty(MAX_INTERNED, DEFAULT_MAX_INTERNED), 1);
+            maxInterned = value;
+        }
+        return value;
+    }
+}
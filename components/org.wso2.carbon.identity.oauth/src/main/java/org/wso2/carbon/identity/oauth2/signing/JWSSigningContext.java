@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.signing;
+
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+
+/**
+ * JWS header and signer used to sign JWTs with the signing key of a tenant. The header carries the key id and
+ * certificate thumbprint of the key, and the signer is shared by every JWT signed by the tenant.
+ */
+public class JWSSigningContext {
+
+    private final JWSHeader header;
+    private final JWSSigner signer;
+
+    public JWSSigningContext(JWSHeader header, JWSSigner signer) {
+
+        this.header = header;
+        this.signer = signer;
+    }
+
+    public JWSHeader getHeader() {
+
+        return header;
+    }
+
+    public JWSSigner getSigner() {
+
+        return signer;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.signing;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.base.MultitenantConstants;
+import org.wso2.carbon.core.util.KeyStoreManager;
+import org.wso2.carbon.identity.base.IdentityException;
+import org.wso2.carbon.identity.core.util.IdentityTenantUtil;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+
+import java.security.Key;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.cert.Certificate;
+
+/**
+ * {@link SigningKeyLoader} which reads the default key of the super tenant and the tenant key store of other tenants
+ * through the {@link KeyStoreManager}.
+ */
+public class KeyStoreSigningKeyLoader implements SigningKeyLoader {
+
+    private static final Log log = LogFactory.getLog(KeyStoreSigningKeyLoader.class);
+
+    @Override
+    public Key loadPrivateKey(String tenantDomain, int tenantId) throws IdentityOAuth2Exception {
+
+        KeyStoreManager tenantKSM = getKeyStoreManager(tenantDomain, tenantId);
+        if (!tenantDomain.equals(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME)) {
+            // obtain private key
+            return tenantKSM.getPrivateKey(getKeyStoreName(tenantDomain), tenantDomain);
+        }
+        try {
+            return tenantKSM.getDefaultPrivateKey();
+        } catch (Exception e) {
+            throw new IdentityOAuth2Exception("Error while obtaining private key for super tenant", e);
+        }
+    }
+
+    @Override
+    public Certificate loadCertificate(String tenantDomain, int tenantId) throws IdentityOAuth2Exception {
+
+        if (log.isDebugEnabled()) {
+            log.debug(String.format("Obtaining certificate for the tenant %s", tenantDomain));
+        }
+        KeyStoreManager tenantKSM = getKeyStoreManager(tenantDomain, tenantId);
+        if (!tenantDomain.equals(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME)) {
+            String jksName = getKeyStoreName(tenantDomain);
+            if (log.isDebugEnabled()) {
+                log.debug(String.format("Loading default tenant certificate for tenant : %s from the KeyStore" +
+                        " %s", tenantDomain, jksName));
+            }
+            try {
+                KeyStore keyStore = tenantKSM.getKeyStore(jksName);
+                return keyStore.getCertificate(tenantDomain);
+            } catch (KeyStoreException e) {
+                throw new IdentityOAuth2Exception("Error occurred while loading public certificate for tenant: " +
+                        tenantDomain, e);
+            } catch (Exception e) {
+                throw new IdentityOAuth2Exception("Error occurred while loading Keystore for tenant: " +
+                        tenantDomain, e);
+            }
+        }
+        try {
+            return tenantKSM.getDefaultPrimaryCertificate();
+        } catch (Exception e) {
+            throw new IdentityOAuth2Exception("Error occurred while loading default public " +
+                    "certificate for tenant: " + tenantDomain, e);
+        }
+    }
+
+    private KeyStoreManager getKeyStoreManager(String tenantDomain, int tenantId) throws IdentityOAuth2Exception {
+
+        try {
+            IdentityTenantUtil.initializeRegistry(tenantId, tenantDomain);
+        } catch (IdentityException e) {
+            throw new IdentityOAuth2Exception("Error occurred while loading registry for tenant " + tenantDomain, e);
+        }
+        // get tenant's key store manager
+        return KeyStoreManager.getInstance(tenantId);
+    }
+
+    private String getKeyStoreName(String tenantDomain) {
+
+        // derive key store name
+        return tenantDomain.trim().replace(".", "-") + ".jks";
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.signing;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jca.JCAContext;
+import com.nimbusds.jose.util.Base64URL;
+
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.Provider;
+import java.security.Signature;
+import java.security.interfaces.RSAPrivateKey;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Thread safe RSA {@link JWSSigner} which keeps a small pool of initialized JCA {@link Signature} objects per
+ * algorithm. {@link RSASSASigner} looks up and initializes a new {@link Signature} for every token, whereas a
+ * {@link Signature} is reset to its initialized state after signing and can be reused for the next token.
+ * <p>
+ * Only the RS256, RS384 and RS512 algorithms are pooled. Other algorithms, as well as the key length validation and
+ * the JCA context, are handled by a wrapped {@link RSASSASigner}.
+ */
+public class PooledRSASSASigner implements JWSSigner {
+
+    private static final int POOL_SIZE = Math.min(Math.max(Runtime.getRuntime().availableProcessors() * 2, 4), 64);
+    private static final Map<JWSAlgorithm, String> JCA_ALGORITHMS;
+
+    static {
+        Map<JWSAlgorithm, String> algorithms = new HashMap<>();
+        algorithms.put(JWSAlgorithm.RS256, "SHA256withRSA");
+        algorithms.put(JWSAlgorithm.RS384, "SHA384withRSA");
+        algorithms.put(JWSAlgorithm.RS512, "SHA512withRSA");
+        JCA_ALGORITHMS = Collections.unmodifiableMap(algorithms);
+    }
+
+    private final PrivateKey privateKey;
+    private final RSASSASigner delegate;
+    private final Map<JWSAlgorithm, BlockingQueue<Signature>> pools = new HashMap<>();
+
+    /**
+     * Create a signer.
+     *
+     * @param privateKey   RSA private key.
+     * @param allowWeakKey Whether keys shorter than 2048 bits are allowed.
+     * @throws IllegalArgumentException If the key is shorter than 2048 bits and weak keys are not allowed.
+     */
+    public PooledRSASSASigner(RSAPrivateKey privateKey, boolean allowWeakKey) {
+
+        this.privateKey = privateKey;
+        this.delegate = new RSASSASigner(privateKey, allowWeakKey);
+        for (JWSAlgorithm algorithm : JCA_ALGORITHMS.keySet()) {
+            pools.put(algorithm, new ArrayBlockingQueue<>(POOL_SIZE));
+        }
+    }
+
+    @Override
+    public Base64URL sign(JWSHeader header, byte[] signingInput) throws JOSEException {
+
+        JWSAlgorithm algorithm = header.getAlgorithm();
+        BlockingQueue<Signature> pool = pools.get(algorithm);
+        if (pool == null) {
+            return delegate.sign(header, signingInput);
+        }
+        Signature signature = pool.poll();
+        try {
+            if (signature == null) {
+                signature = newSignature(algorithm);
+            }
+            signature.update(signingInput);
+            Base64URL signed = Base64URL.encode(signature.sign());
+            // A signature which failed half way is not returned to the pool.
+            pool.offer(signature);
+            return signed;
+        } catch (GeneralSecurityException e) {
+            throw new JOSEException("RSA signature exception: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Set<JWSAlgorithm> supportedJWSAlgorithms() {
+
+        return delegate.supportedJWSAlgorithms();
+    }
+
+    @Override
+    public JCAContext getJCAContext() {
+
+        return delegate.getJCAContext();
+    }
+
+    /**
+     * Get the private key used by this signer.
+     *
+     * @return Private key.
+     */
+    public PrivateKey getPrivateKey() {
+
+        return privateKey;
+    }
+
+    private Signature newSignature(JWSAlgorithm algorithm) throws GeneralSecurityException {
+
+        Provider provider = getJCAContext().getProvider();
+        String jcaAlgorithm = JCA_ALGORITHMS.get(algorithm);
+        Signature signature = provider != null ? Signature.getInstance(jcaAlgorithm, provider) :
+                Signature.getInstance(jcaAlgorithm);
+        signature.initSign(privateKey);
+        return signature;
+    }
+}
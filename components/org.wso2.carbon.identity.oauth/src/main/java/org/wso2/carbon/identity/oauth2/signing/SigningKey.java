@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.signing;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSSigner;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+import org.wso2.carbon.identity.oauth2.internal.OAuth2ServiceComponentHolder;
+import org.wso2.carbon.identity.oauth2.keyidprovider.KeyIDProvider;
+import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
+
+import java.security.Key;
+import java.security.cert.Certificate;
+import java.security.interfaces.RSAPrivateKey;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Signing key material of a single tenant held by the {@link SigningKeyRegistry}. The private key, certificate,
+ * thumbprint, key ids and signer are loaded on first use and reused for every token signed by the tenant.
+ */
+public class SigningKey {
+
+    // System flag to allow the weak keys (key length less than 2048) to be used for the signing.
+    private static final String ALLOW_WEAK_RSA_SIGNER_KEY = "allow_weak_rsa_signer_key";
+
+    private final String tenantDomain;
+    private final int tenantId;
+    private final SigningKeyLoader loader;
+    private final Map<JWSAlgorithm, String> keyIds = new ConcurrentHashMap<>();
+    private final AtomicLong nextRevalidationTime;
+    private volatile Key privateKey;
+    private volatile Certificate certificate;
+    private volatile String thumbPrint;
+    private volatile JWSSigner signer;
+    private volatile KeyIDProvider keyIdProvider;
+    private volatile long lastAccessTime;
+
+    SigningKey(String tenantDomain, int tenantId, SigningKeyLoader loader, long nextRevalidationTime) {
+
+        this.tenantDomain = tenantDomain;
+        this.tenantId = tenantId;
+        this.loader = loader;
+        this.nextRevalidationTime = new AtomicLong(nextRevalidationTime);
+        this.lastAccessTime = System.currentTimeMillis();
+    }
+
+    public String getTenantDomain() {
+
+        return tenantDomain;
+    }
+
+    public int getTenantId() {
+
+        return tenantId;
+    }
+
+    /**
+     * Get the private key of the tenant.
+     *
+     * @return Private key.
+     * @throws IdentityOAuth2Exception When failed to load the private key.
+     */
+    public Key getPrivateKey() throws IdentityOAuth2Exception {
+
+        Key key = privateKey;
+        if (key == null) {
+            synchronized (this) {
+                key = privateKey;
+                if (key == null) {
+                    key = loader.loadPrivateKey(tenantDomain, tenantId);
+                    privateKey = key;
+                }
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Get the public certificate of the tenant.
+     *
+     * @return Certificate, or null if the tenant has no certificate.
+     * @throws IdentityOAuth2Exception When failed to load the certificate.
+     */
+    public Certificate getCertificate() throws IdentityOAuth2Exception {
+
+        Certificate cert = certificate;
+        if (cert == null) {
+            synchronized (this) {
+                cert = certificate;
+                if (cert == null) {
+                    cert = loader.loadCertificate(tenantDomain, tenantId);
+                    certificate = cert;
+                }
+            }
+        }
+        return cert;
+    }
+
+    /**
+     * Get the SHA-256 thumbprint of the tenant certificate.
+     *
+     * @return Thumbprint.
+     * @throws IdentityOAuth2Exception When failed to load the certificate or to compute the thumbprint.
+     */
+    public String getThumbPrint() throws IdentityOAuth2Exception {
+
+        String value = thumbPrint;
+        if (value == null) {
+            Certificate cert = getCertificate();
+            if (cert == null) {
+                throw new IdentityOAuth2Exception("Certificate is not available for tenant " + tenantDomain);
+            }
+            value = OAuth2Util.getThumbPrint(cert);
+            thumbPrint = value;
+        }
+        return value;
+    }
+
+    /**
+     * Get the key id of the tenant certificate for the given algorithm. Key ids are computed through the registered
+     * {@link KeyIDProvider} and recomputed when a different provider is registered.
+     *
+     * @param signatureAlgorithm Signature algorithm.
+     * @return Key id.
+     * @throws IdentityOAuth2Exception When failed to compute the key id.
+     */
+    public String getKeyId(JWSAlgorithm signatureAlgorithm) throws IdentityOAuth2Exception {
+
+        KeyIDProvider provider = OAuth2ServiceComponentHolder.getKeyIDProvider();
+        if (provider != keyIdProvider) {
+            keyIds.clear();
+            keyIdProvider = provider;
+        }
+        String keyId = keyIds.get(signatureAlgorithm);
+        if (keyId == null) {
+            keyId = provider.getKeyId(getCertificate(), signatureAlgorithm, tenantDomain);
+            if (keyId != null) {
+                keyIds.put(signatureAlgorithm, keyId);
+            }
+        }
+        return keyId;
+    }
+
+    /**
+     * Get a thread safe signer for the private key of the tenant.
+     *
+     * @return Signer.
+     * @throws IdentityOAuth2Exception When the private key is not an RSA key or failed to load it.
+     */
+    public JWSSigner getSigner() throws IdentityOAuth2Exception {
+
+        JWSSigner jwsSigner = signer;
+        if (jwsSigner == null) {
+            Key key = getPrivateKey();
+            if (!(key instanceof RSAPrivateKey)) {
+                throw new IdentityOAuth2Exception("RSA private key is not available for tenant " + tenantDomain);
+            }
+            try {
+                jwsSigner = new PooledRSASSASigner((RSAPrivateKey) key,
+                        Boolean.parseBoolean(System.getProperty(ALLOW_WEAK_RSA_SIGNER_KEY)));
+            } catch (IllegalArgumentException e) {
+                throw new IdentityOAuth2Exception("Signing key of tenant " + tenantDomain + " is not allowed.", e);
+            }
+            signer = jwsSigner;
+        }
+        return jwsSigner;
+    }
+
+    /**
+     * Get the certificate if it was already loaded, without loading it.
+     *
+     * @return Loaded certificate or null.
+     */
+    Certificate getLoadedCertificate() {
+
+        return certificate;
+    }
+
+    long getLastAccessTime() {
+
+        return lastAccessTime;
+    }
+
+    void touch(long now) {
+
+        // Avoid writing the shared field on every access.
+        if (now - lastAccessTime > 1000) {
+            lastAccessTime = now;
+        }
+    }
+
+    /**
+     * Claim the next revalidation of this key. Only one caller wins per interval.
+     *
+     * @param now      Current time.
+     * @param interval Revalidation interval.
+     * @return True if the caller should revalidate the key.
+     */
+    boolean claimRevalidation(long now, long interval) {
+
+        long next = nextRevalidationTime.get();
+        return now >= next && nextRevalidationTime.compareAndSet(next, now + interval);
+    }
+}
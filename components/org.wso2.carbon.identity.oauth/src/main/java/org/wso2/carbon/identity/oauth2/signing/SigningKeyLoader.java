@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.signing;
+
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+
+import java.security.Key;
+import java.security.cert.Certificate;
+
+/**
+ * Loads the signing key material of a tenant for the {@link SigningKeyRegistry}.
+ */
+public interface SigningKeyLoader {
+
+    /**
+     * Load the private key used to sign tokens issued by the tenant.
+     *
+     * @param tenantDomain Tenant domain.
+     * @param tenantId     Tenant id.
+     * @return Private key of the tenant.
+     * @throws IdentityOAuth2Exception When failed to load the private key.
+     */
+    Key loadPrivateKey(String tenantDomain, int tenantId) throws IdentityOAuth2Exception;
+
+    /**
+     * Load the public certificate matching the signing key of the tenant.
+     *
+     * @param tenantDomain Tenant domain.
+     * @param tenantId     Tenant id.
+     * @return Certificate of the tenant, or null if the tenant has no certificate.
+     * @throws IdentityOAuth2Exception When failed to load the certificate.
+     */
+    Certificate loadCertificate(String tenantDomain, int tenantId) throws IdentityOAuth2Exception;
+}
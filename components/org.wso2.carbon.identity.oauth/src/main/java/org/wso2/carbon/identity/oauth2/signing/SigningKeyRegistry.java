@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.signing;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+
+import java.security.cert.Certificate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.wso2.carbon.identity.oauth2.util.OAuth2ConfigUtil.readLongProperty;
+
+/**
+ * Per tenant cache of the {@link SigningKey} used to sign tokens. The number of cached tenants is bounded and the
+ * least recently used tenant is evicted once the bound is exceeded.
+ * <p>
+ * The certificate of a cached tenant is reloaded once per revalidation interval. If it no longer matches the cached
+ * certificate, the key store of the tenant was changed and the cached key material is replaced. Keys can also be
+ * invalidated explicitly, e.g. when a tenant is deactivated.
+ */
+public class SigningKeyRegistry {
+
+    private static final Log log = LogFactory.getLog(SigningKeyRegistry.class);
+
+    private static final String MAX_SIZE = "OAuth.SigningKeyCache.MaxSize";
+    private static final String REVALIDATION_INTERVAL = "OAuth.SigningKeyCache.RevalidationIntervalInSeconds";
+    private static final int DEFAULT_MAX_SIZE = 1000;
+    private static final long DEFAULT_REVALIDATION_INTERVAL = 300;
+
+    private static volatile SigningKeyRegistry instance;
+    private static final List<SigningKeyChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+
+    private final Map<Integer, SigningKey> signingKeys = new ConcurrentHashMap<>();
+    private final SigningKeyLoader loader;
+    private final int maxSize;
+    private final long revalidationIntervalInMillis;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong invalidationCount = new AtomicLong();
+    private final AtomicLong keyStoreChangeCount = new AtomicLong();
+
+    /**
+     * Create a registry.
+     *
+     * @param loader                       Loader of the tenant key material.
+     * @param maxSize                      Maximum number of cached tenants.
+     * @param revalidationIntervalInMillis Interval at which the certificate of a cached tenant is reloaded to detect
+     *                                     key store changes. A non positive value disables revalidation.
+     */
+    public SigningKeyRegistry(SigningKeyLoader loader, int maxSize, long revalidationIntervalInMillis) {
+
+        this.loader = loader;
+        this.maxSize = Math.max(maxSize, 1);
+        this.revalidationIntervalInMillis = revalidationIntervalInMillis;
+    }
+
+    /**
+     * Get the registry backed by the tenant key stores, using the values configured in identity.xml.
+     *
+     * @return Signing key registry.
+     */
+    public static SigningKeyRegistry getInstance() {
+
+        if (instance == null) {
+            synchronized (SigningKeyRegistry.class) {
+                if (instance == null) {
+                    instance = new SigningKeyRegistry(new KeyStoreSigningKeyLoader(),
+                            (int) readLongProperty(MAX_SIZE, DEFAULT_MAX_SIZE),
+                            TimeUnit.SECONDS.toMillis(readLongProperty(REVALIDATION_INTERVAL,
+                                    DEFAULT_REVALIDATION_INTERVAL)));
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Register a listener notified when the signing key of a tenant is invalidated or changed.
+     *
+     * @param listener Listener.
+     */
+    public static void addChangeListener(SigningKeyChangeListener listener) {
+
+        changeListeners.add(listener);
+    }
+
+    /**
+     * Remove a listener registered through {@link #addChangeListener(SigningKeyChangeListener)}.
+     *
+     * @param listener Listener.
+     */
+    public static void removeChangeListener(SigningKeyChangeListener listener) {
+
+        changeListeners.remove(listener);
+    }
+
+    /**
+     * Get the signing key of a tenant.
+     *
+     * @param tenantDomain Tenant domain.
+     * @param tenantId     Tenant id.
+     * @return Signing key of the tenant. Key material is loaded on first use.
+     */
+    public SigningKey getSigningKey(String tenantDomain, int tenantId) {
+
+        long now = System.currentTimeMillis();
+        SigningKey signingKey = signingKeys.get(tenantId);
+        if (signingKey == null) {
+            missCount.incrementAndGet();
+            SigningKey created = new SigningKey(tenantDomain, tenantId, loader, now + revalidationIntervalInMillis);
+            signingKey = signingKeys.putIfAbsent(tenantId, created);
+            if (signingKey == null) {
+                signingKey = created;
+                evictIfFull();
+            }
+        } else {
+            hitCount.incrementAndGet();
+            if (revalidationIntervalInMillis > 0 &&
+                    signingKey.claimRevalidation(now, revalidationIntervalInMillis)) {
+                signingKey = revalidate(signingKey, now);
+            }
+        }
+        signingKey.touch(now);
+        return signingKey;
+    }
+
+    /**
+     * Remove the cached key material of a tenant.
+     *
+     * @param tenantId Tenant id.
+     */
+    public void invalidate(int tenantId) {
+
+        if (signingKeys.remove(tenantId) != null) {
+            invalidationCount.incrementAndGet();
+            if (log.isDebugEnabled()) {
+                log.debug("Invalidated cached signing key of tenant: " + tenantId);
+            }
+        }
+        notifyChange(tenantId);
+    }
+
+    /**
+     * Remove the cached key material of every tenant.
+     */
+    public void invalidateAll() {
+
+        for (Integer tenantId : signingKeys.keySet()) {
+            invalidate(tenantId);
+        }
+    }
+
+    public int getSize() {
+
+        return signingKeys.size();
+    }
+
+    public long getHitCount() {
+
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+
+        return evictionCount.get();
+    }
+
+    public long getInvalidationCount() {
+
+        return invalidationCount.get();
+    }
+
+    /**
+     * Get the number of times a changed tenant certificate was detected during revalidation.
+     *
+     * @return Key store change count.
+     */
+    public long getKeyStoreChangeCount() {
+
+        return keyStoreChangeCount.get();
+    }
+
+    private SigningKey revalidate(SigningKey signingKey, long now) {
+
+        Certificate cached = signingKey.getLoadedCertificate();
+        if (cached == null) {
+            // Nothing loaded yet, hence nothing can be stale.
+            return signingKey;
+        }
+        try {
+            Certificate current = loader.loadCertificate(signingKey.getTenantDomain(), signingKey.getTenantId());
+            if (current == null || current.equals(cached)) {
+                return signingKey;
+            }
+            keyStoreChangeCount.incrementAndGet();
+            if (log.isDebugEnabled()) {
+                log.debug("Signing certificate of tenant: " + signingKey.getTenantDomain() + " has changed. " +
+                        "Reloading the signing key.");
+            }
+            SigningKey reloaded = new SigningKey(signingKey.getTenantDomain(), signingKey.getTenantId(), loader,
+                    now + revalidationIntervalInMillis);
+            if (signingKeys.replace(signingKey.getTenantId(), signingKey, reloaded)) {
+                notifyChange(signingKey.getTenantId());
+                return reloaded;
+            }
+            SigningKey latest = signingKeys.get(signingKey.getTenantId());
+            return latest != null ? latest : reloaded;
+        } catch (IdentityOAuth2Exception e) {
+            log.warn("Error while revalidating the signing certificate of tenant: " +
+                    signingKey.getTenantDomain() + ". Continuing with the cached signing key.", e);
+            return signingKey;
+        }
+    }
+
+    private void notifyChange(int tenantId) {
+
+        for (SigningKeyChangeListener listener : changeListeners) {
+            try {
+                listener.onSigningKeyChange(tenantId);
+            } catch (RuntimeException e) {
+                log.error("Error while notifying signing key change of tenant: " + tenantId, e);
+            }
+        }
+    }
+
+    private void evictIfFull() {
+
+        while (signingKeys.size() > maxSize) {
+            Map.Entry<Integer, SigningKey> eldest = null;
+            for (Map.Entry<Integer, SigningKey> entry : signingKeys.entrySet()) {
+                if (eldest == null ||
+                        entry.getValue().getLastAccessTime() < eldest.getValue().getLastAccessTime()) {
+                    eldest = entry;
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            if (signingKeys.remove(eldest.getKey(), eldest.getValue())) {
+                evictionCount.incrementAndGet();
+                if (log.isDebugEnabled()) {
+                    log.debug("Evicted cached signing key of tenant: " + eldest.getKey());
+                }
+            }
+        }
+    }
+}
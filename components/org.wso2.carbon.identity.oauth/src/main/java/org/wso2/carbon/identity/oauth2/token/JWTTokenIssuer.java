@@ -49,8 +49,6 @@ import org.wso2.carbon.identity.oauth2.token.handlers.grant.AuthorizationGrantHa
 import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
 import org.wso2.carbon.identity.openidconnect.CustomClaimsCallbackHandler;
 
-import java.security.Key;
-import java.security.interfaces.RSAPrivateKey;
 import java.text.ParseException;
 import java.util.Arrays;
 import java.util.Calendar;
@@ -60,8 +58,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
-import static org.wso2.carbon.identity.oauth2.util.OAuth2Util.getPrivateKey;
-
 /**
  * Self contained access token builder.
  */
@@ -330,12 +326,10 @@ public class JWTTokenIssuer extends OauthTokenIssuerImpl {
             // Add claim with signer tenant to jwt claims set.
             jwtClaimsSet = setSignerRealm(tenantDomain, jwtClaimsSet);
 
-            Key privateKey = getPrivateKey(tenantDomain, tenantId);
-            JWSSigner signer = OAuth2Util.createJWSSigner((RSAPrivateKey) privateKey);
+            JWSSigner signer = OAuth2Util.getJWSSigner(tenantDomain, tenantId);
             JWSHeader.Builder headerBuilder = new JWSHeader.Builder((JWSAlgorithm) signatureAlgorithm);
             String certThumbPrint = OAuth2Util.getThumbPrint(tenantDomain, tenantId);
-            headerBuilder.keyID(OAuth2Util.getKID(OAuth2Util.getCertificate(tenantDomain, tenantId),
-                    (JWSAlgorithm) signatureAlgorithm, tenantDomain));
+            headerBuilder.keyID(OAuth2Util.getKID(tenantDomain, tenantId, (JWSAlgorithm) signatureAlgorithm));
             // Set the required "typ" header "at+jwt" for access tokens issued by the issuer
             headerBuilder.type(new JOSEObjectType(DEFAULT_TYP_HEADER_VALUE));
             headerBuilder.x509CertThumbprint(new Base64URL(certThumbPrint));
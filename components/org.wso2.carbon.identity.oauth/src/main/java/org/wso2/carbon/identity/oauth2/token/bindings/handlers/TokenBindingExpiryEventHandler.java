@@ -356,14 +356,15 @@ public class TokenBindingExpiryEventHandler extends AbstractEventHandler {
                     + accessTokenDO.getAuthzUser().getLoggableUserId());
         }
         OAuthUtil.clearOAuthCache(consumerKey, accessTokenDO.getAuthzUser(), OAuth2Util.buildScopeString
-                (accessTokenDO.getScope()), tokenBindingReference);
+                (accessTokenDO.getScopeSet()), tokenBindingReference);
         OAuthUtil.clearOAuthCache(consumerKey, accessTokenDO.getAuthzUser(), OAuth2Util.buildScopeString
-                (accessTokenDO.getScope()));
+                (accessTokenDO.getScopeSet()));
         OAuthUtil.clearOAuthCache(consumerKey, accessTokenDO.getAuthzUser());
         OAuthUtil.clearOAuthCache(accessTokenDO);
         OAuthUtil.invokePreRevocationBySystemListeners(accessTokenDO, Collections.emptyMap());
         OAuthTokenPersistenceFactory.getInstance().getAccessTokenDAO()
                 .revokeAccessTokens(new String[]{accessTokenDO.getAccessToken()}, OAuth2Util.isHashEnabled());
+        OAuthUtil.clearOAuthCacheOfRevokedToken(consumerKey, accessTokenDO);
         OAuthUtil.invokePostRevocationBySystemListeners(accessTokenDO, Collections.emptyMap());
     }
 }
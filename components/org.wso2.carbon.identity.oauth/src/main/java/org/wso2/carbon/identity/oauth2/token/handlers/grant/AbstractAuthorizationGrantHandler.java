@@ -45,9 +45,13 @@ import org.wso2.carbon.identity.oauth.dao.OAuthAppDO;
 import org.wso2.carbon.identity.oauth.internal.OAuthComponentServiceHolder;
 import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
 import org.wso2.carbon.identity.oauth2.OAuth2Service;
+import org.wso2.carbon.identity.oauth2.dao.AccessContextTokenDO;
+import org.wso2.carbon.identity.oauth2.dao.AccessTokenPersistencePipeline;
 import org.wso2.carbon.identity.oauth2.dao.OAuthTokenPersistenceFactory;
 import org.wso2.carbon.identity.oauth2.dto.OAuth2AccessTokenReqDTO;
 import org.wso2.carbon.identity.oauth2.dto.OAuth2AccessTokenRespDTO;
+import org.wso2.carbon.identity.oauth2.internal.OAuth2ServiceComponentHolder;
+import org.wso2.carbon.identity.oauth2.lock.IssuanceLock;
 import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
 import org.wso2.carbon.identity.oauth2.token.OAuthTokenReqMessageContext;
 import org.wso2.carbon.identity.oauth2.token.OauthTokenIssuer;
@@ -143,7 +147,8 @@ public abstract class AbstractAuthorizationGrantHandler implements Authorization
                     "Error while retrieving oauth issuer for the app with clientId: " + consumerKey, e);
         }
 
-        synchronized ((consumerKey + ":" + authorizedUserId + ":" + scope + ":" + tokenBindingReference).intern()) {
+        try (IssuanceLock ignored = OAuth2ServiceComponentHolder.getIssuanceLockManager().acquire(
+                consumerKey + ":" + authorizedUserId + ":" + scope + ":" + tokenBindingReference)) {
             AccessTokenDO existingTokenBean = null;
             if (isHashDisabled) {
                 existingTokenBean = getExistingToken(tokReqMsgCtx,
@@ -331,6 +336,12 @@ public abstract class AbstractAuthorizationGrantHandler implements Authorization
                                     AccessTokenDO newTokenBean, String newAccessToken, AccessTokenDO
                                             existingTokenBean) throws IdentityOAuth2Exception {
         try {
+            AccessTokenPersistencePipeline persistencePipeline = AccessTokenPersistencePipeline.getInstance();
+            if (persistencePipeline != null) {
+                persistencePipeline.persist(new AccessContextTokenDO(newAccessToken,
+                        oAuth2AccessTokenReqDTO.getClientId(), newTokenBean, existingTokenBean, userStoreDomain));
+                return;
+            }
             OAuthTokenPersistenceFactory.getInstance().getAccessTokenDAO()
                     .insertAccessToken(newAccessToken, oAuth2AccessTokenReqDTO.getClientId(),
                     newTokenBean, existingTokenBean, userStoreDomain);
@@ -411,7 +422,7 @@ public abstract class AbstractAuthorizationGrantHandler implements Authorization
         }
 
         // Update cache with newly added token.
-        updateCacheIfEnabled(newTokenBean, OAuth2Util.buildScopeString(tokReqMsgCtx.getScope()), oauthTokenIssuer);
+        updateCacheIfEnabled(newTokenBean, OAuth2Util.buildScopeString(newTokenBean.getScopeSet()), oauthTokenIssuer);
         return createResponseWithTokenBean(newTokenBean, validityPeriodInMillis, scope);
     }
 
@@ -985,9 +996,9 @@ public abstract class AbstractAuthorizationGrantHandler implements Authorization
             String tokenBindingReference = getTokenBindingReference(tokenMsgCtx);
 
             OAuthUtil.clearOAuthCache(existingTokenBean.getConsumerKey(), existingTokenBean.getAuthzUser(),
-                    OAuth2Util.buildScopeString(existingTokenBean.getScope()), tokenBindingReference);
+                    OAuth2Util.buildScopeString(existingTokenBean.getScopeSet()), tokenBindingReference);
             OAuthUtil.clearOAuthCache(existingTokenBean.getConsumerKey(), existingTokenBean.getAuthzUser(),
-                    OAuth2Util.buildScopeString(existingTokenBean.getScope()));
+                    OAuth2Util.buildScopeString(existingTokenBean.getScopeSet()));
             OAuthUtil.clearOAuthCache(existingTokenBean.getConsumerKey(), existingTokenBean.getAuthzUser());
             OAuthUtil.clearOAuthCache(existingTokenBean);
         }
@@ -1014,7 +1025,7 @@ public abstract class AbstractAuthorizationGrantHandler implements Authorization
      * @param tokReqMsgCtx OAuthTokenReqMessageContext.
      * @return token binding reference.
      */
-    private String getTokenBindingReference(OAuthTokenReqMessageContext tokReqMsgCtx) {
+    protected String getTokenBindingReference(OAuthTokenReqMessageContext tokReqMsgCtx) {
 
         if (tokReqMsgCtx.getTokenBinding() == null) {
             if (log.isDebugEnabled()) {
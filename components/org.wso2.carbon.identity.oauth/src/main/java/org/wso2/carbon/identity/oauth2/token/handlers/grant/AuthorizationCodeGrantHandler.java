@@ -589,9 +589,9 @@ public class AuthorizationCodeGrantHandler extends AbstractAuthorizationGrantHan
             }
 
             OAuthUtil.clearOAuthCache(accessTokenDO.getConsumerKey(), accessTokenDO.getAuthzUser(),
-                    OAuth2Util.buildScopeString(accessTokenDO.getScope()), tokenBindingReference);
+                    OAuth2Util.buildScopeString(accessTokenDO.getScopeSet()), tokenBindingReference);
             OAuthUtil.clearOAuthCache(accessTokenDO.getConsumerKey(), accessTokenDO.getAuthzUser(),
-                    OAuth2Util.buildScopeString(accessTokenDO.getScope()));
+                    OAuth2Util.buildScopeString(accessTokenDO.getScopeSet()));
             OAuthUtil.clearOAuthCache(accessTokenDO.getConsumerKey(), accessTokenDO.getAuthzUser());
             OAuthUtil.clearOAuthCache(accessTokenDO.getAccessToken());
 
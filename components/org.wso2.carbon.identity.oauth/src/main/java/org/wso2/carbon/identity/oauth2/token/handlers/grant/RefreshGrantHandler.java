@@ -43,6 +43,7 @@ import org.wso2.carbon.identity.oauth2.dao.OAuthTokenPersistenceFactory;
 import org.wso2.carbon.identity.oauth2.dto.OAuth2AccessTokenReqDTO;
 import org.wso2.carbon.identity.oauth2.dto.OAuth2AccessTokenRespDTO;
 import org.wso2.carbon.identity.oauth2.internal.OAuth2ServiceComponentHolder;
+import org.wso2.carbon.identity.oauth2.lock.IssuanceLock;
 import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
 import org.wso2.carbon.identity.oauth2.model.RefreshTokenValidationDataDO;
 import org.wso2.carbon.identity.oauth2.token.OAuthTokenReqMessageContext;
@@ -111,8 +112,23 @@ public class RefreshGrantHandler extends AbstractAuthorizationGrantHandler {
             return handleError(OAuth2ErrorCodes.INVALID_GRANT, "Refresh token is expired.", tokenReq);
         }
 
-        AccessTokenDO accessTokenBean = createAccessTokenBean(tokReqMsgCtx, tokenReq, validationBean);
-        persistNewToken(tokReqMsgCtx, accessTokenBean, tokenReq.getClientId());
+        String authorizedUserId;
+        try {
+            authorizedUserId = tokReqMsgCtx.getAuthorizedUser().getUserId();
+        } catch (UserIdNotFoundException e) {
+            throw new IdentityOAuth2Exception(
+                    "User id is not available for user: " + tokReqMsgCtx.getAuthorizedUser().getLoggableUserId(), e);
+        }
+        AccessTokenDO accessTokenBean;
+        // Serialize with other grants issuing tokens for the same client, user, scope and binding so that the
+        // previous token is not invalidated concurrently.
+        try (IssuanceLock ignored = OAuth2ServiceComponentHolder.getIssuanceLockManager().acquire(
+                tokenReq.getClientId() + ":" + authorizedUserId + ":" +
+                        OAuth2Util.buildScopeString(tokReqMsgCtx.getScope()) + ":" +
+                        getTokenBindingReference(tokReqMsgCtx))) {
+            accessTokenBean = createAccessTokenBean(tokReqMsgCtx, tokenReq, validationBean);
+            persistNewToken(tokReqMsgCtx, accessTokenBean, tokenReq.getClientId());
+        }
         if (log.isDebugEnabled()) {
             log.debug("Persisted an access token for the refresh token, " +
                     "Client ID : " + tokenReq.getClientId() +
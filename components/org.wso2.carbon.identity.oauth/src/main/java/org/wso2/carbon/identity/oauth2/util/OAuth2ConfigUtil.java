@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.util;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+
+/**
+ * Utility methods to read the optional tuning properties of identity.xml. A property which is not set, or which is
+ * not a number, falls back to the given default.
+ * <p>
+ * These are kept out of {@link OAuth2Util} and {@link org.wso2.carbon.identity.oauth.config.OAuthServerConfiguration}
+ * so that classes reading their properties on creation keep the defaults when those classes are mocked.
+ */
+public class OAuth2ConfigUtil {
+
+    private static final Log log = LogFactory.getLog(OAuth2ConfigUtil.class);
+
+    private OAuth2ConfigUtil() {
+
+    }
+
+    /**
+     * Read an integer property of identity.xml.
+     *
+     * @param property     Property key.
+     * @param defaultValue Value used if the property is not set or is invalid.
+     * @return Property value.
+     */
+    public static int readIntProperty(String property, int defaultValue) {
+
+        String value = IdentityUtil.getProperty(property);
+        if (StringUtils.isNotBlank(value)) {
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                log.error("Provided config value in " + property + " should be an integer type. Value : " + value);
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Read a long property of identity.xml.
+     *
+     * @param property     Property key.
+     * @param defaultValue Value used if the property is not set or is invalid.
+     * @return Property value.
+     */
+    public static long readLongProperty(String property, long defaultValue) {
+
+        String value = IdentityUtil.getProperty(property);
+        if (StringUtils.isNotBlank(value)) {
+            try {
+                return Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                log.error("Provided config value in " + property + " should be an integer type. Value : " + value);
+            }
+        }
+        return defaultValue;
+    }
+}
@@ -109,6 +109,7 @@ import org.wso2.carbon.identity.oauth2.authz.OAuthAuthzReqMessageContext;
 import org.wso2.carbon.identity.oauth2.bean.OAuthClientAuthnContext;
 import org.wso2.carbon.identity.oauth2.bean.Scope;
 import org.wso2.carbon.identity.oauth2.bean.ScopeBinding;
+import org.wso2.carbon.identity.oauth2.cache.InactiveTokenCache;
 import org.wso2.carbon.identity.oauth2.config.SpOAuth2ExpiryTimeConfiguration;
 import org.wso2.carbon.identity.oauth2.dao.OAuthTokenPersistenceFactory;
 import org.wso2.carbon.identity.oauth2.dto.OAuth2IntrospectionResponseDTO;
@@ -118,6 +119,9 @@ import org.wso2.carbon.identity.oauth2.dto.OAuthRevocationRequestDTO;
 import org.wso2.carbon.identity.oauth2.internal.OAuth2ServiceComponentHolder;
 import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
 import org.wso2.carbon.identity.oauth2.model.ClientCredentialDO;
+import org.wso2.carbon.identity.oauth2.model.ScopeSet;
+import org.wso2.carbon.identity.oauth2.signing.JWSSigningContext;
+import org.wso2.carbon.identity.oauth2.signing.SigningKeyRegistry;
 import org.wso2.carbon.identity.oauth2.token.JWTTokenIssuer;
 import org.wso2.carbon.identity.oauth2.token.OAuthTokenReqMessageContext;
 import org.wso2.carbon.identity.oauth2.token.OauthTokenIssuer;
@@ -148,8 +152,6 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
-import java.security.KeyStore;
-import java.security.KeyStoreException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.Certificate;
@@ -163,15 +165,16 @@ import java.sql.Timestamp;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -307,14 +310,13 @@ public class OAuth2Util {
     private static ThreadLocal<Integer> clientTenantId = new ThreadLocal<>();
     private static ThreadLocal<OAuthTokenReqMessageContext> tokenRequestContext = new ThreadLocal<>();
     private static ThreadLocal<OAuthAuthzReqMessageContext> authzRequestContext = new ThreadLocal<>();
+    // Results of a bulk access token lookup. A null value denotes an identifier without an active token.
+    private static ThreadLocal<Map<String, AccessTokenDO>> prefetchedAccessTokens = new ThreadLocal<>();
     //Precompile PKCE Regex pattern for performance improvement
     private static Pattern pkceCodeVerifierPattern = Pattern.compile("[\\w\\-\\._~]+");
     // System flag to allow the weak keys (key length less than 2048) to be used for the signing.
     private static final String ALLOW_WEAK_RSA_SIGNER_KEY = "allow_weak_rsa_signer_key";
 
-    private static Map<Integer, Certificate> publicCerts = new ConcurrentHashMap<Integer, Certificate>();
-    private static Map<Integer, Key> privateKeys = new ConcurrentHashMap<Integer, Key>();
-
     // Supported Signature Algorithms
     private static final String NONE = "NONE";
     private static final String SHA256_WITH_RSA = "SHA256withRSA";
@@ -458,6 +460,21 @@ public class OAuth2Util {
         return null;
     }
 
+    /**
+     * Build the space separated list of the scopes of a scope set, sorted as done by
+     * {@link #buildScopeString(String[])}. The scope string is computed once per scope set.
+     *
+     * @param scopeSet scope set
+     * @return Space separated list of scopes
+     */
+    public static String buildScopeString(ScopeSet scopeSet) {
+
+        if (scopeSet != null) {
+            return scopeSet.getScopeString();
+        }
+        return null;
+    }
+
     /**
      * @param scopeStr
      * @return
@@ -1210,9 +1227,21 @@ public class OAuth2Util {
     @SuppressFBWarnings("WEAK_MESSAGE_DIGEST_MD5")
     public static String hashScopes(String[] scope) {
 
+        // Scopes given here may come from the request, hence they are not interned.
         return DigestUtils.md5Hex(OAuth2Util.buildScopeString(scope));
     }
 
+    /**
+     * Hash the scopes of a scope set, as done by {@link #hashScopes(String[])}.
+     *
+     * @param scopeSet scope set
+     * @return Hash of the scopes
+     */
+    public static String hashScopes(ScopeSet scopeSet) {
+
+        return scopeSet.getScopeHash();
+    }
+
     @SuppressFBWarnings("WEAK_MESSAGE_DIGEST_MD5")
     public static String hashScopes(String scope) {
 
@@ -1749,15 +1778,24 @@ public class OAuth2Util {
             throws IdentityOAuth2Exception {
 
         boolean cacheHit = false;
+        boolean prefetchHit = false;
         AccessTokenDO accessTokenDO = null;
 
         // As the server implementation knows about the PersistenceProcessor Processed Access Token,
         // we are converting before adding to the cache.
         String processedToken = getPersistenceProcessor().getProcessedAccessTokenIdentifier(accessTokenIdentifier);
 
+        // Use the result of a bulk lookup made by the current thread, if any. Identifiers without an active token
+        // may still have an expired token.
+        Map<String, AccessTokenDO> prefetched = prefetchedAccessTokens.get();
+        if (prefetched != null && prefetched.containsKey(accessTokenIdentifier)) {
+            accessTokenDO = prefetched.remove(accessTokenIdentifier);
+            prefetchHit = accessTokenDO != null || !includeExpired;
+        }
+
         // check the cache, if caching is enabled.
         OAuthCacheKey cacheKey = new OAuthCacheKey(accessTokenIdentifier);
-        CacheEntry result = OAuthCache.getInstance().getValueFromCache(cacheKey);
+        CacheEntry result = prefetchHit ? null : OAuthCache.getInstance().getValueFromCache(cacheKey);
         // cache hit, do the type check.
         if (result != null && result instanceof AccessTokenDO) {
             accessTokenDO = (AccessTokenDO) result;
@@ -1771,10 +1809,18 @@ public class OAuth2Util {
             }
         }
 
-        // cache miss, load the access token info from the database.
-        if (accessTokenDO == null) {
-            accessTokenDO = OAuthTokenPersistenceFactory.getInstance().getAccessTokenDAO()
-                    .getAccessToken(accessTokenIdentifier, includeExpired);
+        // cache miss, load the access token info from the database unless it was recently found to be inactive.
+        if (accessTokenDO == null && !prefetchHit) {
+            InactiveTokenCache inactiveTokenCache = InactiveTokenCache.getInstance();
+            if (!inactiveTokenCache.isInactive(accessTokenIdentifier, includeExpired)) {
+                accessTokenDO = OAuthTokenPersistenceFactory.getInstance().getAccessTokenDAO()
+                        .getAccessToken(accessTokenIdentifier, includeExpired);
+                if (accessTokenDO == null) {
+                    inactiveTokenCache.addInactive(accessTokenIdentifier, includeExpired);
+                }
+            } else if (log.isDebugEnabled()) {
+                log.debug("Access token identifier was recently found to be inactive. Skipping the database lookup.");
+            }
         } else {
             if (log.isDebugEnabled()) {
                 log.debug("Retrieved active access token from OAuthCache for token Identifier: " +
@@ -1799,6 +1845,59 @@ public class OAuth2Util {
         return accessTokenDO;
     }
 
+    /**
+     * Look up the active access tokens of the given identifiers in bulk, so that the following lookups of the same
+     * identifiers by the current thread through {@link #getAccessTokenDOFromTokenIdentifier(String, boolean)} do not
+     * query the database one by one. Identifiers found in the OAuthCache, or recently found to be inactive, are not
+     * looked up again. Each prefetched result is used once, and the remaining results have to be released with
+     * {@link #clearPrefetchedAccessTokens()}.
+     *
+     * @param accessTokenIdentifiers Access token identifiers.
+     * @throws IdentityOAuth2Exception When an error occurs while retrieving the tokens.
+     */
+    public static void prefetchAccessTokens(Collection<String> accessTokenIdentifiers)
+            throws IdentityOAuth2Exception {
+
+        InactiveTokenCache inactiveTokenCache = InactiveTokenCache.getInstance();
+        Set<String> identifiersToLookUp = new HashSet<>();
+        for (String accessTokenIdentifier : accessTokenIdentifiers) {
+            if (StringUtils.isBlank(accessTokenIdentifier) ||
+                    inactiveTokenCache.isInactive(accessTokenIdentifier, false)) {
+                continue;
+            }
+            CacheEntry result = OAuthCache.getInstance().getValueFromCache(new OAuthCacheKey(accessTokenIdentifier));
+            if (!(result instanceof AccessTokenDO)) {
+                identifiersToLookUp.add(accessTokenIdentifier);
+            }
+        }
+
+        Map<String, AccessTokenDO> prefetched = new HashMap<>();
+        if (!identifiersToLookUp.isEmpty()) {
+            Map<String, AccessTokenDO> accessTokenDOs = OAuthTokenPersistenceFactory.getInstance().getAccessTokenDAO()
+                    .getActiveAccessTokens(identifiersToLookUp);
+            for (String accessTokenIdentifier : identifiersToLookUp) {
+                AccessTokenDO accessTokenDO = accessTokenDOs.get(accessTokenIdentifier);
+                if (accessTokenDO == null) {
+                    inactiveTokenCache.addInactive(accessTokenIdentifier, false);
+                }
+                prefetched.put(accessTokenIdentifier, accessTokenDO);
+            }
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Prefetched " + prefetched.size() + " out of " + accessTokenIdentifiers.size() +
+                    " access token identifiers.");
+        }
+        prefetchedAccessTokens.set(prefetched);
+    }
+
+    /**
+     * Release the access tokens prefetched by the current thread.
+     */
+    public static void clearPrefetchedAccessTokens() {
+
+        prefetchedAccessTokens.remove();
+    }
+
     public static String getClientIdForAccessToken(String accessTokenIdentifier) throws IdentityOAuth2Exception {
 
         AccessTokenDO accessTokenDO = getAccessTokenDOfromTokenIdentifier(accessTokenIdentifier);
@@ -2776,8 +2875,7 @@ public class OAuth2Util {
     public static JWT signJWT(JWTClaimsSet jwtClaimsSet, JWSAlgorithm signatureAlgorithm, String tenantDomain)
             throws IdentityOAuth2Exception {
 
-        if (JWSAlgorithm.RS256.equals(signatureAlgorithm) || JWSAlgorithm.RS384.equals(signatureAlgorithm) ||
-                JWSAlgorithm.RS512.equals(signatureAlgorithm) || JWSAlgorithm.PS256.equals(signatureAlgorithm)) {
+        if (isRSASignatureAlgorithm(signatureAlgorithm)) {
             return signJWTWithRSA(jwtClaimsSet, signatureAlgorithm, tenantDomain);
         } else if (JWSAlgorithm.HS256.equals(signatureAlgorithm) || JWSAlgorithm.HS384.equals(signatureAlgorithm) ||
                 JWSAlgorithm.HS512.equals(signatureAlgorithm)) {
@@ -2804,70 +2902,82 @@ public class OAuth2Util {
     public static JWT signJWTWithRSA(JWTClaimsSet jwtClaimsSet, JWSAlgorithm signatureAlgorithm, String tenantDomain)
             throws IdentityOAuth2Exception {
 
+        JWSSigningContext signingContext = getJWSSigningContext(tenantDomain, signatureAlgorithm);
         try {
-            if (StringUtils.isBlank(tenantDomain)) {
-                tenantDomain = MultitenantConstants.SUPER_TENANT_DOMAIN_NAME;
-                if (log.isDebugEnabled()) {
-                    log.debug("Assign super tenant domain as signing domain.");
-                }
-            }
+            SignedJWT signedJWT = new SignedJWT(signingContext.getHeader(), jwtClaimsSet);
+            signedJWT.sign(signingContext.getSigner());
+            return signedJWT;
+        } catch (JOSEException e) {
+            throw new IdentityOAuth2Exception("Error occurred while signing JWT", e);
+        }
+    }
 
+    /**
+     * Get the JWS header and signer to sign JWTs with the key of the tenant using an RSA signature algorithm. The
+     * header carries the key id and certificate thumbprint of the signing key.
+     *
+     * @param tenantDomain       Tenant domain. The key of the super tenant is used if blank.
+     * @param signatureAlgorithm JWT signing algorithm.
+     * @return Signing context of the tenant.
+     * @throws IdentityOAuth2Exception If the signature algorithm is not supported or the key could not be loaded.
+     */
+    public static JWSSigningContext getJWSSigningContext(String tenantDomain, JWSAlgorithm signatureAlgorithm)
+            throws IdentityOAuth2Exception {
+
+        if (!isRSASignatureAlgorithm(signatureAlgorithm)) {
+            throw new IdentityOAuth2Exception("Provided signature algorithm: " + signatureAlgorithm +
+                    " is not supported");
+        }
+        if (StringUtils.isBlank(tenantDomain)) {
+            tenantDomain = MultitenantConstants.SUPER_TENANT_DOMAIN_NAME;
             if (log.isDebugEnabled()) {
-                log.debug("Signing JWT using the algorithm: " + signatureAlgorithm + " & key of the tenant: " +
-                        tenantDomain);
+                log.debug("Assign super tenant domain as signing domain.");
             }
+        }
 
-            int tenantId = IdentityTenantUtil.getTenantId(tenantDomain);
-            Key privateKey = getPrivateKey(tenantDomain, tenantId);
-            JWSSigner signer = OAuth2Util.createJWSSigner((RSAPrivateKey) privateKey);
-            JWSHeader.Builder headerBuilder = new JWSHeader.Builder((JWSAlgorithm) signatureAlgorithm);
-            headerBuilder.keyID(getKID(getCertificate(tenantDomain, tenantId), signatureAlgorithm, tenantDomain));
-            headerBuilder.x509CertThumbprint(new Base64URL(getThumbPrint(tenantDomain, tenantId)));
-            SignedJWT signedJWT = new SignedJWT(headerBuilder.build(), jwtClaimsSet);
-            signedJWT.sign(signer);
-            return signedJWT;
-        } catch (JOSEException e) {
-            throw new IdentityOAuth2Exception("Error occurred while signing JWT", e);
+        if (log.isDebugEnabled()) {
+            log.debug("Signing JWT using the algorithm: " + signatureAlgorithm + " & key of the tenant: " +
+                    tenantDomain);
         }
+
+        int tenantId = IdentityTenantUtil.getTenantId(tenantDomain);
+        JWSHeader.Builder headerBuilder = new JWSHeader.Builder(signatureAlgorithm);
+        headerBuilder.keyID(getKID(tenantDomain, tenantId, signatureAlgorithm));
+        headerBuilder.x509CertThumbprint(new Base64URL(getThumbPrint(tenantDomain, tenantId)));
+        return new JWSSigningContext(headerBuilder.build(), getJWSSigner(tenantDomain, tenantId));
     }
 
-    public static Key getPrivateKey(String tenantDomain, int tenantId) throws IdentityOAuth2Exception {
+    private static boolean isRSASignatureAlgorithm(JWSAlgorithm signatureAlgorithm) {
 
-        Key privateKey;
-        if (!(privateKeys.containsKey(tenantId))) {
+        return JWSAlgorithm.RS256.equals(signatureAlgorithm) || JWSAlgorithm.RS384.equals(signatureAlgorithm) ||
+                JWSAlgorithm.RS512.equals(signatureAlgorithm) || JWSAlgorithm.PS256.equals(signatureAlgorithm);
+    }
 
-            try {
-                IdentityTenantUtil.initializeRegistry(tenantId, tenantDomain);
-            } catch (IdentityException e) {
-                throw new IdentityOAuth2Exception("Error occurred while loading registry for tenant " + tenantDomain,
-                        e);
-            }
+    /**
+     * Get the private key used to sign tokens issued by the tenant.
+     *
+     * @param tenantDomain Tenant domain.
+     * @param tenantId     Tenant id.
+     * @return Private key of the tenant.
+     * @throws IdentityOAuth2Exception When failed to load the private key.
+     */
+    public static Key getPrivateKey(String tenantDomain, int tenantId) throws IdentityOAuth2Exception {
 
-            // get tenant's key store manager
-            KeyStoreManager tenantKSM = KeyStoreManager.getInstance(tenantId);
+        return SigningKeyRegistry.getInstance().getSigningKey(tenantDomain, tenantId).getPrivateKey();
+    }
 
-            if (!tenantDomain.equals(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME)) {
-                // derive key store name
-                String ksName = tenantDomain.trim().replace(".", "-");
-                String jksName = ksName + ".jks";
-                // obtain private key
-                privateKey = tenantKSM.getPrivateKey(jksName, tenantDomain);
+    /**
+     * Get a thread safe signer for the private key of the tenant. The signer is cached along with the key and reused
+     * for every token signed by the tenant.
+     *
+     * @param tenantDomain Tenant domain.
+     * @param tenantId     Tenant id.
+     * @return Signer of the tenant.
+     * @throws IdentityOAuth2Exception When failed to load the private key.
+     */
+    public static JWSSigner getJWSSigner(String tenantDomain, int tenantId) throws IdentityOAuth2Exception {
 
-            } else {
-                try {
-                    privateKey = tenantKSM.getDefaultPrivateKey();
-                } catch (Exception e) {
-                    throw new IdentityOAuth2Exception("Error while obtaining private key for super tenant", e);
-                }
-            }
-            //privateKey will not be null always
-            privateKeys.put(tenantId, privateKey);
-        } else {
-            //privateKey will not be null because containsKey() true says given key is exist and ConcurrentHashMap
-            // does not allow to store null values
-            privateKey = privateKeys.get(tenantId);
-        }
-        return privateKey;
+        return SigningKeyRegistry.getInstance().getSigningKey(tenantDomain, tenantId).getSigner();
     }
 
     /**
@@ -2896,6 +3006,21 @@ public class OAuth2Util {
         return OAuth2ServiceComponentHolder.getKeyIDProvider().getKeyId(certificate, signatureAlgorithm, tenantDomain);
     }
 
+    /**
+     * Method to obtain 'kid' value for the signing key of the tenant. The value is cached along with the key.
+     *
+     * @param tenantDomain       Tenant domain.
+     * @param tenantId           Tenant id.
+     * @param signatureAlgorithm Relevant signature algorithm.
+     * @return KID value as a String.
+     * @throws IdentityOAuth2Exception When failed to obtain the KID.
+     */
+    public static String getKID(String tenantDomain, int tenantId, JWSAlgorithm signatureAlgorithm)
+            throws IdentityOAuth2Exception {
+
+        return SigningKeyRegistry.getInstance().getSigningKey(tenantDomain, tenantId).getKeyId(signatureAlgorithm);
+    }
+
     /**
      * Helper method to add public certificate to JWT_HEADER to signature verification.
      *
@@ -2907,10 +3032,7 @@ public class OAuth2Util {
 
         try {
 
-            Certificate certificate = getCertificate(tenantDomain, tenantId);
-
-            // TODO: maintain a hashmap with tenants' pubkey thumbprints after first initialization
-            return getThumbPrint(certificate);
+            return SigningKeyRegistry.getInstance().getSigningKey(tenantDomain, tenantId).getThumbPrint();
 
         } catch (Exception e) {
             String error = "Error in obtaining certificate for tenant " + tenantDomain;
@@ -2980,57 +3102,7 @@ public class OAuth2Util {
      */
     public static Certificate getCertificate(String tenantDomain, int tenantId) throws IdentityOAuth2Exception {
 
-        Certificate publicCert = null;
-
-        if (!(publicCerts.containsKey(tenantId))) {
-            if (log.isDebugEnabled()) {
-                log.debug(String.format("Obtaining certificate for the tenant %s", tenantDomain));
-            }
-            try {
-                IdentityTenantUtil.initializeRegistry(tenantId, tenantDomain);
-            } catch (IdentityException e) {
-                throw new IdentityOAuth2Exception("Error occurred while loading registry for tenant " + tenantDomain,
-                        e);
-            }
-
-            // get tenant's key store manager
-            KeyStoreManager tenantKSM = KeyStoreManager.getInstance(tenantId);
-
-            KeyStore keyStore = null;
-            if (!tenantDomain.equals(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME)) {
-                // derive key store name
-                String ksName = tenantDomain.trim().replace(".", "-");
-                String jksName = ksName + ".jks";
-                if (log.isDebugEnabled()) {
-                    log.debug(String.format("Loading default tenant certificate for tenant : %s from the KeyStore" +
-                            " %s", tenantDomain, ksName));
-                }
-                try {
-                    keyStore = tenantKSM.getKeyStore(jksName);
-                    publicCert = keyStore.getCertificate(tenantDomain);
-                } catch (KeyStoreException e) {
-                    throw new IdentityOAuth2Exception("Error occurred while loading public certificate for tenant: " +
-                            tenantDomain, e);
-                } catch (Exception e) {
-                    throw new IdentityOAuth2Exception("Error occurred while loading Keystore for tenant: " +
-                            tenantDomain, e);
-                }
-
-            } else {
-                try {
-                    publicCert = tenantKSM.getDefaultPrimaryCertificate();
-                } catch (Exception e) {
-                    throw new IdentityOAuth2Exception("Error occurred while loading default public " +
-                            "certificate for tenant: " + tenantDomain, e);
-                }
-            }
-            if (publicCert != null) {
-                publicCerts.put(tenantId, publicCert);
-            }
-        } else {
-            publicCert = publicCerts.get(tenantId);
-        }
-        return publicCert;
+        return SigningKeyRegistry.getInstance().getSigningKey(tenantDomain, tenantId).getCertificate();
     }
 
     /**
@@ -49,10 +49,14 @@ import org.wso2.carbon.identity.oauth2.IdentityOAuth2ScopeServerException;
 import org.wso2.carbon.identity.oauth2.OAuth2Constants;
 import org.wso2.carbon.identity.oauth2.authz.OAuthAuthzReqMessageContext;
 import org.wso2.carbon.identity.oauth2.bean.Scope;
+import org.wso2.carbon.identity.oauth2.cache.TenantScopeSnapshotCache;
+import org.wso2.carbon.identity.oauth2.cache.TenantScopeSnapshotCache.TenantScopeSnapshot;
+import org.wso2.carbon.identity.oauth2.cache.UserRoleCache;
 import org.wso2.carbon.identity.oauth2.dao.OAuthTokenPersistenceFactory;
 import org.wso2.carbon.identity.oauth2.internal.OAuth2ServiceComponentHolder;
 import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
 import org.wso2.carbon.identity.oauth2.model.ResourceScopeCacheEntry;
+import org.wso2.carbon.identity.oauth2.model.ScopeSet;
 import org.wso2.carbon.identity.oauth2.token.OAuthTokenReqMessageContext;
 import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
 import org.wso2.carbon.user.api.UserStoreException;
@@ -99,10 +103,10 @@ public class JDBCScopeValidator extends OAuth2ScopeValidator {
         }
 
         //Get the list of scopes associated with the access token
-        String[] scopes = accessTokenDO.getScope();
+        ScopeSet scopes = accessTokenDO.getScopeSet();
 
         //If no scopes are associated with the token
-        if (scopes == null || scopes.length == 0) {
+        if (scopes == null || scopes.size() == 0) {
             return true;
         }
 
@@ -149,10 +153,8 @@ public class JDBCScopeValidator extends OAuth2ScopeValidator {
             return true;
         }
 
-        List<String> scopeList = new ArrayList<>(Arrays.asList(scopes));
-
         // If the access token does not bear the scope required for accessing the Resource.
-        if (!scopeList.contains(resourceScope)) {
+        if (!scopes.contains(resourceScope)) {
             if (log.isDebugEnabled() && IdentityUtil.isTokenLoggable(IdentityConstants.IdentityTokens.ACCESS_TOKEN)) {
                 log.debug("Access token '" + accessTokenDO.getAccessToken() + "' does not bear the scope '" +
                             resourceScope + "'");
@@ -182,7 +184,7 @@ public class JDBCScopeValidator extends OAuth2ScopeValidator {
                 return false;
             }
 
-            return isUserAuthorizedForScope(resourceScope, userRoles, tenantId);
+            return isUserAuthorizedForScope(resourceScope, userRoles, tenantId, getTenantScopeSnapshot(tenantId));
 
         } catch (UserStoreException e) {
             //Log and return since we do not want to stop issuing the token in case of scope validation failures.
@@ -268,15 +270,16 @@ public class JDBCScopeValidator extends OAuth2ScopeValidator {
             userRoles = getUserRoles(user);
         }
         if (ArrayUtils.isNotEmpty(userRoles)) {
+            TenantScopeSnapshot tenantScopeSnapshot = getTenantScopeSnapshot(tenantId);
             for (String scope : requestedScopes) {
-                if (!isScopeValid(scope, tenantId)) {
+                if (!isScopeValid(scope, tenantId, tenantScopeSnapshot)) {
                     // If the scope is not registered return false.
                     if (log.isDebugEnabled()) {
                         log.debug("Requested scope " + scope + " is invalid");
                     }
                     return false;
                 }
-                if (!isUserAuthorizedForScope(scope, userRoles, tenantId)) {
+                if (!isUserAuthorizedForScope(scope, userRoles, tenantId, tenantScopeSnapshot)) {
                     if (log.isDebugEnabled()) {
                         log.debug("User " + user.getLoggableUserId() + "in not authorised for scope " + scope);
                     }
@@ -359,7 +362,28 @@ public class JDBCScopeValidator extends OAuth2ScopeValidator {
         return SCOPE_VALIDATOR_NAME;
     }
 
-    private boolean isScopeValid(String scopeName, int tenantId) {
+    /**
+     * Get the scope snapshot of a tenant, if scope snapshots are enabled.
+     *
+     * @param tenantId Tenant id.
+     * @return Scope snapshot, or null if the scopes have to be read from the database.
+     */
+    private TenantScopeSnapshot getTenantScopeSnapshot(int tenantId) {
+
+        try {
+            return TenantScopeSnapshotCache.getInstance().getSnapshot(tenantId);
+        } catch (IdentityOAuth2ScopeServerException e) {
+            log.error("Error while loading the scopes of tenant: " + tenantId + ". Scopes will be read one by one.",
+                    e);
+            return null;
+        }
+    }
+
+    private boolean isScopeValid(String scopeName, int tenantId, TenantScopeSnapshot tenantScopeSnapshot) {
+
+        if (tenantScopeSnapshot != null) {
+            return tenantScopeSnapshot.hasScope(scopeName);
+        }
 
         Scope scope = null;
 
@@ -372,11 +396,17 @@ public class JDBCScopeValidator extends OAuth2ScopeValidator {
         return scope != null;
     }
 
-    private boolean isUserAuthorizedForScope(String scopeName, String[] userRoles, int tenantId)
+    private boolean isUserAuthorizedForScope(String scopeName, String[] userRoles, int tenantId,
+                                             TenantScopeSnapshot tenantScopeSnapshot)
             throws IdentityOAuth2Exception {
 
-        Set<String> rolesOfScope = OAuthTokenPersistenceFactory.getInstance().getOAuthScopeDAO().
-                getBindingsOfScopeByScopeName(scopeName, tenantId);
+        Set<String> rolesOfScope;
+        if (tenantScopeSnapshot != null) {
+            rolesOfScope = new HashSet<>(tenantScopeSnapshot.getBindings(scopeName));
+        } else {
+            rolesOfScope = OAuthTokenPersistenceFactory.getInstance().getOAuthScopeDAO().
+                    getBindingsOfScopeByScopeName(scopeName, tenantId);
+        }
 
         if (CollectionUtils.isEmpty(rolesOfScope)) {
             if (log.isDebugEnabled()) {
@@ -458,8 +488,13 @@ public class JDBCScopeValidator extends OAuth2ScopeValidator {
 
     private String[] getUserRoles(AuthenticatedUser user) throws UserStoreException {
 
+        UserRoleCache userRoleCache = UserRoleCache.getInstance();
+        String[] userRoles = userRoleCache.getRoles(user);
+        if (userRoles != null) {
+            return userRoles;
+        }
+
         UserStoreManager userStoreManager;
-        String[] userRoles;
         boolean tenantFlowStarted = false;
 
         RealmService realmService = OAuthComponentServiceHolder.getInstance().getRealmService();
@@ -480,6 +515,7 @@ public class JDBCScopeValidator extends OAuth2ScopeValidator {
                 PrivilegedCarbonContext.endTenantFlow();
             }
         }
+        userRoleCache.addRoles(user, userRoles);
 
         if (ArrayUtils.isNotEmpty(userRoles)) {
             if (log.isDebugEnabled()) {
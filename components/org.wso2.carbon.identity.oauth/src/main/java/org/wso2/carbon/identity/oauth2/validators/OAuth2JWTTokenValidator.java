@@ -74,26 +74,34 @@ public class OAuth2JWTTokenValidator extends DefaultOAuth2TokenValidator {
         }
 
         try {
-            SignedJWT signedJWT = getSignedJWT(validationReqDTO);
-            JWTClaimsSet claimsSet = signedJWT.getJWTClaimsSet();
+            String accessToken = validationReqDTO.getRequestDTO().getAccessToken().getIdentifier();
+            String tenantDomain = getTenantDomain();
+            VerifiedJWTCache verifiedJWTCache = VerifiedJWTCache.getInstance();
+            // Tokens found in the cache already passed the required fields, issuer and signature validations.
+            JWTClaimsSet claimsSet = verifiedJWTCache.get(tenantDomain, accessToken);
             if (claimsSet == null) {
-                LoggerUtils.triggerDiagnosticLogEvent(OAuthConstants.LogConstants.OAUTH_INBOUND_SERVICE, null,
-                        OAuthConstants.LogConstants.FAILED, "Claim values are empty in the provided token.",
-                        "validate-jwt-access-token", null);
-                throw new IdentityOAuth2Exception("Claim values are empty in the given Token.");
-            }
+                SignedJWT signedJWT = getSignedJWT(validationReqDTO);
+                claimsSet = signedJWT.getJWTClaimsSet();
+                if (claimsSet == null) {
+                    LoggerUtils.triggerDiagnosticLogEvent(OAuthConstants.LogConstants.OAUTH_INBOUND_SERVICE, null,
+                            OAuthConstants.LogConstants.FAILED, "Claim values are empty in the provided token.",
+                            "validate-jwt-access-token", null);
+                    throw new IdentityOAuth2Exception("Claim values are empty in the given Token.");
+                }
 
-            if (!validateRequiredFields(claimsSet)) {
-                return false;
-            }
+                if (!validateRequiredFields(claimsSet)) {
+                    return false;
+                }
 
-            IdentityProvider identityProvider = getResidentIDPForIssuer(claimsSet.getIssuer());
+                IdentityProvider identityProvider = getResidentIDPForIssuer(claimsSet.getIssuer());
 
-            if (!validateSignature(signedJWT, identityProvider)) {
-                LoggerUtils.triggerDiagnosticLogEvent(OAuthConstants.LogConstants.OAUTH_INBOUND_SERVICE, null,
-                        OAuthConstants.LogConstants.FAILED, "Signature validation failed.", "validate-jwt-access-token",
-                        null);
-                return false;
+                if (!validateSignature(signedJWT, identityProvider)) {
+                    LoggerUtils.triggerDiagnosticLogEvent(OAuthConstants.LogConstants.OAUTH_INBOUND_SERVICE, null,
+                            OAuthConstants.LogConstants.FAILED, "Signature validation failed.",
+                            "validate-jwt-access-token", null);
+                    return false;
+                }
+                verifiedJWTCache.put(tenantDomain, accessToken, claimsSet);
             }
             if (!checkExpirationTime(claimsSet.getExpirationTime())) {
                 LoggerUtils.triggerDiagnosticLogEvent(OAuthConstants.LogConstants.OAUTH_INBOUND_SERVICE, null,
@@ -39,6 +39,7 @@ import org.wso2.carbon.identity.oauth2.dto.OAuth2TokenValidationRequestDTO;
 import org.wso2.carbon.identity.oauth2.dto.OAuth2TokenValidationResponseDTO;
 import org.wso2.carbon.identity.oauth2.internal.OAuth2ServiceComponentHolder;
 import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
+import org.wso2.carbon.identity.oauth2.model.ScopeSet;
 import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
 
 import java.util.ArrayList;
@@ -442,7 +443,7 @@ public class TokenValidationHandler {
             try {
                 accessTokenDO = OAuth2Util.findAccessToken(validationRequest.getAccessToken().getIdentifier(), false);
                 List<String> allowedScopes = OAuthServerConfiguration.getInstance().getAllowedScopes();
-                String[] requestedScopes = accessTokenDO.getScope();
+                ScopeSet requestedScopes = accessTokenDO.getScopeSet();
                 List<String> scopesToBeValidated = new ArrayList<>();
                 if (requestedScopes != null) {
                     for (String scope : requestedScopes) {
@@ -483,7 +484,7 @@ public class TokenValidationHandler {
             // Not before time will be the same as issued time.
             introResp.setNbf(accessTokenDO.getIssuedTime().getTime() / 1000);
             // token scopes
-            introResp.setScope(OAuth2Util.buildScopeString((accessTokenDO.getScope())));
+            introResp.setScope(OAuth2Util.buildScopeString((accessTokenDO.getScopeSet())));
             // set user-name
             introResp.setUsername(getAuthzUser(accessTokenDO));
             // add client id
@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.validators;
+
+import com.nimbusds.jwt.JWTClaimsSet;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.oauth.tokenprocessor.TokenHashEngine;
+import org.wso2.carbon.identity.oauth2.signing.SigningKeyChangeListener;
+import org.wso2.carbon.identity.oauth2.signing.SigningKeyRegistry;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.wso2.carbon.identity.oauth2.util.OAuth2ConfigUtil.readIntProperty;
+
+/**
+ * Cache of self-contained JWT access tokens whose signature was verified during introspection, so that introspecting
+ * the same token again does not parse the token or verify its signature.
+ * <p>
+ * Entries are keyed by the hash of the whole serialized token, hence a token which differs in any of its parts is
+ * verified again. An entry is only served within the tenant domain the token was validated in, and holds the verified
+ * claims set until the token expires. Entries are dropped when the token is revoked, identified by its jti, and when a
+ * signing key is found to be changed. The number of entries is bounded. Expired entries are purged first once the
+ * bound is reached, followed by arbitrary entries if the cache is still full.
+ */
+public class VerifiedJWTCache implements SigningKeyChangeListener {
+
+    private static final Log log = LogFactory.getLog(VerifiedJWTCache.class);
+
+    private static final String ENABLE = "OAuth.JWTTokenValidation.VerifiedTokenCache.Enable";
+    private static final String MAX_SIZE = "OAuth.JWTTokenValidation.VerifiedTokenCache.MaxSize";
+    private static final int DEFAULT_MAX_SIZE = 10000;
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final String DOT_SEPARATOR = ".";
+
+    private static volatile VerifiedJWTCache instance;
+
+    private final Map<String, VerifiedJWT> verifiedJWTs = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> keysByJti = new ConcurrentHashMap<>();
+    private final boolean enabled;
+    private final int maxSize;
+    private final TokenHashEngine hashEngine;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong invalidationCount = new AtomicLong();
+
+    /**
+     * Create a cache.
+     *
+     * @param enabled Whether verified tokens are cached.
+     * @param maxSize Maximum number of cached tokens.
+     */
+    public VerifiedJWTCache(boolean enabled, int maxSize) {
+
+        this.enabled = enabled;
+        this.maxSize = Math.max(maxSize, 1);
+        try {
+            this.hashEngine = TokenHashEngine.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is supported by every Java platform.
+            throw new IllegalStateException("Hash algorithm: " + HASH_ALGORITHM + " is not available.", e);
+        }
+    }
+
+    /**
+     * Get the cache configured in identity.xml. The cache is registered to be notified of signing key changes.
+     *
+     * @return Verified JWT cache.
+     */
+    public static VerifiedJWTCache getInstance() {
+
+        if (instance == null) {
+            synchronized (VerifiedJWTCache.class) {
+                if (instance == null) {
+                    String enable = IdentityUtil.getProperty(ENABLE);
+                    VerifiedJWTCache cache = new VerifiedJWTCache(
+                            StringUtils.isBlank(enable) || Boolean.parseBoolean(enable.trim()),
+                            readIntProperty(MAX_SIZE, DEFAULT_MAX_SIZE));
+                    SigningKeyRegistry.addChangeListener(cache);
+                    instance = cache;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Get the verified claims set of a token.
+     *
+     * @param tenantDomain Tenant domain the token is validated in.
+     * @param jwt          Serialized token.
+     * @return Verified claims set, or null if the token is not cached or has expired.
+     */
+    public JWTClaimsSet get(String tenantDomain, String jwt) {
+
+        if (!enabled) {
+            return null;
+        }
+        String key = hashEngine.hash(jwt);
+        VerifiedJWT verifiedJWT = verifiedJWTs.get(key);
+        if (verifiedJWT == null || !verifiedJWT.getTenantDomain().equals(tenantDomain)) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        if (verifiedJWT.isExpired(System.currentTimeMillis())) {
+            remove(key, verifiedJWT);
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return verifiedJWT.getClaimsSet();
+    }
+
+    /**
+     * Cache the claims set of a token whose signature was verified. Tokens without an expiry time or a jti, and
+     * expired tokens are not cached.
+     *
+     * @param tenantDomain Tenant domain the token was validated in.
+     * @param jwt          Serialized token.
+     * @param claimsSet    Verified claims set of the token.
+     */
+    public void put(String tenantDomain, String jwt, JWTClaimsSet claimsSet) {
+
+        Date expirationTime = claimsSet.getExpirationTime();
+        String jti = claimsSet.getJWTID();
+        if (!enabled || expirationTime == null || jti == null ||
+                expirationTime.getTime() <= System.currentTimeMillis()) {
+            return;
+        }
+        if (verifiedJWTs.size() >= maxSize) {
+            evict();
+        }
+        String key = hashEngine.hash(jwt);
+        keysByJti.computeIfAbsent(jti, k -> ConcurrentHashMap.newKeySet()).add(key);
+        verifiedJWTs.put(key, new VerifiedJWT(claimsSet, tenantDomain, jti, expirationTime.getTime()));
+    }
+
+    /**
+     * Drop the cached tokens having the given jti. Accepts the serialized token as well.
+     *
+     * @param tokenIdentifier jti, or the serialized token.
+     */
+    public void invalidate(String tokenIdentifier) {
+
+        if (!enabled || tokenIdentifier == null) {
+            return;
+        }
+        Set<String> keys = keysByJti.remove(tokenIdentifier);
+        if (keys != null) {
+            for (String key : keys) {
+                if (verifiedJWTs.remove(key) != null) {
+                    invalidationCount.incrementAndGet();
+                }
+            }
+        } else if (StringUtils.countMatches(tokenIdentifier, DOT_SEPARATOR) == 2) {
+            // The serialized token is given instead of its jti.
+            String key = hashEngine.hash(tokenIdentifier);
+            VerifiedJWT verifiedJWT = verifiedJWTs.get(key);
+            if (verifiedJWT != null) {
+                remove(key, verifiedJWT);
+                invalidationCount.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Drop every cached token.
+     */
+    public void invalidateAll() {
+
+        verifiedJWTs.clear();
+        keysByJti.clear();
+    }
+
+    @Override
+    public void onSigningKeyChange(int tenantId) {
+
+        // Tokens are not tracked by the tenant of their signing key, hence every cached token is verified again.
+        invalidateAll();
+        if (log.isDebugEnabled()) {
+            log.debug("Dropped verified JWT access tokens due to a signing key change of tenant: " + tenantId);
+        }
+    }
+
+    public int getSize() {
+
+        return verifiedJWTs.size();
+    }
+
+    public long getHitCount() {
+
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+
+        return evictionCount.get();
+    }
+
+    public long getInvalidationCount() {
+
+        return invalidationCount.get();
+    }
+
+    private void remove(String key, VerifiedJWT verifiedJWT) {
+
+        if (verifiedJWTs.remove(key, verifiedJWT)) {
+            keysByJti.computeIfPresent(verifiedJWT.getJti(), (jti, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+
+    private void evict() {
+
+        // Evict a tenth of the entries at once, so that the cache is not scanned for every new token once full.
+        int targetSize = maxSize - Math.max(1, maxSize / 10);
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, VerifiedJWT> entry : verifiedJWTs.entrySet()) {
+            if (entry.getValue().isExpired(now)) {
+                remove(entry.getKey(), entry.getValue());
+            }
+        }
+        Iterator<Map.Entry<String, VerifiedJWT>> iterator = verifiedJWTs.entrySet().iterator();
+        while (verifiedJWTs.size() > targetSize && iterator.hasNext()) {
+            Map.Entry<String, VerifiedJWT> entry = iterator.next();
+            remove(entry.getKey(), entry.getValue());
+            evictionCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Verified claims set of a token.
+     */
+    private static final class VerifiedJWT {
+
+        private final JWTClaimsSet claimsSet;
+        private final String tenantDomain;
+        private final String jti;
+        private final long expiryTime;
+
+        VerifiedJWT(JWTClaimsSet claimsSet, String tenantDomain, String jti, long expiryTime) {
+
+            this.claimsSet = claimsSet;
+            this.tenantDomain = tenantDomain;
+            this.jti = jti;
+            this.expiryTime = expiryTime;
+        }
+
+        JWTClaimsSet getClaimsSet() {
+
+            return claimsSet;
+        }
+
+        String getTenantDomain() {
+
+            return tenantDomain;
+        }
+
+        String getJti() {
+
+            return jti;
+        }
+
+        boolean isExpired(long now) {
+
+            return now >= expiryTime;
+        }
+    }
+}
@@ -19,7 +19,6 @@
 package org.wso2.carbon.identity.oauth2.validators.jwt;
 
 import com.nimbusds.jose.JOSEException;
-import com.nimbusds.jose.JWSAlgorithm;
 import com.nimbusds.jose.JWSHeader;
 import com.nimbusds.jose.KeySourceException;
 import com.nimbusds.jose.RemoteKeySourceException;
@@ -29,8 +28,6 @@ import com.nimbusds.jose.jwk.JWKSelector;
 import com.nimbusds.jose.jwk.source.JWKSource;
 import com.nimbusds.jose.jwk.source.RemoteJWKSet;
 import com.nimbusds.jose.proc.BadJOSEException;
-import com.nimbusds.jose.proc.JWSKeySelector;
-import com.nimbusds.jose.proc.JWSVerificationKeySelector;
 import com.nimbusds.jose.proc.SecurityContext;
 import com.nimbusds.jose.proc.SimpleSecurityContext;
 import com.nimbusds.jose.util.X509CertUtils;
@@ -39,8 +36,7 @@ import com.nimbusds.jwt.JWT;
 import com.nimbusds.jwt.JWTParser;
 import com.nimbusds.jwt.PlainJWT;
 import com.nimbusds.jwt.SignedJWT;
-import com.nimbusds.jwt.proc.ConfigurableJWTProcessor;
-import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import com.nimbusds.jwt.proc.JWTProcessor;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang.StringUtils;
@@ -64,14 +60,23 @@ import java.util.Optional;
 public class JWKSBasedJWTValidator implements JWTValidator {
 
     private static final Log log = LogFactory.getLog(JWKSBasedJWTValidator.class);
-    private ConfigurableJWTProcessor<SecurityContext> jwtProcessor;
+    private final JWTProcessorRegistry processorRegistry;
     private static final String ENFORCE_CERTIFICATE_VALIDITY
             = "JWTValidatorConfigs.EnforceCertificateExpiryTimeValidity";
 
     public JWKSBasedJWTValidator() {
-        /* Set up a JWT processor to parse the tokens and then check their signature and validity time window
-        (bounded by the "iat", "nbf" and "exp" claims). */
-        this.jwtProcessor = new DefaultJWTProcessor<>();
+
+        this(JWTProcessorRegistry.getInstance());
+    }
+
+    /**
+     * Create a validator obtaining the JWT processors from the given registry.
+     *
+     * @param processorRegistry JWT processor registry.
+     */
+    public JWKSBasedJWTValidator(JWTProcessorRegistry processorRegistry) {
+
+        this.processorRegistry = processorRegistry;
     }
 
     @Override
@@ -127,7 +132,7 @@ public class JWKSBasedJWTValidator implements JWTValidator {
 
         X509Certificate x509Certificate = null;
         List<JWK> matchingJWKs;
-        RemoteJWKSet<SecurityContext> remoteJWKSet = JWKSourceDataProvider.getInstance().getJWKSource(jwksUri);
+        RemoteJWKSet<SecurityContext> remoteJWKSet = JWKSourceDataProvider.getInstance().getJWKSourceOrFail(jwksUri);
         String kid = Optional.ofNullable(jwt.getHeader()).map(JWSHeader::getKeyID).orElse(null);
 
         if (kid == null) {
@@ -174,8 +179,8 @@ public class JWKSBasedJWTValidator implements JWTValidator {
                     algorithm);
         }
         try {
-            // set the Key Selector for the jwks_uri.
-            setJWKeySelector(jwksUri, algorithm);
+            // Get the shared processor for the jwks_uri and algorithm.
+            JWTProcessor<SecurityContext> jwtProcessor = getJWTProcessor(jwksUri, algorithm);
 
             // Process the token, set optional context parameters.
             SecurityContext securityContext = null;
@@ -204,19 +209,15 @@ public class JWKSBasedJWTValidator implements JWTValidator {
         }
     }
 
-    private void setJWKeySelector(String jwksUri, String algorithm) throws MalformedURLException {
+    private JWTProcessor<SecurityContext> getJWTProcessor(String jwksUri, String algorithm)
+            throws MalformedURLException, RemoteKeySourceException {
 
         /* The public RSA keys to validate the signatures will be sourced from the OAuth 2.0 server's JWK set,
         published at a well-known URL. The RemoteJWKSet object caches the retrieved keys to speed up subsequent
         look-ups and can also gracefully handle key-rollover. */
-        JWKSource<SecurityContext> keySource = JWKSourceDataProvider.getInstance().getJWKSource(jwksUri);
-
-        // The expected JWS algorithm of the access tokens (agreed out-of-band).
-        JWSAlgorithm expectedJWSAlg = JWSAlgorithm.parse(algorithm);
+        JWKSource<SecurityContext> keySource = JWKSourceDataProvider.getInstance().getJWKSourceOrFail(jwksUri);
 
-        /* Configure the JWT processor with a key selector to feed matching public RSA keys sourced from the JWK set
-        URL. */
-        JWSKeySelector<SecurityContext> keySelector = new JWSVerificationKeySelector<>(expectedJWSAlg, keySource);
-        jwtProcessor.setJWSKeySelector(keySelector);
+        // Processors are shared per expected JWS algorithm of the tokens (agreed out-of-band).
+        return processorRegistry.getProcessor(jwksUri, algorithm, keySource);
     }
 }
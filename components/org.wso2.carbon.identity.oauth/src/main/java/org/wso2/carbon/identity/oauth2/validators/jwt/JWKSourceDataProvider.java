@@ -18,24 +18,48 @@
 
 package org.wso2.carbon.identity.oauth2.validators.jwt;
 
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.RemoteKeySourceException;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.source.DefaultJWKSetCache;
 import com.nimbusds.jose.jwk.source.RemoteJWKSet;
 import com.nimbusds.jose.proc.SecurityContext;
 import com.nimbusds.jose.util.DefaultResourceRetriever;
+import com.nimbusds.jose.util.ResourceRetriever;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.identity.core.util.IdentityUtil;
 import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
-import org.wso2.carbon.identity.oauth2.cache.JWKSCache;
-import org.wso2.carbon.identity.oauth2.cache.JWKSCacheEntry;
-import org.wso2.carbon.identity.oauth2.cache.JWKSCacheKey;
 import org.wso2.carbon.identity.oauth2.device.constants.Constants;
 
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.wso2.carbon.identity.oauth2.util.OAuth2ConfigUtil.readLongProperty;
 
 /**
  * Provides JWK sources for JWT validation.
+ * <p>
+ * The JWK source of a jwks_uri is fetched once, concurrent requests for a jwks_uri which is not yet known waiting for
+ * the single fetch in progress. Key sets of the jwks_uris in use are then refreshed ahead of time in the background,
+ * so that requests do not pay the round trip to the remote endpoint. When a refresh fails or the remote endpoint is
+ * slow, requests keep being served with the previously fetched key set.
+ * <p>
+ * A jwks_uri which is not used for the configured idle timeout is no longer refreshed and its JWK source is dropped.
+ * The number of JWK sources held is bounded, the least recently used one being dropped first. Refreshes requested on
+ * signature validation failures are rate limited per jwks_uri, so that invalid tokens cannot drive fetches.
  */
 public class JWKSourceDataProvider {
 
@@ -47,12 +71,115 @@ public class JWKSourceDataProvider {
             ".HTTPReadTimeout";
     private static final String HTTP_SIZE_LIMIT_XPATH = "JWTValidatorConfigs.JWKSEndpoint" +
             ".HTTPSizeLimit";
+    private static final String REFRESH_AHEAD_ENABLE = "JWTValidatorConfigs.JWKSEndpoint.RefreshAhead.Enable";
+    private static final String REFRESH_INTERVAL = "JWTValidatorConfigs.JWKSEndpoint.RefreshAhead" +
+            ".RefreshIntervalInSeconds";
+    private static final String RETRY_INTERVAL = "JWTValidatorConfigs.JWKSEndpoint.RefreshAhead" +
+            ".RetryIntervalInSeconds";
+    private static final String IDLE_TIMEOUT = "JWTValidatorConfigs.JWKSEndpoint.IdleTimeoutInSeconds";
+    private static final String MAX_ENTRIES = "JWTValidatorConfigs.JWKSEndpoint.MaxCachedEntries";
+    private static final String MAX_STALE = "JWTValidatorConfigs.JWKSEndpoint.RefreshAhead.MaxStaleInSeconds";
+    private static final String MIN_FORCED_REFRESH_INTERVAL = "JWTValidatorConfigs.JWKSEndpoint" +
+            ".MinForcedRefreshIntervalInSeconds";
+    private static final long DEFAULT_REFRESH_INTERVAL = 240;
+    private static final long DEFAULT_RETRY_INTERVAL = 30;
+    private static final long DEFAULT_IDLE_TIMEOUT = 1800;
+    private static final long DEFAULT_MAX_STALE = 3600;
+    private static final int DEFAULT_MAX_ENTRIES = 500;
+    private static final long DEFAULT_MIN_FORCED_REFRESH_INTERVAL = 30;
+    private static final String REFRESH_THREAD_NAME = "JWKSRefreshAheadThread";
     private static final Log log = LogFactory.getLog(JWKSourceDataProvider.class);
 
-    private static JWKSourceDataProvider jwkSourceDataProvider = new JWKSourceDataProvider();
+    private static volatile JWKSourceDataProvider jwkSourceDataProvider;
+
+    private final Map<String, JWKSourceEntry> jwkSources = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<JWKSourceEntry>> inFlightFetches = new ConcurrentHashMap<>();
+    private final boolean refreshAheadEnabled;
+    private final long refreshIntervalInMillis;
+    private final long retryIntervalInMillis;
+    private final long idleTimeoutInMillis;
+    private final long maxStaleInMillis;
+    private final int maxEntries;
+    private final long minForcedRefreshIntervalInMillis;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong refreshCount = new AtomicLong();
+    private final AtomicLong refreshFailureCount = new AtomicLong();
+    private final AtomicLong skippedForcedRefreshCount = new AtomicLong();
+    private ScheduledExecutorService scheduler;
 
     private JWKSourceDataProvider() {
 
+        this(!"false".equalsIgnoreCase(StringUtils.trim(IdentityUtil.getProperty(REFRESH_AHEAD_ENABLE))),
+                TimeUnit.SECONDS.toMillis(readLongProperty(REFRESH_INTERVAL, DEFAULT_REFRESH_INTERVAL)),
+                TimeUnit.SECONDS.toMillis(readLongProperty(RETRY_INTERVAL, DEFAULT_RETRY_INTERVAL)),
+                TimeUnit.SECONDS.toMillis(readLongProperty(IDLE_TIMEOUT, DEFAULT_IDLE_TIMEOUT)),
+                TimeUnit.SECONDS.toMillis(readLongProperty(MAX_STALE, DEFAULT_MAX_STALE)),
+                (int) readLongProperty(MAX_ENTRIES, DEFAULT_MAX_ENTRIES),
+                TimeUnit.SECONDS.toMillis(readLongProperty(MIN_FORCED_REFRESH_INTERVAL,
+                        DEFAULT_MIN_FORCED_REFRESH_INTERVAL)));
+    }
+
+    /**
+     * Create a data provider.
+     *
+     * @param refreshAheadEnabled     Whether key sets of the jwks_uris in use are refreshed in the background.
+     * @param refreshIntervalInMillis Interval at which a key set is refreshed.
+     * @param retryIntervalInMillis   Interval at which a failed refresh is retried.
+     * @param idleTimeoutInMillis     A jwks_uri which is not used for this long is no longer refreshed.
+     * @param maxStaleInMillis        Maximum time a key set is served without being fetched again. Once elapsed the
+     *                                key set is fetched on the next use.
+     */
+    JWKSourceDataProvider(boolean refreshAheadEnabled, long refreshIntervalInMillis, long retryIntervalInMillis,
+                          long idleTimeoutInMillis, long maxStaleInMillis) {
+
+        this(refreshAheadEnabled, refreshIntervalInMillis, retryIntervalInMillis, idleTimeoutInMillis,
+                maxStaleInMillis, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Create a data provider.
+     *
+     * @param refreshAheadEnabled     Whether key sets of the jwks_uris in use are refreshed in the background.
+     * @param refreshIntervalInMillis Interval at which a key set is refreshed.
+     * @param retryIntervalInMillis   Interval at which a failed refresh is retried.
+     * @param idleTimeoutInMillis     A jwks_uri which is not used for this long is dropped.
+     * @param maxStaleInMillis        Maximum time a key set is served without being fetched again. Once elapsed the
+     *                                key set is fetched on the next use.
+     * @param maxEntries              Maximum number of JWK sources held.
+     */
+    JWKSourceDataProvider(boolean refreshAheadEnabled, long refreshIntervalInMillis, long retryIntervalInMillis,
+                          long idleTimeoutInMillis, long maxStaleInMillis, int maxEntries) {
+
+        this(refreshAheadEnabled, refreshIntervalInMillis, retryIntervalInMillis, idleTimeoutInMillis,
+                maxStaleInMillis, maxEntries, TimeUnit.SECONDS.toMillis(DEFAULT_MIN_FORCED_REFRESH_INTERVAL));
+    }
+
+    /**
+     * Create a data provider.
+     *
+     * @param refreshAheadEnabled     Whether key sets of the jwks_uris in use are refreshed in the background.
+     * @param refreshIntervalInMillis Interval at which a key set is refreshed.
+     * @param retryIntervalInMillis   Interval at which a failed refresh is retried.
+     * @param idleTimeoutInMillis     A jwks_uri which is not used for this long is dropped.
+     * @param maxStaleInMillis        Maximum time a key set is served without being fetched again. Once elapsed the
+     *                                key set is fetched on the next use.
+     * @param maxEntries              Maximum number of JWK sources held.
+     * @param minForcedRefreshIntervalInMillis Minimum time between two refreshes of a key set requested through
+     *                                         {@link #refreshJWKSResource(String)}.
+     */
+    JWKSourceDataProvider(boolean refreshAheadEnabled, long refreshIntervalInMillis, long retryIntervalInMillis,
+                          long idleTimeoutInMillis, long maxStaleInMillis, int maxEntries,
+                          long minForcedRefreshIntervalInMillis) {
+
+        this.refreshAheadEnabled = refreshAheadEnabled;
+        this.refreshIntervalInMillis = Math.max(refreshIntervalInMillis, 1);
+        this.retryIntervalInMillis = Math.max(retryIntervalInMillis, 1);
+        this.idleTimeoutInMillis = Math.max(idleTimeoutInMillis, this.refreshIntervalInMillis);
+        this.maxStaleInMillis = Math.max(maxStaleInMillis, this.refreshIntervalInMillis);
+        this.maxEntries = Math.max(maxEntries, 1);
+        this.minForcedRefreshIntervalInMillis = Math.max(minForcedRefreshIntervalInMillis, 0);
     }
 
     /**
@@ -62,11 +189,19 @@ public class JWKSourceDataProvider {
      */
     public static JWKSourceDataProvider getInstance() {
 
+        if (jwkSourceDataProvider == null) {
+            synchronized (JWKSourceDataProvider.class) {
+                if (jwkSourceDataProvider == null) {
+                    jwkSourceDataProvider = new JWKSourceDataProvider();
+                }
+            }
+        }
         return jwkSourceDataProvider;
     }
 
     /**
-     * Get cached JWKSet for the jwks_uri.
+     * Get cached JWKSet for the jwks_uri. If a concurrent fetch of the JWKS does not complete in time, a JWK source
+     * which loads the key set on first use is returned.
      *
      * @param jwksUri Identity provider's JWKS endpoint.
      * @return RemoteJWKSet.
@@ -74,43 +209,336 @@ public class JWKSourceDataProvider {
      */
     public RemoteJWKSet<SecurityContext> getJWKSource(String jwksUri) throws MalformedURLException {
 
-        JWKSCacheKey jwksCacheKey = new JWKSCacheKey(jwksUri);
-        JWKSCacheEntry jwksCacheEntry = JWKSCache.getInstance().getValueFromCache(jwksCacheKey);
-        RemoteJWKSet<SecurityContext> jwkSet = null;
-        if (jwksCacheEntry != null) {
-            jwkSet = jwksCacheEntry.getValue();
-            if (log.isDebugEnabled()) {
-                log.debug("Retrieving JWKS for " + jwksUri + " from cache.");
-            }
+        RemoteJWKSet<SecurityContext> jwkSet = getCachedJWKSource(jwksUri);
+        if (jwkSet == null) {
+            return retrieveJWKSFromJWKSEndpoint(jwksUri);
         }
+        return jwkSet;
+    }
+
+    /**
+     * Get cached JWKSet for the jwks_uri, failing if a concurrent fetch of the JWKS does not complete in time instead
+     * of fetching it again.
+     *
+     * @param jwksUri Identity provider's JWKS endpoint.
+     * @return RemoteJWKSet.
+     * @throws MalformedURLException    for invalid URL.
+     * @throws RemoteKeySourceException if a concurrent fetch of the JWKS did not complete in time.
+     */
+    public RemoteJWKSet<SecurityContext> getJWKSourceOrFail(String jwksUri) throws MalformedURLException,
+            RemoteKeySourceException {
+
+        RemoteJWKSet<SecurityContext> jwkSet = getCachedJWKSource(jwksUri);
         if (jwkSet == null) {
-            jwkSet = retrieveJWKSFromJWKSEndpoint(jwksUri);
-            JWKSCache.getInstance().addToCache(jwksCacheKey, new JWKSCacheEntry(jwkSet));
-            if (log.isDebugEnabled()) {
-                log.debug("Fetching JWKS from remote endpoint.");
-            }
+            throw new RemoteKeySourceException("JWKS of " + jwksUri + " could not be fetched in time.", null);
         }
         return jwkSet;
     }
 
     /**
-     * Retrieve the new-keyset from the JWKS endpoint in case of signature validation failure.
+     * Retrieve the new-keyset from the JWKS endpoint in case of signature validation failure. The key set is not
+     * fetched again if it was fetched within the configured minimum forced refresh interval.
      *
      * @param jwksUri Identity providers jwks_uri.
      * @throws IdentityOAuth2Exception for invalid/malformed URL.
      */
     public void refreshJWKSResource(String jwksUri) throws IdentityOAuth2Exception {
 
+        JWKSourceEntry current = jwkSources.get(jwksUri);
+        if (current != null && !current.claimForcedRefresh(System.currentTimeMillis(),
+                minForcedRefreshIntervalInMillis)) {
+            skippedForcedRefreshCount.incrementAndGet();
+            if (log.isDebugEnabled()) {
+                log.debug("JWKS of " + jwksUri + " was fetched recently. Skipped the refresh.");
+            }
+            return;
+        }
         try {
-            JWKSCacheKey jwksCacheKey = new JWKSCacheKey(jwksUri);
-            JWKSCache.getInstance().clearCacheEntry(jwksCacheKey);
-            RemoteJWKSet<SecurityContext> jwkSet = retrieveJWKSFromJWKSEndpoint(jwksUri);
-            JWKSCache.getInstance().addToCache(jwksCacheKey, new JWKSCacheEntry(jwkSet));
+            JWKSourceEntry entry = fetch(jwksUri);
+            entry.touch(System.currentTimeMillis());
+            store(jwksUri, entry);
+            scheduleRefresh(jwksUri, entry);
         } catch (MalformedURLException e) {
             throw new IdentityOAuth2Exception("Provided URI is malformed. jwks_uri: " + jwksUri, e);
         }
     }
 
+    /**
+     * Get the JWK source of a jwks_uri, fetching it if it is not held.
+     *
+     * @return JWK source, or null if a concurrent fetch did not complete in time and no JWK source was stored since.
+     */
+    private RemoteJWKSet<SecurityContext> getCachedJWKSource(String jwksUri) throws MalformedURLException {
+
+        long now = System.currentTimeMillis();
+        JWKSourceEntry entry = jwkSources.get(jwksUri);
+        if (entry != null && now - entry.getLastAccessTime() > idleTimeoutInMillis) {
+            // Not used for a while, hence fetched again.
+            jwkSources.remove(jwksUri, entry);
+            entry = null;
+        }
+        if (entry != null) {
+            hitCount.incrementAndGet();
+            entry.touch(now);
+            if (log.isDebugEnabled()) {
+                log.debug("Retrieving JWKS for " + jwksUri + " from cache.");
+            }
+            return entry.getJWKSet();
+        }
+
+        CompletableFuture<JWKSourceEntry> fetch = new CompletableFuture<>();
+        CompletableFuture<JWKSourceEntry> inFlightFetch = inFlightFetches.putIfAbsent(jwksUri, fetch);
+        if (inFlightFetch != null) {
+            coalescedCount.incrementAndGet();
+            return awaitFetch(jwksUri, inFlightFetch);
+        }
+        missCount.incrementAndGet();
+        try {
+            // Another request may have completed the fetch in the meantime.
+            entry = jwkSources.get(jwksUri);
+            if (entry == null) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Fetching JWKS from remote endpoint.");
+                }
+                entry = fetch(jwksUri);
+                entry.touch(System.currentTimeMillis());
+                store(jwksUri, entry);
+                scheduleRefresh(jwksUri, entry);
+            }
+            fetch.complete(entry);
+            return entry.getJWKSet();
+        } catch (MalformedURLException | RuntimeException e) {
+            fetch.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightFetches.remove(jwksUri, fetch);
+        }
+    }
+
+    /**
+     * Stop the background refresh of the data provider, if it was created.
+     */
+    public static void shutdownInstance() {
+
+        JWKSourceDataProvider dataProvider = jwkSourceDataProvider;
+        if (dataProvider != null) {
+            dataProvider.shutdown();
+        }
+    }
+
+    /**
+     * Stop refreshing key sets in the background. Key sets are fetched on demand afterwards.
+     */
+    public synchronized void shutdown() {
+
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    public long getHitCount() {
+
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+
+        return missCount.get();
+    }
+
+    /**
+     * Get the number of requests which waited for a fetch started by a concurrent request.
+     *
+     * @return Coalesced request count.
+     */
+    public long getCoalescedCount() {
+
+        return coalescedCount.get();
+    }
+
+    public long getRefreshCount() {
+
+        return refreshCount.get();
+    }
+
+    public long getRefreshFailureCount() {
+
+        return refreshFailureCount.get();
+    }
+
+    /**
+     * Get the number of refreshes requested through {@link #refreshJWKSResource(String)} which were skipped as the
+     * key set was fetched recently.
+     *
+     * @return Skipped forced refresh count.
+     */
+    public long getSkippedForcedRefreshCount() {
+
+        return skippedForcedRefreshCount.get();
+    }
+
+    private RemoteJWKSet<SecurityContext> awaitFetch(String jwksUri, CompletableFuture<JWKSourceEntry> inFlightFetch)
+            throws MalformedURLException {
+
+        Exception failure;
+        try {
+            return inFlightFetch.get(getFetchTimeout(), TimeUnit.MILLISECONDS).getJWKSet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof MalformedURLException) {
+                throw (MalformedURLException) e.getCause();
+            }
+            failure = e;
+        } catch (TimeoutException e) {
+            failure = e;
+        }
+        // Starting another fetch would add to the load of an endpoint which is already slow. Serve a key set which
+        // was stored in the meantime, if any.
+        JWKSourceEntry entry = jwkSources.get(jwksUri);
+        if (entry != null) {
+            return entry.getJWKSet();
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Concurrent fetch of JWKS from " + jwksUri + " did not complete in time.", failure);
+        }
+        return null;
+    }
+
+    /**
+     * Store the JWK source of a jwks_uri. When the maximum number of JWK sources is reached, idle JWK sources are
+     * dropped, or the least recently used one if none is idle. Concurrent stores may exceed the maximum slightly.
+     */
+    private void store(String jwksUri, JWKSourceEntry entry) {
+
+        if (jwkSources.size() >= maxEntries && !jwkSources.containsKey(jwksUri)) {
+            long now = System.currentTimeMillis();
+            String leastRecentlyUsedUri = null;
+            JWKSourceEntry leastRecentlyUsed = null;
+            for (Map.Entry<String, JWKSourceEntry> source : jwkSources.entrySet()) {
+                JWKSourceEntry candidate = source.getValue();
+                if (now - candidate.getLastAccessTime() > idleTimeoutInMillis) {
+                    jwkSources.remove(source.getKey(), candidate);
+                } else if (leastRecentlyUsed == null ||
+                        candidate.getLastAccessTime() < leastRecentlyUsed.getLastAccessTime()) {
+                    leastRecentlyUsedUri = source.getKey();
+                    leastRecentlyUsed = candidate;
+                }
+            }
+            if (jwkSources.size() >= maxEntries && leastRecentlyUsed != null) {
+                jwkSources.remove(leastRecentlyUsedUri, leastRecentlyUsed);
+                if (log.isDebugEnabled()) {
+                    log.debug("Maximum number of JWK sources reached. Dropped the JWKS of " + leastRecentlyUsedUri);
+                }
+            }
+        }
+        jwkSources.put(jwksUri, entry);
+    }
+
+    /**
+     * Create the JWK source of a jwks_uri and load its key set. A failure to load the key set is not propagated, in
+     * which case the key set is loaded again on first use of the returned JWK source.
+     */
+    private JWKSourceEntry fetch(String jwksUri) throws MalformedURLException {
+
+        RemoteJWKSet<SecurityContext> jwkSet = retrieveJWKSFromJWKSEndpoint(jwksUri);
+        try {
+            loadJWKSet(jwkSet);
+            return new JWKSourceEntry(jwkSet, false);
+        } catch (KeySourceException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Error while fetching JWKS from remote endpoint: " + jwksUri, e);
+            }
+            return new JWKSourceEntry(jwkSet, true);
+        }
+    }
+
+    private void loadJWKSet(RemoteJWKSet<SecurityContext> jwkSet) throws KeySourceException {
+
+        jwkSet.get(new JWKSelector(new JWKMatcher.Builder().build()), null);
+    }
+
+    private void scheduleRefresh(String jwksUri, JWKSourceEntry entry) {
+
+        if (!refreshAheadEnabled || !entry.claimRefresh()) {
+            return;
+        }
+        long delay = entry.isFetchFailed() ? retryIntervalInMillis : refreshIntervalInMillis;
+        try {
+            getScheduler().schedule(() -> refresh(jwksUri, entry), delay, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            // The scheduler was shut down. The key set is fetched again once it is stale.
+            if (log.isDebugEnabled()) {
+                log.debug("Could not schedule the refresh of JWKS from " + jwksUri, e);
+            }
+        }
+    }
+
+    /**
+     * Replace the JWK source of a jwks_uri with a freshly loaded one. Invoked by the scheduler. The current JWK
+     * source keeps being served until the new key set is loaded, and is kept if loading fails.
+     */
+    private void refresh(String jwksUri, JWKSourceEntry entry) {
+
+        if (jwkSources.get(jwksUri) != entry) {
+            // The JWK source was replaced or removed in the meantime.
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (now - entry.getLastAccessTime() > idleTimeoutInMillis) {
+            jwkSources.remove(jwksUri, entry);
+            if (log.isDebugEnabled()) {
+                log.debug("JWKS of " + jwksUri + " is not in use. Stopped refreshing it.");
+            }
+            return;
+        }
+        try {
+            RemoteJWKSet<SecurityContext> jwkSet = retrieveJWKSFromJWKSEndpoint(jwksUri);
+            loadJWKSet(jwkSet);
+            JWKSourceEntry refreshed = new JWKSourceEntry(jwkSet, false);
+            refreshed.touch(entry.getLastAccessTime());
+            if (jwkSources.replace(jwksUri, entry, refreshed)) {
+                refreshCount.incrementAndGet();
+                if (log.isDebugEnabled()) {
+                    log.debug("Refreshed JWKS of " + jwksUri + " ahead of expiry.");
+                }
+                scheduleRefresh(jwksUri, refreshed);
+            }
+        } catch (MalformedURLException | KeySourceException | RuntimeException e) {
+            refreshFailureCount.incrementAndGet();
+            log.warn("Error while refreshing JWKS from " + jwksUri + ". Continuing with the previously fetched " +
+                    "key set.");
+            if (log.isDebugEnabled()) {
+                log.debug("Error while refreshing JWKS from " + jwksUri, e);
+            }
+            entry.releaseRefresh();
+            entry.markFetchFailed();
+            scheduleRefresh(jwksUri, entry);
+        }
+    }
+
+    private synchronized ScheduledExecutorService getScheduler() {
+
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, REFRESH_THREAD_NAME);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return scheduler;
+    }
+
+    private long getFetchTimeout() {
+
+        int connectionTimeout = readHTTPConnectionConfigValue(HTTP_CONNECTION_TIMEOUT_XPATH);
+        int readTimeout = readHTTPConnectionConfigValue(HTTP_READ_TIMEOUT_XPATH);
+        return (connectionTimeout > 0 ? connectionTimeout : DEFAULT_HTTP_CONNECTION_TIMEOUT) +
+                (readTimeout > 0 ? readTimeout : DEFAULT_HTTP_READ_TIMEOUT) + 1000L;
+    }
+
     /**
      * Retrieve JWKS from jwks_uri.
      *
@@ -136,17 +564,17 @@ public class JWKSourceDataProvider {
             sizeLimit = RemoteJWKSet.DEFAULT_HTTP_SIZE_LIMIT;
         }
 
+        ResourceRetriever resourceRetriever;
         if (Boolean.parseBoolean(proxyEnabled)) {
-            ExtendedDefaultResourceRetriever resourceRetriever = new ExtendedDefaultResourceRetriever(
-                    connectionTimeout,
-                    readTimeout,
-                    sizeLimit);
-            return new RemoteJWKSet<>(new URL(jwksUri), resourceRetriever);
-        }
-        DefaultResourceRetriever resourceRetriever = new DefaultResourceRetriever(
-                connectionTimeout,
-                readTimeout,
-                sizeLimit);
+            resourceRetriever = new ExtendedDefaultResourceRetriever(connectionTimeout, readTimeout, sizeLimit);
+        } else {
+            resourceRetriever = new DefaultResourceRetriever(connectionTimeout, readTimeout, sizeLimit);
+        }
+        if (refreshAheadEnabled) {
+            // Key sets are replaced by the background refresh, hence the fetched key set is kept until it is stale.
+            return new RemoteJWKSet<>(new URL(jwksUri), resourceRetriever,
+                    new DefaultJWKSetCache(maxStaleInMillis, TimeUnit.MILLISECONDS));
+        }
         return new RemoteJWKSet<>(new URL(jwksUri), resourceRetriever);
     }
 
@@ -170,4 +598,73 @@ public class JWKSourceDataProvider {
         }
         return configValue;
     }
+
+    /**
+     * JWK source of a jwks_uri along with its refresh state.
+     */
+    private static final class JWKSourceEntry {
+
+        private final RemoteJWKSet<SecurityContext> jwkSet;
+        private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+        private final AtomicLong fetchTime = new AtomicLong(System.currentTimeMillis());
+        private volatile boolean fetchFailed;
+        private volatile long lastAccessTime;
+
+        JWKSourceEntry(RemoteJWKSet<SecurityContext> jwkSet, boolean fetchFailed) {
+
+            this.jwkSet = jwkSet;
+            this.fetchFailed = fetchFailed;
+        }
+
+        RemoteJWKSet<SecurityContext> getJWKSet() {
+
+            return jwkSet;
+        }
+
+        /**
+         * Whether the last attempt to fetch the key set failed, in which case it is retried sooner.
+         */
+        boolean isFetchFailed() {
+
+            return fetchFailed;
+        }
+
+        void markFetchFailed() {
+
+            fetchFailed = true;
+        }
+
+        long getLastAccessTime() {
+
+            return lastAccessTime;
+        }
+
+        void touch(long now) {
+
+            // Avoid writing the shared field on every access.
+            if (now - lastAccessTime > 1000) {
+                lastAccessTime = now;
+            }
+        }
+
+        boolean claimRefresh() {
+
+            return refreshScheduled.compareAndSet(false, true);
+        }
+
+        void releaseRefresh() {
+
+            refreshScheduled.set(false);
+        }
+
+        /**
+         * Claim a forced refresh of the key set, unless the key set was fetched or a forced refresh was claimed
+         * within the given interval.
+         */
+        boolean claimForcedRefresh(long now, long minIntervalInMillis) {
+
+            long lastFetchTime = fetchTime.get();
+            return now - lastFetchTime >= minIntervalInMillis && fetchTime.compareAndSet(lastFetchTime, now);
+        }
+    }
 }
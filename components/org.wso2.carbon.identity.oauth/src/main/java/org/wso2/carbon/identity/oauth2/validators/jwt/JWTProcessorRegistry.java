@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.validators.jwt;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.ConfigurableJWTProcessor;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import com.nimbusds.jwt.proc.JWTProcessor;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.wso2.carbon.identity.oauth2.util.OAuth2ConfigUtil.readIntProperty;
+
+/**
+ * Registry of the JWT processors used to validate JWTs against a jwks_uri. A processor is built once per jwks_uri and
+ * expected JWS algorithm and is never reconfigured afterwards, hence it can be shared by concurrent validations
+ * without locking.
+ * <p>
+ * A processor is bound to the JWK source it was built with. When the JWK source of the jwks_uri is replaced, e.g.
+ * after the key set is refreshed on key rotation, the processor is rebuilt with the new source. The number of cached
+ * processors is bounded and the least recently used processor is evicted once the bound is exceeded.
+ */
+public class JWTProcessorRegistry {
+
+    private static final Log log = LogFactory.getLog(JWTProcessorRegistry.class);
+
+    private static final String MAX_SIZE = "JWTValidatorConfigs.JWTProcessorCache.MaxSize";
+    private static final int DEFAULT_MAX_SIZE = 1000;
+
+    private static volatile JWTProcessorRegistry instance;
+
+    private final Map<ProcessorKey, ProcessorEntry> processors = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong refreshCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * Create a registry.
+     *
+     * @param maxSize Maximum number of cached processors.
+     */
+    public JWTProcessorRegistry(int maxSize) {
+
+        this.maxSize = Math.max(maxSize, 1);
+    }
+
+    /**
+     * Get the registry using the max size configured in identity.xml.
+     *
+     * @return JWT processor registry.
+     */
+    public static JWTProcessorRegistry getInstance() {
+
+        if (instance == null) {
+            synchronized (JWTProcessorRegistry.class) {
+                if (instance == null) {
+                    instance = new JWTProcessorRegistry(readIntProperty(MAX_SIZE, DEFAULT_MAX_SIZE));
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Get the processor validating JWTs signed with the given algorithm using keys of the given JWK source.
+     *
+     * @param jwksUri   jwks_uri of the JWK source.
+     * @param algorithm Expected JWS algorithm.
+     * @param keySource Current JWK source of the jwks_uri.
+     * @return JWT processor. The returned processor must not be reconfigured by the caller.
+     */
+    public JWTProcessor<SecurityContext> getProcessor(String jwksUri, String algorithm,
+                                                      JWKSource<SecurityContext> keySource) {
+
+        ProcessorKey key = new ProcessorKey(jwksUri, algorithm);
+        long now = System.currentTimeMillis();
+        ProcessorEntry entry = processors.get(key);
+        if (entry != null && entry.keySource == keySource) {
+            hitCount.incrementAndGet();
+            entry.touch(now);
+            return entry.processor;
+        }
+
+        ProcessorEntry created = new ProcessorEntry(createProcessor(JWSAlgorithm.parse(algorithm), keySource),
+                keySource, now);
+        if (entry == null) {
+            missCount.incrementAndGet();
+            ProcessorEntry existing = processors.putIfAbsent(key, created);
+            if (existing != null && existing.keySource == keySource) {
+                return existing.processor;
+            }
+            if (existing == null) {
+                evictIfFull();
+                return created.processor;
+            }
+            entry = existing;
+        }
+        // The JWK source of the jwks_uri was replaced since the processor was built.
+        refreshCount.incrementAndGet();
+        if (log.isDebugEnabled()) {
+            log.debug("JWK source of jwks_uri: " + jwksUri + " has changed. Rebuilding the JWT processor for " +
+                    "algorithm: " + algorithm);
+        }
+        processors.replace(key, entry, created);
+        return created.processor;
+    }
+
+    /**
+     * Drop every cached processor.
+     */
+    public void clear() {
+
+        processors.clear();
+    }
+
+    public int getSize() {
+
+        return processors.size();
+    }
+
+    public long getHitCount() {
+
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+
+        return missCount.get();
+    }
+
+    /**
+     * Get the number of processors rebuilt because the JWK source of their jwks_uri was replaced.
+     *
+     * @return Refresh count.
+     */
+    public long getRefreshCount() {
+
+        return refreshCount.get();
+    }
+
+    public long getEvictionCount() {
+
+        return evictionCount.get();
+    }
+
+    private ConfigurableJWTProcessor<SecurityContext> createProcessor(JWSAlgorithm expectedJWSAlg,
+                                                                     JWKSource<SecurityContext> keySource) {
+
+        /* Set up a JWT processor to parse the tokens and then check their signature and validity time window
+        (bounded by the "iat", "nbf" and "exp" claims). The key selector feeds matching public keys sourced from the
+        JWK set URL. */
+        ConfigurableJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+        jwtProcessor.setJWSKeySelector(new JWSVerificationKeySelector<>(expectedJWSAlg, keySource));
+        return jwtProcessor;
+    }
+
+    private void evictIfFull() {
+
+        while (processors.size() > maxSize) {
+            Map.Entry<ProcessorKey, ProcessorEntry> eldest = null;
+            for (Map.Entry<ProcessorKey, ProcessorEntry> entry : processors.entrySet()) {
+                if (eldest == null || entry.getValue().lastAccessTime < eldest.getValue().lastAccessTime) {
+                    eldest = entry;
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            if (processors.remove(eldest.getKey(), eldest.getValue())) {
+                evictionCount.incrementAndGet();
+                if (log.isDebugEnabled()) {
+                    log.debug("Evicted cached JWT processor of jwks_uri: " + eldest.getKey().jwksUri);
+                }
+            }
+        }
+    }
+
+    /**
+     * Cache key of a processor.
+     */
+    private static final class ProcessorKey {
+
+        private final String jwksUri;
+        private final String algorithm;
+        private final int hashCode;
+
+        ProcessorKey(String jwksUri, String algorithm) {
+
+            this.jwksUri = jwksUri;
+            this.algorithm = algorithm;
+            this.hashCode = Objects.hash(jwksUri, algorithm);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ProcessorKey)) {
+                return false;
+            }
+            ProcessorKey that = (ProcessorKey) o;
+            return Objects.equals(jwksUri, that.jwksUri) && Objects.equals(algorithm, that.algorithm);
+        }
+
+        @Override
+        public int hashCode() {
+
+            return hashCode;
+        }
+    }
+
+    /**
+     * Processor along with the JWK source it was built with.
+     */
+    private static final class ProcessorEntry {
+
+        private final JWTProcessor<SecurityContext> processor;
+        private final JWKSource<SecurityContext> keySource;
+        private volatile long lastAccessTime;
+
+        ProcessorEntry(JWTProcessor<SecurityContext> processor, JWKSource<SecurityContext> keySource, long now) {
+
+            this.processor = processor;
+            this.keySource = keySource;
+            this.lastAccessTime = now;
+        }
+
+        void touch(long now) {
+
+            // Avoid writing the shared field on every access.
+            if (now - lastAccessTime > 1000) {
+                lastAccessTime = now;
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.openidconnect.cache;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.core.cache.BaseCache;
+import org.wso2.carbon.identity.core.util.IdentityTenantUtil;
+
+/**
+ * Cache of the rendered OpenID Connect discovery document of each tenant, keyed by the tenant domain. The document
+ * is cleared when the OIDC claims or scopes of the tenant change, and is rebuilt with the next discovery request.
+ */
+public class OIDCDiscoveryDocumentCache extends BaseCache<String, OIDCDiscoveryDocumentCacheEntry> {
+
+    private static final Log log = LogFactory.getLog(OIDCDiscoveryDocumentCache.class);
+    public static final String OIDC_DISCOVERY_DOCUMENT_CACHE = "OIDCDiscoveryDocumentCache";
+    private static volatile OIDCDiscoveryDocumentCache instance;
+
+    private OIDCDiscoveryDocumentCache() {
+
+        super(OIDC_DISCOVERY_DOCUMENT_CACHE);
+    }
+
+    public static OIDCDiscoveryDocumentCache getInstance() {
+
+        if (instance == null) {
+            synchronized (OIDCDiscoveryDocumentCache.class) {
+                if (instance == null) {
+                    instance = new OIDCDiscoveryDocumentCache();
+                }
+            }
+        }
+        return instance;
+    }
+
+    public void addDocument(String tenantDomain, OIDCDiscoveryDocumentCacheEntry document) {
+
+        super.addToCache(tenantDomain, document, tenantDomain);
+    }
+
+    public OIDCDiscoveryDocumentCacheEntry getDocument(String tenantDomain) {
+
+        return super.getValueFromCache(tenantDomain, tenantDomain);
+    }
+
+    public void clearDocument(String tenantDomain) {
+
+        super.clearCacheEntry(tenantDomain, tenantDomain);
+        if (log.isDebugEnabled()) {
+            log.debug("OIDC discovery document is cleared for the tenant: " + tenantDomain);
+        }
+    }
+
+    public void clearDocument(int tenantId) {
+
+        clearDocument(IdentityTenantUtil.getTenantDomain(tenantId));
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.openidconnect.cache;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.wso2.carbon.identity.core.cache.CacheEntry;
+
+/**
+ * Cache Entry which will use in {@link OIDCDiscoveryDocumentCache}. Holds the rendered discovery document along with
+ * its entity tag and the time it was built, which are used to answer conditional discovery requests.
+ */
+public class OIDCDiscoveryDocumentCacheEntry extends CacheEntry {
+
+    private static final long serialVersionUID = -4383512907396542931L;
+
+    private final String document;
+    private final String eTag;
+    private final long lastModified;
+
+    /**
+     * Create an entry for a rendered discovery document.
+     *
+     * @param document     Rendered discovery document.
+     * @param lastModified Time the document was built, in milliseconds. Truncated to seconds, as HTTP dates are.
+     */
+    public OIDCDiscoveryDocumentCacheEntry(String document, long lastModified) {
+
+        this.document = document;
+        this.eTag = DigestUtils.sha256Hex(document);
+        this.lastModified = lastModified - lastModified % 1000;
+    }
+
+    public String getDocument() {
+
+        return document;
+    }
+
+    /**
+     * Get the entity tag of the document, without quotes.
+     *
+     * @return Entity tag.
+     */
+    public String getETag() {
+
+        return eTag;
+    }
+
+    public long getLastModified() {
+
+        return lastModified;
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.cache;
+
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+public class OAuthNearCacheTest {
+
+    private static final String TENANT_DOMAIN = "wso2.com";
+    private static final String OTHER_TENANT_DOMAIN = "abc.com";
+
+    @Test
+    public void testGetAndInvalidate() {
+
+        OAuthNearCache cache = new OAuthNearCache(true, 10, 60000);
+        OAuthCacheKey key = new OAuthCacheKey("token");
+        CacheEntry entry = new TestCacheEntry();
+
+        assertNull(cache.get(key, TENANT_DOMAIN));
+        cache.put(key, entry, TENANT_DOMAIN);
+        assertSame(cache.get(new OAuthCacheKey("token"), TENANT_DOMAIN), entry);
+
+        cache.invalidate(key, TENANT_DOMAIN);
+        assertNull(cache.get(key, TENANT_DOMAIN));
+
+        OAuthNearCache.TenantMetrics metrics = cache.getMetrics(TENANT_DOMAIN);
+        assertEquals(metrics.getHitCount(), 1);
+        assertEquals(metrics.getMissCount(), 2);
+        assertEquals(metrics.getInvalidationCount(), 1);
+        assertEquals(cache.getMetrics("carbon.super").getHitCount(), 0);
+    }
+
+    @Test
+    public void testEntriesAreCachedPerTenant() {
+
+        OAuthNearCache cache = new OAuthNearCache(true, 10, 60000);
+        OAuthCacheKey key = new OAuthCacheKey("appInfo");
+        CacheEntry entry = new TestCacheEntry();
+        CacheEntry otherTenantEntry = new TestCacheEntry();
+
+        cache.put(key, entry, TENANT_DOMAIN);
+        assertNull(cache.get(key, OTHER_TENANT_DOMAIN));
+        cache.put(key, otherTenantEntry, OTHER_TENANT_DOMAIN);
+        assertSame(cache.get(key, TENANT_DOMAIN), entry);
+        assertSame(cache.get(key, OTHER_TENANT_DOMAIN), otherTenantEntry);
+
+        cache.invalidate(key, OTHER_TENANT_DOMAIN);
+        assertNull(cache.get(key, OTHER_TENANT_DOMAIN));
+        assertSame(cache.get(key, TENANT_DOMAIN), entry);
+        assertEquals(cache.getMetrics(OTHER_TENANT_DOMAIN).getInvalidationCount(), 1);
+        assertEquals(cache.getMetrics(TENANT_DOMAIN).getInvalidationCount(), 0);
+    }
+
+    @Test
+    public void testEntriesWithoutTenantAreCachedInSuperTenant() {
+
+        OAuthNearCache cache = new OAuthNearCache(true, 10, 60000);
+        OAuthCacheKey key = new OAuthCacheKey("appInfo");
+        CacheEntry entry = new TestCacheEntry();
+
+        cache.put(key, entry, null);
+        assertSame(cache.get(key, "carbon.super"), entry);
+        cache.invalidate(key, "carbon.super");
+        assertNull(cache.get(key, null));
+    }
+
+    @Test
+    public void testHotEntriesStayResident() {
+
+        OAuthNearCache cache = new OAuthNearCache(true, 4, 60000);
+        for (int i = 0; i < 4; i++) {
+            OAuthCacheKey key = new OAuthCacheKey("hot" + i);
+            cache.put(key, new TestCacheEntry(), TENANT_DOMAIN);
+            for (int j = 0; j < 5; j++) {
+                cache.get(key, TENANT_DOMAIN);
+            }
+        }
+
+        for (int i = 0; i < 20; i++) {
+            OAuthCacheKey key = new OAuthCacheKey("cold" + i);
+            cache.get(key, TENANT_DOMAIN);
+            cache.put(key, new TestCacheEntry(), TENANT_DOMAIN);
+        }
+        assertEquals(cache.getSize(), 4);
+        assertEquals(cache.getMetrics(TENANT_DOMAIN).getRejectionCount(), 20);
+        assertEquals(cache.getMetrics(TENANT_DOMAIN).getEvictionCount(), 0);
+
+        OAuthCacheKey newHotKey = new OAuthCacheKey("newHot");
+        for (int j = 0; j < 10; j++) {
+            cache.get(newHotKey, TENANT_DOMAIN);
+        }
+        cache.put(newHotKey, new TestCacheEntry(), TENANT_DOMAIN);
+        assertEquals(cache.getSize(), 4);
+        assertEquals(cache.getMetrics(TENANT_DOMAIN).getEvictionCount(), 1);
+    }
+
+    @Test
+    public void testInvalidatedEntryIsNotCachedAgain() {
+
+        OAuthNearCache cache = new OAuthNearCache(true, 10, 60000);
+        OAuthCacheKey key = new OAuthCacheKey("token");
+        long stamp = cache.getInvalidationStamp();
+        cache.invalidate(key, TENANT_DOMAIN);
+        cache.put(key, new TestCacheEntry(), TENANT_DOMAIN, stamp);
+        assertNull(cache.get(key, TENANT_DOMAIN));
+
+        cache.put(key, new TestCacheEntry(), TENANT_DOMAIN, cache.getInvalidationStamp());
+        assertEquals(cache.getSize(), 1);
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+
+        OAuthNearCache cache = new OAuthNearCache(true, 10, 50);
+        OAuthCacheKey key = new OAuthCacheKey("token");
+        cache.put(key, new TestCacheEntry(), TENANT_DOMAIN);
+        Thread.sleep(100);
+        assertNull(cache.get(key, TENANT_DOMAIN));
+        assertEquals(cache.getSize(), 0);
+    }
+
+    @Test
+    public void testAccessTokenTimeout() throws Exception {
+
+        OAuthNearCache cache = new OAuthNearCache(true, 10, 60000, 50);
+        OAuthCacheKey tokenKey = new OAuthCacheKey("token");
+        OAuthCacheKey appKey = new OAuthCacheKey("appInfo");
+        CacheEntry appEntry = new TestCacheEntry();
+        cache.put(tokenKey, new AccessTokenDO(), TENANT_DOMAIN);
+        cache.put(appKey, appEntry, TENANT_DOMAIN);
+        Thread.sleep(100);
+        assertNull(cache.get(tokenKey, TENANT_DOMAIN));
+        assertSame(cache.get(appKey, TENANT_DOMAIN), appEntry);
+    }
+
+    @Test
+    public void testDisabled() {
+
+        OAuthNearCache cache = new OAuthNearCache(false, 10, 60000);
+        OAuthCacheKey key = new OAuthCacheKey("token");
+        cache.put(key, new TestCacheEntry(), TENANT_DOMAIN);
+        assertNull(cache.get(key, TENANT_DOMAIN));
+        assertEquals(cache.getSize(), 0);
+    }
+
+    private static class TestCacheEntry extends CacheEntry {
+
+        private static final long serialVersionUID = -2213430464381219342L;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.tokenprocessor;
+
+import org.json.JSONObject;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+/**
+ * Test class for {@link TokenHashEngine}.
+ */
+public class TokenHashEngineTest {
+
+    @DataProvider(name = "hashData")
+    public Object[][] hashData() {
+
+        StringBuilder longValue = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            longValue.append("abcdefgh");
+        }
+        return new Object[][]{
+                {"SHA-256", "c2a6f7d1-6fd2-3dcb-a9a0-1f6f2b3a7b33"},
+                {"SHA-512", "eyJ4NXQiOiJNell4TW1Ga09HWXdNV0kwWldObU5EY3hOR1l3WW1NNFp"},
+                {"MD5", "client-secret"},
+                {"SHA-256", "t\u00f6k\u00e9n-\u4e2d\u6587"},
+                {"SHA-256", longValue.toString()}
+        };
+    }
+
+    @Test(dataProvider = "hashData")
+    public void testHashToJsonMatchesPersistedFormat(String algorithm, String plainText) throws Exception {
+
+        TokenHashEngine engine = TokenHashEngine.getInstance(algorithm);
+        assertEquals(engine.hashToJson(plainText), legacyHash(algorithm, plainText));
+        // Reused thread local buffers must not leak state between calls.
+        assertEquals(engine.hashToJson(plainText), legacyHash(algorithm, plainText));
+    }
+
+    @Test(dataProvider = "hashData")
+    public void testHash(String algorithm, String plainText) throws Exception {
+
+        assertEquals(TokenHashEngine.getInstance(algorithm).hash(plainText), legacyHex(algorithm, plainText));
+    }
+
+    @Test
+    public void testEngineIsReused() throws Exception {
+
+        assertSame(TokenHashEngine.getInstance("SHA-256"), TokenHashEngine.getInstance("SHA-256"));
+    }
+
+    @Test(expectedExceptions = NoSuchAlgorithmException.class)
+    public void testUnsupportedAlgorithm() throws Exception {
+
+        TokenHashEngine.getInstance("TestAlgo");
+    }
+
+    @Test
+    public void testConcurrentHashing() throws Exception {
+
+        TokenHashEngine engine = TokenHashEngine.getInstance("SHA-256");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                int thread = i;
+                futures.add(executor.submit((Callable<Void>) () -> {
+                    for (int j = 0; j < 200; j++) {
+                        String value = "token-" + thread + "-" + j;
+                        assertEquals(engine.hashToJson(value), legacyHash("SHA-256", value));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static String legacyHash(String algorithm, String plainText) throws NoSuchAlgorithmException {
+
+        JSONObject object = new JSONObject();
+        object.put(HashingPersistenceProcessor.ALGORITHM, algorithm);
+        object.put(HashingPersistenceProcessor.HASH, legacyHex(algorithm, plainText));
+        return object.toString();
+    }
+
+    private static String legacyHex(String algorithm, String plainText) throws NoSuchAlgorithmException {
+
+        MessageDigest messageDigest = MessageDigest.getInstance(algorithm);
+        messageDigest.update(plainText.getBytes(StandardCharsets.UTF_8));
+        StringBuilder result = new StringBuilder();
+        for (byte byt : messageDigest.digest()) {
+            result.append(Integer.toString((byt & 0xff) + 0x100, 16).substring(1));
+        }
+        return result.toString();
+    }
+}
@@ -31,15 +31,20 @@ import org.wso2.carbon.identity.oauth2.dto.OAuth2TokenValidationResponseDTO;
 import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
 import org.wso2.carbon.identity.oauth2.validators.TokenValidationHandler;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyMap;
 import static org.mockito.Matchers.anyObject;
+import static org.powermock.api.mockito.PowerMockito.doAnswer;
 import static org.powermock.api.mockito.PowerMockito.doNothing;
 import static org.powermock.api.mockito.PowerMockito.doThrow;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
 import static org.powermock.api.mockito.PowerMockito.when;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
 
 @PrepareForTest({OAuth2Util.class, TokenValidationHandler.class, OAuthComponentServiceHolder.class,
         OAuthServerConfiguration.class})
@@ -223,4 +228,28 @@ public class OAuth2TokenValidationServiceTest extends PowerMockTestCase {
         assertNotNull(tokenValidationService.buildIntrospectionResponse(mockedOAuth2TokenValidationRequestDTO),
                 "Expected to be not null");
     }
+
+    @Test
+    public void testBuildIntrospectionResponsesReleasesPrefetchedTokens() throws Exception {
+
+        AtomicBoolean released = new AtomicBoolean();
+        mockStatic(OAuth2Util.class);
+        doAnswer(invocation -> {
+            released.set(true);
+            return null;
+        }).when(OAuth2Util.class, "clearPrefetchedAccessTokens");
+        when(mockedOAuthEventInterceptor.isEnabled()).thenReturn(false);
+        when(mockedValidationHandler.buildIntrospectionResponse(any(OAuth2TokenValidationRequestDTO.class)))
+                .thenThrow(new IllegalStateException("dummyException"));
+
+        try {
+            tokenValidationService.buildIntrospectionResponses(
+                    new OAuth2TokenValidationRequestDTO[]{mockedOAuth2TokenValidationRequestDTO});
+            fail("Expected IllegalStateException was not thrown.");
+        } catch (IllegalStateException e) {
+            assertEquals(e.getMessage(), "dummyException");
+        }
+        // Prefetched tokens must not remain on the pooled request thread.
+        assertTrue(released.get(), "Prefetched access tokens were not released.");
+    }
 }
@@ -39,7 +39,8 @@ import org.wso2.carbon.identity.oauth2.dto.OAuth2TokenValidationResponseDTO;
 import org.wso2.carbon.identity.oauth2.internal.OAuth2ServiceComponentHolder;
 import org.wso2.carbon.identity.oauth2.keyidprovider.DefaultKeyIDProviderImpl;
 import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
-import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
+import org.wso2.carbon.identity.oauth2.signing.SigningKeyRegistry;
+import org.wso2.carbon.identity.oauth2.signing.StaticSigningKeyLoader;
 import org.wso2.carbon.identity.oauth2.validators.DefaultOAuth2TokenValidator;
 import org.wso2.carbon.identity.oauth2.validators.OAuth2TokenValidationMessageContext;
 import org.wso2.carbon.identity.testutil.ReadCertStoreSampleUtil;
@@ -47,13 +48,10 @@ import org.wso2.carbon.identity.testutil.powermock.PowerMockIdentityBaseTest;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
-import java.security.Key;
-import java.security.cert.Certificate;
+import java.security.KeyStore;
 import java.sql.Timestamp;
 import java.util.Date;
-import java.util.Map;
 import java.util.Random;
-import java.util.concurrent.ConcurrentHashMap;
 
 import static org.mockito.Mockito.mock;
 
@@ -135,14 +133,10 @@ public class JWTTokenGeneratorTest extends PowerMockIdentityBaseTest {
         addSampleOauth2Application();
         ClaimCache claimsLocalCache = ClaimCache.getInstance();
         Whitebox.setInternalState(jwtTokenGenerator, "claimsLocalCache", claimsLocalCache);
-        Map<Integer, Certificate> publicCerts = new ConcurrentHashMap<>();
-        publicCerts.put(-1234, ReadCertStoreSampleUtil.createKeyStore(getClass())
-                                                      .getCertificate("wso2carbon"));
-        setFinalStatic(OAuth2Util.class.getDeclaredField("publicCerts"), publicCerts);
-        Map<Integer, Key> privateKeys = new ConcurrentHashMap<>();
-        privateKeys.put(-1234, ReadCertStoreSampleUtil.createKeyStore(getClass())
-                                                      .getKey("wso2carbon", "wso2carbon".toCharArray()));
-        setFinalStatic(OAuth2Util.class.getDeclaredField("privateKeys"), privateKeys);
+        KeyStore signingKeyStore = ReadCertStoreSampleUtil.createKeyStore(getClass());
+        setFinalStatic(SigningKeyRegistry.class.getDeclaredField("instance"), new SigningKeyRegistry(
+                new StaticSigningKeyLoader(signingKeyStore.getKey("wso2carbon", "wso2carbon".toCharArray()),
+                        signingKeyStore.getCertificate("wso2carbon")), 10, 0));
 
         accessToken.setTokenType("Bearer");
         oAuth2TokenValidationRequestDTO.setAccessToken(accessToken);
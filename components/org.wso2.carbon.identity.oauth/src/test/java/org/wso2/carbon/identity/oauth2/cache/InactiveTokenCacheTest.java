@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.cache;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class InactiveTokenCacheTest {
+
+    private static final String TOKEN = "c9b3a0a1-4f1e-3a55-9e3b-5b1d6a2f6c10";
+
+    @Test
+    public void testInactiveToken() {
+
+        InactiveTokenCache cache = new InactiveTokenCache(true, 10, 60000);
+        assertFalse(cache.isInactive(TOKEN, false));
+
+        cache.addInactive(TOKEN, false);
+        assertTrue(cache.isInactive(TOKEN, false));
+        assertFalse(cache.isInactive(TOKEN, true), "An expired or revoked token may still exist.");
+
+        cache.addInactive(TOKEN, true);
+        assertTrue(cache.isInactive(TOKEN, true));
+        assertEquals(cache.getHitCount(), 2);
+        assertEquals(cache.getMissCount(), 2);
+    }
+
+    @Test
+    public void testPersistedTokenIsInvalidated() {
+
+        InactiveTokenCache cache = new InactiveTokenCache(true, 10, 60000);
+        cache.addInactive(TOKEN, false);
+        cache.invalidate(TOKEN);
+        assertFalse(cache.isInactive(TOKEN, false));
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+
+        InactiveTokenCache cache = new InactiveTokenCache(true, 10, 50);
+        cache.addInactive(TOKEN, false);
+        Thread.sleep(100);
+        assertFalse(cache.isInactive(TOKEN, false));
+        assertEquals(cache.getSize(), 0);
+    }
+
+    @Test
+    public void testBoundedSize() {
+
+        InactiveTokenCache cache = new InactiveTokenCache(true, 4, 60000);
+        for (int i = 0; i < 10; i++) {
+            cache.addInactive(TOKEN + i, false);
+        }
+        assertEquals(cache.getSize(), 4);
+        assertEquals(cache.getEvictionCount(), 6);
+        assertTrue(cache.isInactive(TOKEN + 9, false));
+    }
+
+    @Test
+    public void testDisabledCache() {
+
+        InactiveTokenCache cache = new InactiveTokenCache(false, 10, 60000);
+        cache.addInactive(TOKEN, false);
+        assertFalse(cache.isInactive(TOKEN, false));
+        assertEquals(cache.getSize(), 0);
+    }
+}
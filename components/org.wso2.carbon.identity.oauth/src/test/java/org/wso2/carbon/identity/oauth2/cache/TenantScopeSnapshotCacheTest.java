@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.identity.oauth2.cache;
+
+import org.powermock.reflect.internal.WhiteboxImpl;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.oauth2.bean.Scope;
+import org.wso2.carbon.identity.oauth2.cache.TenantScopeSnapshotCache.TenantScopeSnapshot;
+import org.wso2.carbon.identity.oauth2.dao.OAuthScopeDAO;
+import org.wso2.carbon.identity.oauth2.dao.OAuthTokenPersistenceFactory;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class TenantScopeSnapshotCacheTest {
+
+    private static final int TENANT_ID = 1;
+
+    private OAuthScopeDAO oAuthScopeDAO;
+    private Object originalScopeDAO;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+
+        oAuthScopeDAO = mock(OAuthScopeDAO.class);
+        originalScopeDAO = WhiteboxImpl.getInternalState(OAuthTokenPersistenceFactory.getInstance(), "scopeDAO");
+        WhiteboxImpl.setInternalState(OAuthTokenPersistenceFactory.getInstance(), "scopeDAO", oAuthScopeDAO);
+        when(oAuthScopeDAO.getAllScopes(TENANT_ID)).thenReturn(new HashSet<>(Arrays.asList(
+                new Scope("scope1", "scope1", "scope1"),
+                new Scope("scope2", "scope2", "scope2", Arrays.asList("role1", "role2")))));
+    }
+
+    @AfterMethod
+    public void tearDown() {
+
+        WhiteboxImpl.setInternalState(OAuthTokenPersistenceFactory.getInstance(), "scopeDAO", originalScopeDAO);
+    }
+
+    @Test
+    public void testSnapshot() throws Exception {
+
+        TenantScopeSnapshotCache cache = new TenantScopeSnapshotCache(true, 60000);
+        TenantScopeSnapshot snapshot = cache.getSnapshot(TENANT_ID);
+
+        assertTrue(snapshot.hasScope("scope1"));
+        assertTrue(snapshot.hasScope("scope2"));
+        assertFalse(snapshot.hasScope("scope3"));
+        assertTrue(snapshot.getBindings("scope1").isEmpty());
+        assertEquals(snapshot.getBindings("scope2"), new HashSet<>(Arrays.asList("role1", "role2")));
+        assertTrue(snapshot.getBindings("scope3").isEmpty());
+
+        assertSame(cache.getSnapshot(TENANT_ID), snapshot);
+        verify(oAuthScopeDAO, times(1)).getAllScopes(TENANT_ID);
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+
+        TenantScopeSnapshotCache cache = new TenantScopeSnapshotCache(true, 60000);
+        assertFalse(cache.getSnapshot(TENANT_ID).hasScope("scope3"));
+
+        when(oAuthScopeDAO.getAllScopes(TENANT_ID)).thenReturn(Collections.singleton(
+                new Scope("scope3", "scope3", "scope3")));
+        assertFalse(cache.getSnapshot(TENANT_ID).hasScope("scope3"));
+
+        cache.invalidate(TENANT_ID);
+        TenantScopeSnapshot snapshot = cache.getSnapshot(TENANT_ID);
+        assertTrue(snapshot.hasScope("scope3"));
+        assertEquals(snapshot.getScopeCount(), 1);
+        verify(oAuthScopeDAO, times(2)).getAllScopes(TENANT_ID);
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+
+        TenantScopeSnapshotCache cache = new TenantScopeSnapshotCache(true, 50);
+        cache.getSnapshot(TENANT_ID);
+        Thread.sleep(100);
+        cache.getSnapshot(TENANT_ID);
+        verify(oAuthScopeDAO, times(2)).getAllScopes(TENANT_ID);
+    }
+
+    @Test
+    public void testDisabledCache() throws Exception {
+
+        TenantScopeSnapshotCache cache = new TenantScopeSnapshotCache(false, 60000);
+        assertNull(cache.getSnapshot(TENANT_ID));
+        verify(oAuthScopeDAO, times(0)).getAllScopes(TENANT_ID);
+    }
+}
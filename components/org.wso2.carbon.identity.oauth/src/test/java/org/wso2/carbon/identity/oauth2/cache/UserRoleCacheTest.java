@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.identity.oauth2.cache;
+
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.application.authentication.framework.model.AuthenticatedUser;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+public class UserRoleCacheTest {
+
+    private static final String[] ROLES = new String[]{"Internal/everyone", "admin"};
+
+    @Test
+    public void testUserRoles() {
+
+        UserRoleCache cache = new UserRoleCache(true, 10, 60000);
+        assertNull(cache.getRoles(getUser("alice")));
+
+        cache.addRoles(getUser("alice"), ROLES);
+        assertEquals(cache.getRoles(getUser("alice")), ROLES);
+        assertNull(cache.getRoles(getUser("bob")));
+        assertEquals(cache.getHitCount(), 1);
+        assertEquals(cache.getMissCount(), 2);
+
+        cache.invalidate(getUser("alice"));
+        assertNull(cache.getRoles(getUser("alice")));
+    }
+
+    @Test
+    public void testCachedRolesAreCopied() {
+
+        UserRoleCache cache = new UserRoleCache(true, 10, 60000);
+        String[] roles = ROLES.clone();
+        cache.addRoles(getUser("alice"), roles);
+        roles[1] = "modified";
+        cache.getRoles(getUser("alice"))[0] = "modified";
+        assertEquals(cache.getRoles(getUser("alice")), ROLES);
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+
+        UserRoleCache cache = new UserRoleCache(true, 10, 50);
+        cache.addRoles(getUser("alice"), ROLES);
+        Thread.sleep(100);
+        assertNull(cache.getRoles(getUser("alice")));
+        assertEquals(cache.getSize(), 0);
+    }
+
+    @Test
+    public void testBoundedSize() {
+
+        UserRoleCache cache = new UserRoleCache(true, 4, 60000);
+        for (int i = 0; i < 10; i++) {
+            cache.addRoles(getUser("user" + i), ROLES);
+        }
+        assertEquals(cache.getSize(), 4);
+        assertEquals(cache.getEvictionCount(), 6);
+        assertEquals(cache.getRoles(getUser("user9")), ROLES);
+    }
+
+    @Test
+    public void testDisabledCache() {
+
+        UserRoleCache cache = new UserRoleCache(false, 10, 60000);
+        cache.addRoles(getUser("alice"), ROLES);
+        assertNull(cache.getRoles(getUser("alice")));
+        assertEquals(cache.getSize(), 0);
+    }
+
+    private AuthenticatedUser getUser(String userName) {
+
+        AuthenticatedUser user = new AuthenticatedUser();
+        user.setUserName(userName);
+        user.setUserStoreDomain("PRIMARY");
+        user.setTenantDomain("carbon.super");
+        return user;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.cleanup;
+
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+import org.wso2.carbon.identity.oauth2.dao.ExpiredTokenCleanupDAO;
+import org.wso2.carbon.identity.oauth2.dao.ExpiredTokenCleanupDAO.CleanupPage;
+import org.wso2.carbon.identity.oauth2.dao.ExpiredTokenCleanupDAO.CleanupTarget;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+
+public class ExpiredTokenCleanupServiceTest {
+
+    @Test
+    public void testCleanupPagesThroughTables() throws Exception {
+
+        ExpiredTokenCleanupDAO cleanupDAO = mock(ExpiredTokenCleanupDAO.class);
+        when(cleanupDAO.cleanupPage(any(CleanupTarget.class), anyString(), anyInt(), anyLong()))
+                .thenReturn(new CleanupPage("", 0, 0, false));
+        when(cleanupDAO.cleanupPage(eq(CleanupTarget.ACCESS_TOKEN), eq(""), eq(2), anyLong()))
+                .thenReturn(new CleanupPage("b", 2, 2, true));
+        when(cleanupDAO.cleanupPage(eq(CleanupTarget.ACCESS_TOKEN), eq("b"), eq(2), anyLong()))
+                .thenReturn(new CleanupPage("c", 1, 1, false));
+
+        ExpiredTokenCleanupService service = new ExpiredTokenCleanupService(cleanupDAO, null, 2, 0, 0, 60000);
+        service.runCleanup();
+
+        assertEquals(service.getRemovedCount(CleanupTarget.ACCESS_TOKEN), 3);
+        assertEquals(service.getRunCount(), 1);
+        verify(cleanupDAO).cleanupPage(eq(CleanupTarget.ACCESS_TOKEN), eq("b"), eq(2), anyLong());
+        for (CleanupTarget target : CleanupTarget.values()) {
+            verify(cleanupDAO).cleanupPage(eq(target), eq(""), eq(2), anyLong());
+        }
+    }
+
+    @Test
+    public void testRunResumesAfterTimeBudget() throws Exception {
+
+        ExpiredTokenCleanupDAO cleanupDAO = mock(ExpiredTokenCleanupDAO.class);
+        when(cleanupDAO.cleanupPage(any(CleanupTarget.class), anyString(), anyInt(), anyLong()))
+                .thenReturn(new CleanupPage("", 0, 0, false));
+        when(cleanupDAO.cleanupPage(eq(CleanupTarget.ACCESS_TOKEN), eq(""), anyInt(), anyLong()))
+                .thenReturn(new CleanupPage("b", 2, 2, true));
+
+        // A one millisecond budget with a pause between pages stops the run after the first page.
+        ExpiredTokenCleanupService service = new ExpiredTokenCleanupService(cleanupDAO, null, 2, 5, 0, 1);
+        service.runCleanup();
+        service.runCleanup();
+
+        verify(cleanupDAO).cleanupPage(eq(CleanupTarget.ACCESS_TOKEN), eq(""), eq(2), anyLong());
+        verify(cleanupDAO).cleanupPage(eq(CleanupTarget.ACCESS_TOKEN), eq("b"), eq(2), anyLong());
+    }
+
+    @Test
+    public void testUnavailableTableIsSkipped() throws Exception {
+
+        ExpiredTokenCleanupDAO cleanupDAO = mock(ExpiredTokenCleanupDAO.class);
+        when(cleanupDAO.cleanupPage(any(CleanupTarget.class), anyString(), anyInt(), anyLong()))
+                .thenReturn(new CleanupPage("", 0, 0, false));
+        when(cleanupDAO.cleanupPage(eq(CleanupTarget.CIBA_AUTH_CODE), anyString(), anyInt(), anyLong()))
+                .thenThrow(new IdentityOAuth2Exception("Table not found"));
+
+        ExpiredTokenCleanupService service = new ExpiredTokenCleanupService(cleanupDAO, null, 2, 0, 0, 60000);
+        service.runCleanup();
+        service.runCleanup();
+
+        verify(cleanupDAO, times(1)).cleanupPage(eq(CleanupTarget.CIBA_AUTH_CODE), anyString(), anyInt(),
+                anyLong());
+        verify(cleanupDAO, times(2)).cleanupPage(eq(CleanupTarget.DEVICE_CODE), anyString(), anyInt(), anyLong());
+    }
+}
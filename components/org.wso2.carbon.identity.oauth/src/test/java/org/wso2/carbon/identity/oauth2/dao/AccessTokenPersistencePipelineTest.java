@@ -0,0 +1,311 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.dao;
+
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.application.authentication.framework.model.AuthenticatedUser;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class AccessTokenPersistencePipelineTest {
+
+    @Test
+    public void testTokensArePersistedInBatches() throws Exception {
+
+        AccessTokenDAO accessTokenDAO = mock(AccessTokenDAO.class);
+        List<List<String>> batches = Collections.synchronizedList(new ArrayList<>());
+        Set<String> committed = Collections.synchronizedSet(new HashSet<>());
+        CountDownLatch firstBatch = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            List<String> tokenIds = getTokenIds(invocation.getArguments()[0]);
+            batches.add(tokenIds);
+            firstBatch.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            committed.addAll(tokenIds);
+            return null;
+        }).when(accessTokenDAO).insertAccessTokens(anyListOf(AccessContextTokenDO.class));
+
+        AccessTokenPersistencePipeline pipeline = new AccessTokenPersistencePipeline(accessTokenDAO, 100, 5, 1000);
+        pipeline.start();
+        ExecutorService executor = Executors.newFixedThreadPool(12);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            futures.add(executor.submit(() -> persistAndCheck(pipeline, createToken(0), committed)));
+            assertTrue(firstBatch.await(10, TimeUnit.SECONDS));
+            // Queue the remaining tokens while the first batch is being committed.
+            for (int i = 1; i < 12; i++) {
+                AccessContextTokenDO token = createToken(i);
+                futures.add(executor.submit(() -> persistAndCheck(pipeline, token, committed)));
+            }
+            while (pipeline.getQueueSize() < 11) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            for (Future<Boolean> future : futures) {
+                assertTrue(future.get(10, TimeUnit.SECONDS), "A token was handed out before it was committed.");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        pipeline.shutdown();
+
+        assertEquals(pipeline.getPersistedCount(), 12);
+        assertEquals(pipeline.getQueueSize(), 0);
+        assertTrue(batches.size() < 12, "Queued tokens should share batches.");
+        for (List<String> batch : batches) {
+            assertTrue(batch.size() <= 5);
+        }
+        verify(accessTokenDAO, never()).insertAccessToken(anyString(), anyString(), any(AccessTokenDO.class),
+                any(AccessTokenDO.class), anyString());
+    }
+
+    @Test
+    public void testTokensOfSameKeyAreNotBatchedTogether() throws Exception {
+
+        AccessTokenDAO accessTokenDAO = mock(AccessTokenDAO.class);
+        List<List<String>> batches = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch firstBatch = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            batches.add(getTokenIds(invocation.getArguments()[0]));
+            firstBatch.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return null;
+        }).when(accessTokenDAO).insertAccessTokens(anyListOf(AccessContextTokenDO.class));
+
+        AccessTokenPersistencePipeline pipeline = new AccessTokenPersistencePipeline(accessTokenDAO, 100, 10, 1000);
+        pipeline.start();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            futures.add(executor.submit(() -> persist(pipeline, createToken(0))));
+            assertTrue(firstBatch.await(10, TimeUnit.SECONDS));
+            futures.add(executor.submit(() -> persist(pipeline, createToken(1, "user1"))));
+            futures.add(executor.submit(() -> persist(pipeline, createToken(2, "user2"))));
+            futures.add(executor.submit(() -> persist(pipeline, createToken(3, "user1"))));
+            while (pipeline.getQueueSize() < 3) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        pipeline.shutdown();
+
+        assertEquals(pipeline.getPersistedCount(), 4);
+        for (List<String> batch : batches) {
+            assertFalse(batch.contains("tokenId1") && batch.contains("tokenId3"),
+                    "Tokens of the same user, client and scope must not share a transaction.");
+        }
+    }
+
+    @Test
+    public void testCallerPersistsWhenQueueIsFull() throws Exception {
+
+        AccessTokenDAO accessTokenDAO = mock(AccessTokenDAO.class);
+        CountDownLatch firstBatch = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            firstBatch.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return null;
+        }).when(accessTokenDAO).insertAccessTokens(anyListOf(AccessContextTokenDO.class));
+
+        AccessTokenPersistencePipeline pipeline = new AccessTokenPersistencePipeline(accessTokenDAO, 1, 5, 1000);
+        pipeline.start();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> first = executor.submit(() -> persist(pipeline, createToken(0)));
+            assertTrue(firstBatch.await(10, TimeUnit.SECONDS));
+            Future<?> second = executor.submit(() -> persist(pipeline, createToken(1)));
+            while (pipeline.getQueueSize() < 1) {
+                Thread.sleep(1);
+            }
+            // The queue is full, hence this token is persisted by the calling thread.
+            pipeline.persist(createToken(2));
+            release.countDown();
+            first.get(10, TimeUnit.SECONDS);
+            second.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        pipeline.shutdown();
+
+        assertEquals(pipeline.getCallerPersistedCount(), 1);
+        verify(accessTokenDAO, times(1)).insertAccessToken(anyString(), anyString(), any(AccessTokenDO.class),
+                any(AccessTokenDO.class), anyString());
+        assertEquals(pipeline.getPersistedCount() + pipeline.getCallerPersistedCount(), 3);
+    }
+
+    @Test
+    public void testTokenNotPickedUpIsPersistedByCaller() throws Exception {
+
+        AccessTokenDAO accessTokenDAO = mock(AccessTokenDAO.class);
+        List<List<String>> batches = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch firstBatch = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            batches.add(getTokenIds(invocation.getArguments()[0]));
+            firstBatch.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return null;
+        }).when(accessTokenDAO).insertAccessTokens(anyListOf(AccessContextTokenDO.class));
+
+        AccessTokenPersistencePipeline pipeline = new AccessTokenPersistencePipeline(accessTokenDAO, 10, 5, 1000,
+                50);
+        pipeline.start();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> first = executor.submit(() -> persist(pipeline, createToken(0)));
+            assertTrue(firstBatch.await(10, TimeUnit.SECONDS));
+            // The persistence thread is busy, hence this token is withdrawn after the maximum wait.
+            pipeline.persist(createToken(1));
+            release.countDown();
+            first.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        pipeline.shutdown();
+
+        assertEquals(pipeline.getCallerPersistedCount(), 1);
+        for (List<String> batch : batches) {
+            assertFalse(batch.contains("tokenId1"), "A withdrawn token must not be persisted again.");
+        }
+    }
+
+    @Test
+    public void testCallerPersistsAfterShutdown() throws Exception {
+
+        AccessTokenDAO accessTokenDAO = mock(AccessTokenDAO.class);
+        AccessTokenPersistencePipeline pipeline = new AccessTokenPersistencePipeline(accessTokenDAO, 10, 5, 1000);
+        pipeline.start();
+        pipeline.shutdown();
+        pipeline.persist(createToken(0));
+
+        assertEquals(pipeline.getCallerPersistedCount(), 1);
+        assertEquals(pipeline.getQueueSize(), 0);
+    }
+
+    @Test
+    public void testFailedBatchIsRetriedIndividually() throws Exception {
+
+        AccessTokenDAO accessTokenDAO = mock(AccessTokenDAO.class);
+        doThrow(new IdentityOAuth2Exception("Batch failed")).when(accessTokenDAO)
+                .insertAccessTokens(anyListOf(AccessContextTokenDO.class));
+
+        AccessTokenPersistencePipeline pipeline = new AccessTokenPersistencePipeline(accessTokenDAO, 100, 10, 1000);
+        pipeline.start();
+        for (int i = 0; i < 3; i++) {
+            pipeline.persist(createToken(i));
+        }
+        pipeline.shutdown();
+
+        verify(accessTokenDAO, times(3)).insertAccessToken(anyString(), anyString(), any(AccessTokenDO.class),
+                any(AccessTokenDO.class), anyString());
+        assertEquals(pipeline.getPersistedCount(), 3);
+        assertEquals(pipeline.getFailedCount(), 0);
+    }
+
+    @Test(expectedExceptions = IdentityOAuth2Exception.class)
+    public void testFailureIsReportedToIssuingThread() throws Exception {
+
+        AccessTokenDAO accessTokenDAO = mock(AccessTokenDAO.class);
+        doThrow(new IdentityOAuth2Exception("Batch failed")).when(accessTokenDAO)
+                .insertAccessTokens(anyListOf(AccessContextTokenDO.class));
+        doThrow(new IdentityOAuth2Exception("Insert failed")).when(accessTokenDAO).insertAccessToken(anyString(),
+                anyString(), any(AccessTokenDO.class), any(AccessTokenDO.class), anyString());
+
+        AccessTokenPersistencePipeline pipeline = new AccessTokenPersistencePipeline(accessTokenDAO, 100, 10, 1000);
+        pipeline.start();
+        try {
+            pipeline.persist(createToken(0));
+        } finally {
+            pipeline.shutdown();
+        }
+    }
+
+    private static boolean persistAndCheck(AccessTokenPersistencePipeline pipeline, AccessContextTokenDO token,
+                                           Set<String> committed) throws IdentityOAuth2Exception {
+
+        pipeline.persist(token);
+        return committed.contains(token.getNewAccessTokenDO().getTokenId());
+    }
+
+    private static Void persist(AccessTokenPersistencePipeline pipeline, AccessContextTokenDO token)
+            throws IdentityOAuth2Exception {
+
+        pipeline.persist(token);
+        return null;
+    }
+
+    private static List<String> getTokenIds(Object accessContextTokens) {
+
+        List<String> tokenIds = new ArrayList<>();
+        for (Object token : (List<?>) accessContextTokens) {
+            tokenIds.add(((AccessContextTokenDO) token).getNewAccessTokenDO().getTokenId());
+        }
+        return tokenIds;
+    }
+
+    private AccessContextTokenDO createToken(int index) {
+
+        AccessTokenDO accessTokenDO = new AccessTokenDO();
+        accessTokenDO.setTokenId("tokenId" + index);
+        return new AccessContextTokenDO("accessToken" + index, "consumerKey", accessTokenDO, null, "PRIMARY");
+    }
+
+    private AccessContextTokenDO createToken(int index, String userName) {
+
+        AccessContextTokenDO token = createToken(index);
+        AuthenticatedUser authzUser = new AuthenticatedUser();
+        authzUser.setUserName(userName);
+        authzUser.setTenantDomain("carbon.super");
+        authzUser.setUserStoreDomain("PRIMARY");
+        token.getNewAccessTokenDO().setAuthzUser(authzUser);
+        return token;
+    }
+}
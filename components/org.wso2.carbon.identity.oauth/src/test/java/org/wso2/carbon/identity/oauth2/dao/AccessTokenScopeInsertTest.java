@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.dao;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+
+public class AccessTokenScopeInsertTest {
+
+    private static final String DB_URL = "jdbc:h2:mem:tokenScopeInsert;DB_CLOSE_DELAY=-1";
+    private static final String CREATE_SCOPE_TABLE = "CREATE TABLE IF NOT EXISTS IDN_OAUTH2_ACCESS_TOKEN_SCOPE (" +
+            "TOKEN_ID VARCHAR (255), TOKEN_SCOPE VARCHAR (60), TENANT_ID INTEGER DEFAULT -1, " +
+            "PRIMARY KEY (TOKEN_ID, TOKEN_SCOPE))";
+    private static final String COUNT_SCOPES = "SELECT COUNT(*) FROM IDN_OAUTH2_ACCESS_TOKEN_SCOPE WHERE TOKEN_ID = ? " +
+            "AND TENANT_ID = ?";
+
+    private Connection connection;
+
+    @BeforeClass
+    public void setUp() throws Exception {
+
+        Class.forName("org.h2.Driver");
+        connection = DriverManager.getConnection(DB_URL, "username", "password");
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate(CREATE_SCOPE_TABLE);
+        }
+    }
+
+    @AfterClass
+    public void tearDown() throws Exception {
+
+        connection.close();
+    }
+
+    @DataProvider(name = "scopeCounts")
+    public Object[][] scopeCounts() {
+
+        return new Object[][]{{1}, {2}, {50}, {100}, {101}, {250}};
+    }
+
+    @Test(dataProvider = "scopeCounts")
+    public void testMultiRowInsert(int scopeCount) throws Exception {
+
+        String tokenId = "multiRow" + scopeCount;
+        AccessTokenDAOImpl.insertTokenScopesWithMultiRowStatement(connection, SQLQueries.INSERT_OAUTH2_TOKEN_SCOPES,
+                tokenId, createScopes(scopeCount), 1);
+        assertEquals(countScopes(tokenId, 1), scopeCount);
+    }
+
+    @Test(dataProvider = "scopeCounts")
+    public void testBatchInsert(int scopeCount) throws Exception {
+
+        String tokenId = "batch" + scopeCount;
+        AccessTokenDAOImpl.insertTokenScopesInBatch(connection, SQLQueries.INSERT_OAUTH2_TOKEN_SCOPE, tokenId,
+                createScopes(scopeCount), 1);
+        assertEquals(countScopes(tokenId, 1), scopeCount);
+    }
+
+    @Test
+    public void testMultiRowInsertOfSeveralTokens() throws Exception {
+
+        // 3 tokens of 70 scopes span three statements, with token boundaries inside a statement.
+        List<String> tokenIds = new ArrayList<>();
+        List<String> scopes = new ArrayList<>();
+        List<Integer> tenantIds = new ArrayList<>();
+        for (int token = 0; token < 3; token++) {
+            for (String scope : createScopes(70)) {
+                tokenIds.add("multiToken" + token);
+                scopes.add(scope);
+                tenantIds.add(2);
+            }
+        }
+        AccessTokenDAOImpl.insertTokenScopesWithMultiRowStatement(connection, SQLQueries.INSERT_OAUTH2_TOKEN_SCOPES,
+                tokenIds, scopes, tenantIds);
+        for (int token = 0; token < 3; token++) {
+            assertEquals(countScopes("multiToken" + token, 2), 70);
+        }
+    }
+
+    private int countScopes(String tokenId, int tenantId) throws SQLException {
+
+        try (PreparedStatement prepStmt = connection.prepareStatement(COUNT_SCOPES)) {
+            prepStmt.setString(1, tokenId);
+            prepStmt.setInt(2, tenantId);
+            try (ResultSet resultSet = prepStmt.executeQuery()) {
+                resultSet.next();
+                return resultSet.getInt(1);
+            }
+        }
+    }
+
+    static String[] createScopes(int scopeCount) {
+
+        String[] scopes = new String[scopeCount];
+        for (int i = 0; i < scopeCount; i++) {
+            scopes[i] = "scope_" + i;
+        }
+        return scopes;
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.dao;
+
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.application.common.model.LocalAndOutboundAuthenticationConfig;
+import org.wso2.carbon.identity.application.common.model.ServiceProvider;
+import org.wso2.carbon.identity.application.mgt.ApplicationManagementService;
+import org.wso2.carbon.identity.common.testng.WithCarbonHome;
+import org.wso2.carbon.identity.core.util.IdentityDatabaseUtil;
+import org.wso2.carbon.identity.oauth.config.OAuthServerConfiguration;
+import org.wso2.carbon.identity.oauth.internal.OAuthComponentServiceHolder;
+import org.wso2.carbon.identity.oauth.tokenprocessor.HashingPersistenceProcessor;
+import org.wso2.carbon.identity.oauth.tokenprocessor.PlainTextPersistenceProcessor;
+import org.wso2.carbon.identity.oauth2.dao.util.DAOUtils;
+import org.wso2.carbon.identity.oauth2.internal.OAuth2ServiceComponentHolder;
+import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
+import org.wso2.carbon.identity.testutil.powermock.PowerMockIdentityBaseTest;
+import org.wso2.carbon.user.core.service.RealmService;
+import org.wso2.carbon.user.core.tenant.TenantManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyString;
+import static org.powermock.api.mockito.PowerMockito.mock;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.powermock.api.mockito.PowerMockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit tests for the bulk lookup of active access tokens in AccessTokenDAOImpl.
+ */
+@WithCarbonHome
+@PrepareForTest({IdentityDatabaseUtil.class, OAuthServerConfiguration.class})
+public class ActiveAccessTokensDAOTest extends PowerMockIdentityBaseTest {
+
+    private static final String DB_NAME = "testActiveAccessTokensDB";
+    private static final String INSERT_TOKEN = "INSERT INTO IDN_OAUTH2_ACCESS_TOKEN (TOKEN_ID, ACCESS_TOKEN, " +
+            "CONSUMER_KEY_ID, AUTHZ_USER, TENANT_ID, USER_DOMAIN, USER_TYPE, GRANT_TYPE, TIME_CREATED, " +
+            "REFRESH_TOKEN_TIME_CREATED, VALIDITY_PERIOD, REFRESH_TOKEN_VALIDITY_PERIOD, TOKEN_SCOPE_HASH, " +
+            "TOKEN_STATE, ACCESS_TOKEN_HASH, IDP_ID) VALUES (?, ?, (SELECT ID FROM IDN_OAUTH_CONSUMER_APPS WHERE " +
+            "CONSUMER_KEY = 'some-client-id'), ?, -1234, 'PRIMARY', 'APPLICATION_USER', 'password', ?, ?, 3600000, " +
+            "86400000, ?, ?, ?, (SELECT ID FROM IDP WHERE NAME = 'LOCAL'))";
+    private static final String INSERT_SCOPE = "INSERT INTO IDN_OAUTH2_ACCESS_TOKEN_SCOPE (TOKEN_ID, TOKEN_SCOPE, " +
+            "TENANT_ID) VALUES (?, ?, -1234)";
+    private static final String INSERT_IDP = "INSERT INTO IDP (TENANT_ID, NAME, UUID) VALUES (-1234, 'LOCAL', 5679)";
+    private static final String ACTIVE = "ACTIVE";
+    private static final String REVOKED = "REVOKED";
+
+    private boolean idpIdColumnEnabled;
+    private boolean tokensInserted;
+
+    @BeforeClass
+    public void initTest() throws Exception {
+
+        DAOUtils.initializeDataSource(DB_NAME, DAOUtils.getFilePath("identity.sql"));
+        idpIdColumnEnabled = OAuth2ServiceComponentHolder.isIDPIdColumnEnabled();
+    }
+
+    @AfterClass
+    public void tearDown() {
+
+        OAuth2ServiceComponentHolder.setIDPIdColumnEnabled(idpIdColumnEnabled);
+        OAuthComponentServiceHolder.getInstance().setRealmService(null);
+    }
+
+    @BeforeMethod
+    public void setup() throws Exception {
+
+        mockStatic(IdentityDatabaseUtil.class);
+        when(IdentityDatabaseUtil.getDBConnection(anyBoolean())).thenAnswer(
+                invocation -> DAOUtils.getConnection(DB_NAME));
+        mockOAuthServerConfiguration();
+
+        RealmService realmService = mock(RealmService.class);
+        TenantManager tenantManager = mock(TenantManager.class);
+        when(realmService.getTenantManager()).thenReturn(tenantManager);
+        when(tenantManager.getDomain(-1234)).thenReturn("carbon.super");
+        OAuthComponentServiceHolder.getInstance().setRealmService(realmService);
+
+        ServiceProvider serviceProvider = new ServiceProvider();
+        serviceProvider.setLocalAndOutboundAuthenticationConfig(new LocalAndOutboundAuthenticationConfig());
+        ApplicationManagementService applicationManagementService = mock(ApplicationManagementService.class);
+        when(applicationManagementService.getServiceProviderByClientId(anyString(), anyString(), anyString()))
+                .thenReturn(serviceProvider);
+        OAuth2ServiceComponentHolder.setApplicationMgtService(applicationManagementService);
+
+        if (!tokensInserted) {
+            // Token hashes are computed with the mocked hash algorithm.
+            try (Connection connection = DAOUtils.getConnection(DB_NAME)) {
+                try (PreparedStatement prepStmt = connection.prepareStatement(INSERT_IDP)) {
+                    prepStmt.executeUpdate();
+                }
+                insertToken(connection, "token1", ACTIVE, "openid");
+                insertToken(connection, "token2", ACTIVE, "openid", "email", "profile");
+                insertToken(connection, "token3", ACTIVE);
+                insertToken(connection, "token4", ACTIVE, "internal_login");
+                insertToken(connection, "token5", ACTIVE, "openid", "email");
+                insertToken(connection, "revokedToken", REVOKED, "openid");
+            }
+            tokensInserted = true;
+        }
+    }
+
+    @DataProvider(name = "idpIdColumnEnabled")
+    public Object[][] idpIdColumnEnabled() {
+
+        return new Object[][]{{false}, {true}};
+    }
+
+    @Test(dataProvider = "idpIdColumnEnabled")
+    public void testActiveAccessTokensAcrossChunks(boolean isIDPIdColumnEnabled) throws Exception {
+
+        OAuth2ServiceComponentHolder.setIDPIdColumnEnabled(isIDPIdColumnEnabled);
+        AtomicInteger chunkSizeLookups = new AtomicInteger();
+        AccessTokenDAOImpl accessTokenDAO = new AccessTokenDAOImpl() {
+
+            @Override
+            int getInClauseChunkSize(Connection connection) {
+
+                chunkSizeLookups.incrementAndGet();
+                return 2;
+            }
+        };
+
+        // 8 identifiers are queried in 4 chunks of 2.
+        List<String> identifiers = Arrays.asList("token1", "token2", "token3", "token4", "token5", "revokedToken",
+                "missingToken1", "missingToken2");
+        Map<String, AccessTokenDO> accessTokenDOs = accessTokenDAO.getActiveAccessTokens(identifiers);
+
+        assertEquals(chunkSizeLookups.get(), 1);
+        assertEquals(accessTokenDOs.keySet(),
+                new HashSet<>(Arrays.asList("token1", "token2", "token3", "token4", "token5")));
+        assertScopes(accessTokenDOs.get("token1"), "openid");
+        assertScopes(accessTokenDOs.get("token2"), "openid", "email", "profile");
+        assertScopes(accessTokenDOs.get("token3"));
+        assertScopes(accessTokenDOs.get("token4"), "internal_login");
+        assertScopes(accessTokenDOs.get("token5"), "openid", "email");
+        for (Map.Entry<String, AccessTokenDO> entry : accessTokenDOs.entrySet()) {
+            AccessTokenDO accessTokenDO = entry.getValue();
+            assertEquals(accessTokenDO.getAccessToken(), entry.getKey());
+            assertEquals(accessTokenDO.getTokenId(), entry.getKey() + "Id");
+            assertEquals(accessTokenDO.getConsumerKey(), "some-client-id");
+            assertEquals(accessTokenDO.getAuthzUser().getUserName(), entry.getKey() + "User");
+            assertEquals(accessTokenDO.getAuthzUser().getTenantDomain(), "carbon.super");
+        }
+    }
+
+    private void assertScopes(AccessTokenDO accessTokenDO, String... scopes) {
+
+        assertEquals(accessTokenDO.getScope().length, scopes.length);
+        assertTrue(new HashSet<>(Arrays.asList(accessTokenDO.getScope())).containsAll(Arrays.asList(scopes)));
+    }
+
+    private void insertToken(Connection connection, String token, String tokenState, String... scopes)
+            throws Exception {
+
+        Timestamp timeCreated = new Timestamp(System.currentTimeMillis());
+        try (PreparedStatement prepStmt = connection.prepareStatement(INSERT_TOKEN)) {
+            prepStmt.setString(1, token + "Id");
+            prepStmt.setString(2, token);
+            prepStmt.setString(3, token + "User");
+            prepStmt.setTimestamp(4, timeCreated);
+            prepStmt.setTimestamp(5, timeCreated);
+            prepStmt.setString(6, token + "ScopeHash");
+            prepStmt.setString(7, tokenState);
+            prepStmt.setString(8, new HashingPersistenceProcessor().getProcessedAccessTokenIdentifier(token));
+            prepStmt.executeUpdate();
+        }
+        for (String scope : scopes) {
+            try (PreparedStatement prepStmt = connection.prepareStatement(INSERT_SCOPE)) {
+                prepStmt.setString(1, token + "Id");
+                prepStmt.setString(2, scope);
+                prepStmt.executeUpdate();
+            }
+        }
+    }
+
+    private void mockOAuthServerConfiguration() throws Exception {
+
+        OAuthServerConfiguration oAuthServerConfiguration = mock(OAuthServerConfiguration.class);
+        when(oAuthServerConfiguration.getHashAlgorithm()).thenReturn("SHA-256");
+        when(oAuthServerConfiguration.getPersistenceProcessor()).thenReturn(new PlainTextPersistenceProcessor());
+        mockStatic(OAuthServerConfiguration.class);
+        when(OAuthServerConfiguration.getInstance()).thenReturn(oAuthServerConfiguration);
+    }
+}
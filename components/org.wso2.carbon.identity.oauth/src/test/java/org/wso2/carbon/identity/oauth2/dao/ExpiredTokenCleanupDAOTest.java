@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.dao;
+
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.core.util.IdentityDatabaseUtil;
+import org.wso2.carbon.identity.oauth.common.OAuthConstants;
+import org.wso2.carbon.identity.oauth.config.OAuthServerConfiguration;
+import org.wso2.carbon.identity.oauth2.dao.ExpiredTokenCleanupDAO.CleanupPage;
+import org.wso2.carbon.identity.oauth2.dao.ExpiredTokenCleanupDAO.CleanupTarget;
+import org.wso2.carbon.identity.oauth2.dao.util.DAOUtils;
+import org.wso2.carbon.identity.testutil.powermock.PowerMockIdentityBaseTest;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.Calendar;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Matchers.anyBoolean;
+import static org.powermock.api.mockito.PowerMockito.mock;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.powermock.api.mockito.PowerMockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit tests for ExpiredTokenCleanupDAO.
+ */
+@PrepareForTest({IdentityDatabaseUtil.class, OAuthServerConfiguration.class})
+public class ExpiredTokenCleanupDAOTest extends PowerMockIdentityBaseTest {
+
+    private static final String DB_NAME = "testExpiredTokenCleanupDB";
+    private static final String INSERT_TOKEN = "INSERT INTO IDN_OAUTH2_ACCESS_TOKEN (TOKEN_ID, AUTHZ_USER, " +
+            "TENANT_ID, TIME_CREATED, REFRESH_TOKEN_TIME_CREATED, VALIDITY_PERIOD, REFRESH_TOKEN_VALIDITY_PERIOD, " +
+            "TOKEN_STATE) VALUES (?, ?, -1234, ?, ?, ?, ?, ?)";
+    private static final String TOKEN_EXISTS = "SELECT TOKEN_ID FROM IDN_OAUTH2_ACCESS_TOKEN WHERE TOKEN_ID = ?";
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    private Connection connection;
+
+    @BeforeClass
+    public void initTest() throws Exception {
+
+        DAOUtils.initializeDataSource(DB_NAME, DAOUtils.getFilePath("identity.sql"));
+        // Transactions are not committed through the mocked IdentityDatabaseUtil, hence a single connection is used.
+        connection = DAOUtils.getConnection(DB_NAME);
+    }
+
+    @AfterClass
+    public void tearDown() throws Exception {
+
+        connection.close();
+    }
+
+    @BeforeMethod
+    public void setup() throws Exception {
+
+        mockStatic(IdentityDatabaseUtil.class);
+        when(IdentityDatabaseUtil.getDBConnection(anyBoolean())).thenReturn(connection);
+        mockStatic(OAuthServerConfiguration.class);
+        when(OAuthServerConfiguration.getInstance()).thenReturn(mock(OAuthServerConfiguration.class));
+    }
+
+    @Test
+    public void testAccessTokenCleanupByState() throws Exception {
+
+        long now = System.currentTimeMillis();
+        insertToken("revoked", OAuthConstants.TokenStates.TOKEN_STATE_REVOKED, now - HOUR, DAY);
+        insertToken("inactive", OAuthConstants.TokenStates.TOKEN_STATE_INACTIVE, now - HOUR, DAY);
+        insertToken("expiredWithValidRefreshToken", OAuthConstants.TokenStates.TOKEN_STATE_EXPIRED, now - 2 * HOUR,
+                DAY);
+        insertToken("expiredWithExpiredRefreshToken", OAuthConstants.TokenStates.TOKEN_STATE_EXPIRED,
+                now - 2 * HOUR, HOUR);
+        insertToken("activeWithValidRefreshToken", OAuthConstants.TokenStates.TOKEN_STATE_ACTIVE, now - 2 * HOUR,
+                DAY);
+
+        CleanupPage page = new ExpiredTokenCleanupDAO().cleanupPage(CleanupTarget.ACCESS_TOKEN, "", 100, now);
+
+        assertEquals(page.getScannedCount(), 5);
+        assertEquals(page.getDeletedCount(), 3);
+        assertFalse(tokenExists("revoked"));
+        assertFalse(tokenExists("inactive"));
+        assertFalse(tokenExists("expiredWithExpiredRefreshToken"));
+        // The refresh token of an expired access token can still be used until it expires.
+        assertTrue(tokenExists("expiredWithValidRefreshToken"));
+        assertTrue(tokenExists("activeWithValidRefreshToken"));
+    }
+
+    private void insertToken(String tokenId, String tokenState, long timeCreated, long refreshTokenValidity)
+            throws Exception {
+
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        try (PreparedStatement prepStmt = connection.prepareStatement(INSERT_TOKEN)) {
+            prepStmt.setString(1, tokenId);
+            prepStmt.setString(2, tokenId);
+            prepStmt.setTimestamp(3, new Timestamp(timeCreated), utc);
+            prepStmt.setTimestamp(4, new Timestamp(timeCreated), utc);
+            // Access tokens are valid for an hour.
+            prepStmt.setLong(5, HOUR);
+            prepStmt.setLong(6, refreshTokenValidity);
+            prepStmt.setString(7, tokenState);
+            prepStmt.executeUpdate();
+        }
+    }
+
+    private boolean tokenExists(String tokenId) throws Exception {
+
+        try (PreparedStatement prepStmt = connection.prepareStatement(TOKEN_EXISTS)) {
+            prepStmt.setString(1, tokenId);
+            try (ResultSet resultSet = prepStmt.executeQuery()) {
+                return resultSet.next();
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.lock;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class ClusteredIssuanceLockManagerTest {
+
+    private static final String LOCK_KEY = "clientId:userId:openid:NONE";
+
+    @Test
+    public void testMutualExclusionAcrossNodes() throws Exception {
+
+        InMemoryClusterLockProvider clusterLockProvider = new InMemoryClusterLockProvider(64);
+        ClusteredIssuanceLockManager node1 = new ClusteredIssuanceLockManager(
+                new StripedIssuanceLockManager(16, 0), clusterLockProvider, 0);
+        ClusteredIssuanceLockManager node2 = new ClusteredIssuanceLockManager(
+                new StripedIssuanceLockManager(16, 0), clusterLockProvider, 0);
+
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                IssuanceLockManager node = i % 2 == 0 ? node1 : node2;
+                futures.add(executor.submit((Callable<Void>) () -> {
+                    try (IssuanceLock lock = node.acquire(LOCK_KEY)) {
+                        assertTrue(lock.isAcquired());
+                        maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                        Thread.sleep(2);
+                        active.decrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(maxActive.get(), 1, "Only one node should issue for a key at a time.");
+    }
+
+    @Test
+    public void testClusterLockTimeout() throws Exception {
+
+        InMemoryClusterLockProvider clusterLockProvider = new InMemoryClusterLockProvider(64);
+        ClusteredIssuanceLockManager node1 = new ClusteredIssuanceLockManager(
+                new StripedIssuanceLockManager(16, 0), clusterLockProvider, 50);
+        ClusteredIssuanceLockManager node2 = new ClusteredIssuanceLockManager(
+                new StripedIssuanceLockManager(16, 0), clusterLockProvider, 50);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (IssuanceLock held = node1.acquire(LOCK_KEY)) {
+            assertTrue(held.isAcquired());
+            Future<Boolean> other = executor.submit(() -> {
+                try (IssuanceLock lock = node2.acquire(LOCK_KEY)) {
+                    return lock.isAcquired();
+                }
+            });
+            assertFalse(other.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(node2.getClusterLockTimeoutCount(), 1);
+        try (IssuanceLock lock = node2.acquire(LOCK_KEY)) {
+            assertTrue(lock.isAcquired());
+        }
+    }
+
+    @Test
+    public void testNestedHoldIsTrackedPerKey() throws Exception {
+
+        InMemoryClusterLockProvider clusterLockProvider = new InMemoryClusterLockProvider(64);
+        // A single stripe maps every key onto the same node local lock.
+        ClusteredIssuanceLockManager node1 = new ClusteredIssuanceLockManager(
+                new StripedIssuanceLockManager(1, 0), clusterLockProvider, 50);
+        ClusteredIssuanceLockManager node2 = new ClusteredIssuanceLockManager(
+                new StripedIssuanceLockManager(1, 0), clusterLockProvider, 50);
+        String otherKey = "otherClientId:userId:openid:NONE";
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (IssuanceLock outer = node1.acquire(LOCK_KEY);
+             IssuanceLock inner = node1.acquire(otherKey);
+             IssuanceLock reentrant = node1.acquire(LOCK_KEY)) {
+            assertTrue(outer.isAcquired());
+            assertTrue(inner.isAcquired());
+            assertTrue(reentrant.isAcquired());
+            Future<Boolean> other = executor.submit(() -> {
+                try (IssuanceLock lock = node2.acquire(otherKey)) {
+                    return lock.isAcquired();
+                }
+            });
+            assertFalse(other.get(5, TimeUnit.SECONDS), "The nested key should hold its own cluster lock.");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSlotIsStable() {
+
+        int slot = ClusteredIssuanceLockManager.getSlot(LOCK_KEY, 4096);
+        assertTrue(slot >= 0 && slot < 4096);
+        assertEquals(ClusteredIssuanceLockManager.getSlot(LOCK_KEY, 4096), slot);
+        assertEquals(ClusteredIssuanceLockManager.getSlot(null, 4096), 0);
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.lock;
+
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.core.util.IdentityDatabaseUtil;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+import org.wso2.carbon.identity.oauth2.dao.util.DAOUtils;
+import org.wso2.carbon.identity.testutil.powermock.PowerMockIdentityBaseTest;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyString;
+import static org.powermock.api.mockito.PowerMockito.mock;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.powermock.api.mockito.PowerMockito.when;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit tests for JDBCClusterLockProvider.
+ */
+@PrepareForTest({IdentityDatabaseUtil.class})
+public class JDBCClusterLockProviderTest extends PowerMockIdentityBaseTest {
+
+    private static final String DB_NAME = "testIssuanceLockDB";
+
+    @BeforeClass
+    public void initTest() throws Exception {
+
+        DAOUtils.initializeDataSource(DB_NAME, DAOUtils.getFilePath("identity.sql"));
+    }
+
+    @BeforeMethod
+    public void setup() throws Exception {
+
+        mockStatic(IdentityDatabaseUtil.class);
+        when(IdentityDatabaseUtil.getDBConnection(anyBoolean()))
+                .thenAnswer(invocation -> DAOUtils.getConnection(DB_NAME));
+    }
+
+    @Test
+    public void testLockIsExclusivePerKey() throws Exception {
+
+        JDBCClusterLockProvider node1 = new JDBCClusterLockProvider(60000);
+        JDBCClusterLockProvider node2 = new JDBCClusterLockProvider(60000);
+
+        try (IssuanceLock held = node1.acquire("client1:user1", 50)) {
+            assertTrue(held.isAcquired());
+            try (IssuanceLock other = node2.acquire("client1:user1", 50)) {
+                assertFalse(other.isAcquired());
+            }
+            try (IssuanceLock otherKey = node2.acquire("client1:user2", 50)) {
+                assertTrue(otherKey.isAcquired());
+            }
+        }
+        try (IssuanceLock released = node2.acquire("client1:user1", 50)) {
+            assertTrue(released.isAcquired());
+        }
+    }
+
+    @Test
+    public void testExpiredLeaseIsTakenOver() throws Exception {
+
+        JDBCClusterLockProvider node1 = new JDBCClusterLockProvider(60000);
+        JDBCClusterLockProvider node2 = new JDBCClusterLockProvider(60000);
+
+        IssuanceLock stale = node1.acquire("client2:user1", 50, 1);
+        assertTrue(stale.isAcquired());
+        Thread.sleep(10);
+        try (IssuanceLock takenOver = node2.acquire("client2:user1", 50)) {
+            assertTrue(takenOver.isAcquired());
+            // Releasing the stale lock must not release the lease of the new owner.
+            stale.close();
+            try (IssuanceLock other = node1.acquire("client2:user1", 50)) {
+                assertFalse(other.isAcquired());
+            }
+        }
+    }
+
+    @Test(expectedExceptions = IdentityOAuth2Exception.class)
+    public void testFailureOtherThanExistingRowIsNotContention() throws Exception {
+
+        PreparedStatement prepStmt = mock(PreparedStatement.class);
+        when(prepStmt.execute()).thenThrow(new SQLException("Connection reset", "08S01"));
+        Connection connection = mock(Connection.class);
+        when(connection.prepareStatement(anyString())).thenReturn(prepStmt);
+        when(IdentityDatabaseUtil.getDBConnection(anyBoolean())).thenReturn(connection);
+
+        new JDBCClusterLockProvider(60000).acquire("client3:user1", 50);
+    }
+}
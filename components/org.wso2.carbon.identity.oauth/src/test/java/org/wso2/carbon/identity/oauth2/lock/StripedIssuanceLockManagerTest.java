@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.lock;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class StripedIssuanceLockManagerTest {
+
+    private static final String LOCK_KEY = "clientId:userId:openid profile:NONE";
+
+    @DataProvider(name = "stripeCountData")
+    public Object[][] stripeCountData() {
+
+        return new Object[][]{
+                {0, 1},
+                {1, 1},
+                {3, 4},
+                {1000, 1024},
+                {Integer.MAX_VALUE, 1 << 16}
+        };
+    }
+
+    @Test(dataProvider = "stripeCountData")
+    public void testStripeCountIsRoundedToPowerOfTwo(int requested, int expected) {
+
+        StripedIssuanceLockManager lockManager = new StripedIssuanceLockManager(requested, 0);
+        assertEquals(lockManager.getStripeCount(), expected);
+    }
+
+    @Test
+    public void testAcquireAndRelease() throws Exception {
+
+        StripedIssuanceLockManager lockManager = new StripedIssuanceLockManager(16, 0);
+        int stripe = lockManager.getStripeIndex(LOCK_KEY);
+        try (IssuanceLock lock = lockManager.acquire(LOCK_KEY)) {
+            assertTrue(lock.isAcquired());
+            // Same thread may re-enter the stripe.
+            try (IssuanceLock nested = lockManager.acquire(LOCK_KEY)) {
+                assertTrue(nested.isAcquired());
+            }
+        }
+        assertEquals(lockManager.getAcquiredCount(stripe), 2);
+        assertEquals(lockManager.getContendedCount(stripe), 0);
+    }
+
+    @Test
+    public void testTimedOutAcquireProceedsWithoutLock() throws Exception {
+
+        StripedIssuanceLockManager lockManager = new StripedIssuanceLockManager(16, 50);
+        int stripe = lockManager.getStripeIndex(LOCK_KEY);
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> holder = executor.submit(() -> {
+                try (IssuanceLock ignored = lockManager.acquire(LOCK_KEY)) {
+                    held.countDown();
+                    done.await(5, TimeUnit.SECONDS);
+                }
+                return null;
+            });
+            assertTrue(held.await(5, TimeUnit.SECONDS));
+            try (IssuanceLock lock = lockManager.acquire(LOCK_KEY)) {
+                assertFalse(lock.isAcquired());
+            }
+            done.countDown();
+            holder.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(lockManager.getContendedCount(stripe), 1);
+        assertEquals(lockManager.getTimedOutCount(stripe), 1);
+    }
+}
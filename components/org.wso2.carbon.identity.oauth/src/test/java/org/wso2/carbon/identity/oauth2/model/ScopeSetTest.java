@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.model;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class ScopeSetTest {
+
+    private static final String[] SCOPES = new String[]{"openid", "email", "address"};
+
+    @Test
+    public void testScopeSetsAreInterned() {
+
+        assertSame(ScopeSet.of(SCOPES.clone()), ScopeSet.of(SCOPES.clone()));
+        assertNotEquals(ScopeSet.of(new String[]{"openid"}), ScopeSet.of(SCOPES));
+        assertNull(ScopeSet.of(null));
+    }
+
+    @Test
+    public void testScopeOrderIsPreserved() {
+
+        String[] scopes = SCOPES.clone();
+        ScopeSet scopeSet = ScopeSet.of(scopes);
+        scopes[0] = "modified";
+        scopeSet.getScopes()[1] = "modified";
+
+        assertEquals(scopeSet.getScopes(), SCOPES);
+        assertEquals(scopeSet.size(), SCOPES.length);
+    }
+
+    @Test
+    public void testScopeStringAndHash() {
+
+        ScopeSet scopeSet = ScopeSet.of(SCOPES);
+        assertEquals(scopeSet.getScopeString(), "address email openid");
+        assertEquals(scopeSet.getScopeHash(), DigestUtils.md5Hex("address email openid"));
+    }
+
+    @Test
+    public void testScopesAreReadWithoutCopying() {
+
+        ScopeSet scopeSet = ScopeSet.of(SCOPES);
+        List<String> scopes = new ArrayList<>();
+        for (String scope : scopeSet) {
+            scopes.add(scope);
+        }
+
+        assertEquals(scopes, Arrays.asList(SCOPES));
+        assertTrue(scopeSet.contains("email"));
+        assertFalse(scopeSet.contains("profile"));
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void testScopesCannotBeRemovedThroughIterator() {
+
+        Iterator<String> iterator = ScopeSet.of(SCOPES).iterator();
+        iterator.next();
+        iterator.remove();
+    }
+
+    @Test
+    public void testDeserializedScopeSetIsInterned() throws Exception {
+
+        ScopeSet scopeSet = ScopeSet.of(SCOPES);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(scopeSet);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertSame(in.readObject(), scopeSet);
+        }
+    }
+
+    @Test
+    public void testAccessTokenScopes() {
+
+        AccessTokenDO accessTokenDO = new AccessTokenDO();
+        accessTokenDO.setScope(SCOPES.clone());
+        accessTokenDO.getScope()[0] = "modified";
+
+        assertEquals(accessTokenDO.getScope(), SCOPES);
+        assertSame(accessTokenDO.getScopeSet(), ScopeSet.of(SCOPES));
+        assertSame(AccessTokenDO.clone(accessTokenDO).getScopeSet(), accessTokenDO.getScopeSet());
+    }
+
+    @Test
+    public void testAccessTokenSerializedFormIsKept() throws Exception {
+
+        ObjectStreamClass streamClass = ObjectStreamClass.lookup(AccessTokenDO.class);
+        assertEquals(streamClass.getSerialVersionUID(), -8123522530178387354L);
+        assertNotNull(streamClass.getField("scope"));
+        assertEquals(streamClass.getField("scope").getType(), String[].class);
+        assertNull(streamClass.getField("scopeSet"));
+
+        AccessTokenDO accessTokenDO = new AccessTokenDO();
+        accessTokenDO.setScope(SCOPES.clone());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(accessTokenDO);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            AccessTokenDO deserialized = (AccessTokenDO) in.readObject();
+            assertEquals(deserialized.getScope(), SCOPES);
+            assertSame(deserialized.getScopeSet(), ScopeSet.of(SCOPES));
+        }
+    }
+}
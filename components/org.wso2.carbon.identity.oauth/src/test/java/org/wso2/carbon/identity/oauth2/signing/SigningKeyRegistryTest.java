@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.signing;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.crypto.RSASSAVerifier;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.common.testng.WithCarbonHome;
+import org.wso2.carbon.identity.oauth2.internal.OAuth2ServiceComponentHolder;
+import org.wso2.carbon.identity.oauth2.keyidprovider.DefaultKeyIDProviderImpl;
+import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
+import org.wso2.carbon.identity.testutil.powermock.PowerMockIdentityBaseTest;
+
+import java.nio.file.Paths;
+import java.security.Key;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.security.interfaces.RSAPublicKey;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.wso2.carbon.identity.openidconnect.util.TestUtils.getKeyStoreFromFile;
+
+@WithCarbonHome
+public class SigningKeyRegistryTest extends PowerMockIdentityBaseTest {
+
+    private static final String TENANT_DOMAIN = "carbon.super";
+    private static final int TENANT_ID = -1234;
+
+    private Key privateKey;
+    private Certificate certificate;
+    private Certificate otherCertificate;
+
+    @BeforeClass
+    public void setUp() throws Exception {
+
+        KeyStore keyStore = getKeyStoreFromFile("wso2carbon.jks", "wso2carbon",
+                Paths.get(System.getProperty("user.dir"), "src", "test", "resources").toString());
+        privateKey = keyStore.getKey("wso2carbon", "wso2carbon".toCharArray());
+        certificate = keyStore.getCertificate("wso2carbon");
+        otherCertificate = keyStore.getCertificate("baltimorecybertrustca");
+        OAuth2ServiceComponentHolder.setKeyIDProvider(new DefaultKeyIDProviderImpl());
+    }
+
+    @Test
+    public void testKeyMaterialIsLoadedOnce() throws Exception {
+
+        StaticSigningKeyLoader loader = new StaticSigningKeyLoader(privateKey, certificate);
+        SigningKeyRegistry registry = new SigningKeyRegistry(loader, 10, 0);
+
+        SigningKey signingKey = registry.getSigningKey(TENANT_DOMAIN, TENANT_ID);
+        JWSSigner signer = signingKey.getSigner();
+        String thumbPrint = signingKey.getThumbPrint();
+        String keyId = signingKey.getKeyId(JWSAlgorithm.RS256);
+
+        SigningKey cached = registry.getSigningKey(TENANT_DOMAIN, TENANT_ID);
+        assertSame(cached, signingKey);
+        assertSame(cached.getSigner(), signer);
+        assertSame(cached.getPrivateKey(), privateKey);
+        assertEquals(cached.getThumbPrint(), thumbPrint);
+        assertEquals(cached.getKeyId(JWSAlgorithm.RS256), keyId);
+        assertEquals(thumbPrint, OAuth2Util.getThumbPrint(certificate));
+        assertEquals(keyId, OAuth2Util.getThumbPrint(certificate) + "_" + JWSAlgorithm.RS256);
+        assertEquals(loader.getPrivateKeyLoadCount(), 1);
+        assertEquals(loader.getCertificateLoadCount(), 1);
+        assertEquals(registry.getMissCount(), 1);
+        assertEquals(registry.getHitCount(), 1);
+    }
+
+    @Test
+    public void testSignerIsReusable() throws Exception {
+
+        SigningKeyRegistry registry = new SigningKeyRegistry(new StaticSigningKeyLoader(privateKey, certificate),
+                10, 0);
+        JWSSigner signer = registry.getSigningKey(TENANT_DOMAIN, TENANT_ID).getSigner();
+        RSASSAVerifier verifier = new RSASSAVerifier((RSAPublicKey) certificate.getPublicKey());
+
+        for (JWSAlgorithm algorithm : new JWSAlgorithm[]{JWSAlgorithm.RS256, JWSAlgorithm.RS384,
+                JWSAlgorithm.RS512}) {
+            for (int i = 0; i < 3; i++) {
+                SignedJWT signedJWT = new SignedJWT(new JWSHeader(algorithm),
+                        new JWTClaimsSet.Builder().subject("user" + i).build());
+                signedJWT.sign(signer);
+                assertTrue(SignedJWT.parse(signedJWT.serialize()).verify(verifier),
+                        "Signature created with " + algorithm + " is not valid.");
+            }
+        }
+    }
+
+    @Test
+    public void testSizeIsBounded() {
+
+        SigningKeyRegistry registry = new SigningKeyRegistry(new StaticSigningKeyLoader(privateKey, certificate),
+                2, 0);
+        registry.getSigningKey("t1.com", 1);
+        registry.getSigningKey("t2.com", 2);
+        registry.getSigningKey("t3.com", 3);
+
+        assertEquals(registry.getSize(), 2);
+        assertEquals(registry.getEvictionCount(), 1);
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+
+        StaticSigningKeyLoader loader = new StaticSigningKeyLoader(privateKey, certificate);
+        SigningKeyRegistry registry = new SigningKeyRegistry(loader, 10, 0);
+        SigningKey signingKey = registry.getSigningKey(TENANT_DOMAIN, TENANT_ID);
+        signingKey.getPrivateKey();
+
+        registry.invalidate(TENANT_ID);
+        SigningKey reloaded = registry.getSigningKey(TENANT_DOMAIN, TENANT_ID);
+        reloaded.getPrivateKey();
+
+        assertNotSame(reloaded, signingKey);
+        assertEquals(loader.getPrivateKeyLoadCount(), 2);
+        assertEquals(registry.getInvalidationCount(), 1);
+    }
+
+    @Test
+    public void testKeyStoreChangeIsDetected() throws Exception {
+
+        StaticSigningKeyLoader loader = new StaticSigningKeyLoader(privateKey, certificate);
+        SigningKeyRegistry registry = new SigningKeyRegistry(loader, 10, 1);
+        SigningKey signingKey = registry.getSigningKey(TENANT_DOMAIN, TENANT_ID);
+        assertSame(signingKey.getCertificate(), certificate);
+
+        // Unchanged certificate keeps the cached key.
+        Thread.sleep(5);
+        assertSame(registry.getSigningKey(TENANT_DOMAIN, TENANT_ID), signingKey);
+
+        loader.setKeyMaterial(privateKey, otherCertificate);
+        Thread.sleep(5);
+        SigningKey reloaded = registry.getSigningKey(TENANT_DOMAIN, TENANT_ID);
+
+        assertNotSame(reloaded, signingKey);
+        assertSame(reloaded.getCertificate(), otherCertificate);
+        assertEquals(registry.getKeyStoreChangeCount(), 1);
+    }
+}
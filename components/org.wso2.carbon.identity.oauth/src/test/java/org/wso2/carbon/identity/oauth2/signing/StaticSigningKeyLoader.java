@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.signing;
+
+import java.security.Key;
+import java.security.cert.Certificate;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link SigningKeyLoader} returning the same key material for every tenant, for tests which do not load the tenant
+ * key stores.
+ */
+public class StaticSigningKeyLoader implements SigningKeyLoader {
+
+    private final AtomicInteger privateKeyLoadCount = new AtomicInteger();
+    private final AtomicInteger certificateLoadCount = new AtomicInteger();
+    private volatile Key privateKey;
+    private volatile Certificate certificate;
+
+    public StaticSigningKeyLoader(Key privateKey, Certificate certificate) {
+
+        this.privateKey = privateKey;
+        this.certificate = certificate;
+    }
+
+    @Override
+    public Key loadPrivateKey(String tenantDomain, int tenantId) {
+
+        privateKeyLoadCount.incrementAndGet();
+        return privateKey;
+    }
+
+    @Override
+    public Certificate loadCertificate(String tenantDomain, int tenantId) {
+
+        certificateLoadCount.incrementAndGet();
+        return certificate;
+    }
+
+    public void setKeyMaterial(Key privateKey, Certificate certificate) {
+
+        this.privateKey = privateKey;
+        this.certificate = certificate;
+    }
+
+    public int getPrivateKeyLoadCount() {
+
+        return privateKeyLoadCount.get();
+    }
+
+    public int getCertificateLoadCount() {
+
+        return certificateLoadCount.get();
+    }
+}
@@ -325,9 +325,8 @@ public class JWTTokenIssuerTest extends PowerMockIdentityBaseTest {
                     System.getProperty(CarbonBaseConstants.CARBON_HOME));
             RSAPrivateKey rsaPrivateKey = (RSAPrivateKey) wso2KeyStore.getKey("wso2carbon", "wso2carbon".toCharArray());
 
-            when((OAuth2Util.getPrivateKey(anyString(), anyInt()))).thenReturn(rsaPrivateKey);
             JWSSigner signer = new RSASSASigner(rsaPrivateKey);
-            when(OAuth2Util.createJWSSigner(any())).thenReturn(signer);
+            when(OAuth2Util.getJWSSigner(anyString(), anyInt())).thenReturn(signer);
             when(oAuthServerConfiguration.getSignatureAlgorithm()).thenReturn(SHA256_WITH_RSA);
 
             mockStatic(IdentityTenantUtil.class);
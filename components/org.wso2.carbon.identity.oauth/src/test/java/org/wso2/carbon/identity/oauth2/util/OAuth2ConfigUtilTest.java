@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.util;
+
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.testutil.powermock.PowerMockIdentityBaseTest;
+
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.powermock.api.mockito.PowerMockito.when;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Unit tests for OAuth2ConfigUtil.
+ */
+@PrepareForTest({IdentityUtil.class})
+public class OAuth2ConfigUtilTest extends PowerMockIdentityBaseTest {
+
+    private static final String PROPERTY = "OAuth.Test.Property";
+
+    @BeforeMethod
+    public void setUp() {
+
+        mockStatic(IdentityUtil.class);
+    }
+
+    @Test
+    public void testConfiguredValueIsRead() {
+
+        when(IdentityUtil.getProperty(PROPERTY)).thenReturn(" 42 ");
+        assertEquals(OAuth2ConfigUtil.readIntProperty(PROPERTY, 10), 42);
+        assertEquals(OAuth2ConfigUtil.readLongProperty(PROPERTY, 10L), 42L);
+    }
+
+    @Test
+    public void testDefaultIsUsedIfNotSet() {
+
+        when(IdentityUtil.getProperty(PROPERTY)).thenReturn(" ");
+        assertEquals(OAuth2ConfigUtil.readIntProperty(PROPERTY, 10), 10);
+        assertEquals(OAuth2ConfigUtil.readLongProperty("OAuth.Test.Missing", 10L), 10L);
+    }
+
+    @Test
+    public void testDefaultIsUsedIfInvalid() {
+
+        when(IdentityUtil.getProperty(PROPERTY)).thenReturn("ten");
+        assertEquals(OAuth2ConfigUtil.readIntProperty(PROPERTY, 10), 10);
+        assertEquals(OAuth2ConfigUtil.readLongProperty(PROPERTY, 10L), 10L);
+
+        when(IdentityUtil.getProperty(PROPERTY)).thenReturn("4294967296");
+        assertEquals(OAuth2ConfigUtil.readIntProperty(PROPERTY, 10), 10);
+        assertEquals(OAuth2ConfigUtil.readLongProperty(PROPERTY, 10L), 4294967296L);
+    }
+}
@@ -68,11 +68,13 @@ import org.wso2.carbon.identity.oauth.tokenprocessor.PlainTextPersistenceProcess
 import org.wso2.carbon.identity.oauth.tokenprocessor.TokenPersistenceProcessor;
 import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
 import org.wso2.carbon.identity.oauth2.authz.OAuthAuthzReqMessageContext;
+import org.wso2.carbon.identity.oauth2.cache.InactiveTokenCache;
 import org.wso2.carbon.identity.oauth2.dao.AccessTokenDAO;
 import org.wso2.carbon.identity.oauth2.dao.OAuthTokenPersistenceFactory;
 import org.wso2.carbon.identity.oauth2.internal.OAuth2ServiceComponentHolder;
 import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
 import org.wso2.carbon.identity.oauth2.model.ClientCredentialDO;
+import org.wso2.carbon.identity.oauth2.model.ScopeSet;
 import org.wso2.carbon.identity.oauth2.token.OAuthTokenReqMessageContext;
 import org.wso2.carbon.identity.oauth2.token.OauthTokenIssuer;
 import org.wso2.carbon.identity.oauth2.token.handlers.grant.AuthorizationGrantHandler;
@@ -102,8 +104,11 @@ import java.util.function.Supplier;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyCollectionOf;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.powermock.api.mockito.PowerMockito.mock;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
 import static org.powermock.api.mockito.PowerMockito.when;
@@ -242,6 +247,7 @@ public class OAuth2UtilTest extends PowerMockIdentityBaseTest {
     @AfterMethod
     public void tearDown() throws Exception {
 
+        InactiveTokenCache.getInstance().clear();
     }
 
     @Test
@@ -1008,6 +1014,14 @@ public class OAuth2UtilTest extends PowerMockIdentityBaseTest {
         assertEquals(OAuth2Util.hashScopes(scopeArraySorted), hashScopes);
     }
 
+    @Test
+    public void testHashScopesDoesNotInternScopes() throws Exception {
+
+        int internedCount = ScopeSet.getInternedCount();
+        assertEquals(OAuth2Util.hashScopes(new String[]{"requestedScope"}), DigestUtils.md5Hex("requestedScope"));
+        assertEquals(ScopeSet.getInternedCount(), internedCount);
+    }
+
     @DataProvider(name = "ScopesData")
     public Object[][] scopesData() {
         String scope = "testScope";
@@ -2158,6 +2172,34 @@ public class OAuth2UtilTest extends PowerMockIdentityBaseTest {
         assertEquals(OAuth2Util.getClientIdForAccessToken("dummyIdentifier"), accessTokenDO.getConsumerKey());
     }
 
+    @Test
+    public void testPrefetchedAccessTokensAreClearedAfterUse() throws Exception {
+
+        getAccessTokenDOFromTokenIdentifier(false);
+        AccessTokenDO prefetchedToken = new AccessTokenDO();
+        AccessTokenDO unusedPrefetchedToken = new AccessTokenDO();
+        AccessTokenDO storedToken = new AccessTokenDO();
+        Map<String, AccessTokenDO> activeTokens = new HashMap<>();
+        activeTokens.put("prefetchedToken", prefetchedToken);
+        activeTokens.put("unusedPrefetchedToken", unusedPrefetchedToken);
+        AccessTokenDAO tokenDAO = mock(AccessTokenDAO.class);
+        WhiteboxImpl.setInternalState(OAuthTokenPersistenceFactory.getInstance(), "tokenDAO", tokenDAO);
+        when(tokenDAO.getActiveAccessTokens(anyCollectionOf(String.class))).thenReturn(activeTokens);
+        when(tokenDAO.getAccessToken(anyString(), anyBoolean())).thenReturn(storedToken);
+
+        try {
+            OAuth2Util.prefetchAccessTokens(Arrays.asList("prefetchedToken", "unusedPrefetchedToken"));
+            assertEquals(OAuth2Util.getAccessTokenDOFromTokenIdentifier("prefetchedToken", false), prefetchedToken);
+            verify(tokenDAO, never()).getAccessToken(anyString(), anyBoolean());
+        } finally {
+            OAuth2Util.clearPrefetchedAccessTokens();
+        }
+
+        // Tokens prefetched but not used by the request are looked up again once released.
+        assertEquals(OAuth2Util.getAccessTokenDOFromTokenIdentifier("unusedPrefetchedToken", false), storedToken);
+        verify(tokenDAO).getAccessToken("unusedPrefetchedToken", false);
+    }
+
     private AccessTokenDO getAccessTokenDOFromTokenIdentifier(boolean isCacheAvailable) throws Exception {
 
         when(oauthServerConfigurationMock.getPersistenceProcessor()).thenReturn(new PlainTextPersistenceProcessor());
@@ -2266,4 +2308,16 @@ public class OAuth2UtilTest extends PowerMockIdentityBaseTest {
         }
         fail("Expected IdentityOAuth2Exception was not thrown by getServiceProvider method");
     }
+
+    @DataProvider(name = "unsupportedSignatureAlgorithms")
+    public Object[][] unsupportedSignatureAlgorithms() {
+
+        return new Object[][]{{JWSAlgorithm.HS256}, {JWSAlgorithm.ES256}, {JWSAlgorithm.PS384}};
+    }
+
+    @Test(dataProvider = "unsupportedSignatureAlgorithms", expectedExceptions = IdentityOAuth2Exception.class)
+    public void testGetJWSSigningContextWithUnsupportedAlgorithm(JWSAlgorithm signatureAlgorithm) throws Exception {
+
+        OAuth2Util.getJWSSigningContext(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME, signatureAlgorithm);
+    }
 }
@@ -51,7 +51,7 @@ import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 
 @WithCarbonHome
-@PrepareForTest({JWKSourceDataProvider.class, JWKSBasedJWTValidator.class})
+@PrepareForTest({JWKSourceDataProvider.class, JWKSBasedJWTValidator.class, JWTProcessorRegistry.class})
 public class JWKSBasedJWTValidatorTest extends PowerMockIdentityBaseTest {
 
     private JWKSBasedJWTValidator validator;
@@ -86,14 +86,14 @@ public class JWKSBasedJWTValidatorTest extends PowerMockIdentityBaseTest {
         mockStatic(JWKSourceDataProvider.class);
         when(JWKSourceDataProvider.getInstance()).thenReturn(dataProvider);
         whenNew(DefaultJWTProcessor.class).withNoArguments().thenReturn(jwtProcessor);
-        validator = new JWKSBasedJWTValidator();
+        validator = new JWKSBasedJWTValidator(new JWTProcessorRegistry(16));
 
         TestScenario testScenario = (TestScenario) test;
 
         if (testScenario == TestScenario.INVALID_JWKS) {
-            doThrow(testScenario.throwError()).when(dataProvider).getJWKSource(jwksUri);
+            doThrow(testScenario.throwError()).when(dataProvider).getJWKSourceOrFail(jwksUri);
         } else {
-            when(JWKSourceDataProvider.getInstance().getJWKSource(anyString())).thenReturn(jwkSet);
+            when(JWKSourceDataProvider.getInstance().getJWKSourceOrFail(anyString())).thenReturn(jwkSet);
         }
 
         if (testScenario == TestScenario.VALID_JWT) {
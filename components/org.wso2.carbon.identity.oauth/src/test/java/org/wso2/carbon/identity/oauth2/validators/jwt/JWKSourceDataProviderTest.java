@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.validators.jwt;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.source.RemoteJWKSet;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.sun.net.httpserver.HttpServer;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.common.testng.WithCarbonHome;
+
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests for {@link JWKSourceDataProvider} against a local JWKS endpoint.
+ */
+@WithCarbonHome
+public class JWKSourceDataProviderTest {
+
+    private static final String KEY_ID_1 = "key1";
+    private static final String KEY_ID_2 = "key2";
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private volatile String jwks;
+    private volatile int responseStatus;
+    private volatile long responseDelayInMillis;
+    private String jwksForKey1;
+    private String jwksForKey2;
+    private String jwksUri;
+
+    @BeforeClass
+    public void startServer() throws Exception {
+
+        jwksForKey1 = buildJWKS(KEY_ID_1);
+        jwksForKey2 = buildJWKS(KEY_ID_2);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.createContext("/", exchange -> {
+            requestCount.incrementAndGet();
+            try {
+                Thread.sleep(responseDelayInMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = jwks.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(responseStatus, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @AfterClass
+    public void stopServer() {
+
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @BeforeMethod
+    public void setUp() {
+
+        requestCount.set(0);
+        jwks = jwksForKey1;
+        responseStatus = 200;
+        responseDelayInMillis = 0;
+        // Use a distinct jwks_uri per test.
+        jwksUri = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/jwks/" +
+                System.nanoTime();
+    }
+
+    @Test
+    public void testConcurrentMissesAreCoalesced() throws Exception {
+
+        JWKSourceDataProvider dataProvider = new JWKSourceDataProvider(false, 60000, 60000, 60000, 60000);
+        responseDelayInMillis = 200;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<RemoteJWKSet<SecurityContext>>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit((Callable<RemoteJWKSet<SecurityContext>>) () -> {
+                    start.await();
+                    return dataProvider.getJWKSource(jwksUri);
+                }));
+            }
+            start.countDown();
+            RemoteJWKSet<SecurityContext> jwkSet = futures.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<RemoteJWKSet<SecurityContext>> future : futures) {
+                assertSame(future.get(10, TimeUnit.SECONDS), jwkSet);
+            }
+            assertEquals(getKeys(jwkSet, KEY_ID_1).size(), 1);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(requestCount.get(), 1, "Concurrent misses should result in a single fetch.");
+        assertEquals(dataProvider.getMissCount(), 1);
+    }
+
+    @Test
+    public void testKeySetIsRefreshedAhead() throws Exception {
+
+        JWKSourceDataProvider dataProvider = new JWKSourceDataProvider(true, 200, 100, 60000, 60000);
+        try {
+            RemoteJWKSet<SecurityContext> jwkSet = dataProvider.getJWKSource(jwksUri);
+            assertEquals(getKeys(jwkSet, KEY_ID_1).size(), 1);
+
+            // Rotate the key at the remote endpoint.
+            jwks = jwksForKey2;
+            RemoteJWKSet<SecurityContext> refreshed = waitForNewJWKSet(dataProvider, jwkSet);
+            assertEquals(getKeys(refreshed, KEY_ID_2).size(), 1);
+            assertTrue(dataProvider.getRefreshCount() >= 1);
+        } finally {
+            dataProvider.shutdown();
+        }
+    }
+
+    @Test
+    public void testStaleKeySetIsServedWhenRefreshFails() throws Exception {
+
+        JWKSourceDataProvider dataProvider = new JWKSourceDataProvider(true, 100, 100, 60000, 60000);
+        try {
+            RemoteJWKSet<SecurityContext> jwkSet = dataProvider.getJWKSource(jwksUri);
+            assertEquals(getKeys(jwkSet, KEY_ID_1).size(), 1);
+
+            responseStatus = 500;
+            long deadline = System.currentTimeMillis() + 10000;
+            while (dataProvider.getRefreshFailureCount() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertTrue(dataProvider.getRefreshFailureCount() >= 2, "Refresh should have been retried.");
+            assertSame(dataProvider.getJWKSource(jwksUri), jwkSet);
+            assertEquals(getKeys(dataProvider.getJWKSource(jwksUri), KEY_ID_1).size(), 1);
+
+            // The key set is replaced once the remote endpoint recovers.
+            responseStatus = 200;
+            jwks = jwksForKey2;
+            assertEquals(getKeys(waitForNewJWKSet(dataProvider, jwkSet), KEY_ID_2).size(), 1);
+        } finally {
+            dataProvider.shutdown();
+        }
+    }
+
+    @Test
+    public void testLeastRecentlyUsedSourceIsDroppedAtLimit() throws Exception {
+
+        JWKSourceDataProvider dataProvider = new JWKSourceDataProvider(false, 60000, 60000, 60000, 60000, 2);
+        RemoteJWKSet<SecurityContext> jwkSet = dataProvider.getJWKSource(jwksUri);
+        Thread.sleep(1100);
+        dataProvider.getJWKSource(jwksUri + "/2");
+        Thread.sleep(1100);
+        // Use the first jwks_uri again, so that the second one is the least recently used.
+        assertSame(dataProvider.getJWKSource(jwksUri), jwkSet);
+        dataProvider.getJWKSource(jwksUri + "/3");
+        assertEquals(requestCount.get(), 3);
+
+        assertSame(dataProvider.getJWKSource(jwksUri), jwkSet);
+        dataProvider.getJWKSource(jwksUri + "/2");
+        assertEquals(requestCount.get(), 4, "Dropped JWK source should be fetched again.");
+    }
+
+    @Test
+    public void testIdleSourceIsDroppedWithoutRefreshAhead() throws Exception {
+
+        JWKSourceDataProvider dataProvider = new JWKSourceDataProvider(false, 100, 100, 100, 60000);
+        RemoteJWKSet<SecurityContext> jwkSet = dataProvider.getJWKSource(jwksUri);
+        Thread.sleep(300);
+        RemoteJWKSet<SecurityContext> fetchedAgain = dataProvider.getJWKSource(jwksUri);
+        assertNotSame(fetchedAgain, jwkSet);
+        assertEquals(requestCount.get(), 2);
+    }
+
+    @Test
+    public void testForcedRefreshIsRateLimited() throws Exception {
+
+        JWKSourceDataProvider dataProvider = new JWKSourceDataProvider(false, 60000, 60000, 60000, 60000, 16, 200);
+        RemoteJWKSet<SecurityContext> jwkSet = dataProvider.getJWKSource(jwksUri);
+        for (int i = 0; i < 10; i++) {
+            dataProvider.refreshJWKSResource(jwksUri);
+        }
+        assertEquals(requestCount.get(), 1, "Key set fetched within the interval should not be fetched again.");
+        assertSame(dataProvider.getJWKSource(jwksUri), jwkSet);
+        assertEquals(dataProvider.getSkippedForcedRefreshCount(), 10);
+
+        Thread.sleep(300);
+        dataProvider.refreshJWKSResource(jwksUri);
+        dataProvider.refreshJWKSResource(jwksUri);
+        assertEquals(requestCount.get(), 2, "Only one forced refresh should be done per interval.");
+        assertNotSame(dataProvider.getJWKSource(jwksUri), jwkSet);
+    }
+
+    private RemoteJWKSet<SecurityContext> waitForNewJWKSet(JWKSourceDataProvider dataProvider,
+                                                          RemoteJWKSet<SecurityContext> jwkSet) throws Exception {
+
+        long deadline = System.currentTimeMillis() + 10000;
+        RemoteJWKSet<SecurityContext> current = dataProvider.getJWKSource(jwksUri);
+        while (current == jwkSet && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            current = dataProvider.getJWKSource(jwksUri);
+        }
+        assertNotSame(current, jwkSet, "Key set was not refreshed.");
+        return current;
+    }
+
+    private List<JWK> getKeys(RemoteJWKSet<SecurityContext> jwkSet, String keyId) throws Exception {
+
+        return jwkSet.get(new JWKSelector(new JWKMatcher.Builder().keyID(keyId).build()), null);
+    }
+
+    private String buildJWKS(String keyId) throws Exception {
+
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+        keyPairGenerator.initialize(2048);
+        RSAKey rsaKey = new RSAKey.Builder((RSAPublicKey) keyPairGenerator.generateKeyPair().getPublic())
+                .keyID(keyId).build();
+        return new JWKSet(rsaKey).toString();
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.validators.jwt;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.BadJOSEException;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.nimbusds.jwt.proc.JWTProcessor;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.fail;
+
+public class JWTProcessorRegistryTest {
+
+    private static final String JWKS_URI = "https://localhost:9443/oauth2/jwks";
+    private static final String KEY_ID = "kid";
+
+    private JWKSource<SecurityContext> keySource;
+    private String jwtString;
+
+    @BeforeClass
+    public void setUp() throws Exception {
+
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+        keyPairGenerator.initialize(2048);
+        KeyPair keyPair = keyPairGenerator.generateKeyPair();
+        keySource = new ImmutableJWKSet<>(new JWKSet(new RSAKey.Builder((RSAPublicKey) keyPair.getPublic())
+                .keyID(KEY_ID).build()));
+
+        SignedJWT signedJWT = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(KEY_ID).build(),
+                new JWTClaimsSet.Builder().subject("admin")
+                        .expirationTime(new Date(System.currentTimeMillis() + 3600000)).build());
+        signedJWT.sign(new RSASSASigner(keyPair.getPrivate()));
+        jwtString = signedJWT.serialize();
+    }
+
+    @Test
+    public void testProcessorIsReused() {
+
+        JWTProcessorRegistry registry = new JWTProcessorRegistry(16);
+        JWTProcessor<SecurityContext> processor = registry.getProcessor(JWKS_URI, "RS256", keySource);
+
+        assertSame(registry.getProcessor(JWKS_URI, "RS256", keySource), processor);
+        assertNotSame(registry.getProcessor(JWKS_URI, "RS384", keySource), processor);
+        assertEquals(registry.getMissCount(), 2);
+        assertEquals(registry.getHitCount(), 1);
+        assertEquals(registry.getSize(), 2);
+    }
+
+    @Test
+    public void testProcessorIsRebuiltForNewKeySource() {
+
+        JWTProcessorRegistry registry = new JWTProcessorRegistry(16);
+        JWTProcessor<SecurityContext> processor = registry.getProcessor(JWKS_URI, "RS256", keySource);
+        JWKSource<SecurityContext> refreshedKeySource = new ImmutableJWKSet<>(new JWKSet());
+
+        JWTProcessor<SecurityContext> refreshed = registry.getProcessor(JWKS_URI, "RS256", refreshedKeySource);
+        assertNotSame(refreshed, processor);
+        assertSame(registry.getProcessor(JWKS_URI, "RS256", refreshedKeySource), refreshed);
+        assertEquals(registry.getRefreshCount(), 1);
+        assertEquals(registry.getSize(), 1);
+    }
+
+    @Test
+    public void testEviction() {
+
+        JWTProcessorRegistry registry = new JWTProcessorRegistry(2);
+        for (int i = 0; i < 5; i++) {
+            registry.getProcessor(JWKS_URI + i, "RS256", keySource);
+        }
+        assertEquals(registry.getSize(), 2);
+        assertEquals(registry.getEvictionCount(), 3);
+    }
+
+    @Test
+    public void testConcurrentValidation() throws Exception {
+
+        JWTProcessorRegistry registry = new JWTProcessorRegistry(16);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                futures.add(executor.submit((Callable<String>) () ->
+                        registry.getProcessor(JWKS_URI, "RS256", keySource).process(jwtString, null).getSubject()));
+            }
+            for (Future<String> future : futures) {
+                assertEquals(future.get(10, TimeUnit.SECONDS), "admin");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(registry.getSize(), 1);
+    }
+
+    @Test
+    public void testUnexpectedAlgorithmIsRejected() throws Exception {
+
+        JWTProcessorRegistry registry = new JWTProcessorRegistry(16);
+        try {
+            registry.getProcessor(JWKS_URI, "RS384", keySource).process(jwtString, null);
+            fail("JWT signed with an unexpected algorithm should be rejected.");
+        } catch (BadJOSEException e) {
+            // Expected.
+        }
+    }
+}
@@ -62,10 +62,11 @@ import org.wso2.carbon.identity.oauth2.dto.OAuth2AuthorizeReqDTO;
 import org.wso2.carbon.identity.oauth2.dto.OAuth2AuthorizeRespDTO;
 import org.wso2.carbon.identity.oauth2.internal.OAuth2ServiceComponentHolder;
 import org.wso2.carbon.identity.oauth2.keyidprovider.DefaultKeyIDProviderImpl;
+import org.wso2.carbon.identity.oauth2.signing.SigningKeyRegistry;
+import org.wso2.carbon.identity.oauth2.signing.StaticSigningKeyLoader;
 import org.wso2.carbon.identity.oauth2.test.utils.CommonTestUtils;
 import org.wso2.carbon.identity.oauth2.token.OAuthTokenReqMessageContext;
 import org.wso2.carbon.identity.oauth2.token.handlers.grant.saml.SAML2BearerGrantHandlerTest;
-import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
 import org.wso2.carbon.identity.openidconnect.dao.ScopeClaimMappingDAOImpl;
 import org.wso2.carbon.identity.openidconnect.internal.OpenIDConnectServiceComponentHolder;
 import org.wso2.carbon.identity.openidconnect.model.RequestedClaim;
@@ -76,9 +77,7 @@ import org.wso2.carbon.user.core.service.RealmService;
 
 import java.io.FileInputStream;
 import java.io.InputStream;
-import java.security.Key;
 import java.security.KeyStore;
-import java.security.cert.Certificate;
 import java.security.interfaces.RSAPrivateKey;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -87,7 +86,6 @@ import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
@@ -213,14 +211,10 @@ public class DefaultIDTokenBuilderTest extends PowerMockTestCase {
                     .addUser(TestConstants.USER_NAME, TestConstants.PASSWORD, new String[0], claims,
                              TestConstants.DEFAULT_PROFILE);
 
-        Map<Integer, Certificate> publicCerts = new ConcurrentHashMap<>();
-        publicCerts.put(SUPER_TENANT_ID, ReadCertStoreSampleUtil.createKeyStore(getClass())
-                                                                .getCertificate("wso2carbon"));
-        setFinalStatic(OAuth2Util.class.getDeclaredField("publicCerts"), publicCerts);
-        Map<Integer, Key> privateKeys = new ConcurrentHashMap<>();
-        privateKeys.put(SUPER_TENANT_ID, ReadCertStoreSampleUtil.createKeyStore(getClass())
-                                                                .getKey("wso2carbon", "wso2carbon".toCharArray()));
-        setFinalStatic(OAuth2Util.class.getDeclaredField("privateKeys"), privateKeys);
+        KeyStore signingKeyStore = ReadCertStoreSampleUtil.createKeyStore(getClass());
+        setFinalStatic(SigningKeyRegistry.class.getDeclaredField("instance"), new SigningKeyRegistry(
+                new StaticSigningKeyLoader(signingKeyStore.getKey("wso2carbon", "wso2carbon".toCharArray()),
+                        signingKeyStore.getCertificate("wso2carbon")), 10, 0));
 
         OpenIDConnectServiceComponentHolder.getInstance()
                 .getOpenIDConnectClaimFilters().add(new OpenIDConnectClaimFilterImpl());
@@ -98,6 +98,13 @@ CREATE TABLE IF NOT EXISTS IDN_OAUTH2_TOKEN_BINDING (
             FOREIGN KEY (TOKEN_ID) REFERENCES IDN_OAUTH2_ACCESS_TOKEN(TOKEN_ID) ON DELETE CASCADE
 );
 
+CREATE TABLE IF NOT EXISTS IDN_OAUTH2_ISSUANCE_LOCK (
+            LOCK_KEY VARCHAR (64) NOT NULL,
+            LOCK_OWNER VARCHAR (255) NOT NULL,
+            LEASE_EXPIRY BIGINT NOT NULL,
+            PRIMARY KEY (LOCK_KEY)
+);
+
 CREATE INDEX IDX_AT_CK_AU ON IDN_OAUTH2_ACCESS_TOKEN(CONSUMER_KEY_ID, AUTHZ_USER, TOKEN_STATE, USER_TYPE);
 
 CREATE INDEX IDX_TC ON IDN_OAUTH2_ACCESS_TOKEN(TIME_CREATED);
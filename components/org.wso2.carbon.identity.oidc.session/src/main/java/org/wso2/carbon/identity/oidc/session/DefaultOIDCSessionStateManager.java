@@ -18,7 +18,6 @@
 
 package org.wso2.carbon.identity.oidc.session;
 
-import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.core.SameSiteCookie;
@@ -26,12 +25,6 @@ import org.wso2.carbon.core.ServletCookie;
 import org.wso2.carbon.identity.application.authentication.framework.util.FrameworkConstants;
 import org.wso2.carbon.identity.core.util.IdentityTenantUtil;
 
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
-import java.util.UUID;
-
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -43,9 +36,6 @@ import static org.wso2.carbon.identity.oidc.session.util.OIDCSessionManagementUt
  */
 public class DefaultOIDCSessionStateManager implements OIDCSessionStateManager {
 
-    private static final String RANDOM_ALG_SHA1 = "SHA1PRNG";
-    private static final String DIGEST_ALG_SHA256 = "SHA-256";
-
     private static final Log log = LogFactory.getLog(OIDCSessionStateManager.class);
 
     /**
@@ -58,17 +48,8 @@ public class DefaultOIDCSessionStateManager implements OIDCSessionStateManager {
      */
     public String getSessionStateParam(String clientId, String rpCallBackUrl, String opBrowserState) {
 
-        try {
-            String salt = generateSaltValue();
-            String sessionStateDataString =
-                    clientId + " " + getOrigin(rpCallBackUrl) + " " + opBrowserState + " " + salt;
-
-            MessageDigest digest = MessageDigest.getInstance(DIGEST_ALG_SHA256);
-            digest.update(sessionStateDataString.getBytes(StandardCharsets.UTF_8));
-            return bytesToHex(digest.digest()) + "." + salt;
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("Error while calculating session state.", e);
-        }
+        return SessionStateEngine.getInstance().generateSessionState(clientId, getOrigin(rpCallBackUrl),
+                opBrowserState);
     }
 
     /**
@@ -79,7 +60,8 @@ public class DefaultOIDCSessionStateManager implements OIDCSessionStateManager {
      */
     public Cookie addOPBrowserStateCookie(HttpServletResponse response) {
 
-        ServletCookie cookie = new ServletCookie(OIDCSessionConstants.OPBS_COOKIE_ID, UUID.randomUUID().toString());
+        ServletCookie cookie = new ServletCookie(OIDCSessionConstants.OPBS_COOKIE_ID,
+                SessionStateEngine.getInstance().generateBrowserState());
         cookie.setSecure(true);
         cookie.setPath("/");
         cookie.setSameSite(SameSiteCookie.NONE);
@@ -123,9 +105,10 @@ public class DefaultOIDCSessionStateManager implements OIDCSessionStateManager {
 
         if (IdentityTenantUtil.isTenantedSessionsEnabled() && tenantDomain != null) {
             // Invalidate the old opbs cookies which haven't tenanted paths.
-           return UUID.randomUUID() + OIDCSessionConstants.TENANT_QUALIFIED_OPBS_COOKIE_SUFFIX;
+           return SessionStateEngine.getInstance().generateBrowserState() +
+                   OIDCSessionConstants.TENANT_QUALIFIED_OPBS_COOKIE_SUFFIX;
         }
-        return UUID.randomUUID().toString();
+        return SessionStateEngine.getInstance().generateBrowserState();
     }
 
     /**
@@ -160,21 +143,4 @@ public class DefaultOIDCSessionStateManager implements OIDCSessionStateManager {
             }
         }
     }
-
-    private static String generateSaltValue() throws NoSuchAlgorithmException {
-
-        byte[] bytes = new byte[16];
-        SecureRandom secureRandom = SecureRandom.getInstance(RANDOM_ALG_SHA1);
-        secureRandom.nextBytes(bytes);
-        return Base64.encodeBase64URLSafeString(bytes);
-    }
-
-    private static String bytesToHex(byte[] bytes) {
-
-        StringBuilder result = new StringBuilder();
-        for (byte byt : bytes) {
-            result.append(Integer.toString((byt & 0xff) + 0x100, 16).substring(1));
-        }
-        return result.toString();
-    }
 }
@@ -18,17 +18,57 @@
 
 package org.wso2.carbon.identity.oidc.session;
 
+import org.apache.axis2.context.ConfigurationContext;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.base.MultitenantConstants;
 import org.wso2.carbon.identity.core.util.IdentityTenantUtil;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
 import org.wso2.carbon.identity.oidc.session.cache.OIDCSessionParticipantCache;
 import org.wso2.carbon.identity.oidc.session.cache.OIDCSessionParticipantCacheEntry;
 import org.wso2.carbon.identity.oidc.session.cache.OIDCSessionParticipantCacheKey;
+import org.wso2.carbon.identity.oidc.session.internal.OIDCSessionManagementComponentServiceHolder;
+import org.wso2.carbon.identity.oidc.session.store.InMemoryOIDCSessionParticipantStore;
+import org.wso2.carbon.identity.oidc.session.store.OIDCSessionParticipantStore;
+import org.wso2.carbon.utils.ConfigurationContextService;
+
+import java.util.Set;
 
 /**
- * This class provides session state CRUD operations.
+ * This class provides session state CRUD operations. Stored sessions are also indexed by client id and authenticated
+ * user in the {@link OIDCSessionParticipantStore}, so that the sessions of a client or a user can be found and
+ * removed without scanning all sessions.
  */
 public class OIDCSessionManager {
 
+    private static final Log log = LogFactory.getLog(OIDCSessionManager.class);
+
+    private static final String SESSION_PARTICIPANT_STORE_CONFIG = "OAuth.OpenIDConnect.SessionParticipantStore.Class";
+
+    private static volatile OIDCSessionParticipantStore defaultParticipantStore;
+
+    private final OIDCSessionParticipantStore participantStore;
+
+    /**
+     * Create a session manager using the session participant store configured in identity.xml.
+     */
+    public OIDCSessionManager() {
+
+        this(null);
+    }
+
+    /**
+     * Create a session manager.
+     *
+     * @param participantStore Session participant store, or null to use the store configured in identity.xml.
+     */
+    public OIDCSessionManager(OIDCSessionParticipantStore participantStore) {
+
+        this.participantStore = participantStore;
+    }
+
     /**
      * Stores the session state against the provided session id.
      *
@@ -125,6 +165,11 @@ public class OIDCSessionManager {
         cacheEntry.setTenantDomain(tenantDomain);
 
         OIDCSessionParticipantCache.getInstance().addToCache(cacheKey, cacheEntry, tenantDomain);
+        try {
+            getParticipantStore().storeSession(sessionId, sessionState, tenantDomain);
+        } catch (IdentityOAuth2Exception e) {
+            log.error("Error while indexing the participants of the session: " + sessionId, e);
+        }
     }
 
     /**
@@ -175,6 +220,11 @@ public class OIDCSessionManager {
         cacheKey.setSessionID(sessionId);
 
         OIDCSessionParticipantCache.getInstance().clearCacheEntry(cacheKey, tenantDomain);
+        try {
+            getParticipantStore().removeSession(sessionId, tenantDomain);
+        } catch (IdentityOAuth2Exception e) {
+            log.error("Error while removing the participants of the session: " + sessionId + " from the index.", e);
+        }
     }
 
     /**
@@ -190,6 +240,173 @@ public class OIDCSessionManager {
         return getOIDCSessionState(sessionId, tenantDomain) != null;
     }
 
+    /**
+     * Returns the ids of the sessions the given client participates in.
+     *
+     * @param clientId          client id
+     * @param loginTenantDomain login tenant domain
+     * @return session ids
+     * @throws IdentityOAuth2Exception if the session participant store cannot be read
+     */
+    public Set<String> getSessionIdsOfClient(String clientId, String loginTenantDomain)
+            throws IdentityOAuth2Exception {
+
+        return getParticipantStore().getSessionIdsOfClient(clientId, resolveCacheTenantDomain(loginTenantDomain));
+    }
+
+    /**
+     * Returns the ids of the sessions of the given authenticated user.
+     *
+     * @param authenticatedUser authenticated user, as held by {@link OIDCSessionState#getAuthenticatedUser()}
+     * @param loginTenantDomain login tenant domain
+     * @return session ids
+     * @throws IdentityOAuth2Exception if the session participant store cannot be read
+     */
+    public Set<String> getSessionIdsOfUser(String authenticatedUser, String loginTenantDomain)
+            throws IdentityOAuth2Exception {
+
+        return getParticipantStore().getSessionIdsOfUser(authenticatedUser,
+                resolveCacheTenantDomain(loginTenantDomain));
+    }
+
+    /**
+     * Removes the given client from all the sessions it participates in, for example when the application is deleted.
+     * Sessions left without participants are removed. Only the sessions of the client are read. Relying parties are
+     * not notified.
+     *
+     * @param clientId          client id
+     * @param loginTenantDomain login tenant domain
+     * @return number of sessions the client was removed from
+     * @throws IdentityOAuth2Exception if the session participant store cannot be read
+     */
+    public int removeSessionParticipant(String clientId, String loginTenantDomain) throws IdentityOAuth2Exception {
+
+        String tenantDomain = resolveCacheTenantDomain(loginTenantDomain);
+        int removed = 0;
+        for (String sessionId : getParticipantStore().getSessionIdsOfClient(clientId, tenantDomain)) {
+            OIDCSessionState sessionState = getIndexedSessionState(sessionId, tenantDomain);
+            if (sessionState == null) {
+                continue;
+            }
+            if (!sessionState.getSessionParticipants().remove(clientId)) {
+                // The session was updated without the index.
+                getParticipantStore().storeSession(sessionId, sessionState, tenantDomain);
+                continue;
+            }
+            if (sessionState.getSessionParticipants().isEmpty()) {
+                removeOIDCSessionState(sessionId, tenantDomain);
+            } else {
+                storeOIDCSessionState(sessionId, sessionState, tenantDomain);
+            }
+            removed++;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Removed the client: " + clientId + " from " + removed + " sessions.");
+        }
+        return removed;
+    }
+
+    /**
+     * Removes all the sessions of the given authenticated user. Only the sessions of the user are read. Relying
+     * parties are not notified.
+     *
+     * @param authenticatedUser authenticated user, as held by {@link OIDCSessionState#getAuthenticatedUser()}
+     * @param loginTenantDomain login tenant domain
+     * @return number of removed sessions
+     * @throws IdentityOAuth2Exception if the session participant store cannot be read
+     */
+    public int removeOIDCSessionStatesOfUser(String authenticatedUser, String loginTenantDomain)
+            throws IdentityOAuth2Exception {
+
+        String tenantDomain = resolveCacheTenantDomain(loginTenantDomain);
+        int removed = 0;
+        for (String sessionId : getParticipantStore().getSessionIdsOfUser(authenticatedUser, tenantDomain)) {
+            OIDCSessionState sessionState = getIndexedSessionState(sessionId, tenantDomain);
+            if (sessionState == null) {
+                continue;
+            }
+            if (!StringUtils.equals(authenticatedUser, sessionState.getAuthenticatedUser())) {
+                // The session was updated without the index.
+                getParticipantStore().storeSession(sessionId, sessionState, tenantDomain);
+                continue;
+            }
+            removeOIDCSessionState(sessionId, tenantDomain);
+            removed++;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Removed " + removed + " sessions of the user: " + authenticatedUser);
+        }
+        return removed;
+    }
+
+    /**
+     * Returns the session state of an indexed session, removing the session from the index if it has expired.
+     */
+    private OIDCSessionState getIndexedSessionState(String sessionId, String tenantDomain)
+            throws IdentityOAuth2Exception {
+
+        OIDCSessionState sessionState = getOIDCSessionState(sessionId, tenantDomain);
+        if (sessionState == null) {
+            getParticipantStore().removeSession(sessionId, tenantDomain);
+        }
+        return sessionState;
+    }
+
+    private OIDCSessionParticipantStore getParticipantStore() {
+
+        if (participantStore != null) {
+            return participantStore;
+        }
+        if (defaultParticipantStore == null) {
+            synchronized (OIDCSessionManager.class) {
+                if (defaultParticipantStore == null) {
+                    defaultParticipantStore = createParticipantStore();
+                }
+            }
+        }
+        return defaultParticipantStore;
+    }
+
+    private static OIDCSessionParticipantStore createParticipantStore() {
+
+        OIDCSessionParticipantStore store = null;
+        String storeClassName = IdentityUtil.getProperty(SESSION_PARTICIPANT_STORE_CONFIG);
+        if (StringUtils.isNotBlank(storeClassName)) {
+            try {
+                Class clazz = Thread.currentThread().getContextClassLoader().loadClass(storeClassName.trim());
+                if (log.isDebugEnabled()) {
+                    log.debug("An instance of " + storeClassName + " is created as the session participant store.");
+                }
+                store = (OIDCSessionParticipantStore) clazz.newInstance();
+            } catch (ClassNotFoundException | IllegalAccessException | InstantiationException | ClassCastException e) {
+                log.error("Error when instantiating the OIDCSessionParticipantStore : " + storeClassName +
+                        ". Defaulting to InMemoryOIDCSessionParticipantStore", e);
+            }
+        }
+        if (store == null) {
+            store = new InMemoryOIDCSessionParticipantStore();
+        }
+        if (store instanceof InMemoryOIDCSessionParticipantStore && isClusteringEnabled()) {
+            log.warn("InMemoryOIDCSessionParticipantStore is used while clustering is enabled. Sessions created " +
+                    "through other nodes are not found when removing the sessions of a client or a user. Configure " +
+                    SESSION_PARTICIPANT_STORE_CONFIG + " with JDBCOIDCSessionParticipantStore for clustered " +
+                    "deployments.");
+        }
+        return store;
+    }
+
+    private static boolean isClusteringEnabled() {
+
+        ConfigurationContextService configurationContextService =
+                OIDCSessionManagementComponentServiceHolder.getConfigurationContextService();
+        if (configurationContextService == null) {
+            return false;
+        }
+        ConfigurationContext configurationContext = configurationContextService.getServerConfigContext();
+        return configurationContext != null && configurationContext.getAxisConfiguration() != null &&
+                configurationContext.getAxisConfiguration().getClusteringAgent() != null;
+    }
+
     private String resolveCacheTenantDomain(String tenantDomain) {
 
         if (!IdentityTenantUtil.isTenantedSessionsEnabled()) {
@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oidc.session;
+
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/**
+ * Generates the OIDC session_state values sent with authorization responses and the OP browser state values of the
+ * opbs cookie. A {@link SecureRandom}, a {@link MessageDigest} and the input and output buffers are kept per thread,
+ * and the digest and the salt are encoded through lookup tables, instead of resolving the algorithms and building the
+ * strings for every authorization response.
+ * <p>
+ * The generated values have the same form as before: session states are the hex encoded SHA-256 digest of
+ * {@code clientId + " " + origin + " " + opBrowserState + " " + salt}, followed by a dot and the salt, which is 16
+ * random bytes in unpadded base64url. Browser states are random (version 4) UUID strings.
+ */
+public final class SessionStateEngine {
+
+    private static final String RANDOM_ALG_SHA1 = "SHA1PRNG";
+    private static final String DIGEST_ALG_SHA256 = "SHA-256";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final char[] BASE64_URL_DIGITS =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+    private static final int SALT_LENGTH = 16;
+    // Unpadded base64url length of the salt.
+    private static final int ENCODED_SALT_LENGTH = (SALT_LENGTH * 4 + 2) / 3;
+    private static final int DIGEST_LENGTH = 32;
+    private static final int SESSION_STATE_LENGTH = DIGEST_LENGTH * 2 + 1 + ENCODED_SALT_LENGTH;
+    private static final int UUID_LENGTH = 36;
+    // Larger buffers are not retained by the thread, to avoid holding memory after hashing unusually long values.
+    private static final int MAX_RETAINED_BUFFER_SIZE = 8192;
+    private static final int INITIAL_BUFFER_SIZE = 256;
+    private static final byte SEPARATOR = ' ';
+
+    private static final SessionStateEngine INSTANCE = new SessionStateEngine();
+    private static final ThreadLocal<ThreadState> THREAD_STATE = ThreadLocal.withInitial(ThreadState::new);
+
+    private SessionStateEngine() {
+
+    }
+
+    public static SessionStateEngine getInstance() {
+
+        return INSTANCE;
+    }
+
+    /**
+     * Generate a session state for the given client, relying party origin and OP browser state, with a new salt.
+     *
+     * @param clientId       Client id.
+     * @param origin         Origin of the client callback url.
+     * @param opBrowserState OP browser state cookie value.
+     * @return Session state value.
+     */
+    public String generateSessionState(String clientId, String origin, String opBrowserState) {
+
+        ThreadState state = THREAD_STATE.get();
+        state.random.nextBytes(state.salt);
+        char[] chars = state.chars;
+        int saltOffset = DIGEST_LENGTH * 2 + 1;
+        appendBase64Url(state.salt, chars, saltOffset);
+
+        MessageDigest digest = state.digest;
+        digest.reset();
+        update(digest, clientId, state);
+        digest.update(SEPARATOR);
+        update(digest, origin, state);
+        digest.update(SEPARATOR);
+        update(digest, opBrowserState, state);
+        digest.update(SEPARATOR);
+        // The encoded salt is ASCII, hence its chars are its UTF-8 bytes.
+        byte[] input = state.input(ENCODED_SALT_LENGTH);
+        for (int i = 0; i < ENCODED_SALT_LENGTH; i++) {
+            input[i] = (byte) chars[saltOffset + i];
+        }
+        digest.update(input, 0, ENCODED_SALT_LENGTH);
+        try {
+            digest.digest(state.digestBuffer, 0, DIGEST_LENGTH);
+        } catch (DigestException e) {
+            // Not expected since the buffer is sized to the SHA-256 digest length.
+            throw new IllegalStateException("Error while calculating session state.", e);
+        }
+
+        appendHex(state.digestBuffer, 0, DIGEST_LENGTH, chars, 0);
+        chars[DIGEST_LENGTH * 2] = '.';
+        return new String(chars, 0, SESSION_STATE_LENGTH);
+    }
+
+    /**
+     * Generate a new OP browser state value, a random UUID string.
+     *
+     * @return OP browser state value.
+     */
+    public String generateBrowserState() {
+
+        ThreadState state = THREAD_STATE.get();
+        byte[] bytes = state.salt;
+        state.random.nextBytes(bytes);
+        // Set the version to 4 and the variant to IETF, as done by UUID.randomUUID().
+        bytes[6] = (byte) ((bytes[6] & 0x0f) | 0x40);
+        bytes[8] = (byte) ((bytes[8] & 0x3f) | 0x80);
+
+        char[] chars = state.chars;
+        int position = appendHex(bytes, 0, 4, chars, 0);
+        chars[position++] = '-';
+        position = appendHex(bytes, 4, 6, chars, position);
+        chars[position++] = '-';
+        position = appendHex(bytes, 6, 8, chars, position);
+        chars[position++] = '-';
+        position = appendHex(bytes, 8, 10, chars, position);
+        chars[position++] = '-';
+        appendHex(bytes, 10, 16, chars, position);
+        return new String(chars, 0, UUID_LENGTH);
+    }
+
+    private static void update(MessageDigest digest, String value, ThreadState state) {
+
+        // Preserve the string concatenation of the previous implementation, which hashed null values as "null".
+        String text = String.valueOf(value);
+        int length = text.length();
+        byte[] input = state.input(length);
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                digest.update(text.getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            input[i] = (byte) c;
+        }
+        digest.update(input, 0, length);
+    }
+
+    private static int appendHex(byte[] bytes, int from, int to, char[] chars, int offset) {
+
+        int position = offset;
+        for (int i = from; i < to; i++) {
+            int value = bytes[i] & 0xff;
+            chars[position++] = HEX_DIGITS[value >>> 4];
+            chars[position++] = HEX_DIGITS[value & 0x0f];
+        }
+        return position;
+    }
+
+    private static void appendBase64Url(byte[] bytes, char[] chars, int offset) {
+
+        int position = offset;
+        int i = 0;
+        for (; i + 3 <= bytes.length; i += 3) {
+            int bits = (bytes[i] & 0xff) << 16 | (bytes[i + 1] & 0xff) << 8 | (bytes[i + 2] & 0xff);
+            chars[position++] = BASE64_URL_DIGITS[bits >>> 18];
+            chars[position++] = BASE64_URL_DIGITS[(bits >>> 12) & 0x3f];
+            chars[position++] = BASE64_URL_DIGITS[(bits >>> 6) & 0x3f];
+            chars[position++] = BASE64_URL_DIGITS[bits & 0x3f];
+        }
+        int remaining = bytes.length - i;
+        if (remaining == 1) {
+            int bits = (bytes[i] & 0xff) << 16;
+            chars[position++] = BASE64_URL_DIGITS[bits >>> 18];
+            chars[position] = BASE64_URL_DIGITS[(bits >>> 12) & 0x3f];
+        } else if (remaining == 2) {
+            int bits = (bytes[i] & 0xff) << 16 | (bytes[i + 1] & 0xff) << 8;
+            chars[position++] = BASE64_URL_DIGITS[bits >>> 18];
+            chars[position++] = BASE64_URL_DIGITS[(bits >>> 12) & 0x3f];
+            chars[position] = BASE64_URL_DIGITS[(bits >>> 6) & 0x3f];
+        }
+    }
+
+    /**
+     * Per thread random generator, digest and buffers.
+     */
+    private static class ThreadState {
+
+        private final SecureRandom random;
+        private final MessageDigest digest;
+        private final byte[] salt = new byte[SALT_LENGTH];
+        private final byte[] digestBuffer = new byte[DIGEST_LENGTH];
+        private final char[] chars = new char[Math.max(SESSION_STATE_LENGTH, UUID_LENGTH)];
+        private byte[] inputBuffer = new byte[INITIAL_BUFFER_SIZE];
+
+        ThreadState() {
+
+            try {
+                random = SecureRandom.getInstance(RANDOM_ALG_SHA1);
+                digest = MessageDigest.getInstance(DIGEST_ALG_SHA256);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("Error while initializing session state generation.", e);
+            }
+        }
+
+        byte[] input(int size) {
+
+            if (inputBuffer.length >= size) {
+                return inputBuffer;
+            }
+            byte[] buffer = new byte[size];
+            if (size <= MAX_RETAINED_BUFFER_SIZE) {
+                inputBuffer = buffer;
+            }
+            return buffer;
+        }
+    }
+}
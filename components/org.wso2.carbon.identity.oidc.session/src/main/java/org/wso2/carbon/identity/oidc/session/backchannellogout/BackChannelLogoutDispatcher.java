@@ -0,0 +1,584 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oidc.session.backchannellogout;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.Consts;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLContexts;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.util.EntityUtils;
+import org.wso2.carbon.identity.base.IdentityConstants;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.wso2.carbon.identity.oauth2.util.OAuth2ConfigUtil.readIntProperty;
+import static org.wso2.carbon.identity.oauth2.util.OAuth2ConfigUtil.readLongProperty;
+
+/**
+ * Delivers back-channel logout tokens to relying parties without blocking the caller.
+ * <p>
+ * Logout tokens are sent by a fixed set of workers over a shared, pooled HTTP client, so that connections to a relying
+ * party are kept alive and reused across logouts. The number of concurrent requests to a single host is limited, and
+ * deliveries to a host at its limit wait in a per host queue without holding a worker, so a slow relying party does
+ * not delay the notifications of other relying parties. The number of pending deliveries is bounded. Once the bound is
+ * reached further deliveries are rejected instead of queueing up without limit. Deliveries which fail with an I/O
+ * error, a server error or a 429 response are retried with exponential backoff.
+ */
+public class BackChannelLogoutDispatcher {
+
+    private static final Log log = LogFactory.getLog(BackChannelLogoutDispatcher.class);
+
+    private static final String WORKER_COUNT = "OAuth.OpenIDConnect.BackChannelLogout.WorkerCount";
+    private static final String MAX_PENDING_COUNT = "OAuth.OpenIDConnect.BackChannelLogout.MaxPendingCount";
+    private static final String MAX_CONNECTIONS_PER_HOST =
+            "OAuth.OpenIDConnect.BackChannelLogout.MaxConnectionsPerHost";
+    private static final String MAX_RETRIES = "OAuth.OpenIDConnect.BackChannelLogout.MaxRetries";
+    private static final String RETRY_BACKOFF = "OAuth.OpenIDConnect.BackChannelLogout.RetryBackoffInMillis";
+    private static final String TIMEOUT = "OAuth.OpenIDConnect.BackChannelLogout.TimeoutInMillis";
+    private static final int DEFAULT_WORKER_COUNT = 8;
+    private static final int DEFAULT_MAX_PENDING_COUNT = 10000;
+    private static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 4;
+    private static final int DEFAULT_MAX_RETRIES = 3;
+    private static final long DEFAULT_RETRY_BACKOFF = 500;
+    private static final int DEFAULT_TIMEOUT = 5000;
+    private static final long MAX_RETRY_BACKOFF = TimeUnit.MINUTES.toMillis(1);
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final String LOGOUT_TOKEN = "logout_token";
+    private static final String HTTP = "http";
+    private static final String HTTPS = "https";
+
+    private final CloseableHttpClient httpClient;
+    private final ThreadPoolExecutor workers;
+    private final ScheduledThreadPoolExecutor retryScheduler;
+    private final Map<String, HostQueue> hostQueues = new ConcurrentHashMap<>();
+    private final int maxPendingCount;
+    private final int maxConnectionsPerHost;
+    private final int maxRetries;
+    private final long retryBackoffInMillis;
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicLong submittedCount = new AtomicLong();
+    private final AtomicLong deliveredCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong retriedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong totalDeliveryTime = new AtomicLong();
+
+    /**
+     * Create a dispatcher using the values configured in identity.xml.
+     */
+    public BackChannelLogoutDispatcher() {
+
+        this(readIntProperty(WORKER_COUNT, DEFAULT_WORKER_COUNT),
+                readIntProperty(MAX_PENDING_COUNT, DEFAULT_MAX_PENDING_COUNT),
+                readIntProperty(MAX_CONNECTIONS_PER_HOST, DEFAULT_MAX_CONNECTIONS_PER_HOST),
+                readIntProperty(MAX_RETRIES, DEFAULT_MAX_RETRIES),
+                readLongProperty(RETRY_BACKOFF, DEFAULT_RETRY_BACKOFF),
+                readIntProperty(TIMEOUT, DEFAULT_TIMEOUT),
+                !"false".equalsIgnoreCase(
+                        IdentityUtil.getProperty(IdentityConstants.ServerConfig.SLO_HOST_NAME_VERIFICATION_ENABLED)));
+    }
+
+    /**
+     * Create a dispatcher.
+     *
+     * @param workerCount                 Number of threads sending logout tokens.
+     * @param maxPendingCount             Maximum number of deliveries waiting to be sent or retried.
+     * @param maxConnectionsPerHost       Maximum number of concurrent requests to a single host.
+     * @param maxRetries                  Maximum number of times a failed delivery is retried.
+     * @param retryBackoffInMillis        Delay before the first retry. Doubled for each further retry.
+     * @param timeoutInMillis             Connect, connection lease and read timeout of a request.
+     * @param hostNameVerificationEnabled Whether the host name of relying parties is verified.
+     */
+    public BackChannelLogoutDispatcher(int workerCount, int maxPendingCount, int maxConnectionsPerHost,
+                                       int maxRetries, long retryBackoffInMillis, int timeoutInMillis,
+                                       boolean hostNameVerificationEnabled) {
+
+        int workers = Math.max(workerCount, 1);
+        this.maxPendingCount = Math.max(maxPendingCount, 1);
+        this.maxConnectionsPerHost = Math.max(maxConnectionsPerHost, 1);
+        this.maxRetries = Math.max(maxRetries, 0);
+        this.retryBackoffInMillis = Math.max(retryBackoffInMillis, 1);
+        this.httpClient = buildHttpClient(workers, this.maxConnectionsPerHost, timeoutInMillis,
+                hostNameVerificationEnabled);
+        // The number of queued tasks is bounded by the pending count.
+        this.workers = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), new DispatcherThreadFactory("BackChannelLogoutWorker"));
+        this.retryScheduler = new ScheduledThreadPoolExecutor(1,
+                new DispatcherThreadFactory("BackChannelLogoutRetryScheduler"));
+        this.retryScheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Queue a logout token to be delivered to the back-channel logout endpoint of a relying party. Returns without
+     * waiting for the delivery.
+     *
+     * @param backChannelLogoutUrl Back-channel logout endpoint.
+     * @param logoutToken          Logout token.
+     * @return True if the delivery is queued, false if it is rejected as the dispatcher is at its pending limit or the
+     * endpoint is invalid.
+     */
+    public boolean dispatch(String backChannelLogoutUrl, String logoutToken) {
+
+        return dispatch(backChannelLogoutUrl, logoutToken, null);
+    }
+
+    /**
+     * Queue a logout token to be delivered to the back-channel logout endpoint of a relying party, and notify the
+     * listener once the delivery succeeded or finally failed. The listener is not notified if the delivery is not
+     * queued, or if the dispatcher is shut down before the delivery completes.
+     *
+     * @param backChannelLogoutUrl Back-channel logout endpoint.
+     * @param logoutToken          Logout token.
+     * @param listener             Listener notified of the outcome of the delivery. May be null.
+     * @return True if the delivery is queued, false if it is rejected as the dispatcher is at its pending limit or the
+     * endpoint is invalid.
+     */
+    public boolean dispatch(String backChannelLogoutUrl, String logoutToken, DeliveryListener listener) {
+
+        String hostKey = getHostKey(backChannelLogoutUrl);
+        if (hostKey == null) {
+            log.error("Invalid back-channel logout url: " + backChannelLogoutUrl);
+            failedCount.incrementAndGet();
+            return false;
+        }
+        if (pendingCount.incrementAndGet() > maxPendingCount) {
+            pendingCount.decrementAndGet();
+            rejectedCount.incrementAndGet();
+            log.warn("Back-channel logout request to: " + backChannelLogoutUrl + " is dropped as " +
+                    maxPendingCount + " requests are already pending.");
+            return false;
+        }
+        submittedCount.incrementAndGet();
+        enqueue(new LogoutDelivery(backChannelLogoutUrl, logoutToken, hostKey, listener));
+        return true;
+    }
+
+    /**
+     * Check whether logout tokens can be delivered to a back-channel logout endpoint, which is an absolute HTTP or
+     * HTTPS URL.
+     *
+     * @param backChannelLogoutUrl Back-channel logout endpoint.
+     * @return True if the endpoint is valid.
+     */
+    public boolean isValidLogoutUrl(String backChannelLogoutUrl) {
+
+        return getHostKey(backChannelLogoutUrl) != null;
+    }
+
+    /**
+     * Stop the dispatcher. Pending deliveries are dropped and connections are closed.
+     */
+    public void shutdown() {
+
+        retryScheduler.shutdownNow();
+        workers.shutdownNow();
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            log.error("Error while closing the back-channel logout http client.", e);
+        }
+    }
+
+    /**
+     * Get the number of deliveries waiting to be sent or retried, including those in progress.
+     *
+     * @return Pending delivery count.
+     */
+    public int getPendingCount() {
+
+        return pendingCount.get();
+    }
+
+    public long getSubmittedCount() {
+
+        return submittedCount.get();
+    }
+
+    public long getDeliveredCount() {
+
+        return deliveredCount.get();
+    }
+
+    public long getFailedCount() {
+
+        return failedCount.get();
+    }
+
+    public long getRetriedCount() {
+
+        return retriedCount.get();
+    }
+
+    public long getRejectedCount() {
+
+        return rejectedCount.get();
+    }
+
+    /**
+     * Get the average time from queueing a delivery until it was delivered, including retries.
+     *
+     * @return Average delivery time in milliseconds, or 0 if nothing was delivered.
+     */
+    public long getAverageDeliveryTimeInMillis() {
+
+        long delivered = deliveredCount.get();
+        return delivered == 0 ? 0 : totalDeliveryTime.get() / delivered;
+    }
+
+    private void enqueue(LogoutDelivery delivery) {
+
+        HostQueue hostQueue = hostQueues.computeIfAbsent(delivery.getHostKey(),
+                key -> new HostQueue(maxConnectionsPerHost));
+        hostQueue.add(delivery);
+        drain(hostQueue);
+    }
+
+    /**
+     * Hand the queued deliveries of a host to the workers while the host is below its concurrency limit. Called
+     * whenever a delivery is queued and whenever a delivery of the host completes, so that no delivery is left queued
+     * while a permit is free.
+     */
+    private void drain(HostQueue hostQueue) {
+
+        while (!hostQueue.isEmpty() && hostQueue.tryAcquire()) {
+            LogoutDelivery delivery = hostQueue.poll();
+            if (delivery == null) {
+                // Another thread took the delivery. Check again, as a delivery queued meanwhile may have missed the
+                // permit held here.
+                hostQueue.release();
+                continue;
+            }
+            try {
+                workers.execute(() -> deliver(delivery, hostQueue));
+            } catch (RejectedExecutionException e) {
+                hostQueue.release();
+                complete(delivery, false);
+                if (log.isDebugEnabled()) {
+                    log.debug("Back-channel logout request to: " + delivery.getUrl() + " is dropped as the " +
+                            "dispatcher is shut down.");
+                }
+                return;
+            }
+        }
+    }
+
+    private void deliver(LogoutDelivery delivery, HostQueue hostQueue) {
+
+        boolean retry = false;
+        try {
+            if (log.isDebugEnabled()) {
+                log.debug("Starting backchannel logout request to: " + delivery.getUrl());
+            }
+            List<NameValuePair> logoutReqParams =
+                    Collections.singletonList(new BasicNameValuePair(LOGOUT_TOKEN, delivery.getLogoutToken()));
+            HttpPost httpPost = new HttpPost(delivery.getUrl());
+            httpPost.setEntity(new UrlEncodedFormEntity(logoutReqParams, Consts.UTF_8));
+            try (CloseableHttpResponse response = httpClient.execute(httpPost)) {
+                // Consume the response so that the connection is returned to the pool.
+                EntityUtils.consume(response.getEntity());
+                int statusCode = response.getStatusLine().getStatusCode();
+                if (log.isDebugEnabled()) {
+                    log.debug("Backchannel logout response: " + response.getStatusLine());
+                }
+                if (statusCode < 300) {
+                    complete(delivery, true);
+                } else if (statusCode >= 500 || statusCode == TOO_MANY_REQUESTS) {
+                    retry = true;
+                } else {
+                    log.error("Backchannel logout request to: " + delivery.getUrl() + " failed with status: " +
+                            statusCode);
+                    complete(delivery, false);
+                }
+            }
+        } catch (IOException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Error sending logout request to: " + delivery.getUrl(), e);
+            }
+            retry = true;
+        } catch (RuntimeException e) {
+            log.error("Error sending logout requests to: " + delivery.getUrl(), e);
+            complete(delivery, false);
+        } finally {
+            hostQueue.release();
+            drain(hostQueue);
+        }
+        if (retry) {
+            scheduleRetry(delivery);
+        }
+    }
+
+    private void scheduleRetry(LogoutDelivery delivery) {
+
+        int attempt = delivery.incrementAttempt();
+        if (attempt > maxRetries) {
+            log.error("Error sending logout requests to: " + delivery.getUrl() + ". Gave up after " + attempt +
+                    " attempts.");
+            complete(delivery, false);
+            return;
+        }
+        // Jitter spreads out the retries of relying parties which failed at the same time.
+        long backoff = Math.min(MAX_RETRY_BACKOFF, retryBackoffInMillis << Math.min(attempt - 1, 30));
+        long delay = backoff + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+        try {
+            retryScheduler.schedule(() -> enqueue(delivery), delay, TimeUnit.MILLISECONDS);
+            retriedCount.incrementAndGet();
+            if (log.isDebugEnabled()) {
+                log.debug("Retrying backchannel logout request to: " + delivery.getUrl() + " in " + delay + "ms.");
+            }
+        } catch (RejectedExecutionException e) {
+            complete(delivery, false);
+        }
+    }
+
+    private void complete(LogoutDelivery delivery, boolean delivered) {
+
+        pendingCount.decrementAndGet();
+        if (delivered) {
+            deliveredCount.incrementAndGet();
+            totalDeliveryTime.addAndGet(System.currentTimeMillis() - delivery.getQueuedTime());
+        } else {
+            failedCount.incrementAndGet();
+        }
+        DeliveryListener listener = delivery.getListener();
+        if (listener != null) {
+            try {
+                listener.onCompletion(delivered);
+            } catch (RuntimeException e) {
+                log.error("Error while notifying the completion of the backchannel logout request to: " +
+                        delivery.getUrl(), e);
+            }
+        }
+    }
+
+    private static String getHostKey(String url) {
+
+        if (StringUtils.isBlank(url)) {
+            return null;
+        }
+        try {
+            URI uri = new URI(url);
+            if (uri.getHost() == null ||
+                    !(HTTP.equalsIgnoreCase(uri.getScheme()) || HTTPS.equalsIgnoreCase(uri.getScheme()))) {
+                return null;
+            }
+            return uri.getScheme().toLowerCase() + "://" + uri.getHost().toLowerCase() + ":" + uri.getPort();
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+
+    private static CloseableHttpClient buildHttpClient(int workerCount, int maxConnectionsPerHost,
+                                                       int timeoutInMillis, boolean hostNameVerificationEnabled) {
+
+        SSLConnectionSocketFactory sslSocketFactory;
+        if (hostNameVerificationEnabled) {
+            sslSocketFactory = SSLConnectionSocketFactory.getSocketFactory();
+        } else {
+            sslSocketFactory = new SSLConnectionSocketFactory(SSLContexts.createDefault(),
+                    SSLConnectionSocketFactory.ALLOW_ALL_HOSTNAME_VERIFIER);
+        }
+        Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register(HTTP, PlainConnectionSocketFactory.getSocketFactory())
+                .register(HTTPS, sslSocketFactory)
+                .build();
+        PoolingHttpClientConnectionManager connectionManager =
+                new PoolingHttpClientConnectionManager(socketFactoryRegistry);
+        // A connection is only used by a worker at a time, hence the workers never wait for a connection.
+        connectionManager.setMaxTotal(workerCount);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerHost);
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(timeoutInMillis)
+                .setConnectionRequestTimeout(timeoutInMillis)
+                .setSocketTimeout(timeoutInMillis)
+                .build();
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                // Failed deliveries are retried by the dispatcher with a backoff.
+                .disableAutomaticRetries()
+                .build();
+    }
+
+    /**
+     * Listener notified of the outcome of a delivery.
+     */
+    public interface DeliveryListener {
+
+        /**
+         * Called once the delivery succeeded, or failed after exhausting its retries. Called by a dispatcher thread,
+         * hence implementations should not block.
+         *
+         * @param delivered Whether the logout token was accepted by the relying party.
+         */
+        void onCompletion(boolean delivered);
+    }
+
+    /**
+     * Logout token to be delivered to a relying party.
+     */
+    private static final class LogoutDelivery {
+
+        private final String url;
+        private final String logoutToken;
+        private final String hostKey;
+        private final DeliveryListener listener;
+        private final long queuedTime = System.currentTimeMillis();
+        private int attempt;
+
+        LogoutDelivery(String url, String logoutToken, String hostKey, DeliveryListener listener) {
+
+            this.url = url;
+            this.logoutToken = logoutToken;
+            this.hostKey = hostKey;
+            this.listener = listener;
+        }
+
+        String getUrl() {
+
+            return url;
+        }
+
+        String getLogoutToken() {
+
+            return logoutToken;
+        }
+
+        String getHostKey() {
+
+            return hostKey;
+        }
+
+        DeliveryListener getListener() {
+
+            return listener;
+        }
+
+        long getQueuedTime() {
+
+            return queuedTime;
+        }
+
+        // Only called by the worker which owns the delivery at the time.
+        int incrementAttempt() {
+
+            return ++attempt;
+        }
+    }
+
+    /**
+     * Deliveries waiting for a host, and the permits limiting the concurrent requests to the host.
+     */
+    private static final class HostQueue {
+
+        private final Queue<LogoutDelivery> deliveries = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger permits;
+
+        HostQueue(int permits) {
+
+            this.permits = new AtomicInteger(permits);
+        }
+
+        void add(LogoutDelivery delivery) {
+
+            deliveries.add(delivery);
+        }
+
+        LogoutDelivery poll() {
+
+            return deliveries.poll();
+        }
+
+        boolean isEmpty() {
+
+            return deliveries.isEmpty();
+        }
+
+        boolean tryAcquire() {
+
+            int available;
+            do {
+                available = permits.get();
+                if (available <= 0) {
+                    return false;
+                }
+            } while (!permits.compareAndSet(available, available - 1));
+            return true;
+        }
+
+        void release() {
+
+            permits.incrementAndGet();
+        }
+    }
+
+    /**
+     * Creates daemon threads, so that the dispatcher does not keep the server from shutting down.
+     */
+    private static final class DispatcherThreadFactory implements ThreadFactory {
+
+        private final String namePrefix;
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        DispatcherThreadFactory(String namePrefix) {
+
+            this.namePrefix = namePrefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+
+            Thread thread = new Thread(runnable, namePrefix + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
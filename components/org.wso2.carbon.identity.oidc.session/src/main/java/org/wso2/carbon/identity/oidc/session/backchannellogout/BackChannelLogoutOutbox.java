@@ -0,0 +1,413 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oidc.session.backchannellogout;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+import org.wso2.carbon.identity.oidc.session.backchannellogout.BackChannelLogoutOutboxDAO.OutboxEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.wso2.carbon.identity.oauth2.util.OAuth2ConfigUtil.readIntProperty;
+import static org.wso2.carbon.identity.oauth2.util.OAuth2ConfigUtil.readLongProperty;
+
+/**
+ * Durable outbox of back-channel logout tokens, shared by the nodes of a cluster through the database.
+ * <p>
+ * Logout tokens of a logout are added to the outbox in a single batch before they are sent, leased by the node which
+ * added them so that it delivers them right away through the {@link BackChannelLogoutDispatcher}. Delivered entries
+ * are removed, and entries whose delivery failed are rescheduled with exponential backoff until the maximum number of
+ * attempts is reached. Entries the dispatcher rejects at its pending limit are rescheduled without using up an
+ * attempt. Every node polls the outbox and claims due entries whose lease has expired, hence the entries
+ * of a node which was restarted or went down while delivering them are delivered by any node once their lease
+ * expires. Entries whose logout token has expired are dropped, as relying parties would reject them.
+ * <p>
+ * Outcomes of deliveries are recorded by the dispatcher threads and written to the database in batches by the poller.
+ * The size of the outbox and the age of its oldest entry are sampled periodically.
+ */
+public class BackChannelLogoutOutbox {
+
+    private static final Log log = LogFactory.getLog(BackChannelLogoutOutbox.class);
+
+    private static final String ENABLE = "OAuth.OpenIDConnect.BackChannelLogout.Outbox.Enable";
+    private static final String POLL_INTERVAL = "OAuth.OpenIDConnect.BackChannelLogout.Outbox.PollIntervalInMillis";
+    private static final String BATCH_SIZE = "OAuth.OpenIDConnect.BackChannelLogout.Outbox.BatchSize";
+    private static final String LEASE_TIME = "OAuth.OpenIDConnect.BackChannelLogout.Outbox.LeaseTimeInMillis";
+    private static final String MAX_ATTEMPTS = "OAuth.OpenIDConnect.BackChannelLogout.Outbox.MaxAttempts";
+    private static final String RETRY_BACKOFF = "OAuth.OpenIDConnect.BackChannelLogout.Outbox.RetryBackoffInMillis";
+    private static final long DEFAULT_POLL_INTERVAL = 1000;
+    private static final int DEFAULT_BATCH_SIZE = 100;
+    private static final long DEFAULT_LEASE_TIME = TimeUnit.MINUTES.toMillis(1);
+    private static final int DEFAULT_MAX_ATTEMPTS = 5;
+    private static final long DEFAULT_RETRY_BACKOFF = TimeUnit.SECONDS.toMillis(5);
+    private static final long MAX_RETRY_BACKOFF = TimeUnit.MINUTES.toMillis(10);
+    private static final long STATISTICS_INTERVAL = TimeUnit.SECONDS.toMillis(10);
+
+    private final BackChannelLogoutOutboxDAO outboxDAO;
+    private final BackChannelLogoutDispatcher dispatcher;
+    private final int batchSize;
+    private final long leaseTimeInMillis;
+    private final int maxAttempts;
+    private final long retryBackoffInMillis;
+    private final Queue<OutboxEntry> deliveredEntries = new ConcurrentLinkedQueue<>();
+    private final Queue<OutboxEntry> failedEntries = new ConcurrentLinkedQueue<>();
+    private final Queue<OutboxEntry> deferredEntries = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger inFlightCount = new AtomicInteger();
+    private final AtomicLong appendedCount = new AtomicLong();
+    private final AtomicLong claimedCount = new AtomicLong();
+    private final AtomicLong deliveredCount = new AtomicLong();
+    private final AtomicLong rescheduledCount = new AtomicLong();
+    private final AtomicLong abandonedCount = new AtomicLong();
+    private final AtomicLong expiredCount = new AtomicLong();
+    private final AtomicLong totalDeliveryAge = new AtomicLong();
+    private volatile long queueDepth = -1;
+    private volatile long oldestEntryTime;
+    private long lastStatisticsTime;
+    private ScheduledExecutorService poller;
+
+    /**
+     * Create an outbox using the values configured in identity.xml.
+     *
+     * @param dispatcher Dispatcher delivering the logout tokens.
+     */
+    public BackChannelLogoutOutbox(BackChannelLogoutDispatcher dispatcher) {
+
+        this(new BackChannelLogoutOutboxDAO(), dispatcher, readIntProperty(BATCH_SIZE, DEFAULT_BATCH_SIZE),
+                readLongProperty(LEASE_TIME, DEFAULT_LEASE_TIME), readIntProperty(MAX_ATTEMPTS, DEFAULT_MAX_ATTEMPTS),
+                readLongProperty(RETRY_BACKOFF, DEFAULT_RETRY_BACKOFF));
+    }
+
+    /**
+     * Create an outbox.
+     *
+     * @param outboxDAO            Outbox DAO.
+     * @param dispatcher           Dispatcher delivering the logout tokens.
+     * @param batchSize            Maximum number of entries a node delivers at a time.
+     * @param leaseTimeInMillis    Time an entry is leased to the node delivering it. Should be longer than the time
+     *                             the dispatcher takes to deliver a token, including its retries.
+     * @param maxAttempts          Maximum number of times the delivery of an entry is attempted.
+     * @param retryBackoffInMillis Delay before the second attempt. Doubled for each further attempt.
+     */
+    public BackChannelLogoutOutbox(BackChannelLogoutOutboxDAO outboxDAO, BackChannelLogoutDispatcher dispatcher,
+                                   int batchSize, long leaseTimeInMillis, int maxAttempts, long retryBackoffInMillis) {
+
+        this.outboxDAO = outboxDAO;
+        this.dispatcher = dispatcher;
+        this.batchSize = Math.max(batchSize, 1);
+        this.leaseTimeInMillis = Math.max(leaseTimeInMillis, 1);
+        this.maxAttempts = Math.max(maxAttempts, 1);
+        this.retryBackoffInMillis = Math.max(retryBackoffInMillis, 1);
+    }
+
+    /**
+     * Check whether the outbox is enabled in identity.xml.
+     *
+     * @return True if logout tokens are to be sent through the outbox.
+     */
+    public static boolean isEnabled() {
+
+        return Boolean.parseBoolean(StringUtils.trim(IdentityUtil.getProperty(ENABLE)));
+    }
+
+    /**
+     * Start polling the outbox at the interval configured in identity.xml.
+     */
+    public void start() {
+
+        start(readLongProperty(POLL_INTERVAL, DEFAULT_POLL_INTERVAL));
+    }
+
+    /**
+     * Start polling the outbox.
+     *
+     * @param pollIntervalInMillis Delay between two polls.
+     */
+    public synchronized void start(long pollIntervalInMillis) {
+
+        if (poller != null) {
+            return;
+        }
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "BackChannelLogoutOutboxPoller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(pollIntervalInMillis, 1);
+        executor.scheduleWithFixedDelay(this::pollSafely, interval, interval, TimeUnit.MILLISECONDS);
+        poller = executor;
+    }
+
+    /**
+     * Stop polling the outbox, after recording the outcome of completed deliveries. Entries which are still being
+     * delivered are claimed again once their lease expires.
+     */
+    public synchronized void shutdown() {
+
+        if (poller != null) {
+            poller.shutdownNow();
+            poller = null;
+        }
+        try {
+            recordCompletedDeliveries();
+        } catch (IdentityOAuth2Exception e) {
+            log.error("Error while recording completed back-channel logout deliveries.", e);
+        }
+    }
+
+    /**
+     * Add the logout tokens of a logout to the outbox and start delivering them. Returns once the tokens are stored,
+     * without waiting for their delivery.
+     *
+     * @param logoutTokens        Logout tokens, mapped to the back-channel logout URL they are to be sent to.
+     * @param tokenExpiryInMillis Time the logout tokens are valid for.
+     * @throws IdentityOAuth2Exception When the tokens could not be stored.
+     */
+    public void append(Map<String, String> logoutTokens, long tokenExpiryInMillis) throws IdentityOAuth2Exception {
+
+        if (logoutTokens.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        String leaseOwner = UUID.randomUUID().toString();
+        List<OutboxEntry> entries = new ArrayList<>(logoutTokens.size());
+        for (Map.Entry<String, String> logoutToken : logoutTokens.entrySet()) {
+            entries.add(new OutboxEntry(UUID.randomUUID().toString(), logoutToken.getValue(), logoutToken.getKey(),
+                    0, now, now + tokenExpiryInMillis, leaseOwner));
+        }
+        outboxDAO.addEntries(entries, now + leaseTimeInMillis);
+        appendedCount.addAndGet(entries.size());
+        for (OutboxEntry entry : entries) {
+            deliver(entry);
+        }
+    }
+
+    /**
+     * Record the outcome of completed deliveries, drop expired entries, refresh the statistics when due, and claim
+     * due entries up to the batch size.
+     *
+     * @throws IdentityOAuth2Exception When an error occurs while accessing the outbox.
+     */
+    void poll() throws IdentityOAuth2Exception {
+
+        recordCompletedDeliveries();
+        long now = System.currentTimeMillis();
+        if (now - lastStatisticsTime >= STATISTICS_INTERVAL) {
+            refreshStatistics();
+        }
+        int capacity = batchSize - inFlightCount.get();
+        if (capacity <= 0) {
+            return;
+        }
+        List<OutboxEntry> entries = outboxDAO.claimEntries(UUID.randomUUID().toString(), now,
+                now + leaseTimeInMillis, capacity);
+        if (!entries.isEmpty()) {
+            claimedCount.addAndGet(entries.size());
+            if (log.isDebugEnabled()) {
+                log.debug("Claimed " + entries.size() + " back-channel logout outbox entries.");
+            }
+            for (OutboxEntry entry : entries) {
+                deliver(entry);
+            }
+        }
+    }
+
+    /**
+     * Drop expired entries and sample the size of the outbox and the age of its oldest entry.
+     *
+     * @throws IdentityOAuth2Exception When an error occurs while accessing the outbox.
+     */
+    void refreshStatistics() throws IdentityOAuth2Exception {
+
+        long now = System.currentTimeMillis();
+        lastStatisticsTime = now;
+        int expired = outboxDAO.deleteExpiredEntries(now);
+        if (expired > 0) {
+            expiredCount.addAndGet(expired);
+            log.warn("Dropped " + expired + " back-channel logout outbox entries as their logout tokens expired " +
+                    "before they could be delivered.");
+        }
+        long[] statistics = outboxDAO.getStatistics();
+        queueDepth = statistics[0];
+        oldestEntryTime = statistics[1];
+    }
+
+    /**
+     * Get the number of entries in the outbox across the cluster, as last sampled.
+     *
+     * @return Number of entries, or -1 if not sampled yet.
+     */
+    public long getQueueDepth() {
+
+        return queueDepth;
+    }
+
+    /**
+     * Get the age of the oldest entry in the outbox across the cluster, as of the last sample.
+     *
+     * @return Age of the oldest entry in milliseconds, or 0 if the outbox was empty.
+     */
+    public long getOldestEntryAgeInMillis() {
+
+        long oldest = oldestEntryTime;
+        return oldest == 0 ? 0 : Math.max(System.currentTimeMillis() - oldest, 0);
+    }
+
+    /**
+     * Get the average time from adding an entry to the outbox until it was delivered by this node.
+     *
+     * @return Average delivery age in milliseconds, or 0 if nothing was delivered.
+     */
+    public long getAverageDeliveryAgeInMillis() {
+
+        long delivered = deliveredCount.get();
+        return delivered == 0 ? 0 : totalDeliveryAge.get() / delivered;
+    }
+
+    /**
+     * Get the number of entries being delivered by this node.
+     *
+     * @return In flight entry count.
+     */
+    public int getInFlightCount() {
+
+        return inFlightCount.get();
+    }
+
+    public long getAppendedCount() {
+
+        return appendedCount.get();
+    }
+
+    public long getClaimedCount() {
+
+        return claimedCount.get();
+    }
+
+    public long getDeliveredCount() {
+
+        return deliveredCount.get();
+    }
+
+    public long getRescheduledCount() {
+
+        return rescheduledCount.get();
+    }
+
+    public long getAbandonedCount() {
+
+        return abandonedCount.get();
+    }
+
+    public long getExpiredCount() {
+
+        return expiredCount.get();
+    }
+
+    private void deliver(OutboxEntry entry) {
+
+        inFlightCount.incrementAndGet();
+        boolean queued = dispatcher.dispatch(entry.getLogoutUrl(), entry.getLogoutToken(), delivered -> {
+            if (delivered) {
+                totalDeliveryAge.addAndGet(System.currentTimeMillis() - entry.getCreatedTime());
+                deliveredEntries.add(entry);
+            } else {
+                failedEntries.add(entry);
+            }
+            inFlightCount.decrementAndGet();
+        });
+        if (!queued) {
+            if (dispatcher.isValidLogoutUrl(entry.getLogoutUrl())) {
+                // The dispatcher is at its pending limit, hence the entry was not attempted.
+                deferredEntries.add(entry);
+            } else {
+                failedEntries.add(entry);
+            }
+            inFlightCount.decrementAndGet();
+        }
+    }
+
+    private void recordCompletedDeliveries() throws IdentityOAuth2Exception {
+
+        List<OutboxEntry> delivered = drain(deliveredEntries);
+        // Delivered entries and entries which ran out of attempts are both removed.
+        List<OutboxEntry> removed = new ArrayList<>(delivered);
+        List<OutboxEntry> rescheduled = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (OutboxEntry entry : drain(failedEntries)) {
+            int attempts = entry.recordFailedAttempt(now + getBackoff(entry.getAttempts() + 1));
+            if (attempts >= maxAttempts) {
+                log.error("Giving up the back-channel logout request to: " + entry.getLogoutUrl() + " after " +
+                        attempts + " attempts.");
+                removed.add(entry);
+            } else {
+                rescheduled.add(entry);
+            }
+        }
+        for (OutboxEntry entry : drain(deferredEntries)) {
+            entry.deferAttempt(now + retryBackoffInMillis);
+            rescheduled.add(entry);
+        }
+        if (!removed.isEmpty()) {
+            outboxDAO.deleteEntries(removed);
+        }
+        if (!rescheduled.isEmpty()) {
+            outboxDAO.rescheduleEntries(rescheduled);
+        }
+        deliveredCount.addAndGet(delivered.size());
+        abandonedCount.addAndGet(removed.size() - delivered.size());
+        rescheduledCount.addAndGet(rescheduled.size());
+    }
+
+    private long getBackoff(int attempt) {
+
+        return Math.min(MAX_RETRY_BACKOFF, retryBackoffInMillis << Math.min(attempt - 1, 30));
+    }
+
+    private void pollSafely() {
+
+        try {
+            poll();
+        } catch (IdentityOAuth2Exception | RuntimeException e) {
+            log.error("Error while polling the back-channel logout outbox.", e);
+        }
+    }
+
+    private static <T> List<T> drain(Queue<T> queue) {
+
+        List<T> items = new ArrayList<>();
+        T item;
+        while ((item = queue.poll()) != null) {
+            items.add(item);
+        }
+        return items;
+    }
+}
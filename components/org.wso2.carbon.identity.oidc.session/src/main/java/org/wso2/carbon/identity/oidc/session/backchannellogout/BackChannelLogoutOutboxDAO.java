@@ -0,0 +1,367 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oidc.session.backchannellogout;
+
+import org.wso2.carbon.identity.core.util.IdentityDatabaseUtil;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * DAO of the back-channel logout outbox, the IDN_OIDC_BC_LOGOUT_OUTBOX table. Each entry holds a logout token to be
+ * delivered to a relying party.
+ * <p>
+ * An entry is delivered by the node holding its lease. Nodes claim entries by setting their lease on entries whose
+ * lease has expired, hence an entry held by a node which went down is claimed by another node once its lease expires.
+ * Claiming only uses plain updates guarded by the lease expiry, so that it works on every supported database. Entries
+ * are only removed or rescheduled by the owner of their lease, hence an entry claimed by another node after the lease
+ * of this node expired is left to that node.
+ */
+public class BackChannelLogoutOutboxDAO {
+
+    private static final String INSERT_ENTRY = "INSERT INTO IDN_OIDC_BC_LOGOUT_OUTBOX (ID, LOGOUT_URL, " +
+            "LOGOUT_TOKEN, ATTEMPTS, CREATED_TIME, NEXT_ATTEMPT_TIME, EXPIRY_TIME, LEASE_OWNER, LEASE_EXPIRY) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String GET_CLAIMABLE_ENTRY_IDS = "SELECT ID FROM IDN_OIDC_BC_LOGOUT_OUTBOX WHERE " +
+            "NEXT_ATTEMPT_TIME <= ? AND LEASE_EXPIRY <= ? AND EXPIRY_TIME > ? ORDER BY NEXT_ATTEMPT_TIME";
+
+    private static final String CLAIM_ENTRY = "UPDATE IDN_OIDC_BC_LOGOUT_OUTBOX SET LEASE_OWNER = ?, " +
+            "LEASE_EXPIRY = ? WHERE ID = ? AND LEASE_EXPIRY <= ?";
+
+    private static final String GET_ENTRIES_BY_LEASE_OWNER = "SELECT ID, LOGOUT_URL, LOGOUT_TOKEN, ATTEMPTS, " +
+            "CREATED_TIME FROM IDN_OIDC_BC_LOGOUT_OUTBOX WHERE LEASE_OWNER = ?";
+
+    private static final String DELETE_ENTRY = "DELETE FROM IDN_OIDC_BC_LOGOUT_OUTBOX WHERE ID = ? AND " +
+            "LEASE_OWNER = ?";
+
+    private static final String RESCHEDULE_ENTRY = "UPDATE IDN_OIDC_BC_LOGOUT_OUTBOX SET ATTEMPTS = ?, " +
+            "NEXT_ATTEMPT_TIME = ?, LEASE_OWNER = NULL, LEASE_EXPIRY = 0 WHERE ID = ? AND LEASE_OWNER = ?";
+
+    private static final String DELETE_EXPIRED_ENTRIES = "DELETE FROM IDN_OIDC_BC_LOGOUT_OUTBOX WHERE " +
+            "EXPIRY_TIME <= ?";
+
+    private static final String GET_OUTBOX_STATISTICS = "SELECT COUNT(ID), MIN(CREATED_TIME) FROM " +
+            "IDN_OIDC_BC_LOGOUT_OUTBOX";
+
+    /**
+     * Add entries to the outbox, leased by their lease owner so that the appending node can deliver them right away.
+     *
+     * @param entries     Entries to add.
+     * @param leaseExpiry Time the lease expires at, in milliseconds.
+     * @throws IdentityOAuth2Exception When an error occurs while adding the entries.
+     */
+    public void addEntries(Collection<OutboxEntry> entries, long leaseExpiry) throws IdentityOAuth2Exception {
+
+        Connection connection = IdentityDatabaseUtil.getDBConnection(true);
+        try (PreparedStatement prepStmt = connection.prepareStatement(INSERT_ENTRY)) {
+            for (OutboxEntry entry : entries) {
+                prepStmt.setString(1, entry.getId());
+                prepStmt.setString(2, entry.getLogoutUrl());
+                prepStmt.setString(3, entry.getLogoutToken());
+                prepStmt.setInt(4, entry.getAttempts());
+                prepStmt.setLong(5, entry.getCreatedTime());
+                prepStmt.setLong(6, entry.getCreatedTime());
+                prepStmt.setLong(7, entry.getExpiryTime());
+                prepStmt.setString(8, entry.getLeaseOwner());
+                prepStmt.setLong(9, leaseExpiry);
+                prepStmt.addBatch();
+            }
+            prepStmt.executeBatch();
+            IdentityDatabaseUtil.commitTransaction(connection);
+        } catch (SQLException e) {
+            IdentityDatabaseUtil.rollbackTransaction(connection);
+            throw new IdentityOAuth2Exception("Error while adding back-channel logout outbox entries.", e);
+        } finally {
+            IdentityDatabaseUtil.closeConnection(connection);
+        }
+    }
+
+    /**
+     * Lease the entries which are due and whose lease has expired to the given owner, and return the leased entries.
+     * An entry is leased by a single owner even if several nodes claim at the same time.
+     *
+     * @param leaseOwner  Lease owner. Should be unique per claim.
+     * @param now         Current time, in milliseconds.
+     * @param leaseExpiry Time the lease expires at, in milliseconds.
+     * @param limit       Maximum number of entries to claim.
+     * @return Leased entries.
+     * @throws IdentityOAuth2Exception When an error occurs while claiming entries.
+     */
+    public List<OutboxEntry> claimEntries(String leaseOwner, long now, long leaseExpiry, int limit)
+            throws IdentityOAuth2Exception {
+
+        Connection connection = IdentityDatabaseUtil.getDBConnection(true);
+        try {
+            List<String> ids = new ArrayList<>();
+            try (PreparedStatement prepStmt = connection.prepareStatement(GET_CLAIMABLE_ENTRY_IDS)) {
+                prepStmt.setMaxRows(limit);
+                prepStmt.setLong(1, now);
+                prepStmt.setLong(2, now);
+                prepStmt.setLong(3, now);
+                try (ResultSet resultSet = prepStmt.executeQuery()) {
+                    while (resultSet.next()) {
+                        ids.add(resultSet.getString(1));
+                    }
+                }
+            }
+            if (ids.isEmpty()) {
+                IdentityDatabaseUtil.commitTransaction(connection);
+                return new ArrayList<>();
+            }
+            // An entry claimed by another node meanwhile no longer has an expired lease, hence is not updated.
+            try (PreparedStatement prepStmt = connection.prepareStatement(CLAIM_ENTRY)) {
+                for (String id : ids) {
+                    prepStmt.setString(1, leaseOwner);
+                    prepStmt.setLong(2, leaseExpiry);
+                    prepStmt.setString(3, id);
+                    prepStmt.setLong(4, now);
+                    prepStmt.addBatch();
+                }
+                prepStmt.executeBatch();
+            }
+            IdentityDatabaseUtil.commitTransaction(connection);
+
+            // Some drivers do not report the update count of each batched statement, hence the entries actually
+            // leased are read back by the lease owner.
+            List<OutboxEntry> entries = new ArrayList<>();
+            try (PreparedStatement prepStmt = connection.prepareStatement(GET_ENTRIES_BY_LEASE_OWNER)) {
+                prepStmt.setString(1, leaseOwner);
+                try (ResultSet resultSet = prepStmt.executeQuery()) {
+                    while (resultSet.next()) {
+                        entries.add(new OutboxEntry(resultSet.getString(1), resultSet.getString(2),
+                                resultSet.getString(3), resultSet.getInt(4), resultSet.getLong(5), 0, leaseOwner));
+                    }
+                }
+            }
+            IdentityDatabaseUtil.commitTransaction(connection);
+            return entries;
+        } catch (SQLException e) {
+            IdentityDatabaseUtil.rollbackTransaction(connection);
+            throw new IdentityOAuth2Exception("Error while claiming back-channel logout outbox entries.", e);
+        } finally {
+            IdentityDatabaseUtil.closeConnection(connection);
+        }
+    }
+
+    /**
+     * Remove entries from the outbox. Entries whose lease is no longer held by the lease owner of the entry are left
+     * as they are.
+     *
+     * @param entries Entries to remove.
+     * @throws IdentityOAuth2Exception When an error occurs while removing the entries.
+     */
+    public void deleteEntries(Collection<OutboxEntry> entries) throws IdentityOAuth2Exception {
+
+        Connection connection = IdentityDatabaseUtil.getDBConnection(true);
+        try (PreparedStatement prepStmt = connection.prepareStatement(DELETE_ENTRY)) {
+            for (OutboxEntry entry : entries) {
+                prepStmt.setString(1, entry.getId());
+                prepStmt.setString(2, entry.getLeaseOwner());
+                prepStmt.addBatch();
+            }
+            prepStmt.executeBatch();
+            IdentityDatabaseUtil.commitTransaction(connection);
+        } catch (SQLException e) {
+            IdentityDatabaseUtil.rollbackTransaction(connection);
+            throw new IdentityOAuth2Exception("Error while removing back-channel logout outbox entries.", e);
+        } finally {
+            IdentityDatabaseUtil.closeConnection(connection);
+        }
+    }
+
+    /**
+     * Release the lease of entries whose delivery failed, so that they are claimed again at their next attempt time.
+     * Entries whose lease is no longer held by the lease owner of the entry are left as they are.
+     *
+     * @param entries Entries to reschedule, holding their attempt count and next attempt time.
+     * @throws IdentityOAuth2Exception When an error occurs while rescheduling the entries.
+     */
+    public void rescheduleEntries(Collection<OutboxEntry> entries) throws IdentityOAuth2Exception {
+
+        Connection connection = IdentityDatabaseUtil.getDBConnection(true);
+        try (PreparedStatement prepStmt = connection.prepareStatement(RESCHEDULE_ENTRY)) {
+            for (OutboxEntry entry : entries) {
+                prepStmt.setInt(1, entry.getAttempts());
+                prepStmt.setLong(2, entry.getNextAttemptTime());
+                prepStmt.setString(3, entry.getId());
+                prepStmt.setString(4, entry.getLeaseOwner());
+                prepStmt.addBatch();
+            }
+            prepStmt.executeBatch();
+            IdentityDatabaseUtil.commitTransaction(connection);
+        } catch (SQLException e) {
+            IdentityDatabaseUtil.rollbackTransaction(connection);
+            throw new IdentityOAuth2Exception("Error while rescheduling back-channel logout outbox entries.", e);
+        } finally {
+            IdentityDatabaseUtil.closeConnection(connection);
+        }
+    }
+
+    /**
+     * Remove the entries whose logout token has expired, as relying parties would reject them.
+     *
+     * @param now Current time, in milliseconds.
+     * @return Number of removed entries.
+     * @throws IdentityOAuth2Exception When an error occurs while removing the entries.
+     */
+    public int deleteExpiredEntries(long now) throws IdentityOAuth2Exception {
+
+        Connection connection = IdentityDatabaseUtil.getDBConnection(true);
+        try (PreparedStatement prepStmt = connection.prepareStatement(DELETE_EXPIRED_ENTRIES)) {
+            prepStmt.setLong(1, now);
+            int deleted = prepStmt.executeUpdate();
+            IdentityDatabaseUtil.commitTransaction(connection);
+            return deleted;
+        } catch (SQLException e) {
+            IdentityDatabaseUtil.rollbackTransaction(connection);
+            throw new IdentityOAuth2Exception("Error while removing expired back-channel logout outbox entries.", e);
+        } finally {
+            IdentityDatabaseUtil.closeConnection(connection);
+        }
+    }
+
+    /**
+     * Get the number of entries in the outbox and the creation time of the oldest entry, across the cluster.
+     *
+     * @return Number of entries at index 0 and creation time of the oldest entry at index 1, which is 0 if the outbox
+     * is empty.
+     * @throws IdentityOAuth2Exception When an error occurs while reading the statistics.
+     */
+    public long[] getStatistics() throws IdentityOAuth2Exception {
+
+        Connection connection = IdentityDatabaseUtil.getDBConnection(false);
+        try (PreparedStatement prepStmt = connection.prepareStatement(GET_OUTBOX_STATISTICS);
+             ResultSet resultSet = prepStmt.executeQuery()) {
+            if (resultSet.next()) {
+                return new long[]{resultSet.getLong(1), resultSet.getLong(2)};
+            }
+            return new long[]{0, 0};
+        } catch (SQLException e) {
+            throw new IdentityOAuth2Exception("Error while reading back-channel logout outbox statistics.", e);
+        } finally {
+            IdentityDatabaseUtil.closeConnection(connection);
+        }
+    }
+
+    /**
+     * Logout token to be delivered to a relying party.
+     */
+    public static class OutboxEntry {
+
+        private final String id;
+        private final String logoutUrl;
+        private final String logoutToken;
+        private final long createdTime;
+        private final long expiryTime;
+        private final String leaseOwner;
+        private int attempts;
+        private long nextAttemptTime;
+
+        public OutboxEntry(String id, String logoutUrl, String logoutToken, int attempts, long createdTime,
+                           long expiryTime, String leaseOwner) {
+
+            this.id = id;
+            this.logoutUrl = logoutUrl;
+            this.logoutToken = logoutToken;
+            this.attempts = attempts;
+            this.createdTime = createdTime;
+            this.expiryTime = expiryTime;
+            this.leaseOwner = leaseOwner;
+        }
+
+        public String getId() {
+
+            return id;
+        }
+
+        public String getLogoutUrl() {
+
+            return logoutUrl;
+        }
+
+        public String getLogoutToken() {
+
+            return logoutToken;
+        }
+
+        public int getAttempts() {
+
+            return attempts;
+        }
+
+        public long getCreatedTime() {
+
+            return createdTime;
+        }
+
+        /**
+         * Get the time the logout token expires at. Only known for entries added by this node.
+         *
+         * @return Expiry time in milliseconds, or 0 if not known.
+         */
+        public long getExpiryTime() {
+
+            return expiryTime;
+        }
+
+        /**
+         * Get the owner of the lease the entry was added or claimed with.
+         *
+         * @return Lease owner.
+         */
+        public String getLeaseOwner() {
+
+            return leaseOwner;
+        }
+
+        public long getNextAttemptTime() {
+
+            return nextAttemptTime;
+        }
+
+        /**
+         * Delay the next attempt without recording an attempt, for an entry which could not be attempted.
+         *
+         * @param nextAttemptTime Time the next attempt is due at, in milliseconds.
+         */
+        public void deferAttempt(long nextAttemptTime) {
+
+            this.nextAttemptTime = nextAttemptTime;
+        }
+
+        /**
+         * Record a failed attempt, and the time the next attempt is due at.
+         *
+         * @param nextAttemptTime Time the next attempt is due at, in milliseconds.
+         * @return Number of attempts made so far.
+         */
+        public int recordFailedAttempt(long nextAttemptTime) {
+
+            this.nextAttemptTime = nextAttemptTime;
+            return ++attempts;
+        }
+    }
+}
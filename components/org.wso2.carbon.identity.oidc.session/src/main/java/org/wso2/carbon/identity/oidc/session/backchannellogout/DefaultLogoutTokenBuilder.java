@@ -19,6 +19,8 @@ package org.wso2.carbon.identity.oidc.session.backchannellogout;
 
 import com.nimbusds.jose.JOSEException;
 import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
 import com.nimbusds.jose.JWSVerifier;
 import com.nimbusds.jose.crypto.RSASSAVerifier;
 import com.nimbusds.jwt.JWT;
@@ -30,18 +32,16 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.base.MultitenantConstants;
 import org.wso2.carbon.core.util.KeyStoreManager;
-import org.wso2.carbon.identity.application.common.model.IdentityProvider;
 import org.wso2.carbon.identity.core.util.IdentityTenantUtil;
 import org.wso2.carbon.identity.oauth.common.exception.InvalidOAuthClientException;
 import org.wso2.carbon.identity.oauth.config.OAuthServerConfiguration;
 import org.wso2.carbon.identity.oauth.dao.OAuthAppDO;
 import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+import org.wso2.carbon.identity.oauth2.signing.JWSSigningContext;
 import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
 import org.wso2.carbon.identity.oidc.session.OIDCSessionConstants;
 import org.wso2.carbon.identity.oidc.session.OIDCSessionState;
 import org.wso2.carbon.identity.oidc.session.util.OIDCSessionManagementUtil;
-import org.wso2.carbon.idp.mgt.IdentityProviderManagementException;
-import org.wso2.carbon.idp.mgt.IdentityProviderManager;
 
 import java.security.interfaces.RSAPublicKey;
 import java.text.ParseException;
@@ -53,26 +53,48 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
 
+import static org.wso2.carbon.identity.oauth2.util.OAuth2ConfigUtil.readIntProperty;
 import static org.wso2.carbon.identity.oauth2.util.OAuth2Util.getIdTokenIssuer;
 
 /**
  * This is the logout token generator for the OpenID Connect back-channel logout Implementation. This
  * Logout token Generator utilizes the Nimbus SDK to build the Logout token.
+ * <p>
+ * Data shared by the logout tokens of a session, such as the issuer and the signing key of a tenant, is resolved once
+ * per logout. Once the session has enough relying parties, their logout tokens are signed in parallel by a shared,
+ * bounded set of threads, reusing the cached signer of the tenant, and each token is handed over as soon as it is
+ * signed.
  */
 public class DefaultLogoutTokenBuilder implements LogoutTokenBuilder {
 
     private static final Log log = LogFactory.getLog(DefaultLogoutTokenBuilder.class);
     private OAuthServerConfiguration config = null;
     private JWSAlgorithm signatureAlgorithm = null;
-    private static final String OPENID_IDP_ENTITY_ID = "IdPEntityId";
-    private static final String ERROR_GET_RESIDENT_IDP =
-            "Error while getting Resident Identity Provider of '%s' tenant.";
     private static final String BACKCHANNEL_LOGOUT_EVENT = "http://schemas.openid.net/event/backchannel-logout";
 
+    private static final String SIGNING_THREAD_COUNT = "OAuth.OpenIDConnect.BackChannelLogout.TokenSigningThreadCount";
+    private static final String PARALLEL_SIGNING_THRESHOLD =
+            "OAuth.OpenIDConnect.BackChannelLogout.ParallelSigningThreshold";
+    private static final int DEFAULT_PARALLEL_SIGNING_THRESHOLD = 4;
+    private static final int MAX_QUEUED_SIGNING_TASKS = 1000;
+
+    private static volatile ExecutorService signingExecutor;
+    private static volatile int parallelSigningThreshold = -1;
+
     public DefaultLogoutTokenBuilder() throws IdentityOAuth2Exception {
 
         config = OAuthServerConfiguration.getInstance();
@@ -92,6 +114,10 @@ public class DefaultLogoutTokenBuilder implements LogoutTokenBuilder {
         if (sessionState != null) {
             Set<String> sessionParticipants = getSessionParticipants(sessionState);
             if (!sessionParticipants.isEmpty()) {
+                LogoutContext logoutContext = new LogoutContext(sessionState);
+                List<LogoutTarget> logoutTargets = new ArrayList<>();
+                // The client id of the RP initiated logout only depends on the tenant of the application.
+                Map<String, String> initiatorClientIds = new HashMap<>();
                 for (String clientID : sessionParticipants) {
                     OAuthAppDO oAuthAppDO;
                     try {
@@ -105,12 +131,17 @@ public class DefaultLogoutTokenBuilder implements LogoutTokenBuilder {
                         continue;
                     }
                     String tenantDomain = oAuthAppDO.getAppOwner().getTenantDomain();
-                    if (StringUtils.equals(clientID, getClientId(request, tenantDomain))) {
+                    if (!initiatorClientIds.containsKey(tenantDomain)) {
+                        initiatorClientIds.put(tenantDomain, getClientId(request, tenantDomain));
+                    }
+                    if (StringUtils.equals(clientID, initiatorClientIds.get(tenantDomain))) {
                         // No need to send logout token if the client id of the RP initiated logout is known.
                         continue;
                     }
-                    addToLogoutTokenList(logoutTokenList, sessionState, clientID);
+                    addLogoutTarget(logoutTargets, logoutContext, clientID, oAuthAppDO);
                 }
+                signLogoutTokens(logoutTargets, (backChannelLogoutUrl, logoutToken) ->
+                        logoutTokenList.put(logoutToken, backChannelLogoutUrl));
             }
         }
         return logoutTokenList;
@@ -129,79 +160,198 @@ public class DefaultLogoutTokenBuilder implements LogoutTokenBuilder {
             InvalidOAuthClientException {
 
         Map<String, String> logoutTokenList = new HashMap<>();
+        buildLogoutTokens(opbscookie, tenantDomain, (backChannelLogoutUrl, logoutToken) ->
+                logoutTokenList.put(logoutToken, backChannelLogoutUrl));
+        return logoutTokenList;
+    }
+
+    /**
+     * Builds the logout tokens of the RPs of a session and hands each of them to the consumer as soon as it is
+     * signed. If signing the token of a RP fails, the tokens of the other RPs are still handed over before the error
+     * is thrown.
+     *
+     * @param opbscookie    OpbsCookie.
+     * @param tenantDomain  Tenant domain.
+     * @param tokenConsumer Consumer accepting the back-channel logout URL and the logout token.
+     * @throws IdentityOAuth2Exception
+     */
+    @Override
+    public void buildLogoutTokens(String opbscookie, String tenantDomain, BiConsumer<String, String> tokenConsumer)
+            throws IdentityOAuth2Exception {
+
         // Send logout token to all RPs.
         OIDCSessionState sessionState = getSessionState(opbscookie, tenantDomain);
         if (sessionState != null) {
             Set<String> sessionParticipants = getSessionParticipants(sessionState);
             if (!sessionParticipants.isEmpty()) {
+                LogoutContext logoutContext = new LogoutContext(sessionState);
+                List<LogoutTarget> logoutTargets = new ArrayList<>();
                 for (String clientID : sessionParticipants) {
-                    addToLogoutTokenList(logoutTokenList, sessionState, clientID);
+                    OAuthAppDO oAuthAppDO;
+                    try {
+                        oAuthAppDO = getOAuthAppDO(clientID);
+                    } catch (InvalidOAuthClientException e) {
+                        if (log.isDebugEnabled()) {
+                            log.debug("The application with client id: " + clientID
+                                    + " does not exists. This application may be deleted after"
+                                    + " this session is created. So skipping it in logout token list.", e);
+                        }
+                        continue;
+                    }
+                    addLogoutTarget(logoutTargets, logoutContext, clientID, oAuthAppDO);
                 }
+                signLogoutTokens(logoutTargets, tokenConsumer);
             }
         }
-        return logoutTokenList;
     }
 
-    private void addToLogoutTokenList(Map<String, String> logoutTokenList,
-                                      OIDCSessionState sessionState, String clientID) throws IdentityOAuth2Exception {
+    /**
+     * Resolves everything needed to sign the logout token of a RP. Application, issuer and signing key lookups may
+     * depend on the tenant flow of the calling thread, hence they are done here instead of by the signing threads.
+     *
+     * @param logoutTargets RPs to build logout tokens for.
+     * @param logoutContext Data shared by the logout tokens of the session.
+     * @param clientID      Client id of the RP.
+     * @param oAuthAppDO    Application of the RP.
+     * @throws IdentityOAuth2Exception
+     */
+    private void addLogoutTarget(List<LogoutTarget> logoutTargets, LogoutContext logoutContext, String clientID,
+                                 OAuthAppDO oAuthAppDO) throws IdentityOAuth2Exception {
 
-        OAuthAppDO oAuthAppDO;
-        try {
-            oAuthAppDO = getOAuthAppDO(clientID);
-        } catch (InvalidOAuthClientException e) {
-            if (log.isDebugEnabled()) {
-                log.debug("The application with client id: " + clientID
-                        + " does not exists. This application may be deleted after"
-                        + " this session is created. So skipping it in logout token list.", e);
-            }
-            return;
-        }
         String backChannelLogoutUrl = oAuthAppDO.getBackChannelLogoutUrl();
         if (StringUtils.isNotBlank(backChannelLogoutUrl)) {
             // Send back-channel logout request to all RPs those registered their back-channel logout uri.
-            JWTClaimsSet jwtClaimsSet = buildJwtToken(sessionState, getTenanatDomain(oAuthAppDO), clientID);
-            String logoutToken = OAuth2Util.signJWT(jwtClaimsSet, signatureAlgorithm,
-                    getSigningTenantDomain(oAuthAppDO)).serialize();
-            logoutTokenList.put(logoutToken, backChannelLogoutUrl);
+            logoutTargets.add(new LogoutTarget(clientID, backChannelLogoutUrl,
+                    logoutContext.getIssuer(getTenanatDomain(oAuthAppDO)),
+                    logoutContext.getSigningContext(getSigningTenantDomain(oAuthAppDO))));
+        }
+    }
 
-            if (log.isDebugEnabled()) {
-                log.debug("Logout token created for the client: " + clientID);
+    /**
+     * Signs the logout tokens of the RPs and hands each of them to the consumer from the calling thread. Tokens are
+     * signed by the calling thread itself unless there are enough RPs to be worth signing in parallel.
+     *
+     * @param logoutTargets RPs to build logout tokens for.
+     * @param tokenConsumer Consumer accepting the back-channel logout URL and the logout token.
+     * @throws IdentityOAuth2Exception If signing a logout token failed.
+     */
+    private void signLogoutTokens(List<LogoutTarget> logoutTargets, BiConsumer<String, String> tokenConsumer)
+            throws IdentityOAuth2Exception {
+
+        IdentityOAuth2Exception signingError = null;
+        if (logoutTargets.size() < getParallelSigningThreshold()) {
+            for (LogoutTarget logoutTarget : logoutTargets) {
+                String logoutToken;
+                try {
+                    logoutToken = signLogoutToken(logoutTarget);
+                } catch (IdentityOAuth2Exception | RuntimeException e) {
+                    signingError = recordSigningError(signingError, logoutTarget, e);
+                    continue;
+                }
+                handOver(logoutTarget, logoutToken, tokenConsumer);
+            }
+            if (signingError != null) {
+                throw signingError;
+            }
+            return;
+        }
+
+        CompletionService<String> completionService = new ExecutorCompletionService<>(getSigningExecutor());
+        Map<Future<String>, LogoutTarget> pendingTokens = new HashMap<>();
+        for (LogoutTarget logoutTarget : logoutTargets) {
+            pendingTokens.put(completionService.submit(() -> signLogoutToken(logoutTarget)), logoutTarget);
+        }
+        try {
+            while (!pendingTokens.isEmpty()) {
+                Future<String> signedToken = completionService.take();
+                LogoutTarget logoutTarget = pendingTokens.remove(signedToken);
+                try {
+                    handOver(logoutTarget, signedToken.get(), tokenConsumer);
+                } catch (ExecutionException e) {
+                    signingError = recordSigningError(signingError, logoutTarget, e.getCause());
+                }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pendingTokens.keySet().forEach(pendingToken -> pendingToken.cancel(true));
+            throw new IdentityOAuth2Exception("Interrupted while signing logout tokens.", e);
+        }
+        if (signingError != null) {
+            throw signingError;
+        }
+    }
+
+    /**
+     * Keeps the first error of a logout to be thrown once the other tokens are handed over, and logs the rest.
+     *
+     * @param signingError First error of the logout, if any.
+     * @param logoutTarget RP whose logout token failed to sign.
+     * @param error        Error signing the logout token.
+     * @return First error of the logout.
+     */
+    private IdentityOAuth2Exception recordSigningError(IdentityOAuth2Exception signingError,
+                                                       LogoutTarget logoutTarget, Throwable error) {
+
+        if (signingError == null) {
+            return error instanceof IdentityOAuth2Exception ? (IdentityOAuth2Exception) error :
+                    new IdentityOAuth2Exception("Error while signing the logout token of client: " +
+                            logoutTarget.getClientId(), error);
+        }
+        log.error("Error while signing the logout token of client: " + logoutTarget.getClientId(), error);
+        return signingError;
+    }
+
+    private void handOver(LogoutTarget logoutTarget, String logoutToken, BiConsumer<String, String> tokenConsumer) {
+
+        tokenConsumer.accept(logoutTarget.getBackChannelLogoutUrl(), logoutToken);
+        if (log.isDebugEnabled()) {
+            log.debug("Logout token created for the client: " + logoutTarget.getClientId());
+        }
+    }
+
+    /**
+     * Builds and signs the logout token of a RP. Only uses data resolved up front, hence safe to be called by any
+     * thread.
+     *
+     * @param logoutTarget RP to build the logout token for.
+     * @return Serialized logout token.
+     * @throws IdentityOAuth2Exception
+     */
+    private String signLogoutToken(LogoutTarget logoutTarget) throws IdentityOAuth2Exception {
+
+        SigningContext signingContext = logoutTarget.getSigningContext();
+        SignedJWT signedJWT = new SignedJWT(signingContext.getHeader(), buildJwtToken(logoutTarget));
+        try {
+            signedJWT.sign(signingContext.getSigner());
+        } catch (JOSEException e) {
+            throw new IdentityOAuth2Exception("Error occurred while signing JWT", e);
         }
+        return signedJWT.serialize();
     }
 
     /**
      * Builds jwtClaimSet.
      *
-     * @param sessionState
-     * @param tenantDomain
-     * @param clientID
+     * @param logoutTarget RP to build the logout token for.
      * @return
-     * @throws IdentityOAuth2Exception
      */
-    private JWTClaimsSet buildJwtToken(OIDCSessionState sessionState, String tenantDomain, String clientID)
-            throws IdentityOAuth2Exception {
+    private JWTClaimsSet buildJwtToken(LogoutTarget logoutTarget) {
 
-        String sub = sessionState.getAuthenticatedUser();
+        LogoutContext logoutContext = logoutTarget.getSigningContext().getLogoutContext();
         String jti = UUID.randomUUID().toString();
-        String iss = getIssuer(tenantDomain);
-        List<String> audience = getAudience(clientID);
-        long logoutTokenValidityInMillis = getLogoutTokenExpiryInMillis();
-        long currentTimeInMillis = Calendar.getInstance().getTimeInMillis();
-        Date iat = new Date(currentTimeInMillis);
-        String sid = getSidClaim(sessionState);
+        List<String> audience = getAudience(logoutTarget.getClientId());
         JSONObject event = new JSONObject().appendField(BACKCHANNEL_LOGOUT_EVENT,
                 new JSONObject());
 
         JWTClaimsSet.Builder jwtClaimsSetBuilder = new JWTClaimsSet.Builder();
-        jwtClaimsSetBuilder.subject(sub);
-        jwtClaimsSetBuilder.issuer(iss);
+        jwtClaimsSetBuilder.subject(logoutContext.getSubject());
+        jwtClaimsSetBuilder.issuer(logoutTarget.getIssuer());
         jwtClaimsSetBuilder.audience(audience);
         jwtClaimsSetBuilder.claim("jti", jti);
         jwtClaimsSetBuilder.claim("events", event);
-        jwtClaimsSetBuilder.expirationTime(new Date(currentTimeInMillis + logoutTokenValidityInMillis));
-        jwtClaimsSetBuilder.claim("iat", iat);
-        jwtClaimsSetBuilder.claim("sid", sid);
+        jwtClaimsSetBuilder.expirationTime(logoutContext.getExpirationTime());
+        jwtClaimsSetBuilder.claim("iat", logoutContext.getIssuedAt());
+        jwtClaimsSetBuilder.claim("sid", logoutContext.getSid());
 
         return jwtClaimsSetBuilder.build();
     }
@@ -306,16 +456,6 @@ public class DefaultLogoutTokenBuilder implements LogoutTokenBuilder {
         return sidClaim;
     }
 
-    private IdentityProvider getResidentIdp(String tenantDomain) throws IdentityOAuth2Exception {
-
-        try {
-            return IdentityProviderManager.getInstance().getResidentIdP(tenantDomain);
-        } catch (IdentityProviderManagementException e) {
-            String errorMsg = String.format(ERROR_GET_RESIDENT_IDP, tenantDomain);
-            throw new IdentityOAuth2Exception(errorMsg, e);
-        }
-    }
-
     /**
      * Returning issuer of the tenant domain.
      *
@@ -372,7 +512,7 @@ public class DefaultLogoutTokenBuilder implements LogoutTokenBuilder {
      *
      * @return
      */
-    private long getLogoutTokenExpiryInMillis() {
+    long getLogoutTokenExpiryInMillis() {
 
         return Integer.parseInt(config.getOpenIDConnectBCLogoutTokenExpiration()) *
                 1000L;
@@ -471,4 +611,178 @@ public class DefaultLogoutTokenBuilder implements LogoutTokenBuilder {
         }
     }
 
+    int getParallelSigningThreshold() {
+
+        int threshold = parallelSigningThreshold;
+        if (threshold < 0) {
+            threshold = Math.max(readIntProperty(PARALLEL_SIGNING_THRESHOLD, DEFAULT_PARALLEL_SIGNING_THRESHOLD), 1);
+            parallelSigningThreshold = threshold;
+        }
+        return threshold;
+    }
+
+    /**
+     * Returns the executor shared by every logout to sign logout tokens. Idle threads are released, and once the
+     * queue is full the logout which submits a token signs it itself.
+     *
+     * @return Signing executor.
+     */
+    ExecutorService getSigningExecutor() {
+
+        if (signingExecutor == null) {
+            synchronized (DefaultLogoutTokenBuilder.class) {
+                if (signingExecutor == null) {
+                    int threadCount = Math.max(readIntProperty(SIGNING_THREAD_COUNT,
+                            Runtime.getRuntime().availableProcessors()), 1);
+                    AtomicInteger threadIndex = new AtomicInteger();
+                    ThreadPoolExecutor executor = new ThreadPoolExecutor(threadCount, threadCount, 60,
+                            TimeUnit.SECONDS, new LinkedBlockingQueue<>(MAX_QUEUED_SIGNING_TASKS), runnable -> {
+                        Thread thread = new Thread(runnable, "LogoutTokenSigner-" + threadIndex.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }, new ThreadPoolExecutor.CallerRunsPolicy());
+                    executor.allowCoreThreadTimeOut(true);
+                    signingExecutor = executor;
+                }
+            }
+        }
+        return signingExecutor;
+    }
+
+    /**
+     * Data shared by the logout tokens of a session. Issuers and signing keys are resolved once per tenant.
+     */
+    private final class LogoutContext {
+
+        private final String subject;
+        private final String sid;
+        private final Date issuedAt;
+        private final Date expirationTime;
+        private final Map<String, String> issuers = new HashMap<>();
+        private final Map<String, SigningContext> signingContexts = new HashMap<>();
+
+        LogoutContext(OIDCSessionState sessionState) {
+
+            long currentTimeInMillis = Calendar.getInstance().getTimeInMillis();
+            this.subject = sessionState.getAuthenticatedUser();
+            this.sid = getSidClaim(sessionState);
+            this.issuedAt = new Date(currentTimeInMillis);
+            this.expirationTime = new Date(currentTimeInMillis + getLogoutTokenExpiryInMillis());
+        }
+
+        String getIssuer(String tenantDomain) throws IdentityOAuth2Exception {
+
+            String issuer = issuers.get(tenantDomain);
+            if (issuer == null) {
+                issuer = DefaultLogoutTokenBuilder.this.getIssuer(tenantDomain);
+                issuers.put(tenantDomain, issuer);
+            }
+            return issuer;
+        }
+
+        SigningContext getSigningContext(String signingTenantDomain) throws IdentityOAuth2Exception {
+
+            if (StringUtils.isBlank(signingTenantDomain)) {
+                signingTenantDomain = MultitenantConstants.SUPER_TENANT_DOMAIN_NAME;
+            }
+            SigningContext signingContext = signingContexts.get(signingTenantDomain);
+            if (signingContext == null) {
+                signingContext = new SigningContext(this,
+                        OAuth2Util.getJWSSigningContext(signingTenantDomain, signatureAlgorithm));
+                signingContexts.put(signingTenantDomain, signingContext);
+            }
+            return signingContext;
+        }
+
+        String getSubject() {
+
+            return subject;
+        }
+
+        String getSid() {
+
+            return sid;
+        }
+
+        Date getIssuedAt() {
+
+            return issuedAt;
+        }
+
+        Date getExpirationTime() {
+
+            return expirationTime;
+        }
+    }
+
+    /**
+     * Header and reused signer of the logout tokens signed with the key of a tenant.
+     */
+    private static final class SigningContext {
+
+        private final LogoutContext logoutContext;
+        private final JWSHeader header;
+        private final JWSSigner signer;
+
+        SigningContext(LogoutContext logoutContext, JWSSigningContext jwsSigningContext) {
+
+            this.logoutContext = logoutContext;
+            this.header = jwsSigningContext.getHeader();
+            this.signer = jwsSigningContext.getSigner();
+        }
+
+        LogoutContext getLogoutContext() {
+
+            return logoutContext;
+        }
+
+        JWSHeader getHeader() {
+
+            return header;
+        }
+
+        JWSSigner getSigner() {
+
+            return signer;
+        }
+    }
+
+    /**
+     * RP to send a logout token to.
+     */
+    private static final class LogoutTarget {
+
+        private final String clientId;
+        private final String backChannelLogoutUrl;
+        private final String issuer;
+        private final SigningContext signingContext;
+
+        LogoutTarget(String clientId, String backChannelLogoutUrl, String issuer, SigningContext signingContext) {
+
+            this.clientId = clientId;
+            this.backChannelLogoutUrl = backChannelLogoutUrl;
+            this.issuer = issuer;
+            this.signingContext = signingContext;
+        }
+
+        String getClientId() {
+
+            return clientId;
+        }
+
+        String getBackChannelLogoutUrl() {
+
+            return backChannelLogoutUrl;
+        }
+
+        String getIssuer() {
+
+            return issuer;
+        }
+
+        SigningContext getSigningContext() {
+
+            return signingContext;
+        }
+    }
 }
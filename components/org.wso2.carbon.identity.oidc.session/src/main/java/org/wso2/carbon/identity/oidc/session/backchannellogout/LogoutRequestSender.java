@@ -17,31 +17,14 @@
  */
 package org.wso2.carbon.identity.oidc.session.backchannellogout;
 
-import org.apache.commons.collections.MapUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.apache.http.HttpResponse;
-import org.apache.http.NameValuePair;
-import org.apache.http.client.HttpClient;
-import org.apache.http.client.entity.UrlEncodedFormEntity;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.message.BasicNameValuePair;
 import org.wso2.carbon.base.MultitenantConstants;
-import org.wso2.carbon.identity.base.IdentityConstants;
-import org.wso2.carbon.identity.core.util.IdentityUtil;
-import org.wso2.carbon.identity.oauth.common.exception.InvalidOAuthClientException;
 import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
 import org.wso2.carbon.identity.oidc.session.util.OIDCSessionManagementUtil;
 
-import java.io.IOException;
-import java.io.UnsupportedEncodingException;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
@@ -52,9 +35,9 @@ import javax.servlet.http.HttpServletRequest;
 public class LogoutRequestSender {
 
     private static final Log log = LogFactory.getLog(LogoutRequestSender.class);
-    private static ExecutorService threadPool = Executors.newFixedThreadPool(2);
     private static LogoutRequestSender instance = new LogoutRequestSender();
-    private static final String LOGOUT_TOKEN = "logout_token";
+    private volatile BackChannelLogoutDispatcher dispatcher;
+    private volatile BackChannelLogoutOutbox outbox;
 
     private LogoutRequestSender() {
 
@@ -112,98 +95,109 @@ public class LogoutRequestSender {
      */
     public void sendLogoutRequests(String opbsCookieId, String tenantDomain) {
 
-        Map<String, String> logoutTokenList = getLogoutTokenList(opbsCookieId, tenantDomain);
-        if (MapUtils.isNotEmpty(logoutTokenList)) {
-            // For each logoutReq, create a new task and submit it to the thread pool.
-            for (Map.Entry<String, String> logoutTokenMap : logoutTokenList.entrySet()) {
-                String logoutToken = logoutTokenMap.getKey();
-                String bcLogoutUrl = logoutTokenMap.getValue();
-                threadPool.submit(new LogoutReqSenderTask(logoutToken, bcLogoutUrl));
-                if (log.isDebugEnabled()) {
-                    log.debug("A logoutReqSenderTask is assigned to the thread pool");
+        try {
+            DefaultLogoutTokenBuilder logoutTokenBuilder = new DefaultLogoutTokenBuilder();
+            BackChannelLogoutOutbox logoutOutbox = getOutbox();
+            if (logoutOutbox != null) {
+                // Store the logout tokens before sending them, so that they are delivered even if this node goes down.
+                Map<String, String> logoutTokenList = new HashMap<>();
+                logoutTokenBuilder.buildLogoutTokens(opbsCookieId, tenantDomain,
+                        (bcLogoutUrl, logoutToken) -> logoutTokenList.put(logoutToken, bcLogoutUrl));
+                appendToOutbox(logoutOutbox, logoutTokenList, logoutTokenBuilder.getLogoutTokenExpiryInMillis());
+                return;
+            }
+            // Hand each logout token to the dispatcher as soon as it is signed. The dispatcher sends them without
+            // blocking the logout.
+            logoutTokenBuilder.buildLogoutTokens(opbsCookieId, tenantDomain, this::dispatch);
+        } catch (IdentityOAuth2Exception e) {
+            log.error("Error while building logout tokens of " + DefaultLogoutTokenBuilder.class, e);
+        }
+    }
 
+    /**
+     * Get the dispatcher which delivers the logout tokens. The dispatcher is created on first use.
+     *
+     * @return Back-channel logout dispatcher.
+     */
+    public BackChannelLogoutDispatcher getDispatcher() {
+
+        BackChannelLogoutDispatcher logoutDispatcher = dispatcher;
+        if (logoutDispatcher == null) {
+            synchronized (this) {
+                logoutDispatcher = dispatcher;
+                if (logoutDispatcher == null) {
+                    logoutDispatcher = new BackChannelLogoutDispatcher();
+                    dispatcher = logoutDispatcher;
                 }
             }
         }
+        return logoutDispatcher;
     }
 
     /**
-     * Returns a Map with logout tokens and back-channel logut Url of Service providers.
+     * Get the outbox which stores the logout tokens until they are delivered. The outbox is created and starts
+     * polling on first use.
      *
-     * @param opbsCookie OpbsCookie.
-     * @return Map with logoutToken, back-channel logout Url.
+     * @return Back-channel logout outbox, or null if the outbox is not enabled.
      */
-    private Map<String, String> getLogoutTokenList(String opbsCookie, String tenantDomain) {
+    public BackChannelLogoutOutbox getOutbox() {
 
-        Map<String, String> logoutTokenList = null;
-        try {
-            DefaultLogoutTokenBuilder logoutTokenBuilder = new DefaultLogoutTokenBuilder();
-            logoutTokenList = logoutTokenBuilder.buildLogoutToken(opbsCookie, tenantDomain);
-        } catch (IdentityOAuth2Exception e) {
-            log.error("Error while initializing " + DefaultLogoutTokenBuilder.class, e);
-        } catch (InvalidOAuthClientException e) {
-            if (log.isDebugEnabled()) {
-                log.debug("Error while obtaining logout token list for the obpsCookie: " + opbsCookie +
-                                "& tenant domain: " + tenantDomain, e);
+        if (!BackChannelLogoutOutbox.isEnabled()) {
+            return null;
+        }
+        BackChannelLogoutOutbox logoutOutbox = outbox;
+        if (logoutOutbox == null) {
+            synchronized (this) {
+                logoutOutbox = outbox;
+                if (logoutOutbox == null) {
+                    logoutOutbox = new BackChannelLogoutOutbox(getDispatcher());
+                    logoutOutbox.start();
+                    outbox = logoutOutbox;
+                }
             }
         }
-        return logoutTokenList;
+        return logoutOutbox;
     }
 
     /**
-     * This class is used to model a single logout request that is being sent to a session participant.
-     * It will send the logout req. to the session participant in its 'run' method when this job is
-     * submitted to the thread pool.
+     * Stop the outbox and the dispatcher, dropping the pending logout requests. Logout requests stored in the outbox
+     * are delivered by another node, or by this node once it is restarted. A new dispatcher is created if logout
+     * requests are sent afterwards.
      */
-    private class LogoutReqSenderTask implements Runnable {
+    public synchronized void shutdown() {
 
-        private String logoutToken;
-        private String backChannelLogouturl;
-
-        public LogoutReqSenderTask(String logoutToken, String backChannelLogouturl) {
-
-            this.logoutToken = logoutToken;
-            this.backChannelLogouturl = backChannelLogouturl;
+        if (outbox != null) {
+            outbox.shutdown();
+            outbox = null;
         }
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+            dispatcher = null;
+        }
+    }
 
-        @Override
-        public void run() {
+    private void appendToOutbox(BackChannelLogoutOutbox logoutOutbox, Map<String, String> logoutTokenList,
+                                long tokenExpiryInMillis) {
 
+        if (logoutTokenList.isEmpty()) {
+            return;
+        }
+        try {
+            logoutOutbox.append(logoutTokenList, tokenExpiryInMillis);
             if (log.isDebugEnabled()) {
-                log.debug("Starting backchannel logout request to: " + backChannelLogouturl);
+                log.debug(logoutTokenList.size() + " backchannel logout requests are stored in the outbox.");
             }
+        } catch (IdentityOAuth2Exception e) {
+            log.error("Error while storing backchannel logout requests in the outbox. Sending them without storing.",
+                    e);
+            logoutTokenList.forEach((logoutToken, bcLogoutUrl) -> dispatch(bcLogoutUrl, logoutToken));
+        }
+    }
 
-            List<NameValuePair> logoutReqParams = new ArrayList<NameValuePair>();
-            String hostNameVerificationEnabledProperty =
-                    IdentityUtil.getProperty(IdentityConstants.ServerConfig.SLO_HOST_NAME_VERIFICATION_ENABLED);
-            boolean isHostNameVerificationEnabled = true;
-            if ("false".equalsIgnoreCase(hostNameVerificationEnabledProperty)) {
-                isHostNameVerificationEnabled = false;
-            }
-            try {
-                HttpClient httpClient;
-                if (!isHostNameVerificationEnabled) {
-                    httpClient = HttpClients.custom()
-                            .setHostnameVerifier(SSLConnectionSocketFactory.ALLOW_ALL_HOSTNAME_VERIFIER)
-                            .build();
-                } else {
-                    httpClient = HttpClients.createDefault();
-                }
-                logoutReqParams.add(new BasicNameValuePair(LOGOUT_TOKEN, logoutToken));
-                HttpPost httpPost = new HttpPost(backChannelLogouturl);
-                try {
-                    httpPost.setEntity(new UrlEncodedFormEntity(logoutReqParams));
-                } catch (UnsupportedEncodingException e) {
-                    log.error("Error while sending logout token", e);
-                }
-                HttpResponse response = httpClient.execute(httpPost);
-                if (log.isDebugEnabled()) {
-                    log.debug("Backchannel logout response: " + response.getStatusLine());
-                }
+    private void dispatch(String bcLogoutUrl, String logoutToken) {
 
-            } catch (IOException e) {
-                log.error("Error sending logout requests to: " + backChannelLogouturl, e);
-            }
+        if (getDispatcher().dispatch(bcLogoutUrl, logoutToken) && log.isDebugEnabled()) {
+            log.debug("A backchannel logout request to: " + bcLogoutUrl + " is queued.");
         }
     }
 }
@@ -21,6 +21,7 @@ import org.wso2.carbon.identity.oauth.common.exception.InvalidOAuthClientExcepti
 import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
 
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -71,4 +72,25 @@ public interface LogoutTokenBuilder {
 
         return buildLogoutToken(opbsCookie);
     }
+
+    /**
+     * Builds the logout tokens of the relying parties of a session and hands each of them to the consumer, along with
+     * the back-channel logout URL it should be sent to. Implementations may hand over a token as soon as it is built,
+     * instead of waiting for the tokens of every relying party. The consumer is invoked by the calling thread.
+     *
+     * @param opbsCookie    Opbscookie value.
+     * @param tenantDomain  Tenant Domain.
+     * @param tokenConsumer Consumer accepting the back-channel logout URL and the logout token.
+     * @throws IdentityOAuth2Exception
+     * @throws InvalidOAuthClientException
+     */
+    default void buildLogoutTokens(String opbsCookie, String tenantDomain, BiConsumer<String, String> tokenConsumer)
+            throws IdentityOAuth2Exception, InvalidOAuthClientException {
+
+        Map<String, String> logoutTokenList = buildLogoutToken(opbsCookie, tenantDomain);
+        if (logoutTokenList != null) {
+            logoutTokenList.forEach((logoutToken, backChannelLogoutUrl) ->
+                    tokenConsumer.accept(backChannelLogoutUrl, logoutToken));
+        }
+    }
 }
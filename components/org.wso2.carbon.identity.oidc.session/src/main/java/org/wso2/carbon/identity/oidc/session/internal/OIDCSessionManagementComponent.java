@@ -29,18 +29,24 @@ import org.osgi.service.component.annotations.ReferencePolicy;
 import org.osgi.service.http.HttpService;
 import org.wso2.carbon.identity.application.authentication.framework.listener.SessionContextMgtListener;
 import org.wso2.carbon.identity.application.mgt.ApplicationManagementService;
+import org.wso2.carbon.identity.application.mgt.listener.ApplicationMgtListener;
 import org.wso2.carbon.identity.event.handler.AbstractEventHandler;
 import org.wso2.carbon.identity.oauth.common.token.bindings.TokenBinderInfo;
 import org.wso2.carbon.identity.oauth2.token.bindings.TokenBinder;
 import org.wso2.carbon.identity.oidc.session.OIDCInboundSessionContextMgtListener;
 import org.wso2.carbon.identity.oidc.session.OIDCSessionConstants;
 import org.wso2.carbon.identity.oidc.session.backchannellogout.ClaimProviderImpl;
+import org.wso2.carbon.identity.oidc.session.backchannellogout.LogoutRequestSender;
 import org.wso2.carbon.identity.oidc.session.handler.OIDCLogoutEventHandler;
 import org.wso2.carbon.identity.oidc.session.handler.OIDCLogoutHandler;
+import org.wso2.carbon.identity.oidc.session.listener.OIDCSessionApplicationMgtListener;
+import org.wso2.carbon.identity.oidc.session.listener.OIDCSessionUserOperationEventListener;
 import org.wso2.carbon.identity.oidc.session.servlet.OIDCLogoutServlet;
 import org.wso2.carbon.identity.oidc.session.servlet.OIDCSessionIFrameServlet;
 import org.wso2.carbon.identity.openidconnect.ClaimProvider;
+import org.wso2.carbon.user.core.listener.UserOperationEventListener;
 import org.wso2.carbon.user.core.service.RealmService;
+import org.wso2.carbon.utils.ConfigurationContextService;
 
 import javax.servlet.Servlet;
 
@@ -109,10 +115,21 @@ public class OIDCSessionManagementComponent {
 
         context.getBundleContext().registerService(SessionContextMgtListener.class.getName(),
                 new OIDCInboundSessionContextMgtListener(), null);
+
+        // Remove the sessions of deleted applications and users from the session participant store.
+        context.getBundleContext().registerService(ApplicationMgtListener.class.getName(),
+                new OIDCSessionApplicationMgtListener(), null);
+        context.getBundleContext().registerService(UserOperationEventListener.class.getName(),
+                new OIDCSessionUserOperationEventListener(), null);
+
+        // Start polling the back-channel logout outbox when it is enabled, so that logout requests left by nodes
+        // which went down are delivered even if no user logs out through this node.
+        LogoutRequestSender.getInstance().getOutbox();
     }
 
     protected void deactivate(ComponentContext context) {
 
+        LogoutRequestSender.getInstance().shutdown();
         if (log.isDebugEnabled()) {
             log.info("OIDC Session Management bundle is deactivated");
         }
@@ -164,6 +181,29 @@ public class OIDCSessionManagementComponent {
         OIDCSessionManagementComponentServiceHolder.setRealmService(null);
     }
 
+    @Reference(
+            name = "configuration.context.service",
+            service = ConfigurationContextService.class,
+            cardinality = ReferenceCardinality.OPTIONAL,
+            policy = ReferencePolicy.DYNAMIC,
+            unbind = "unsetConfigurationContextService"
+    )
+    protected void setConfigurationContextService(ConfigurationContextService configurationContextService) {
+
+        if (log.isDebugEnabled()) {
+            log.debug("Setting the Configuration Context Service.");
+        }
+        OIDCSessionManagementComponentServiceHolder.setConfigurationContextService(configurationContextService);
+    }
+
+    protected void unsetConfigurationContextService(ConfigurationContextService configurationContextService) {
+
+        if (log.isDebugEnabled()) {
+            log.debug("Unsetting the Configuration Context Service.");
+        }
+        OIDCSessionManagementComponentServiceHolder.setConfigurationContextService(null);
+    }
+
     @Reference(
             name = "oidc.logout.handlers",
             service = OIDCLogoutHandler.class,
@@ -23,6 +23,7 @@ import org.wso2.carbon.identity.application.mgt.ApplicationManagementService;
 import org.wso2.carbon.identity.oauth2.token.bindings.TokenBinder;
 import org.wso2.carbon.identity.oidc.session.handler.OIDCLogoutHandler;
 import org.wso2.carbon.user.core.service.RealmService;
+import org.wso2.carbon.utils.ConfigurationContextService;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -39,6 +40,7 @@ public class OIDCSessionManagementComponentServiceHolder {
     private static RealmService realmService;
     private static List<OIDCLogoutHandler> oidcPostLogoutHandlers = new ArrayList<>();
     private static ApplicationManagementService applicationMgtService;
+    private static ConfigurationContextService configurationContextService;
     private List<TokenBinder> tokenBinders = new ArrayList<>();
 
     private OIDCSessionManagementComponentServiceHolder() {
@@ -106,6 +108,26 @@ public class OIDCSessionManagementComponentServiceHolder {
         OIDCSessionManagementComponentServiceHolder.applicationMgtService = applicationMgtService;
     }
 
+    /**
+     * Get the configuration context service.
+     *
+     * @return ConfigurationContextService, or null if the service is not available.
+     */
+    public static ConfigurationContextService getConfigurationContextService() {
+
+        return OIDCSessionManagementComponentServiceHolder.configurationContextService;
+    }
+
+    /**
+     * Set the configuration context service.
+     *
+     * @param configurationContextService ConfigurationContextService
+     */
+    public static void setConfigurationContextService(ConfigurationContextService configurationContextService) {
+
+        OIDCSessionManagementComponentServiceHolder.configurationContextService = configurationContextService;
+    }
+
     public List<TokenBinder> getTokenBinders() {
 
         return tokenBinders;
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oidc.session.listener;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.application.common.IdentityApplicationManagementException;
+import org.wso2.carbon.identity.application.common.model.InboundAuthenticationConfig;
+import org.wso2.carbon.identity.application.common.model.InboundAuthenticationRequestConfig;
+import org.wso2.carbon.identity.application.common.model.ServiceProvider;
+import org.wso2.carbon.identity.application.mgt.listener.AbstractApplicationMgtListener;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+import org.wso2.carbon.identity.oidc.session.internal.OIDCSessionManagementComponentServiceHolder;
+import org.wso2.carbon.identity.oidc.session.util.OIDCSessionManagementUtil;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Application management listener which removes the OAuth clients of a deleted application from the OIDC sessions
+ * they participate in. Relying parties are not notified.
+ */
+public class OIDCSessionApplicationMgtListener extends AbstractApplicationMgtListener {
+
+    private static final Log log = LogFactory.getLog(OIDCSessionApplicationMgtListener.class);
+    private static final String OAUTH2 = "oauth2";
+
+    @Override
+    public int getDefaultOrderId() {
+
+        // Executed after the OAuth application data is deleted, so that the sessions are left untouched if another
+        // listener stops the deletion.
+        return 902;
+    }
+
+    @Override
+    public boolean doPreDeleteApplication(String applicationName, String tenantDomain, String userName)
+            throws IdentityApplicationManagementException {
+
+        ServiceProvider serviceProvider = OIDCSessionManagementComponentServiceHolder.getApplicationMgtService()
+                .getApplicationExcludingFileBasedSPs(applicationName, tenantDomain);
+        if (serviceProvider == null) {
+            if (log.isDebugEnabled()) {
+                log.debug("Service Provider not found with name: " + applicationName);
+            }
+            return true;
+        }
+        for (String clientId : getClientIds(serviceProvider)) {
+            try {
+                OIDCSessionManagementUtil.getSessionManager().removeSessionParticipant(clientId, tenantDomain);
+            } catch (IdentityOAuth2Exception e) {
+                // The application is still deleted. Its sessions expire with the session participant cache.
+                log.error("Error while removing the client: " + clientId + " of the application: " +
+                        applicationName + " of tenantDomain: " + tenantDomain + " from the OIDC sessions.", e);
+            }
+        }
+        return true;
+    }
+
+    private Set<String> getClientIds(ServiceProvider serviceProvider) {
+
+        Set<String> clientIds = new HashSet<>();
+        InboundAuthenticationConfig inboundAuthenticationConfig = serviceProvider.getInboundAuthenticationConfig();
+        if (inboundAuthenticationConfig == null ||
+                inboundAuthenticationConfig.getInboundAuthenticationRequestConfigs() == null) {
+            return clientIds;
+        }
+        for (InboundAuthenticationRequestConfig inboundRequestConfig :
+                inboundAuthenticationConfig.getInboundAuthenticationRequestConfigs()) {
+            if (StringUtils.equals(OAUTH2, inboundRequestConfig.getInboundAuthType()) &&
+                    StringUtils.isNotBlank(inboundRequestConfig.getInboundAuthKey())) {
+                clientIds.add(inboundRequestConfig.getInboundAuthKey());
+            }
+        }
+        return clientIds;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oidc.session.listener;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.core.AbstractIdentityUserOperationEventListener;
+import org.wso2.carbon.identity.core.util.IdentityCoreConstants;
+import org.wso2.carbon.identity.core.util.IdentityTenantUtil;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+import org.wso2.carbon.identity.oidc.session.util.OIDCSessionManagementUtil;
+import org.wso2.carbon.user.core.UserStoreException;
+import org.wso2.carbon.user.core.UserStoreManager;
+import org.wso2.carbon.user.core.util.UserCoreUtil;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * User operation event listener which removes the OIDC sessions of a deleted user. Sessions are looked up by the
+ * username, with and without the user store domain and the tenant domain, as the authenticated subject identifier of
+ * a session holds one of those forms unless the application uses another claim as the subject. Relying parties are
+ * not notified.
+ */
+public class OIDCSessionUserOperationEventListener extends AbstractIdentityUserOperationEventListener {
+
+    private static final Log log = LogFactory.getLog(OIDCSessionUserOperationEventListener.class);
+
+    @Override
+    public int getExecutionOrderId() {
+
+        int orderId = getOrderId();
+        if (orderId != IdentityCoreConstants.EVENT_LISTENER_ORDER_ID) {
+            return orderId;
+        }
+        return 105;
+    }
+
+    @Override
+    public boolean doPostDeleteUser(String userName, UserStoreManager userStoreManager) throws UserStoreException {
+
+        if (!isEnable()) {
+            return true;
+        }
+        String tenantDomain = IdentityTenantUtil.getTenantDomain(userStoreManager.getTenantId());
+        String userStoreDomain = UserCoreUtil.getDomainName(userStoreManager.getRealmConfiguration());
+        for (String authenticatedUser : getSubjectIdentifiers(userName, userStoreDomain, tenantDomain)) {
+            try {
+                OIDCSessionManagementUtil.getSessionManager().removeOIDCSessionStatesOfUser(authenticatedUser,
+                        tenantDomain);
+            } catch (IdentityOAuth2Exception e) {
+                // The user is still deleted. The sessions expire with the session participant cache.
+                log.error("Error while removing the OIDC sessions of the user: " + authenticatedUser + " of " +
+                        "tenantDomain: " + tenantDomain, e);
+            }
+        }
+        return true;
+    }
+
+    private static Set<String> getSubjectIdentifiers(String userName, String userStoreDomain, String tenantDomain) {
+
+        Set<String> subjectIdentifiers = new LinkedHashSet<>();
+        subjectIdentifiers.add(userName);
+        subjectIdentifiers.add(UserCoreUtil.addDomainToName(userName, userStoreDomain));
+        for (String subjectIdentifier : subjectIdentifiers.toArray(new String[0])) {
+            subjectIdentifiers.add(UserCoreUtil.addTenantDomainToEntry(subjectIdentifier, tenantDomain));
+        }
+        return subjectIdentifiers;
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oidc.session.store;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.oidc.session.OIDCSessionState;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.wso2.carbon.identity.oauth2.util.OAuth2ConfigUtil.readIntProperty;
+
+/**
+ * Session participant store held in the memory of the node. The number of indexed sessions is bounded, and the least
+ * recently stored sessions are evicted from the index once the bound is reached. Evicted sessions remain in the
+ * session participant cache, but are no longer found through the index. Sessions created through other nodes are
+ * not indexed, hence this store suits single node deployments.
+ * <p>
+ * A session and the index entries of a client or a user are updated while holding the lock of their own key only,
+ * so storing a session does not wait on the updates of unrelated sessions.
+ */
+public class InMemoryOIDCSessionParticipantStore implements OIDCSessionParticipantStore {
+
+    private static final Log log = LogFactory.getLog(InMemoryOIDCSessionParticipantStore.class);
+
+    private static final String MAX_SESSIONS = "OAuth.OpenIDConnect.SessionParticipantStore.MaxSessions";
+    private static final int DEFAULT_MAX_SESSIONS = 100000;
+
+    private final int maxSessions;
+    private final Map<IndexKey, IndexedSession> sessions = new ConcurrentHashMap<>();
+    private final Map<IndexKey, Set<String>> sessionsByClient = new ConcurrentHashMap<>();
+    private final Map<IndexKey, Set<String>> sessionsByUser = new ConcurrentHashMap<>();
+    // Sessions in the order they were stored, to evict the least recently stored session first. Sessions replaced or
+    // removed since are skipped when evicting, and purged once they outnumber the bound.
+    private final Queue<IndexedSession> storeOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger storeOrderSize = new AtomicInteger();
+    private final AtomicBoolean purging = new AtomicBoolean();
+    private final AtomicLong evictedCount = new AtomicLong();
+
+    /**
+     * Create a store bounded by the number of sessions configured in identity.xml.
+     */
+    public InMemoryOIDCSessionParticipantStore() {
+
+        this(readIntProperty(MAX_SESSIONS, DEFAULT_MAX_SESSIONS));
+    }
+
+    /**
+     * Create a store.
+     *
+     * @param maxSessions Maximum number of sessions indexed.
+     */
+    public InMemoryOIDCSessionParticipantStore(int maxSessions) {
+
+        this.maxSessions = Math.max(maxSessions, 1);
+    }
+
+    @Override
+    public void storeSession(String sessionId, OIDCSessionState sessionState, String tenantDomain) {
+
+        IndexKey key = new IndexKey(tenantDomain, sessionId);
+        Set<String> participants = sessionState.getSessionParticipants() == null ? Collections.emptySet() :
+                new HashSet<>(sessionState.getSessionParticipants());
+        IndexedSession session = new IndexedSession(key, sessionState.getAuthenticatedUser(), participants);
+        sessions.compute(key, (k, previous) -> {
+            if (previous != null) {
+                unindex(previous);
+            }
+            index(session);
+            return session;
+        });
+        storeOrder.add(session);
+        storeOrderSize.incrementAndGet();
+
+        while (sessions.size() > maxSessions) {
+            IndexedSession eldest = storeOrder.poll();
+            if (eldest == null) {
+                break;
+            }
+            storeOrderSize.decrementAndGet();
+            evict(eldest);
+        }
+        if (storeOrderSize.get() > sessions.size() + maxSessions) {
+            purgeStoreOrder();
+        }
+    }
+
+    @Override
+    public void removeSession(String sessionId, String tenantDomain) {
+
+        sessions.computeIfPresent(new IndexKey(tenantDomain, sessionId), (k, session) -> {
+            unindex(session);
+            return null;
+        });
+    }
+
+    @Override
+    public Set<String> getSessionIdsOfClient(String clientId, String tenantDomain) {
+
+        return copyOf(sessionsByClient.get(new IndexKey(tenantDomain, clientId)));
+    }
+
+    @Override
+    public Set<String> getSessionIdsOfUser(String authenticatedUser, String tenantDomain) {
+
+        return copyOf(sessionsByUser.get(new IndexKey(tenantDomain, authenticatedUser)));
+    }
+
+    /**
+     * Get the number of indexed sessions.
+     *
+     * @return Session count.
+     */
+    public int getSessionCount() {
+
+        return sessions.size();
+    }
+
+    /**
+     * Get the number of sessions evicted from the index since the store was created.
+     *
+     * @return Evicted session count.
+     */
+    public long getEvictedCount() {
+
+        return evictedCount.get();
+    }
+
+    private void evict(IndexedSession eldest) {
+
+        sessions.computeIfPresent(eldest.key, (k, current) -> {
+            if (current != eldest) {
+                // The session was stored again after this entry.
+                return current;
+            }
+            unindex(current);
+            evictedCount.incrementAndGet();
+            if (log.isDebugEnabled()) {
+                log.debug("Session participant store reached the limit of " + maxSessions + " sessions. Evicted the " +
+                        "session: " + current.key.value + " from the index.");
+            }
+            return null;
+        });
+    }
+
+    private void purgeStoreOrder() {
+
+        if (!purging.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            storeOrder.removeIf(session -> sessions.get(session.key) != session);
+            storeOrderSize.set(storeOrder.size());
+        } finally {
+            purging.set(false);
+        }
+    }
+
+    private void index(IndexedSession session) {
+
+        String sessionId = session.key.value;
+        for (String clientId : session.participants) {
+            addToIndex(sessionsByClient, new IndexKey(session.key.tenantDomain, clientId), sessionId);
+        }
+        if (session.authenticatedUser != null) {
+            addToIndex(sessionsByUser, new IndexKey(session.key.tenantDomain, session.authenticatedUser), sessionId);
+        }
+    }
+
+    private void unindex(IndexedSession session) {
+
+        String sessionId = session.key.value;
+        for (String clientId : session.participants) {
+            removeFromIndex(sessionsByClient, new IndexKey(session.key.tenantDomain, clientId), sessionId);
+        }
+        if (session.authenticatedUser != null) {
+            removeFromIndex(sessionsByUser, new IndexKey(session.key.tenantDomain, session.authenticatedUser),
+                    sessionId);
+        }
+    }
+
+    private static void addToIndex(Map<IndexKey, Set<String>> index, IndexKey key, String sessionId) {
+
+        index.compute(key, (k, sessionIds) -> {
+            Set<String> updated = sessionIds == null ? ConcurrentHashMap.newKeySet() : sessionIds;
+            updated.add(sessionId);
+            return updated;
+        });
+    }
+
+    private static void removeFromIndex(Map<IndexKey, Set<String>> index, IndexKey key, String sessionId) {
+
+        // Empty sets are removed under the lock of the key, so that a concurrent add is not lost.
+        index.computeIfPresent(key, (k, sessionIds) -> {
+            sessionIds.remove(sessionId);
+            return sessionIds.isEmpty() ? null : sessionIds;
+        });
+    }
+
+    private static Set<String> copyOf(Set<String> sessionIds) {
+
+        return sessionIds == null ? Collections.emptySet() : new HashSet<>(sessionIds);
+    }
+
+    /**
+     * Tenant qualified key of the index.
+     */
+    private static class IndexKey {
+
+        private final String tenantDomain;
+        private final String value;
+
+        IndexKey(String tenantDomain, String value) {
+
+            this.tenantDomain = tenantDomain;
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof IndexKey)) {
+                return false;
+            }
+            IndexKey other = (IndexKey) o;
+            return Objects.equals(tenantDomain, other.tenantDomain) && Objects.equals(value, other.value);
+        }
+
+        @Override
+        public int hashCode() {
+
+            return Objects.hash(tenantDomain, value);
+        }
+    }
+
+    /**
+     * Indexed values of a session.
+     */
+    private static class IndexedSession {
+
+        private final IndexKey key;
+        private final String authenticatedUser;
+        private final Set<String> participants;
+
+        IndexedSession(IndexKey key, String authenticatedUser, Set<String> participants) {
+
+            this.key = key;
+            this.authenticatedUser = authenticatedUser;
+            this.participants = participants;
+        }
+    }
+}
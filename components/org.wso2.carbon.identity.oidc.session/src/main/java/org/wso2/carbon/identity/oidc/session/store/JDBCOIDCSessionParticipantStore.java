@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oidc.session.store;
+
+import org.wso2.carbon.identity.core.util.IdentityDatabaseUtil;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+import org.wso2.carbon.identity.oidc.session.OIDCSessionState;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Session participant store kept in the IDN_OIDC_SESSION_PARTICIPANT table, shared by the nodes of a cluster. Each
+ * row maps a client participating in a session to the session and its authenticated user, and the table is indexed
+ * by client and by user, so that lookups read only the matching rows. Sessions without participants are not indexed.
+ * <p>
+ * Rows are removed when their session is removed through the session manager. Rows of sessions which expired without
+ * being removed are removed when found by a bulk operation of the session manager, and can be cleaned up by their
+ * TIME_UPDATED value.
+ */
+public class JDBCOIDCSessionParticipantStore implements OIDCSessionParticipantStore {
+
+    private static final String DELETE_SESSION = "DELETE FROM IDN_OIDC_SESSION_PARTICIPANT WHERE SESSION_ID = ? " +
+            "AND TENANT_DOMAIN = ?";
+
+    private static final String INSERT_PARTICIPANT = "INSERT INTO IDN_OIDC_SESSION_PARTICIPANT (SESSION_ID, " +
+            "TENANT_DOMAIN, CLIENT_ID, AUTHENTICATED_USER, TIME_UPDATED) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String GET_SESSION_IDS_OF_CLIENT = "SELECT SESSION_ID FROM IDN_OIDC_SESSION_PARTICIPANT " +
+            "WHERE TENANT_DOMAIN = ? AND CLIENT_ID = ?";
+
+    private static final String GET_SESSION_IDS_OF_USER = "SELECT DISTINCT SESSION_ID FROM " +
+            "IDN_OIDC_SESSION_PARTICIPANT WHERE TENANT_DOMAIN = ? AND AUTHENTICATED_USER = ?";
+
+    @Override
+    public void storeSession(String sessionId, OIDCSessionState sessionState, String tenantDomain)
+            throws IdentityOAuth2Exception {
+
+        Connection connection = IdentityDatabaseUtil.getDBConnection(true);
+        try {
+            // The participants are replaced in a single transaction, so that lookups see either set.
+            try (PreparedStatement prepStmt = connection.prepareStatement(DELETE_SESSION)) {
+                prepStmt.setString(1, sessionId);
+                prepStmt.setString(2, tenantDomain);
+                prepStmt.executeUpdate();
+            }
+            Set<String> participants = sessionState.getSessionParticipants();
+            if (participants != null && !participants.isEmpty()) {
+                long now = System.currentTimeMillis();
+                try (PreparedStatement prepStmt = connection.prepareStatement(INSERT_PARTICIPANT)) {
+                    for (String clientId : participants) {
+                        prepStmt.setString(1, sessionId);
+                        prepStmt.setString(2, tenantDomain);
+                        prepStmt.setString(3, clientId);
+                        prepStmt.setString(4, sessionState.getAuthenticatedUser());
+                        prepStmt.setLong(5, now);
+                        prepStmt.addBatch();
+                    }
+                    prepStmt.executeBatch();
+                }
+            }
+            IdentityDatabaseUtil.commitTransaction(connection);
+        } catch (SQLException e) {
+            IdentityDatabaseUtil.rollbackTransaction(connection);
+            throw new IdentityOAuth2Exception("Error while storing the participants of the session: " + sessionId, e);
+        } finally {
+            IdentityDatabaseUtil.closeConnection(connection);
+        }
+    }
+
+    @Override
+    public void removeSession(String sessionId, String tenantDomain) throws IdentityOAuth2Exception {
+
+        Connection connection = IdentityDatabaseUtil.getDBConnection(true);
+        try (PreparedStatement prepStmt = connection.prepareStatement(DELETE_SESSION)) {
+            prepStmt.setString(1, sessionId);
+            prepStmt.setString(2, tenantDomain);
+            prepStmt.executeUpdate();
+            IdentityDatabaseUtil.commitTransaction(connection);
+        } catch (SQLException e) {
+            IdentityDatabaseUtil.rollbackTransaction(connection);
+            throw new IdentityOAuth2Exception("Error while removing the participants of the session: " + sessionId, e);
+        } finally {
+            IdentityDatabaseUtil.closeConnection(connection);
+        }
+    }
+
+    @Override
+    public Set<String> getSessionIdsOfClient(String clientId, String tenantDomain) throws IdentityOAuth2Exception {
+
+        return getSessionIds(GET_SESSION_IDS_OF_CLIENT, tenantDomain, clientId);
+    }
+
+    @Override
+    public Set<String> getSessionIdsOfUser(String authenticatedUser, String tenantDomain)
+            throws IdentityOAuth2Exception {
+
+        return getSessionIds(GET_SESSION_IDS_OF_USER, tenantDomain, authenticatedUser);
+    }
+
+    private Set<String> getSessionIds(String query, String tenantDomain, String value) throws IdentityOAuth2Exception {
+
+        Set<String> sessionIds = new HashSet<>();
+        Connection connection = IdentityDatabaseUtil.getDBConnection(false);
+        try (PreparedStatement prepStmt = connection.prepareStatement(query)) {
+            prepStmt.setString(1, tenantDomain);
+            prepStmt.setString(2, value);
+            try (ResultSet resultSet = prepStmt.executeQuery()) {
+                while (resultSet.next()) {
+                    sessionIds.add(resultSet.getString(1));
+                }
+            }
+            return sessionIds;
+        } catch (SQLException e) {
+            throw new IdentityOAuth2Exception("Error while reading the session participant store.", e);
+        } finally {
+            IdentityDatabaseUtil.closeConnection(connection);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oidc.session.store;
+
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+import org.wso2.carbon.identity.oidc.session.OIDCSessionState;
+
+import java.util.Set;
+
+/**
+ * Secondary index of the OIDC sessions held in the session participant cache, which maps the client ids and the
+ * authenticated user of each session to the session ids (opbs cookie values), so that the sessions of a client or a
+ * user can be found without scanning all sessions. The session states themselves remain in the session participant
+ * cache and its persistence store.
+ * <p>
+ * The implementation is configured with the OAuth.OpenIDConnect.SessionParticipantStore.Class property of
+ * identity.xml. Implementations need a public no argument constructor and must be thread safe. Deployments with more
+ * than one node should use a store shared by the nodes, such as {@link JDBCOIDCSessionParticipantStore}, as the
+ * sessions of a user may be created through any node.
+ */
+public interface OIDCSessionParticipantStore {
+
+    /**
+     * Index a session, replacing the previously indexed participants and user of the session.
+     *
+     * @param sessionId    Session id.
+     * @param sessionState Session state.
+     * @param tenantDomain Tenant domain the session is stored in.
+     * @throws IdentityOAuth2Exception When an error occurs while indexing the session.
+     */
+    void storeSession(String sessionId, OIDCSessionState sessionState, String tenantDomain)
+            throws IdentityOAuth2Exception;
+
+    /**
+     * Remove a session from the index.
+     *
+     * @param sessionId    Session id.
+     * @param tenantDomain Tenant domain the session is stored in.
+     * @throws IdentityOAuth2Exception When an error occurs while removing the session.
+     */
+    void removeSession(String sessionId, String tenantDomain) throws IdentityOAuth2Exception;
+
+    /**
+     * Get the ids of the sessions a client participates in.
+     *
+     * @param clientId     Client id.
+     * @param tenantDomain Tenant domain the sessions are stored in.
+     * @return Session ids.
+     * @throws IdentityOAuth2Exception When an error occurs while reading the index.
+     */
+    Set<String> getSessionIdsOfClient(String clientId, String tenantDomain) throws IdentityOAuth2Exception;
+
+    /**
+     * Get the ids of the sessions of an authenticated user.
+     *
+     * @param authenticatedUser Authenticated user, as held by {@link OIDCSessionState#getAuthenticatedUser()}.
+     * @param tenantDomain      Tenant domain the sessions are stored in.
+     * @return Session ids.
+     * @throws IdentityOAuth2Exception When an error occurs while reading the index.
+     */
+    Set<String> getSessionIdsOfUser(String authenticatedUser, String tenantDomain) throws IdentityOAuth2Exception;
+}
@@ -27,12 +27,19 @@ import org.wso2.carbon.identity.oidc.session.cache.OIDCSessionParticipantCache;
 import org.wso2.carbon.identity.oidc.session.cache.OIDCSessionParticipantCacheEntry;
 import org.wso2.carbon.identity.oidc.session.servlet.TestOIDCSessionBase;
 import org.wso2.carbon.identity.oidc.session.servlet.TestUtil;
+import org.wso2.carbon.identity.oidc.session.store.InMemoryOIDCSessionParticipantStore;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
 import static org.powermock.api.mockito.PowerMockito.when;
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
 
 /**
  * Unit test coverage for OIDCSessionManager
@@ -93,4 +100,68 @@ public class OIDCSessionManagerTest extends TestOIDCSessionBase {
         assertFalse(oidcSessionManager.sessionExists(SESSION_ID, MultitenantConstants.SUPER_TENANT_DOMAIN_NAME));
     }
 
+    @Test
+    public void testRemoveSessionParticipant() throws Exception {
+
+        OIDCSessionManager sessionManager = new OIDCSessionManager(new InMemoryOIDCSessionParticipantStore(100));
+        String tenantDomain = MultitenantConstants.SUPER_TENANT_DOMAIN_NAME;
+        sessionManager.storeOIDCSessionState("participant-session1", sessionState("user1", "client1", "client2"),
+                tenantDomain);
+        sessionManager.storeOIDCSessionState("participant-session2", sessionState("user2", "client1"), tenantDomain);
+        sessionManager.storeOIDCSessionState("participant-session3", sessionState("user1", "client2"), tenantDomain);
+
+        assertEquals(sessionManager.getSessionIdsOfClient("client1", tenantDomain),
+                new HashSet<>(Arrays.asList("participant-session1", "participant-session2")));
+        assertEquals(sessionManager.removeSessionParticipant("client1", tenantDomain), 2);
+        assertEquals(sessionManager.getOIDCSessionState("participant-session1", tenantDomain)
+                .getSessionParticipants(), Collections.singleton("client2"));
+        assertNull(sessionManager.getOIDCSessionState("participant-session2", tenantDomain),
+                "Sessions left without participants should be removed.");
+        assertNotNull(sessionManager.getOIDCSessionState("participant-session3", tenantDomain));
+        assertTrue(sessionManager.getSessionIdsOfClient("client1", tenantDomain).isEmpty());
+        assertEquals(sessionManager.getSessionIdsOfClient("client2", tenantDomain),
+                new HashSet<>(Arrays.asList("participant-session1", "participant-session3")));
+    }
+
+    @Test
+    public void testRemoveOIDCSessionStatesOfUser() throws Exception {
+
+        OIDCSessionManager sessionManager = new OIDCSessionManager(new InMemoryOIDCSessionParticipantStore(100));
+        String tenantDomain = MultitenantConstants.SUPER_TENANT_DOMAIN_NAME;
+        sessionManager.storeOIDCSessionState("user-session1", sessionState("user1", "client1"), tenantDomain);
+        sessionManager.storeOIDCSessionState("user-session2", sessionState("user1", "client2"), tenantDomain);
+        sessionManager.storeOIDCSessionState("user-session3", sessionState("user2", "client1"), tenantDomain);
+
+        assertEquals(sessionManager.removeOIDCSessionStatesOfUser("user1", tenantDomain), 2);
+        assertNull(sessionManager.getOIDCSessionState("user-session1", tenantDomain));
+        assertNull(sessionManager.getOIDCSessionState("user-session2", tenantDomain));
+        assertNotNull(sessionManager.getOIDCSessionState("user-session3", tenantDomain));
+        assertTrue(sessionManager.getSessionIdsOfUser("user1", tenantDomain).isEmpty());
+        assertEquals(sessionManager.getSessionIdsOfClient("client1", tenantDomain),
+                Collections.singleton("user-session3"));
+    }
+
+    @Test
+    public void testExpiredSessionsAreRemovedFromIndex() throws Exception {
+
+        InMemoryOIDCSessionParticipantStore participantStore = new InMemoryOIDCSessionParticipantStore(100);
+        OIDCSessionManager sessionManager = new OIDCSessionManager(participantStore);
+        String tenantDomain = MultitenantConstants.SUPER_TENANT_DOMAIN_NAME;
+        // A session indexed, but no longer held by the session participant cache.
+        participantStore.storeSession("expired-session", sessionState("user1", "client1"), tenantDomain);
+
+        assertEquals(sessionManager.removeSessionParticipant("client1", tenantDomain), 0);
+        assertEquals(participantStore.getSessionCount(), 0);
+    }
+
+    private static OIDCSessionState sessionState(String authenticatedUser, String... clientIds) {
+
+        OIDCSessionState sessionState = new OIDCSessionState();
+        sessionState.setAuthenticatedUser(authenticatedUser);
+        for (String clientId : clientIds) {
+            sessionState.addSessionParticipant(clientId);
+        }
+        return sessionState;
+    }
+
 }
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oidc.session;
+
+import org.apache.commons.codec.binary.Base64;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for {@link SessionStateEngine}.
+ */
+public class SessionStateEngineTest {
+
+    private static final String OP_BROWSER_STATE = "090907ce-eab0-40d2-a46d-acd4bb33f0d0";
+
+    @DataProvider(name = "sessionStateData")
+    public Object[][] sessionStateData() {
+
+        StringBuilder longClientId = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            longClientId.append("abcdefgh");
+        }
+        return new Object[][]{
+                {"u5FIfG5xzLvBGiamoAYzzcqpBqga", "http://localhost:8080", OP_BROWSER_STATE},
+                {"cl\u00efent-\u4e2d\u6587", "https://localhost:9443", OP_BROWSER_STATE},
+                {"u5FIfG5xzLvBGiamoAYzzcqpBqga", null, null},
+                {longClientId.toString(), "https://localhost:9443", OP_BROWSER_STATE}
+        };
+    }
+
+    @Test(dataProvider = "sessionStateData")
+    public void testSessionStateMatchesPreviousFormat(String clientId, String origin, String opBrowserState)
+            throws Exception {
+
+        SessionStateEngine engine = SessionStateEngine.getInstance();
+        assertSessionState(engine.generateSessionState(clientId, origin, opBrowserState), clientId, origin,
+                opBrowserState);
+        // Reused thread local buffers must not leak state between calls.
+        assertSessionState(engine.generateSessionState(clientId, origin, opBrowserState), clientId, origin,
+                opBrowserState);
+    }
+
+    @Test
+    public void testSaltIsRandom() {
+
+        SessionStateEngine engine = SessionStateEngine.getInstance();
+        assertNotEquals(engine.generateSessionState("client", "https://localhost", OP_BROWSER_STATE),
+                engine.generateSessionState("client", "https://localhost", OP_BROWSER_STATE));
+    }
+
+    @Test
+    public void testBrowserState() {
+
+        Set<String> browserStates = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            String browserState = SessionStateEngine.getInstance().generateBrowserState();
+            UUID uuid = UUID.fromString(browserState);
+            assertEquals(uuid.toString(), browserState);
+            assertEquals(uuid.version(), 4);
+            assertEquals(uuid.variant(), 2);
+            browserStates.add(browserState);
+        }
+        assertEquals(browserStates.size(), 100);
+    }
+
+    @Test
+    public void testConcurrentGeneration() throws Exception {
+
+        SessionStateEngine engine = SessionStateEngine.getInstance();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                int thread = i;
+                futures.add(executor.submit((Callable<Void>) () -> {
+                    for (int j = 0; j < 200; j++) {
+                        String clientId = "client-" + thread + "-" + j;
+                        assertSessionState(engine.generateSessionState(clientId, "https://localhost",
+                                OP_BROWSER_STATE), clientId, "https://localhost", OP_BROWSER_STATE);
+                        UUID.fromString(engine.generateBrowserState());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void assertSessionState(String sessionState, String clientId, String origin,
+                                           String opBrowserState) throws NoSuchAlgorithmException {
+
+        int separator = sessionState.indexOf('.');
+        assertEquals(separator, 64);
+        String salt = sessionState.substring(separator + 1);
+        byte[] saltBytes = Base64.decodeBase64(salt);
+        assertEquals(saltBytes.length, 16);
+        assertEquals(salt, Base64.encodeBase64URLSafeString(saltBytes));
+        assertEquals(sessionState, legacySessionState(clientId, origin, opBrowserState, salt));
+        assertTrue(sessionState.matches("[0-9a-f]{64}\\.[A-Za-z0-9_-]{22}"));
+    }
+
+    private static String legacySessionState(String clientId, String origin, String opBrowserState, String salt)
+            throws NoSuchAlgorithmException {
+
+        String sessionStateDataString = clientId + " " + origin + " " + opBrowserState + " " + salt;
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        digest.update(sessionStateDataString.getBytes(StandardCharsets.UTF_8));
+        StringBuilder result = new StringBuilder();
+        for (byte byt : digest.digest()) {
+            result.append(Integer.toString((byt & 0xff) + 0x100, 16).substring(1));
+        }
+        return result.toString() + "." + salt;
+    }
+}
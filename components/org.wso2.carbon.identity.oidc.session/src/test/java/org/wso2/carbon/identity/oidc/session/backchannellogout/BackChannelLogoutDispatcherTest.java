@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oidc.session.backchannellogout;
+
+import com.sun.net.httpserver.HttpServer;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests for BackChannelLogoutDispatcher, run against a local HTTP server acting as the relying parties.
+ */
+public class BackChannelLogoutDispatcherTest {
+
+    private static final long AWAIT_TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private final Queue<String> receivedBodies = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final AtomicInteger activeRequests = new AtomicInteger();
+    private final AtomicInteger maxActiveRequests = new AtomicInteger();
+    private final AtomicInteger failuresLeft = new AtomicInteger();
+    private volatile int failureStatus;
+    private volatile int responseStatus;
+    private volatile long responseDelayInMillis;
+    private String logoutUrl;
+
+    @BeforeClass
+    public void startServer() throws Exception {
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.createContext("/", exchange -> {
+            requestCount.incrementAndGet();
+            maxActiveRequests.accumulateAndGet(activeRequests.incrementAndGet(), Math::max);
+            try {
+                receivedBodies.add(readBody(exchange.getRequestBody()));
+                Thread.sleep(responseDelayInMillis);
+                int status = failuresLeft.getAndDecrement() > 0 ? failureStatus : responseStatus;
+                exchange.sendResponseHeaders(status, -1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                activeRequests.decrementAndGet();
+                exchange.close();
+            }
+        });
+        server.start();
+        logoutUrl = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() +
+                "/backchannel/logout";
+    }
+
+    @AfterClass
+    public void stopServer() {
+
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @BeforeMethod
+    public void setUp() {
+
+        receivedBodies.clear();
+        requestCount.set(0);
+        maxActiveRequests.set(0);
+        failuresLeft.set(0);
+        failureStatus = 500;
+        responseStatus = 200;
+        responseDelayInMillis = 0;
+    }
+
+    @Test
+    public void testDispatch() throws Exception {
+
+        BackChannelLogoutDispatcher dispatcher = new BackChannelLogoutDispatcher(4, 100, 4, 0, 10, 5000, true);
+        try {
+            assertTrue(dispatcher.dispatch(logoutUrl, "logout.token.value"));
+            awaitIdle(dispatcher);
+            assertEquals(dispatcher.getDeliveredCount(), 1);
+            assertEquals(receivedBodies.poll(), "logout_token=logout.token.value");
+        } finally {
+            dispatcher.shutdown();
+        }
+    }
+
+    @Test
+    public void testPerHostConcurrencyLimit() throws Exception {
+
+        responseDelayInMillis = 50;
+        BackChannelLogoutDispatcher dispatcher = new BackChannelLogoutDispatcher(8, 100, 2, 0, 10, 5000, true);
+        try {
+            for (int i = 0; i < 12; i++) {
+                assertTrue(dispatcher.dispatch(logoutUrl, "token" + i));
+            }
+            awaitIdle(dispatcher);
+            assertEquals(dispatcher.getDeliveredCount(), 12);
+            assertTrue(maxActiveRequests.get() <= 2, "At most 2 concurrent requests should be sent to a host, " +
+                    "but " + maxActiveRequests.get() + " were sent.");
+        } finally {
+            dispatcher.shutdown();
+        }
+    }
+
+    @Test
+    public void testRetryWithBackoff() throws Exception {
+
+        failuresLeft.set(2);
+        BackChannelLogoutDispatcher dispatcher = new BackChannelLogoutDispatcher(2, 100, 2, 3, 10, 5000, true);
+        try {
+            assertTrue(dispatcher.dispatch(logoutUrl, "token"));
+            awaitIdle(dispatcher);
+            assertEquals(requestCount.get(), 3);
+            assertEquals(dispatcher.getRetriedCount(), 2);
+            assertEquals(dispatcher.getDeliveredCount(), 1);
+            assertEquals(dispatcher.getFailedCount(), 0);
+        } finally {
+            dispatcher.shutdown();
+        }
+    }
+
+    @Test
+    public void testRetriesExhausted() throws Exception {
+
+        failuresLeft.set(Integer.MAX_VALUE);
+        failureStatus = 503;
+        BackChannelLogoutDispatcher dispatcher = new BackChannelLogoutDispatcher(2, 100, 2, 2, 10, 5000, true);
+        try {
+            assertTrue(dispatcher.dispatch(logoutUrl, "token"));
+            awaitIdle(dispatcher);
+            assertEquals(requestCount.get(), 3);
+            assertEquals(dispatcher.getFailedCount(), 1);
+            assertEquals(dispatcher.getDeliveredCount(), 0);
+        } finally {
+            dispatcher.shutdown();
+        }
+    }
+
+    @Test
+    public void testClientErrorIsNotRetried() throws Exception {
+
+        responseStatus = 400;
+        BackChannelLogoutDispatcher dispatcher = new BackChannelLogoutDispatcher(2, 100, 2, 3, 10, 5000, true);
+        try {
+            assertTrue(dispatcher.dispatch(logoutUrl, "token"));
+            awaitIdle(dispatcher);
+            assertEquals(requestCount.get(), 1);
+            assertEquals(dispatcher.getRetriedCount(), 0);
+            assertEquals(dispatcher.getFailedCount(), 1);
+        } finally {
+            dispatcher.shutdown();
+        }
+    }
+
+    @Test
+    public void testPendingLimit() throws Exception {
+
+        responseDelayInMillis = 200;
+        BackChannelLogoutDispatcher dispatcher = new BackChannelLogoutDispatcher(1, 2, 1, 0, 10, 5000, true);
+        try {
+            assertTrue(dispatcher.dispatch(logoutUrl, "token1"));
+            assertTrue(dispatcher.dispatch(logoutUrl, "token2"));
+            assertFalse(dispatcher.dispatch(logoutUrl, "token3"), "Dispatch should be rejected at the limit.");
+            assertEquals(dispatcher.getRejectedCount(), 1);
+            awaitIdle(dispatcher);
+            assertEquals(dispatcher.getDeliveredCount(), 2);
+            assertTrue(dispatcher.dispatch(logoutUrl, "token4"), "Dispatch should be accepted once drained.");
+            awaitIdle(dispatcher);
+        } finally {
+            dispatcher.shutdown();
+        }
+    }
+
+    @Test
+    public void testInvalidUrl() {
+
+        BackChannelLogoutDispatcher dispatcher = new BackChannelLogoutDispatcher(1, 10, 1, 0, 10, 5000, true);
+        try {
+            assertFalse(dispatcher.dispatch("not a url", "token"));
+            assertFalse(dispatcher.dispatch("ftp://localhost/logout", "token"));
+            assertEquals(dispatcher.getFailedCount(), 2);
+            assertEquals(dispatcher.getPendingCount(), 0);
+        } finally {
+            dispatcher.shutdown();
+        }
+    }
+
+    private static void awaitIdle(BackChannelLogoutDispatcher dispatcher) throws InterruptedException {
+
+        long deadline = System.currentTimeMillis() + AWAIT_TIMEOUT;
+        while (dispatcher.getPendingCount() > 0) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Logout requests are still pending: " + dispatcher.getPendingCount());
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    private static String readBody(InputStream inputStream) throws IOException {
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, read);
+        }
+        return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oidc.session.backchannellogout;
+
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.core.util.IdentityDatabaseUtil;
+import org.wso2.carbon.identity.oidc.session.backchannellogout.BackChannelLogoutOutboxDAO.OutboxEntry;
+import org.wso2.carbon.identity.oidc.session.servlet.TestOIDCSessionBase;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.Matchers.anyBoolean;
+import static org.powermock.api.mockito.PowerMockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests for BackChannelLogoutOutboxDAO, run against an in-memory H2 database.
+ */
+@PrepareForTest({IdentityDatabaseUtil.class})
+public class BackChannelLogoutOutboxDAOTest extends TestOIDCSessionBase {
+
+    private static final String LOGOUT_URL = "https://localhost/backchannel/logout";
+    private static final long LEASE_TIME = 60000;
+    private static final String NODE = "node1";
+
+    private BackChannelLogoutOutboxDAO outboxDAO;
+
+    @BeforeClass
+    public void setUp() throws Exception {
+
+        initiateInMemoryH2();
+        when(IdentityDatabaseUtil.getDBConnection(anyBoolean())).thenAnswer(invocation -> dataSource.getConnection());
+        outboxDAO = new BackChannelLogoutOutboxDAO();
+    }
+
+    @AfterClass
+    public void tearDown() throws Exception {
+
+        cleanData();
+    }
+
+    @BeforeMethod
+    public void clearOutbox() throws Exception {
+
+        connection.createStatement().executeUpdate("DELETE FROM IDN_OIDC_BC_LOGOUT_OUTBOX");
+    }
+
+    @Test
+    public void testAppendedEntriesAreLeasedToTheAppendingNode() throws Exception {
+
+        long now = System.currentTimeMillis();
+        outboxDAO.addEntries(Arrays.asList(entry("entry1", now), entry("entry2", now)), now + LEASE_TIME);
+
+        assertTrue(outboxDAO.claimEntries("node2", now, now + LEASE_TIME, 10).isEmpty(),
+                "Entries leased by the appending node should not be claimed by other nodes.");
+        assertEquals(getLeaseOwner("entry1"), NODE);
+        assertEquals(outboxDAO.getStatistics()[0], 2);
+    }
+
+    @Test
+    public void testClaimEntriesWithExpiredLease() throws Exception {
+
+        long now = System.currentTimeMillis();
+        // Entries left by a node which went down before delivering them.
+        outboxDAO.addEntries(Arrays.asList(entry("entry1", now - 2000), entry("entry2", now - 1000)), now - 1);
+
+        List<OutboxEntry> claimed = outboxDAO.claimEntries("node2", now, now + LEASE_TIME, 10);
+        assertEquals(claimed.size(), 2);
+        assertEquals(claimed.get(0).getLogoutUrl(), LOGOUT_URL);
+        assertEquals(claimed.get(0).getLogoutToken(), "token");
+        assertTrue(outboxDAO.claimEntries("node3", now, now + LEASE_TIME, 10).isEmpty(),
+                "Claimed entries should not be claimed again while leased.");
+        assertEquals(getLeaseOwner("entry1"), "node2");
+    }
+
+    @Test
+    public void testClaimLimit() throws Exception {
+
+        long now = System.currentTimeMillis();
+        outboxDAO.addEntries(Arrays.asList(entry("entry1", now - 3000), entry("entry2", now - 2000),
+                entry("entry3", now - 1000)), now - 1);
+
+        List<OutboxEntry> claimed = outboxDAO.claimEntries("node2", now, now + LEASE_TIME, 2);
+        assertEquals(claimed.size(), 2);
+        assertEquals(outboxDAO.claimEntries("node3", now, now + LEASE_TIME, 2).size(), 1);
+    }
+
+    @Test
+    public void testRescheduleEntries() throws Exception {
+
+        long now = System.currentTimeMillis();
+        OutboxEntry entry = entry("entry1", now);
+        outboxDAO.addEntries(Collections.singletonList(entry), now + LEASE_TIME);
+
+        entry.recordFailedAttempt(now + 5000);
+        outboxDAO.rescheduleEntries(Collections.singletonList(entry));
+        assertNull(getLeaseOwner("entry1"));
+        assertTrue(outboxDAO.claimEntries("node2", now, now + LEASE_TIME, 10).isEmpty(),
+                "Rescheduled entries should not be claimed before their next attempt time.");
+
+        List<OutboxEntry> claimed = outboxDAO.claimEntries("node2", now + 5000, now + 5000 + LEASE_TIME, 10);
+        assertEquals(claimed.size(), 1);
+        assertEquals(claimed.get(0).getAttempts(), 1);
+    }
+
+    @Test
+    public void testDeleteEntries() throws Exception {
+
+        long now = System.currentTimeMillis();
+        outboxDAO.addEntries(Arrays.asList(entry("entry1", now), entry("entry2", now)), now + LEASE_TIME);
+
+        outboxDAO.deleteEntries(Collections.singletonList(entry("entry1", now)));
+        assertEquals(outboxDAO.getStatistics()[0], 1);
+    }
+
+    @Test
+    public void testEntriesClaimedByAnotherNodeAreNotDeletedOrRescheduled() throws Exception {
+
+        long now = System.currentTimeMillis();
+        OutboxEntry entry1 = entry("entry1", now - 2000);
+        OutboxEntry entry2 = entry("entry2", now - 1000);
+        // The lease of the appending node expired while it was still delivering the entries, and node2 claimed them.
+        outboxDAO.addEntries(Arrays.asList(entry1, entry2), now - 1);
+        assertEquals(outboxDAO.claimEntries("node2", now, now + LEASE_TIME, 10).size(), 2);
+
+        outboxDAO.deleteEntries(Collections.singletonList(entry1));
+        entry2.recordFailedAttempt(now + 5000);
+        outboxDAO.rescheduleEntries(Collections.singletonList(entry2));
+        assertEquals(outboxDAO.getStatistics()[0], 2);
+        assertEquals(getLeaseOwner("entry1"), "node2");
+        assertEquals(getLeaseOwner("entry2"), "node2");
+    }
+
+    @Test
+    public void testExpiredEntriesAreDroppedAndNotClaimed() throws Exception {
+
+        long now = System.currentTimeMillis();
+        OutboxEntry expired = new OutboxEntry("entry1", LOGOUT_URL, "token", 0, now - 3000, now - 1000, NODE);
+        outboxDAO.addEntries(Arrays.asList(expired, entry("entry2", now - 2000)), now - 1);
+
+        List<OutboxEntry> claimed = outboxDAO.claimEntries("node2", now, now + LEASE_TIME, 10);
+        assertEquals(claimed.size(), 1);
+        assertEquals(claimed.get(0).getId(), "entry2");
+        assertEquals(outboxDAO.deleteExpiredEntries(now), 1);
+    }
+
+    @Test
+    public void testStatistics() throws Exception {
+
+        long now = System.currentTimeMillis();
+        long[] statistics = outboxDAO.getStatistics();
+        assertEquals(statistics[0], 0);
+        assertEquals(statistics[1], 0);
+
+        outboxDAO.addEntries(Arrays.asList(entry("entry1", now - 5000), entry("entry2", now)), now + LEASE_TIME);
+        statistics = outboxDAO.getStatistics();
+        assertEquals(statistics[0], 2);
+        assertEquals(statistics[1], now - 5000);
+    }
+
+    private static OutboxEntry entry(String id, long createdTime) {
+
+        return new OutboxEntry(id, LOGOUT_URL, "token", 0, createdTime, createdTime + LEASE_TIME * 2, NODE);
+    }
+
+    private String getLeaseOwner(String id) throws Exception {
+
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT LEASE_OWNER FROM IDN_OIDC_BC_LOGOUT_OUTBOX WHERE ID = ?")) {
+            statement.setString(1, id);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                assertTrue(resultSet.next());
+                return resultSet.getString(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,370 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oidc.session.backchannellogout;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.oidc.session.backchannellogout.BackChannelLogoutOutboxDAO.OutboxEntry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests for BackChannelLogoutOutbox, using an in-memory outbox table and a dispatcher which records the deliveries
+ * instead of sending them.
+ */
+public class BackChannelLogoutOutboxTest {
+
+    private static final String LOGOUT_URL = "https://localhost/backchannel/logout";
+    private static final long LEASE_TIME = 60000;
+    private static final long TOKEN_EXPIRY = 120000;
+
+    private InMemoryOutboxDAO outboxDAO;
+    private RecordingDispatcher dispatcher;
+
+    @BeforeMethod
+    public void setUp() {
+
+        outboxDAO = new InMemoryOutboxDAO();
+        dispatcher = new RecordingDispatcher();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+
+        dispatcher.shutdown();
+    }
+
+    @Test
+    public void testAppendedEntriesAreDeliveredAndRemoved() throws Exception {
+
+        BackChannelLogoutOutbox outbox = new BackChannelLogoutOutbox(outboxDAO, dispatcher, 10, LEASE_TIME, 3, 1000);
+        outbox.append(logoutTokens("token1", "token2"), TOKEN_EXPIRY);
+
+        assertEquals(outboxDAO.entries.size(), 2, "Entries should be stored before they are delivered.");
+        assertEquals(dispatcher.deliveries.size(), 2);
+        assertEquals(outbox.getInFlightCount(), 2);
+
+        dispatcher.completeAll(true);
+        outbox.poll();
+        assertTrue(outboxDAO.entries.isEmpty(), "Delivered entries should be removed.");
+        assertEquals(outbox.getDeliveredCount(), 2);
+        assertEquals(outbox.getInFlightCount(), 0);
+        assertEquals(dispatcher.deliveries.size(), 0, "Delivered entries should not be delivered again.");
+    }
+
+    @Test
+    public void testFailedEntriesAreRescheduled() throws Exception {
+
+        BackChannelLogoutOutbox outbox = new BackChannelLogoutOutbox(outboxDAO, dispatcher, 10, LEASE_TIME, 3, 1000);
+        outbox.append(logoutTokens("token1"), TOKEN_EXPIRY);
+
+        dispatcher.completeAll(false);
+        outbox.poll();
+        OutboxEntry entry = outboxDAO.entries.values().iterator().next().entry;
+        assertEquals(entry.getAttempts(), 1);
+        assertTrue(entry.getNextAttemptTime() > System.currentTimeMillis(),
+                "The next attempt should be delayed by the backoff.");
+        assertEquals(outbox.getRescheduledCount(), 1);
+        assertEquals(dispatcher.deliveries.size(), 0, "Rescheduled entries should not be claimed before due.");
+
+        outboxDAO.makeDue();
+        outbox.poll();
+        assertEquals(dispatcher.deliveries.size(), 1, "Due entries should be claimed again.");
+        assertEquals(outbox.getClaimedCount(), 1);
+    }
+
+    @Test
+    public void testEntriesAreAbandonedAfterMaxAttempts() throws Exception {
+
+        BackChannelLogoutOutbox outbox = new BackChannelLogoutOutbox(outboxDAO, dispatcher, 10, LEASE_TIME, 2, 1000);
+        outbox.append(logoutTokens("token1"), TOKEN_EXPIRY);
+
+        dispatcher.completeAll(false);
+        outbox.poll();
+        outboxDAO.makeDue();
+        outbox.poll();
+        dispatcher.completeAll(false);
+        outbox.poll();
+        assertTrue(outboxDAO.entries.isEmpty(), "Entries should be removed once they run out of attempts.");
+        assertEquals(outbox.getAbandonedCount(), 1);
+    }
+
+    @Test
+    public void testEntriesRejectedAtThePendingLimitDoNotUseUpAnAttempt() throws Exception {
+
+        BackChannelLogoutOutbox outbox = new BackChannelLogoutOutbox(outboxDAO, dispatcher, 10, LEASE_TIME, 1, 1000);
+        dispatcher.rejecting = true;
+        outbox.append(logoutTokens("token1"), TOKEN_EXPIRY);
+        assertEquals(outbox.getInFlightCount(), 0);
+
+        outbox.poll();
+        OutboxEntry entry = outboxDAO.entries.values().iterator().next().entry;
+        assertEquals(entry.getAttempts(), 0);
+        assertTrue(entry.getNextAttemptTime() > System.currentTimeMillis(),
+                "The next attempt should be delayed while the dispatcher is at its pending limit.");
+        assertEquals(outbox.getAbandonedCount(), 0);
+
+        dispatcher.rejecting = false;
+        outboxDAO.makeDue();
+        outbox.poll();
+        dispatcher.completeAll(true);
+        outbox.poll();
+        assertTrue(outboxDAO.entries.isEmpty());
+        assertEquals(outbox.getDeliveredCount(), 1);
+    }
+
+    @Test
+    public void testEntriesWithAnInvalidUrlUseUpAnAttempt() throws Exception {
+
+        BackChannelLogoutOutbox outbox = new BackChannelLogoutOutbox(outboxDAO, dispatcher, 10, LEASE_TIME, 1, 1000);
+        dispatcher.rejecting = true;
+        Map<String, String> logoutTokens = new LinkedHashMap<>();
+        logoutTokens.put("token1", "invalid-url");
+        outbox.append(logoutTokens, TOKEN_EXPIRY);
+
+        outbox.poll();
+        assertTrue(outboxDAO.entries.isEmpty(), "Entries which can never be delivered should run out of attempts.");
+        assertEquals(outbox.getAbandonedCount(), 1);
+    }
+
+    @Test
+    public void testEntriesOfAnotherNodeAreClaimedOnceLeaseExpires() throws Exception {
+
+        long now = System.currentTimeMillis();
+        // Entries left leased by a node which went down.
+        outboxDAO.addEntries(Collections.singletonList(new OutboxEntry("entry1", LOGOUT_URL, "token1", 0, now,
+                now + TOKEN_EXPIRY, "node1")), now + LEASE_TIME);
+        BackChannelLogoutOutbox outbox = new BackChannelLogoutOutbox(outboxDAO, dispatcher, 10, LEASE_TIME, 3, 1000);
+
+        outbox.poll();
+        assertEquals(dispatcher.deliveries.size(), 0, "Entries should not be claimed while leased.");
+
+        outboxDAO.expireLeases();
+        outbox.poll();
+        assertEquals(dispatcher.deliveries.size(), 1);
+        dispatcher.completeAll(true);
+        outbox.poll();
+        assertTrue(outboxDAO.entries.isEmpty());
+    }
+
+    @Test
+    public void testClaimIsLimitedByInFlightEntries() throws Exception {
+
+        BackChannelLogoutOutbox outbox = new BackChannelLogoutOutbox(outboxDAO, dispatcher, 2, LEASE_TIME, 3, 1000);
+        long now = System.currentTimeMillis();
+        List<OutboxEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            entries.add(new OutboxEntry("entry" + i, LOGOUT_URL, "token" + i, 0, now, now + TOKEN_EXPIRY, "node1"));
+        }
+        outboxDAO.addEntries(entries, now - 1);
+
+        outbox.poll();
+        assertEquals(dispatcher.deliveries.size(), 2);
+        outbox.poll();
+        assertEquals(dispatcher.deliveries.size(), 2, "No entries should be claimed while the batch is in flight.");
+
+        dispatcher.completeAll(true);
+        outbox.poll();
+        assertEquals(dispatcher.deliveries.size(), 1);
+    }
+
+    @Test
+    public void testStatistics() throws Exception {
+
+        BackChannelLogoutOutbox outbox = new BackChannelLogoutOutbox(outboxDAO, dispatcher, 10, LEASE_TIME, 3, 1000);
+        assertEquals(outbox.getQueueDepth(), -1);
+
+        outbox.append(logoutTokens("token1", "token2"), TOKEN_EXPIRY);
+        outbox.refreshStatistics();
+        assertEquals(outbox.getQueueDepth(), 2);
+        assertTrue(outbox.getOldestEntryAgeInMillis() >= 0);
+
+        dispatcher.completeAll(true);
+        outbox.poll();
+        outbox.refreshStatistics();
+        assertEquals(outbox.getQueueDepth(), 0);
+        assertEquals(outbox.getOldestEntryAgeInMillis(), 0);
+    }
+
+    @Test
+    public void testExpiredEntriesAreDropped() throws Exception {
+
+        BackChannelLogoutOutbox outbox = new BackChannelLogoutOutbox(outboxDAO, dispatcher, 10, LEASE_TIME, 3, 1000);
+        outbox.append(logoutTokens("token1"), 0);
+
+        outbox.refreshStatistics();
+        assertTrue(outboxDAO.entries.isEmpty());
+        assertEquals(outbox.getExpiredCount(), 1);
+        assertFalse(outbox.getQueueDepth() > 0);
+    }
+
+    private static Map<String, String> logoutTokens(String... tokens) {
+
+        Map<String, String> logoutTokens = new LinkedHashMap<>();
+        for (String token : tokens) {
+            logoutTokens.put(token, LOGOUT_URL);
+        }
+        return logoutTokens;
+    }
+
+    /**
+     * Dispatcher which records the deliveries, to be completed by the test.
+     */
+    private static class RecordingDispatcher extends BackChannelLogoutDispatcher {
+
+        private final List<DeliveryListener> deliveries = new ArrayList<>();
+        private boolean rejecting;
+
+        RecordingDispatcher() {
+
+            super(1, 10, 1, 0, 10, 1000, true);
+        }
+
+        @Override
+        public boolean dispatch(String backChannelLogoutUrl, String logoutToken, DeliveryListener listener) {
+
+            if (rejecting) {
+                return false;
+            }
+            deliveries.add(listener);
+            return true;
+        }
+
+        void completeAll(boolean delivered) {
+
+            List<DeliveryListener> listeners = new ArrayList<>(deliveries);
+            deliveries.clear();
+            listeners.forEach(listener -> listener.onCompletion(delivered));
+        }
+    }
+
+    /**
+     * Outbox table held in memory.
+     */
+    private static class InMemoryOutboxDAO extends BackChannelLogoutOutboxDAO {
+
+        private final Map<String, Row> entries = new LinkedHashMap<>();
+
+        @Override
+        public void addEntries(Collection<OutboxEntry> newEntries, long leaseExpiry) {
+
+            for (OutboxEntry entry : newEntries) {
+                Row row = new Row(entry);
+                row.nextAttemptTime = entry.getCreatedTime();
+                row.leaseOwner = entry.getLeaseOwner();
+                row.leaseExpiry = leaseExpiry;
+                entries.put(entry.getId(), row);
+            }
+        }
+
+        @Override
+        public List<OutboxEntry> claimEntries(String leaseOwner, long now, long leaseExpiry, int limit) {
+
+            List<OutboxEntry> claimed = new ArrayList<>();
+            for (Row row : entries.values()) {
+                if (claimed.size() < limit && row.nextAttemptTime <= now && row.leaseExpiry <= now &&
+                        row.entry.getExpiryTime() > now) {
+                    row.leaseOwner = leaseOwner;
+                    row.leaseExpiry = leaseExpiry;
+                    claimed.add(new OutboxEntry(row.entry.getId(), row.entry.getLogoutUrl(),
+                            row.entry.getLogoutToken(), row.entry.getAttempts(), row.entry.getCreatedTime(), 0,
+                            leaseOwner));
+                }
+            }
+            return claimed;
+        }
+
+        @Override
+        public void deleteEntries(Collection<OutboxEntry> deleted) {
+
+            for (OutboxEntry entry : deleted) {
+                Row row = entries.get(entry.getId());
+                if (row != null && entry.getLeaseOwner().equals(row.leaseOwner)) {
+                    entries.remove(entry.getId());
+                }
+            }
+        }
+
+        @Override
+        public void rescheduleEntries(Collection<OutboxEntry> rescheduled) {
+
+            for (OutboxEntry entry : rescheduled) {
+                Row row = entries.get(entry.getId());
+                if (row == null || !entry.getLeaseOwner().equals(row.leaseOwner)) {
+                    continue;
+                }
+                row.entry = entry;
+                row.nextAttemptTime = entry.getNextAttemptTime();
+                row.leaseOwner = null;
+                row.leaseExpiry = 0;
+            }
+        }
+
+        @Override
+        public int deleteExpiredEntries(long now) {
+
+            int size = entries.size();
+            entries.values().removeIf(row -> row.entry.getExpiryTime() <= now);
+            return size - entries.size();
+        }
+
+        @Override
+        public long[] getStatistics() {
+
+            long oldest = entries.values().stream().mapToLong(row -> row.entry.getCreatedTime()).min().orElse(0);
+            return new long[]{entries.size(), oldest};
+        }
+
+        void makeDue() {
+
+            entries.values().forEach(row -> row.nextAttemptTime = 0);
+        }
+
+        void expireLeases() {
+
+            entries.values().forEach(row -> row.leaseExpiry = 0);
+        }
+
+        /**
+         * Row of the outbox table.
+         */
+        private static class Row {
+
+            private OutboxEntry entry;
+            private long nextAttemptTime;
+            private String leaseOwner;
+            private long leaseExpiry;
+
+            Row(OutboxEntry entry) {
+
+                this.entry = entry;
+            }
+        }
+    }
+}
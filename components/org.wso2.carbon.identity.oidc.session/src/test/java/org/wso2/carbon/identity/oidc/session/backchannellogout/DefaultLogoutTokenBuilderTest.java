@@ -0,0 +1,334 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oidc.session.backchannellogout;
+
+import com.nimbusds.jose.JCAContext;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.util.Base64URL;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.application.authentication.framework.model.AuthenticatedUser;
+import org.wso2.carbon.identity.core.util.IdentityTenantUtil;
+import org.wso2.carbon.identity.oauth.config.OAuthServerConfiguration;
+import org.wso2.carbon.identity.oauth.dao.OAuthAppDO;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+import org.wso2.carbon.identity.oauth2.signing.JWSSigningContext;
+import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
+import org.wso2.carbon.identity.oidc.session.OIDCSessionManager;
+import org.wso2.carbon.identity.oidc.session.OIDCSessionState;
+import org.wso2.carbon.identity.oidc.session.util.OIDCSessionManagementUtil;
+import org.wso2.carbon.identity.testutil.powermock.PowerMockIdentityBaseTest;
+
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPrivateKey;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.powermock.api.mockito.PowerMockito.mock;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.powermock.api.mockito.PowerMockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * Unit tests for signing logout tokens inline and in parallel in DefaultLogoutTokenBuilder.
+ */
+@PrepareForTest({OAuthServerConfiguration.class, OAuth2Util.class, OIDCSessionManagementUtil.class,
+        IdentityTenantUtil.class})
+public class DefaultLogoutTokenBuilderTest extends PowerMockIdentityBaseTest {
+
+    private static final String OPBS_COOKIE = "opbsCookie";
+    private static final String TENANT_DOMAIN = "carbon.super";
+    private static final String FAILING_TENANT_DOMAIN = "failing.com";
+    private static final String SID = "sid";
+    private static final String SUBJECT = "admin";
+    private static final String LOGOUT_URL = "https://localhost/logout/";
+
+    private RSAPrivateKey privateKey;
+    private final Map<String, String> signingThreads = new ConcurrentHashMap<>();
+    private OIDCSessionState sessionState;
+    private ExecutorService executor;
+
+    @BeforeClass
+    public void initTest() throws Exception {
+
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+        keyPairGenerator.initialize(2048);
+        privateKey = (RSAPrivateKey) keyPairGenerator.generateKeyPair().getPrivate();
+    }
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+
+        signingThreads.clear();
+        OAuthServerConfiguration oAuthServerConfiguration = mock(OAuthServerConfiguration.class);
+        when(oAuthServerConfiguration.getIdTokenSignatureAlgorithm()).thenReturn("SHA256withRSA");
+        when(oAuthServerConfiguration.getOpenIDConnectBCLogoutTokenExpiration()).thenReturn("120");
+        mockStatic(OAuthServerConfiguration.class);
+        when(OAuthServerConfiguration.getInstance()).thenReturn(oAuthServerConfiguration);
+
+        mockStatic(OAuth2Util.class);
+        when(OAuth2Util.mapSignatureAlgorithmForJWSAlgorithm("SHA256withRSA")).thenReturn(JWSAlgorithm.RS256);
+        when(OAuth2Util.getAppInformationByClientId(anyString())).thenAnswer(invocation -> {
+            String clientId = (String) invocation.getArguments()[0];
+            AuthenticatedUser appOwner = new AuthenticatedUser();
+            appOwner.setTenantDomain(clientId.startsWith("failing") ? FAILING_TENANT_DOMAIN : TENANT_DOMAIN);
+            OAuthAppDO oAuthAppDO = new OAuthAppDO();
+            oAuthAppDO.setOauthConsumerKey(clientId);
+            oAuthAppDO.setAppOwner(appOwner);
+            oAuthAppDO.setBackChannelLogoutUrl(LOGOUT_URL + clientId);
+            return oAuthAppDO;
+        });
+        when(OAuth2Util.getTenantDomainOfOauthApp(any(OAuthAppDO.class))).thenAnswer(
+                invocation -> ((OAuthAppDO) invocation.getArguments()[0]).getAppOwner().getTenantDomain());
+        when(OAuth2Util.getIdTokenIssuer(anyString())).thenAnswer(
+                invocation -> "https://localhost:9443/" + invocation.getArguments()[0] + "/oauth2/token");
+
+        sessionState = new OIDCSessionState();
+        sessionState.setAuthenticatedUser(SUBJECT);
+        sessionState.setSidClaim(SID);
+        OIDCSessionManager sessionManager = mock(OIDCSessionManager.class);
+        when(sessionManager.getOIDCSessionState(OPBS_COOKIE, TENANT_DOMAIN)).thenReturn(sessionState);
+        mockStatic(OIDCSessionManagementUtil.class);
+        when(OIDCSessionManagementUtil.getSessionManager()).thenReturn(sessionManager);
+
+        mockStatic(IdentityTenantUtil.class);
+        when(IdentityTenantUtil.getTenantId(anyString())).thenReturn(-1234);
+
+        JWSSigningContext signingContext = buildSigningContext(new RecordingSigner(false));
+        JWSSigningContext failingSigningContext = buildSigningContext(new RecordingSigner(true));
+        when(OAuth2Util.getJWSSigningContext(anyString(), any(JWSAlgorithm.class))).thenAnswer(
+                invocation -> FAILING_TENANT_DOMAIN.equals(invocation.getArguments()[0]) ? failingSigningContext :
+                        signingContext);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    @Test
+    public void testInlineAndParallelSigningBuildTheSameTokens() throws Exception {
+
+        setSessionParticipants("client1", "client2", "client3", "client4", "client5");
+        executor = new ThreadPoolExecutor(2, 2, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+
+        Map<String, String> inlineTokens = new HashMap<>();
+        new TestLogoutTokenBuilder(Integer.MAX_VALUE, executor).buildLogoutTokens(OPBS_COOKIE, TENANT_DOMAIN,
+                inlineTokens::put);
+        Map<String, String> inlineSigningThreads = new HashMap<>(signingThreads);
+        signingThreads.clear();
+        Map<String, String> parallelTokens = new HashMap<>();
+        new TestLogoutTokenBuilder(1, executor).buildLogoutTokens(OPBS_COOKIE, TENANT_DOMAIN, parallelTokens::put);
+
+        assertEquals(inlineTokens.keySet(), parallelTokens.keySet());
+        assertEquals(inlineTokens.size(), 5);
+        for (Map.Entry<String, String> inlineToken : inlineTokens.entrySet()) {
+            SignedJWT inlineJWT = SignedJWT.parse(inlineToken.getValue());
+            SignedJWT parallelJWT = SignedJWT.parse(parallelTokens.get(inlineToken.getKey()));
+            assertEquals(parallelJWT.getHeader().toJSONObject(), inlineJWT.getHeader().toJSONObject());
+            assertEquals(getComparableClaims(parallelJWT.getJWTClaimsSet()),
+                    getComparableClaims(inlineJWT.getJWTClaimsSet()));
+            assertNotEquals(parallelJWT.getJWTClaimsSet().getJWTID(), inlineJWT.getJWTClaimsSet().getJWTID());
+        }
+        String callerThread = Thread.currentThread().getName();
+        assertTrue(inlineSigningThreads.values().stream().allMatch(callerThread::equals));
+        assertTrue(signingThreads.values().stream().noneMatch(callerThread::equals));
+    }
+
+    @Test
+    public void testInlineSigningHandsOverTokensSignedBeforeAndAfterAFailure() throws Exception {
+
+        setSessionParticipants("client1", "failingClient", "client2");
+        Map<String, String> logoutTokens = new HashMap<>();
+        try {
+            new TestLogoutTokenBuilder(Integer.MAX_VALUE, null).buildLogoutTokens(OPBS_COOKIE, TENANT_DOMAIN,
+                    logoutTokens::put);
+            fail("Failure to sign a logout token is not reported.");
+        } catch (IdentityOAuth2Exception e) {
+            assertTrue(e.getCause() instanceof JOSEException);
+        }
+        assertEquals(logoutTokens.keySet(),
+                new HashSet<>(Arrays.asList(LOGOUT_URL + "client1", LOGOUT_URL + "client2")));
+    }
+
+    @Test
+    public void testParallelSigningHandsOverTokensOfOtherClientsOnFailure() throws Exception {
+
+        setSessionParticipants("client1", "failingClient1", "client2", "failingClient2", "client3");
+        executor = new ThreadPoolExecutor(2, 2, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        Map<String, String> logoutTokens = new HashMap<>();
+        try {
+            new TestLogoutTokenBuilder(1, executor).buildLogoutTokens(OPBS_COOKIE, TENANT_DOMAIN, logoutTokens::put);
+            fail("Failure to sign a logout token is not reported.");
+        } catch (IdentityOAuth2Exception e) {
+            assertTrue(e.getCause() instanceof JOSEException);
+        }
+        assertEquals(logoutTokens.keySet(), new HashSet<>(Arrays.asList(LOGOUT_URL + "client1",
+                LOGOUT_URL + "client2", LOGOUT_URL + "client3")));
+    }
+
+    @Test
+    public void testCallerSignsTokensOnceTheQueueIsFull() throws Exception {
+
+        setSessionParticipants("client1", "client2", "client3", "client4");
+        // A single busy thread with room for one queued token, hence the caller signs the rest itself.
+        executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        CountDownLatch busy = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            busy.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(busy.await(10, TimeUnit.SECONDS));
+
+        Map<String, String> logoutTokens = new HashMap<>();
+        new TestLogoutTokenBuilder(1, executor).buildLogoutTokens(OPBS_COOKIE, TENANT_DOMAIN,
+                (backChannelLogoutUrl, logoutToken) -> {
+                    logoutTokens.put(backChannelLogoutUrl, logoutToken);
+                    // Tokens signed by the caller are handed over first, after which the queued token is signed.
+                    if (logoutTokens.size() == 3) {
+                        release.countDown();
+                    }
+                });
+
+        assertEquals(logoutTokens.size(), 4);
+        String callerThread = Thread.currentThread().getName();
+        assertEquals(signingThreads.values().stream().filter(callerThread::equals).count(), 3);
+    }
+
+    private void setSessionParticipants(String... clientIds) {
+
+        sessionState.setSessionParticipants(new HashSet<>(Arrays.asList(clientIds)));
+    }
+
+    private JWSSigningContext buildSigningContext(JWSSigner signer) {
+
+        JWSHeader header = new JWSHeader.Builder(JWSAlgorithm.RS256).keyID("keyId")
+                .x509CertThumbprint(new Base64URL("thumbPrint")).build();
+        return new JWSSigningContext(header, signer);
+    }
+
+    private static Map<String, Object> getComparableClaims(JWTClaimsSet claimsSet) {
+
+        // The jti is unique to each token, and iat and exp depend on when the logout was built.
+        Map<String, Object> claims = new HashMap<>(claimsSet.getClaims());
+        claims.remove("jti");
+        claims.remove("iat");
+        claims.remove("exp");
+        return claims;
+    }
+
+    /**
+     * Signer recording the thread each token is signed by, failing for the tenant whose signing is broken.
+     */
+    private class RecordingSigner implements JWSSigner {
+
+        private final RSASSASigner delegate = new RSASSASigner(privateKey);
+        private final boolean failing;
+
+        RecordingSigner(boolean failing) {
+
+            this.failing = failing;
+        }
+
+        @Override
+        public Base64URL sign(JWSHeader header, byte[] signingInput) throws JOSEException {
+
+            if (failing) {
+                throw new JOSEException("Signing key is not available.");
+            }
+            Base64URL signature = delegate.sign(header, signingInput);
+            signingThreads.put(signature.toString(), Thread.currentThread().getName());
+            return signature;
+        }
+
+        @Override
+        public Set<JWSAlgorithm> supportedJWSAlgorithms() {
+
+            return delegate.supportedJWSAlgorithms();
+        }
+
+        @Override
+        public JCAContext getJCAContext() {
+
+            return delegate.getJCAContext();
+        }
+    }
+
+    /**
+     * Builder signing in parallel above the given threshold, on the given executor.
+     */
+    private static class TestLogoutTokenBuilder extends DefaultLogoutTokenBuilder {
+
+        private final int parallelSigningThreshold;
+        private final ExecutorService signingExecutor;
+
+        TestLogoutTokenBuilder(int parallelSigningThreshold, ExecutorService signingExecutor)
+                throws IdentityOAuth2Exception {
+
+            this.parallelSigningThreshold = parallelSigningThreshold;
+            this.signingExecutor = signingExecutor;
+        }
+
+        @Override
+        int getParallelSigningThreshold() {
+
+            return parallelSigningThreshold;
+        }
+
+        @Override
+        ExecutorService getSigningExecutor() {
+
+            return signingExecutor;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oidc.session.listener;
+
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.base.MultitenantConstants;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.identity.application.common.model.InboundAuthenticationConfig;
+import org.wso2.carbon.identity.application.common.model.InboundAuthenticationRequestConfig;
+import org.wso2.carbon.identity.application.common.model.ServiceProvider;
+import org.wso2.carbon.identity.application.mgt.ApplicationManagementService;
+import org.wso2.carbon.identity.core.util.IdentityTenantUtil;
+import org.wso2.carbon.identity.oidc.session.OIDCSessionManager;
+import org.wso2.carbon.identity.oidc.session.OIDCSessionState;
+import org.wso2.carbon.identity.oidc.session.internal.OIDCSessionManagementComponentServiceHolder;
+import org.wso2.carbon.identity.oidc.session.servlet.TestUtil;
+import org.wso2.carbon.identity.oidc.session.store.InMemoryOIDCSessionParticipantStore;
+import org.wso2.carbon.identity.oidc.session.util.OIDCSessionManagementUtil;
+import org.wso2.carbon.identity.testutil.powermock.PowerMockIdentityBaseTest;
+
+import java.util.Collections;
+
+import static org.powermock.api.mockito.PowerMockito.mock;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.powermock.api.mockito.PowerMockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests for OIDCSessionApplicationMgtListener.
+ */
+@PrepareForTest({OIDCSessionManagementUtil.class, IdentityTenantUtil.class})
+public class OIDCSessionApplicationMgtListenerTest extends PowerMockIdentityBaseTest {
+
+    private static final String TENANT_DOMAIN = MultitenantConstants.SUPER_TENANT_DOMAIN_NAME;
+    private static final String APPLICATION_NAME = "app1";
+
+    private OIDCSessionManager sessionManager;
+    private ApplicationManagementService applicationMgtService;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+
+        TestUtil.startTenantFlow(TENANT_DOMAIN);
+        mockStatic(IdentityTenantUtil.class);
+        sessionManager = new OIDCSessionManager(new InMemoryOIDCSessionParticipantStore(100));
+        mockStatic(OIDCSessionManagementUtil.class);
+        when(OIDCSessionManagementUtil.getSessionManager()).thenReturn(sessionManager);
+        applicationMgtService = mock(ApplicationManagementService.class);
+        OIDCSessionManagementComponentServiceHolder.setApplicationMgtService(applicationMgtService);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+
+        OIDCSessionManagementComponentServiceHolder.setApplicationMgtService(null);
+        PrivilegedCarbonContext.endTenantFlow();
+    }
+
+    @Test
+    public void testClientsOfDeletedApplicationAreRemovedFromSessions() throws Exception {
+
+        sessionManager.storeOIDCSessionState("app-session1", sessionState("user1", "client1", "client2"),
+                TENANT_DOMAIN);
+        sessionManager.storeOIDCSessionState("app-session2", sessionState("user2", "client1"), TENANT_DOMAIN);
+        sessionManager.storeOIDCSessionState("app-session3", sessionState("user3", "samlIssuer"), TENANT_DOMAIN);
+        when(applicationMgtService.getApplicationExcludingFileBasedSPs(APPLICATION_NAME, TENANT_DOMAIN))
+                .thenReturn(serviceProvider(inboundConfig("oauth2", "client1"), inboundConfig("samlsso",
+                        "samlIssuer")));
+
+        assertTrue(new OIDCSessionApplicationMgtListener().doPreDeleteApplication(APPLICATION_NAME, TENANT_DOMAIN,
+                "admin"));
+
+        assertEquals(sessionManager.getOIDCSessionState("app-session1", TENANT_DOMAIN).getSessionParticipants(),
+                Collections.singleton("client2"));
+        assertNull(sessionManager.getOIDCSessionState("app-session2", TENANT_DOMAIN),
+                "Sessions left without participants should be removed.");
+        assertNotNull(sessionManager.getOIDCSessionState("app-session3", TENANT_DOMAIN),
+                "Only the OAuth clients of the application should be removed.");
+        assertTrue(sessionManager.getSessionIdsOfClient("client1", TENANT_DOMAIN).isEmpty());
+    }
+
+    @Test
+    public void testDeletingUnknownApplication() throws Exception {
+
+        sessionManager.storeOIDCSessionState("unknown-app-session", sessionState("user1", "client1"), TENANT_DOMAIN);
+
+        assertTrue(new OIDCSessionApplicationMgtListener().doPreDeleteApplication(APPLICATION_NAME, TENANT_DOMAIN,
+                "admin"));
+        assertNotNull(sessionManager.getOIDCSessionState("unknown-app-session", TENANT_DOMAIN));
+    }
+
+    private static ServiceProvider serviceProvider(InboundAuthenticationRequestConfig... inboundRequestConfigs) {
+
+        InboundAuthenticationConfig inboundAuthenticationConfig = new InboundAuthenticationConfig();
+        inboundAuthenticationConfig.setInboundAuthenticationRequestConfigs(inboundRequestConfigs);
+        ServiceProvider serviceProvider = new ServiceProvider();
+        serviceProvider.setApplicationName(APPLICATION_NAME);
+        serviceProvider.setInboundAuthenticationConfig(inboundAuthenticationConfig);
+        return serviceProvider;
+    }
+
+    private static InboundAuthenticationRequestConfig inboundConfig(String type, String key) {
+
+        InboundAuthenticationRequestConfig inboundRequestConfig = new InboundAuthenticationRequestConfig();
+        inboundRequestConfig.setInboundAuthType(type);
+        inboundRequestConfig.setInboundAuthKey(key);
+        return inboundRequestConfig;
+    }
+
+    private static OIDCSessionState sessionState(String authenticatedUser, String... clientIds) {
+
+        OIDCSessionState sessionState = new OIDCSessionState();
+        sessionState.setAuthenticatedUser(authenticatedUser);
+        for (String clientId : clientIds) {
+            sessionState.addSessionParticipant(clientId);
+        }
+        return sessionState;
+    }
+}
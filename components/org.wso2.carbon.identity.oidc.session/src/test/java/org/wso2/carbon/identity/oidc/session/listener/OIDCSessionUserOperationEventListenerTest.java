@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oidc.session.listener;
+
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.base.MultitenantConstants;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.identity.core.util.IdentityTenantUtil;
+import org.wso2.carbon.identity.oidc.session.OIDCSessionManager;
+import org.wso2.carbon.identity.oidc.session.OIDCSessionState;
+import org.wso2.carbon.identity.oidc.session.servlet.TestUtil;
+import org.wso2.carbon.identity.oidc.session.store.InMemoryOIDCSessionParticipantStore;
+import org.wso2.carbon.identity.oidc.session.util.OIDCSessionManagementUtil;
+import org.wso2.carbon.identity.testutil.powermock.PowerMockIdentityBaseTest;
+import org.wso2.carbon.user.api.RealmConfiguration;
+import org.wso2.carbon.user.core.UserStoreManager;
+import org.wso2.carbon.user.core.util.UserCoreUtil;
+
+import static org.powermock.api.mockito.PowerMockito.mock;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.powermock.api.mockito.PowerMockito.when;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests for OIDCSessionUserOperationEventListener.
+ */
+@PrepareForTest({OIDCSessionManagementUtil.class, IdentityTenantUtil.class, UserCoreUtil.class})
+public class OIDCSessionUserOperationEventListenerTest extends PowerMockIdentityBaseTest {
+
+    private static final String TENANT_DOMAIN = MultitenantConstants.SUPER_TENANT_DOMAIN_NAME;
+    private static final String USER_STORE_DOMAIN = "PRIMARY";
+
+    private OIDCSessionManager sessionManager;
+    private UserStoreManager userStoreManager;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+
+        TestUtil.startTenantFlow(TENANT_DOMAIN);
+        mockStatic(IdentityTenantUtil.class);
+        when(IdentityTenantUtil.getTenantDomain(MultitenantConstants.SUPER_TENANT_ID)).thenReturn(TENANT_DOMAIN);
+        sessionManager = new OIDCSessionManager(new InMemoryOIDCSessionParticipantStore(100));
+        mockStatic(OIDCSessionManagementUtil.class);
+        when(OIDCSessionManagementUtil.getSessionManager()).thenReturn(sessionManager);
+
+        userStoreManager = mock(UserStoreManager.class);
+        RealmConfiguration realmConfiguration = mock(RealmConfiguration.class);
+        when(userStoreManager.getTenantId()).thenReturn(MultitenantConstants.SUPER_TENANT_ID);
+        when(userStoreManager.getRealmConfiguration()).thenReturn(realmConfiguration);
+        mockStatic(UserCoreUtil.class);
+        when(UserCoreUtil.getDomainName(realmConfiguration)).thenReturn(USER_STORE_DOMAIN);
+        when(UserCoreUtil.addDomainToName("user1", USER_STORE_DOMAIN)).thenReturn("PRIMARY/user1");
+        when(UserCoreUtil.addTenantDomainToEntry("user1", TENANT_DOMAIN)).thenReturn("user1@carbon.super");
+        when(UserCoreUtil.addTenantDomainToEntry("PRIMARY/user1", TENANT_DOMAIN))
+                .thenReturn("PRIMARY/user1@carbon.super");
+    }
+
+    @AfterMethod
+    public void tearDown() {
+
+        PrivilegedCarbonContext.endTenantFlow();
+    }
+
+    @Test
+    public void testSessionsOfDeletedUserAreRemoved() throws Exception {
+
+        sessionManager.storeOIDCSessionState("user-session1", sessionState("user1", "client1"), TENANT_DOMAIN);
+        sessionManager.storeOIDCSessionState("user-session2", sessionState("PRIMARY/user1@carbon.super",
+                "client2"), TENANT_DOMAIN);
+        sessionManager.storeOIDCSessionState("user-session3", sessionState("user2", "client1"), TENANT_DOMAIN);
+
+        assertTrue(new EnabledListener(true).doPostDeleteUser("user1", userStoreManager));
+
+        assertNull(sessionManager.getOIDCSessionState("user-session1", TENANT_DOMAIN));
+        assertNull(sessionManager.getOIDCSessionState("user-session2", TENANT_DOMAIN),
+                "Sessions should be found by the qualified username.");
+        assertNotNull(sessionManager.getOIDCSessionState("user-session3", TENANT_DOMAIN));
+        assertTrue(sessionManager.getSessionIdsOfUser("user1", TENANT_DOMAIN).isEmpty());
+    }
+
+    @Test
+    public void testSessionsAreKeptWhenListenerIsDisabled() throws Exception {
+
+        sessionManager.storeOIDCSessionState("disabled-session", sessionState("user1", "client1"), TENANT_DOMAIN);
+
+        assertTrue(new EnabledListener(false).doPostDeleteUser("user1", userStoreManager));
+        assertNotNull(sessionManager.getOIDCSessionState("disabled-session", TENANT_DOMAIN));
+    }
+
+    private static OIDCSessionState sessionState(String authenticatedUser, String... clientIds) {
+
+        OIDCSessionState sessionState = new OIDCSessionState();
+        sessionState.setAuthenticatedUser(authenticatedUser);
+        for (String clientId : clientIds) {
+            sessionState.addSessionParticipant(clientId);
+        }
+        return sessionState;
+    }
+
+    /**
+     * Listener enabled or disabled without reading identity.xml.
+     */
+    private static class EnabledListener extends OIDCSessionUserOperationEventListener {
+
+        private final boolean enabled;
+
+        EnabledListener(boolean enabled) {
+
+            this.enabled = enabled;
+        }
+
+        @Override
+        public boolean isEnable() {
+
+            return enabled;
+        }
+    }
+}
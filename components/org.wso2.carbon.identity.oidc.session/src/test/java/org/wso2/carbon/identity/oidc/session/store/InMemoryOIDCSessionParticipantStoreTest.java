@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oidc.session.store;
+
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.oidc.session.OIDCSessionState;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests for InMemoryOIDCSessionParticipantStore.
+ */
+public class InMemoryOIDCSessionParticipantStoreTest {
+
+    private static final String TENANT_DOMAIN = "carbon.super";
+    private static final String OTHER_TENANT_DOMAIN = "wso2.com";
+
+    @Test
+    public void testSessionsAreIndexedByClientAndUser() {
+
+        InMemoryOIDCSessionParticipantStore store = new InMemoryOIDCSessionParticipantStore(10);
+        store.storeSession("session1", sessionState("user1", "client1", "client2"), TENANT_DOMAIN);
+        store.storeSession("session2", sessionState("user2", "client1"), TENANT_DOMAIN);
+        store.storeSession("session3", sessionState("user1", "client1"), OTHER_TENANT_DOMAIN);
+
+        assertEquals(store.getSessionIdsOfClient("client1", TENANT_DOMAIN),
+                new HashSet<>(Arrays.asList("session1", "session2")));
+        assertEquals(store.getSessionIdsOfClient("client2", TENANT_DOMAIN), Collections.singleton("session1"));
+        assertEquals(store.getSessionIdsOfUser("user1", TENANT_DOMAIN), Collections.singleton("session1"));
+        assertEquals(store.getSessionIdsOfUser("user1", OTHER_TENANT_DOMAIN), Collections.singleton("session3"));
+        assertTrue(store.getSessionIdsOfClient("client3", TENANT_DOMAIN).isEmpty());
+    }
+
+    @Test
+    public void testStoreReplacesIndexedValues() {
+
+        InMemoryOIDCSessionParticipantStore store = new InMemoryOIDCSessionParticipantStore(10);
+        store.storeSession("session1", sessionState("user1", "client1", "client2"), TENANT_DOMAIN);
+        store.storeSession("session1", sessionState("user2", "client2", "client3"), TENANT_DOMAIN);
+
+        assertTrue(store.getSessionIdsOfClient("client1", TENANT_DOMAIN).isEmpty());
+        assertEquals(store.getSessionIdsOfClient("client3", TENANT_DOMAIN), Collections.singleton("session1"));
+        assertTrue(store.getSessionIdsOfUser("user1", TENANT_DOMAIN).isEmpty());
+        assertEquals(store.getSessionIdsOfUser("user2", TENANT_DOMAIN), Collections.singleton("session1"));
+        assertEquals(store.getSessionCount(), 1);
+    }
+
+    @Test
+    public void testRemoveSession() {
+
+        InMemoryOIDCSessionParticipantStore store = new InMemoryOIDCSessionParticipantStore(10);
+        store.storeSession("session1", sessionState("user1", "client1"), TENANT_DOMAIN);
+        store.removeSession("session1", OTHER_TENANT_DOMAIN);
+        assertEquals(store.getSessionCount(), 1, "Sessions should only be removed from their own tenant.");
+
+        store.removeSession("session1", TENANT_DOMAIN);
+        assertTrue(store.getSessionIdsOfClient("client1", TENANT_DOMAIN).isEmpty());
+        assertTrue(store.getSessionIdsOfUser("user1", TENANT_DOMAIN).isEmpty());
+        assertEquals(store.getSessionCount(), 0);
+    }
+
+    @Test
+    public void testLeastRecentlyStoredSessionIsEvicted() {
+
+        InMemoryOIDCSessionParticipantStore store = new InMemoryOIDCSessionParticipantStore(2);
+        store.storeSession("session1", sessionState("user1", "client1"), TENANT_DOMAIN);
+        store.storeSession("session2", sessionState("user2", "client1"), TENANT_DOMAIN);
+        // Storing session1 again makes session2 the least recently stored session.
+        store.storeSession("session1", sessionState("user1", "client1", "client2"), TENANT_DOMAIN);
+        store.storeSession("session3", sessionState("user3", "client1"), TENANT_DOMAIN);
+
+        assertEquals(store.getSessionCount(), 2);
+        assertEquals(store.getEvictedCount(), 1);
+        assertEquals(store.getSessionIdsOfClient("client1", TENANT_DOMAIN),
+                new HashSet<>(Arrays.asList("session1", "session3")));
+        assertTrue(store.getSessionIdsOfUser("user2", TENANT_DOMAIN).isEmpty());
+    }
+
+    @Test
+    public void testStoringTheSameSessionAgainDoesNotEvictOtherSessions() {
+
+        InMemoryOIDCSessionParticipantStore store = new InMemoryOIDCSessionParticipantStore(2);
+        store.storeSession("session1", sessionState("user1", "client1"), TENANT_DOMAIN);
+        store.storeSession("session2", sessionState("user2", "client1"), TENANT_DOMAIN);
+        for (int i = 0; i < 10; i++) {
+            store.storeSession("session2", sessionState("user2", "client1"), TENANT_DOMAIN);
+        }
+
+        assertEquals(store.getSessionCount(), 2);
+        assertEquals(store.getEvictedCount(), 0);
+        assertEquals(store.getSessionIdsOfClient("client1", TENANT_DOMAIN),
+                new HashSet<>(Arrays.asList("session1", "session2")));
+    }
+
+    @Test
+    public void testConcurrentStoresAndRemovals() throws Exception {
+
+        int threads = 8;
+        int sessionsPerThread = 200;
+        InMemoryOIDCSessionParticipantStore store = new InMemoryOIDCSessionParticipantStore(threads *
+                sessionsPerThread);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            Future<?>[] futures = new Future<?>[threads];
+            for (int t = 0; t < threads; t++) {
+                String prefix = "thread" + t + "-";
+                futures[t] = executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < sessionsPerThread; i++) {
+                        // Every session shares the client, and odd sessions are removed again.
+                        store.storeSession(prefix + i, sessionState("user1", "client1"), TENANT_DOMAIN);
+                        if (i % 2 == 1) {
+                            store.removeSession(prefix + i, TENANT_DOMAIN);
+                        }
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int expected = threads * sessionsPerThread / 2;
+        assertEquals(store.getSessionCount(), expected);
+        assertEquals(store.getEvictedCount(), 0);
+        assertEquals(store.getSessionIdsOfClient("client1", TENANT_DOMAIN).size(), expected);
+        assertEquals(store.getSessionIdsOfUser("user1", TENANT_DOMAIN).size(), expected);
+        assertTrue(store.getSessionIdsOfClient("client1", TENANT_DOMAIN).contains("thread0-0"));
+        assertFalse(store.getSessionIdsOfClient("client1", TENANT_DOMAIN).contains("thread0-1"));
+    }
+
+    @Test
+    public void testReturnedSessionIdsAreCopies() {
+
+        InMemoryOIDCSessionParticipantStore store = new InMemoryOIDCSessionParticipantStore(10);
+        OIDCSessionState sessionState = sessionState("user1", "client1");
+        store.storeSession("session1", sessionState, TENANT_DOMAIN);
+
+        store.getSessionIdsOfClient("client1", TENANT_DOMAIN).clear();
+        sessionState.addSessionParticipant("client2");
+        assertEquals(store.getSessionIdsOfClient("client1", TENANT_DOMAIN), Collections.singleton("session1"));
+        assertTrue(store.getSessionIdsOfClient("client2", TENANT_DOMAIN).isEmpty(),
+                "Participants added after storing should only be indexed once stored again.");
+    }
+
+    private static OIDCSessionState sessionState(String authenticatedUser, String... clientIds) {
+
+        OIDCSessionState sessionState = new OIDCSessionState();
+        sessionState.setAuthenticatedUser(authenticatedUser);
+        for (String clientId : clientIds) {
+            sessionState.addSessionParticipant(clientId);
+        }
+        return sessionState;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oidc.session.store;
+
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.core.util.IdentityDatabaseUtil;
+import org.wso2.carbon.identity.oidc.session.OIDCSessionState;
+import org.wso2.carbon.identity.oidc.session.servlet.TestOIDCSessionBase;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.mockito.Matchers.anyBoolean;
+import static org.powermock.api.mockito.PowerMockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests for JDBCOIDCSessionParticipantStore, run against an in-memory H2 database.
+ */
+@PrepareForTest({IdentityDatabaseUtil.class})
+public class JDBCOIDCSessionParticipantStoreTest extends TestOIDCSessionBase {
+
+    private static final String TENANT_DOMAIN = "carbon.super";
+    private static final String OTHER_TENANT_DOMAIN = "wso2.com";
+
+    private JDBCOIDCSessionParticipantStore store;
+
+    @BeforeClass
+    public void setUp() throws Exception {
+
+        initiateInMemoryH2();
+        when(IdentityDatabaseUtil.getDBConnection(anyBoolean())).thenAnswer(invocation -> dataSource.getConnection());
+        store = new JDBCOIDCSessionParticipantStore();
+    }
+
+    @AfterClass
+    public void tearDown() throws Exception {
+
+        cleanData();
+    }
+
+    @BeforeMethod
+    public void clearStore() throws Exception {
+
+        connection.createStatement().executeUpdate("DELETE FROM IDN_OIDC_SESSION_PARTICIPANT");
+    }
+
+    @Test
+    public void testSessionsAreIndexedByClientAndUser() throws Exception {
+
+        store.storeSession("session1", sessionState("user1", "client1", "client2"), TENANT_DOMAIN);
+        store.storeSession("session2", sessionState("user2", "client1"), TENANT_DOMAIN);
+        store.storeSession("session3", sessionState("user1", "client1"), OTHER_TENANT_DOMAIN);
+
+        assertEquals(store.getSessionIdsOfClient("client1", TENANT_DOMAIN),
+                new HashSet<>(Arrays.asList("session1", "session2")));
+        assertEquals(store.getSessionIdsOfUser("user1", TENANT_DOMAIN), Collections.singleton("session1"));
+        assertEquals(store.getSessionIdsOfUser("user1", OTHER_TENANT_DOMAIN), Collections.singleton("session3"));
+        assertTrue(store.getSessionIdsOfClient("client3", TENANT_DOMAIN).isEmpty());
+    }
+
+    @Test
+    public void testStoreReplacesIndexedValues() throws Exception {
+
+        store.storeSession("session1", sessionState("user1", "client1", "client2"), TENANT_DOMAIN);
+        store.storeSession("session1", sessionState("user2", "client2", "client3"), TENANT_DOMAIN);
+
+        assertTrue(store.getSessionIdsOfClient("client1", TENANT_DOMAIN).isEmpty());
+        assertEquals(store.getSessionIdsOfClient("client3", TENANT_DOMAIN), Collections.singleton("session1"));
+        assertTrue(store.getSessionIdsOfUser("user1", TENANT_DOMAIN).isEmpty());
+        assertEquals(store.getSessionIdsOfUser("user2", TENANT_DOMAIN), Collections.singleton("session1"));
+    }
+
+    @Test
+    public void testRemoveSession() throws Exception {
+
+        store.storeSession("session1", sessionState("user1", "client1", "client2"), TENANT_DOMAIN);
+        store.removeSession("session1", TENANT_DOMAIN);
+
+        assertTrue(store.getSessionIdsOfClient("client1", TENANT_DOMAIN).isEmpty());
+        assertTrue(store.getSessionIdsOfUser("user1", TENANT_DOMAIN).isEmpty());
+    }
+
+    private static OIDCSessionState sessionState(String authenticatedUser, String... clientIds) {
+
+        OIDCSessionState sessionState = new OIDCSessionState();
+        sessionState.setAuthenticatedUser(authenticatedUser);
+        for (String clientId : clientIds) {
+            sessionState.addSessionParticipant(clientId);
+        }
+        return sessionState;
+    }
+}
@@ -35,3 +35,31 @@ CREATE TABLE IF NOT EXISTS  IDN_OIDC_PROPERTY (
   PRIMARY KEY (ID),
   FOREIGN KEY (CONSUMER_KEY) REFERENCES IDN_OAUTH_CONSUMER_APPS(CONSUMER_KEY) ON DELETE CASCADE
 );
+
+CREATE TABLE IF NOT EXISTS IDN_OIDC_BC_LOGOUT_OUTBOX (
+  ID VARCHAR(36) NOT NULL,
+  LOGOUT_URL VARCHAR(2048) NOT NULL,
+  LOGOUT_TOKEN VARCHAR(4096) NOT NULL,
+  ATTEMPTS INTEGER DEFAULT 0,
+  CREATED_TIME BIGINT NOT NULL,
+  NEXT_ATTEMPT_TIME BIGINT NOT NULL,
+  EXPIRY_TIME BIGINT NOT NULL,
+  LEASE_OWNER VARCHAR(64),
+  LEASE_EXPIRY BIGINT DEFAULT 0,
+  PRIMARY KEY (ID)
+);
+
+CREATE INDEX IF NOT EXISTS IDX_OIDC_BCLO_NAT ON IDN_OIDC_BC_LOGOUT_OUTBOX(NEXT_ATTEMPT_TIME);
+CREATE INDEX IF NOT EXISTS IDX_OIDC_BCLO_LO ON IDN_OIDC_BC_LOGOUT_OUTBOX(LEASE_OWNER);
+
+CREATE TABLE IF NOT EXISTS IDN_OIDC_SESSION_PARTICIPANT (
+  SESSION_ID VARCHAR(255) NOT NULL,
+  TENANT_DOMAIN VARCHAR(255) NOT NULL,
+  CLIENT_ID VARCHAR(255) NOT NULL,
+  AUTHENTICATED_USER VARCHAR(255),
+  TIME_UPDATED BIGINT NOT NULL,
+  PRIMARY KEY (SESSION_ID, TENANT_DOMAIN, CLIENT_ID)
+);
+
+CREATE INDEX IF NOT EXISTS IDX_OIDC_SP_CLIENT ON IDN_OIDC_SESSION_PARTICIPANT(TENANT_DOMAIN, CLIENT_ID);
+CREATE INDEX IF NOT EXISTS IDX_OIDC_SP_USER ON IDN_OIDC_SESSION_PARTICIPANT(TENANT_DOMAIN, AUTHENTICATED_USER);
@@ -53,6 +53,23 @@ public class DefaultWebFingerProcessor implements WebFingerProcessor {
         return responseBuilder.buildWebFingerResponse(requestObject);
     }
 
+    /**
+     * Get the serialized response of the webfinger request. Unlike {@link #getResponse(HttpServletRequest)}, the
+     * serialized links of the tenant are reused across requests.
+     *
+     * @param request Webfinger request.
+     * @return Serialized webfinger response.
+     * @throws WebFingerEndpointException   When the request is invalid.
+     * @throws ServerConfigurationException When the issuer location cannot be resolved.
+     */
+    public String getSerializedResponse(HttpServletRequest request) throws WebFingerEndpointException,
+            ServerConfigurationException {
+        WebFingerRequestBuilder requestBuilder = new DefaultWebFingerRequestBuilder();
+        WebFingerRequest requestObject = requestBuilder.buildRequest(request);
+        WebFingerOIDCResponseBuilder responseBuilder = new WebFingerOIDCResponseBuilder();
+        return responseBuilder.buildSerializedWebFingerResponse(requestObject);
+    }
+
     public int handleError(WebFingerEndpointException error) {
         String errorCode = error.getErrorCode();
         if (WebFingerConstants.ERROR_CODE_INVALID_REQUEST.equals(errorCode)) {
@@ -31,6 +31,7 @@ import org.wso2.carbon.utils.multitenancy.MultitenantUtils;
 
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URLDecoder;
 import java.util.Collections;
 import java.util.List;
@@ -63,19 +64,28 @@ public class DefaultWebFingerRequestBuilder implements WebFingerRequestBuilder {
             throw new WebFingerEndpointException(WebFingerConstants.ERROR_CODE_INVALID_RESOURCE, "Null or empty URI.");
 
         } else {
-            URI resourceURI = URI.create(resource);
+            // Malformed resources are rejected here, before the tenant of the resource is resolved.
+            URI resourceURI;
+            try {
+                resourceURI = new URI(resource);
+            } catch (URISyntaxException e) {
+                throw new WebFingerEndpointException(WebFingerConstants.ERROR_CODE_INVALID_REQUEST,
+                        "Invalid resource URI.");
+            }
             if (StringUtils.isBlank(resourceURI.getScheme())) {
-                throw new WebFingerEndpointException("Scheme of the resource cannot be empty");
+                throw new WebFingerEndpointException(WebFingerConstants.ERROR_CODE_INVALID_REQUEST,
+                        "Scheme of the resource cannot be empty");
             }
             String userInfo;
             if (WebFingerConstants.ACCT_SCHEME.equals(resourceURI.getScheme())) {
                 //acct scheme
                 userInfo = resourceURI.getSchemeSpecificPart();
-                if (!userInfo.contains("@")) {
+                int hostSeparatorIndex = userInfo == null ? -1 : userInfo.lastIndexOf('@');
+                if (hostSeparatorIndex <= 0 || hostSeparatorIndex == userInfo.length() - 1) {
                     throw new WebFingerEndpointException(WebFingerConstants.ERROR_CODE_INVALID_REQUEST,
                             "Invalid host value.");
                 }
-                userInfo = userInfo.substring(0, userInfo.lastIndexOf('@'));
+                userInfo = userInfo.substring(0, hostSeparatorIndex);
             } else {
                 //https scheme
                 userInfo = resourceURI.getUserInfo();
@@ -92,6 +102,9 @@ public class DefaultWebFingerRequestBuilder implements WebFingerRequestBuilder {
                     userInfo = URLDecoder.decode(userInfo, "UTF-8");
                 } catch (UnsupportedEncodingException e) {
                     throw new WebFingerEndpointException("Cannot decode the userinfo");
+                } catch (IllegalArgumentException e) {
+                    throw new WebFingerEndpointException(WebFingerConstants.ERROR_CODE_INVALID_REQUEST,
+                            "Invalid encoding in the userinfo.");
                 }
                 tenant = MultitenantUtils.getTenantDomain(userInfo);
                 webFingerRequest.setUserInfo(resourceURI.getUserInfo());
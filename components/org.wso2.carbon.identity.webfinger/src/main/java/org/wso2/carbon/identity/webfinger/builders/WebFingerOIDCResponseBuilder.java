@@ -18,6 +18,7 @@
 
 package org.wso2.carbon.identity.webfinger.builders;
 
+import com.google.gson.Gson;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.base.ServerConfigurationException;
@@ -27,6 +28,7 @@ import org.wso2.carbon.identity.webfinger.WebFingerConstants;
 import org.wso2.carbon.identity.webfinger.WebFingerEndpointException;
 import org.wso2.carbon.identity.webfinger.WebFingerRequest;
 import org.wso2.carbon.identity.webfinger.WebFingerResponse;
+import org.wso2.carbon.identity.webfinger.cache.WebFingerIssuerLinkCache;
 
 import java.net.URISyntaxException;
 
@@ -39,6 +41,19 @@ import static org.wso2.carbon.identity.discovery.DiscoveryUtil.isUseEntityIdAsIs
 public class WebFingerOIDCResponseBuilder {
 
     private static final Log log = LogFactory.getLog(WebFingerOIDCResponseBuilder.class);
+    private static final Gson GSON = new Gson();
+
+    private final WebFingerIssuerLinkCache issuerLinkCache;
+
+    public WebFingerOIDCResponseBuilder() {
+
+        this(WebFingerIssuerLinkCache.getInstance());
+    }
+
+    public WebFingerOIDCResponseBuilder(WebFingerIssuerLinkCache issuerLinkCache) {
+
+        this.issuerLinkCache = issuerLinkCache;
+    }
 
     public WebFingerResponse buildWebFingerResponse(WebFingerRequest request) throws WebFingerEndpointException,
             ServerConfigurationException {
@@ -56,6 +71,33 @@ public class WebFingerOIDCResponseBuilder {
         return response;
     }
 
+    /**
+     * Build the serialized WebFinger response. The serialized links of the tenant are reused from the issuer link
+     * cache, hence only the subject is serialized per request. The result is identical to serializing the response
+     * built by {@link #buildWebFingerResponse(WebFingerRequest)}.
+     *
+     * @param request WebFinger request.
+     * @return Serialized WebFinger response.
+     * @throws WebFingerEndpointException   When the response cannot be built for the request.
+     * @throws ServerConfigurationException When the issuer location cannot be resolved.
+     */
+    public String buildSerializedWebFingerResponse(WebFingerRequest request) throws WebFingerEndpointException,
+            ServerConfigurationException {
+
+        String serializedLinks = issuerLinkCache.get(request.getTenant());
+        if (serializedLinks == null) {
+            serializedLinks = GSON.toJson(buildWebFingerResponse(request).getLinks());
+            issuerLinkCache.put(request.getTenant(), serializedLinks);
+        }
+        String serializedLinksMember = "\"" + WebFingerConstants.LINKS + "\":" + serializedLinks;
+        if (request.getResource() == null) {
+            // Null members are omitted when the response is serialized.
+            return "{" + serializedLinksMember + "}";
+        }
+        return "{\"" + WebFingerConstants.SUBJECT + "\":" + GSON.toJson(request.getResource()) + "," +
+                serializedLinksMember + "}";
+    }
+
     private String getOidcIssuerLocation(String tenantDomain) throws IdentityOAuth2Exception, URISyntaxException {
 
         String oidcIssuerLocation;
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.webfinger.cache;
+
+import org.apache.commons.lang.StringUtils;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.wso2.carbon.identity.oauth2.util.OAuth2ConfigUtil.readLongProperty;
+
+/**
+ * Node local cache of the serialized WebFinger links of each tenant. The links only depend on the tenant the resource
+ * belongs to, hence the issuer location is resolved and serialized once per tenant instead of once per lookup.
+ * <p>
+ * The issuer location is derived from server and resident identity provider configuration which is not tracked by
+ * this cache, hence entries expire after a short timeout. The number of entries is bounded. Expired entries are
+ * purged first once the bound is reached, followed by arbitrary entries if the cache is still full.
+ */
+public class WebFingerIssuerLinkCache {
+
+    private static final String ENABLE = "OAuth.WebFinger.IssuerLinkCache.Enable";
+    private static final String TIMEOUT = "OAuth.WebFinger.IssuerLinkCache.TimeoutInSeconds";
+    private static final String MAX_SIZE = "OAuth.WebFinger.IssuerLinkCache.MaxSize";
+    private static final long DEFAULT_TIMEOUT = 60;
+    private static final int DEFAULT_MAX_SIZE = 1000;
+
+    private static volatile WebFingerIssuerLinkCache instance;
+
+    private final Map<String, IssuerLinks> linksByTenant = new ConcurrentHashMap<>();
+    private final boolean enabled;
+    private final long timeoutInMillis;
+    private final int maxSize;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * Create a cache.
+     *
+     * @param enabled         Whether the serialized links are cached.
+     * @param timeoutInMillis Time an entry is served for.
+     * @param maxSize         Maximum number of cached tenants.
+     */
+    public WebFingerIssuerLinkCache(boolean enabled, long timeoutInMillis, int maxSize) {
+
+        this.enabled = enabled && timeoutInMillis > 0;
+        this.timeoutInMillis = timeoutInMillis;
+        this.maxSize = Math.max(maxSize, 1);
+    }
+
+    /**
+     * Get the cache configured in identity.xml.
+     *
+     * @return WebFinger issuer link cache.
+     */
+    public static WebFingerIssuerLinkCache getInstance() {
+
+        if (instance == null) {
+            synchronized (WebFingerIssuerLinkCache.class) {
+                if (instance == null) {
+                    String enable = IdentityUtil.getProperty(ENABLE);
+                    instance = new WebFingerIssuerLinkCache(
+                            StringUtils.isBlank(enable) || Boolean.parseBoolean(enable.trim()),
+                            TimeUnit.SECONDS.toMillis(readLongProperty(TIMEOUT, DEFAULT_TIMEOUT)),
+                            (int) readLongProperty(MAX_SIZE, DEFAULT_MAX_SIZE));
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Get the serialized links of a tenant.
+     *
+     * @param tenantDomain Tenant domain.
+     * @return Serialized links, or null if the links of the tenant are not cached or have expired.
+     */
+    public String get(String tenantDomain) {
+
+        if (!enabled) {
+            return null;
+        }
+        IssuerLinks issuerLinks = linksByTenant.get(tenantDomain);
+        if (issuerLinks == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        if (issuerLinks.isExpired(System.currentTimeMillis())) {
+            linksByTenant.remove(tenantDomain, issuerLinks);
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return issuerLinks.getSerializedLinks();
+    }
+
+    /**
+     * Cache the serialized links of a tenant.
+     *
+     * @param tenantDomain    Tenant domain.
+     * @param serializedLinks Serialized links.
+     */
+    public void put(String tenantDomain, String serializedLinks) {
+
+        if (!enabled || tenantDomain == null || serializedLinks == null) {
+            return;
+        }
+        if (linksByTenant.size() >= maxSize && !linksByTenant.containsKey(tenantDomain)) {
+            evict();
+        }
+        linksByTenant.put(tenantDomain, new IssuerLinks(serializedLinks,
+                System.currentTimeMillis() + timeoutInMillis));
+    }
+
+    /**
+     * Drop the cached links of a tenant.
+     *
+     * @param tenantDomain Tenant domain.
+     */
+    public void clear(String tenantDomain) {
+
+        if (tenantDomain != null) {
+            linksByTenant.remove(tenantDomain);
+        }
+    }
+
+    /**
+     * Drop the cached links of every tenant.
+     */
+    public void clear() {
+
+        linksByTenant.clear();
+    }
+
+    public boolean isEnabled() {
+
+        return enabled;
+    }
+
+    public int getSize() {
+
+        return linksByTenant.size();
+    }
+
+    public long getHitCount() {
+
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+
+        return evictionCount.get();
+    }
+
+    private void evict() {
+
+        // Evict a tenth of the entries at once, so that the cache is not scanned for every new tenant once full.
+        int targetSize = maxSize - Math.max(1, maxSize / 10);
+        long now = System.currentTimeMillis();
+        linksByTenant.entrySet().removeIf(entry -> entry.getValue().isExpired(now));
+        Iterator<Map.Entry<String, IssuerLinks>> iterator = linksByTenant.entrySet().iterator();
+        while (linksByTenant.size() > targetSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictionCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Serialized links of a tenant.
+     */
+    private static final class IssuerLinks {
+
+        private final String serializedLinks;
+        private final long expiryTime;
+
+        IssuerLinks(String serializedLinks, long expiryTime) {
+
+            this.serializedLinks = serializedLinks;
+            this.expiryTime = expiryTime;
+        }
+
+        String getSerializedLinks() {
+
+            return serializedLinks;
+        }
+
+        boolean isExpired(long now) {
+
+            return now >= expiryTime;
+        }
+    }
+}
@@ -31,9 +31,10 @@ import org.wso2.carbon.identity.webfinger.builders.WebFingerResponseBuilder;
  */
 public class JSONResponseBuilder implements WebFingerResponseBuilder {
     private static final Log log = LogFactory.getLog(JSONResponseBuilder.class);
+    private static final Gson GSON = new Gson();
 
     @Override
     public String getOIDProviderIssuerString(WebFingerResponse webFingerResponse) throws WebFingerEndpointException {
-        return new Gson().toJson(webFingerResponse);
+        return GSON.toJson(webFingerResponse);
     }
 }
@@ -21,6 +21,7 @@ package org.wso2.carbon.identity.webfinger.servlet;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.base.ServerConfigurationException;
+import org.wso2.carbon.identity.webfinger.DefaultWebFingerProcessor;
 import org.wso2.carbon.identity.webfinger.WebFingerConstants;
 import org.wso2.carbon.identity.webfinger.WebFingerEndpointException;
 import org.wso2.carbon.identity.webfinger.WebFingerProcessor;
@@ -51,8 +52,13 @@ public class WebFingerServlet extends HttpServlet {
         WebFingerProcessor processor = WebFingerServiceComponentHolder.getWebFingerProcessor();
         String response = "";
         try {
-            WebFingerResponseBuilder webFingerResponseBuilder = new JSONResponseBuilder();
-            response = webFingerResponseBuilder.getOIDProviderIssuerString(processor.getResponse(httpServletRequest));
+            if (processor instanceof DefaultWebFingerProcessor) {
+                response = ((DefaultWebFingerProcessor) processor).getSerializedResponse(httpServletRequest);
+            } else {
+                WebFingerResponseBuilder webFingerResponseBuilder = new JSONResponseBuilder();
+                response = webFingerResponseBuilder.getOIDProviderIssuerString(
+                        processor.getResponse(httpServletRequest));
+            }
         } catch (WebFingerEndpointException e) {
             httpServletResponse.setStatus(processor.handleError(e));
             return;
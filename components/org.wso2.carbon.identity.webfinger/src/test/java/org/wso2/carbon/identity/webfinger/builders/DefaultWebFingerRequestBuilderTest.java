@@ -156,6 +156,34 @@ public class DefaultWebFingerRequestBuilderTest extends PowerMockTestCase {
         }
     }
 
+    @DataProvider(name = "MalformedResources")
+    public Object[][] malformedResources() {
+
+        return new Object[][]{
+                {"https://oidc.testdomain.wso2.org:9443/web finger"},
+                {"acct:joe@"},
+                {"acct:@example.com"},
+                {"acct:jo%zz@example.com"},
+                {"//oidc.testdomain.wso2.org/.well-known/webfinger"}
+        };
+    }
+
+    // Malformed resources should be rejected without resolving the tenant.
+    @Test(dataProvider = "MalformedResources", expectedExceptions = WebFingerEndpointException.class)
+    public void testMalformedResource(String malformedResource) throws Exception {
+
+        returnParams();
+        returnRelAndResource(malformedResource, rel);
+        // Resolving the tenant would fail with an invalid resource error instead.
+        when(tenantManager.getTenantId(anyString())).thenReturn(-1);
+        try {
+            defaultWebFingerRequestBuilder.buildRequest(request);
+        } catch (WebFingerEndpointException e) {
+            assertEquals(e.getErrorCode(), WebFingerConstants.ERROR_CODE_INVALID_REQUEST);
+            throw e;
+        }
+    }
+
     @Test
     public void testUserInfo() throws WebFingerEndpointException, UserStoreException {
 
@@ -17,6 +17,7 @@
  */
 package org.wso2.carbon.identity.webfinger.builders;
 
+import com.google.gson.Gson;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.testng.PowerMockTestCase;
 import org.testng.annotations.BeforeMethod;
@@ -28,6 +29,7 @@ import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
 import org.wso2.carbon.identity.webfinger.WebFingerEndpointException;
 import org.wso2.carbon.identity.webfinger.WebFingerRequest;
 import org.wso2.carbon.identity.webfinger.WebFingerResponse;
+import org.wso2.carbon.identity.webfinger.cache.WebFingerIssuerLinkCache;
 
 import static org.mockito.Matchers.any;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
@@ -86,4 +88,25 @@ public class WebFingerOIDCResponseBuilderTest extends PowerMockTestCase {
                 (new IdentityOAuth2Exception("Error"));
         webFingerOIDCResponseBuilder.buildWebFingerResponse(webFingerRequest);
     }
+
+    @Test
+    public void testBuildSerializedWebFingerResponse() throws Exception {
+
+        WebFingerIssuerLinkCache issuerLinkCache = new WebFingerIssuerLinkCache(true, 60000, 10);
+        WebFingerOIDCResponseBuilder cachingResponseBuilder = new WebFingerOIDCResponseBuilder(issuerLinkCache);
+        when(OAuth2Util.getIssuerLocation(any(String.class))).thenReturn(oidcDiscoveryUrl);
+
+        String expected = new Gson().toJson(webFingerOIDCResponseBuilder.buildWebFingerResponse(webFingerRequest));
+        assertEquals(cachingResponseBuilder.buildSerializedWebFingerResponse(webFingerRequest), expected,
+                "Serialized response should match the serialized response object.");
+        assertEquals(issuerLinkCache.getMissCount(), 1);
+
+        // The cached links are served without resolving the issuer location again.
+        when(OAuth2Util.getIssuerLocation(any(String.class))).thenThrow(new IdentityOAuth2Exception("Error"));
+        webFingerRequest.setResource("acct:admin@" + host);
+        String response = cachingResponseBuilder.buildSerializedWebFingerResponse(webFingerRequest);
+        assertEquals(issuerLinkCache.getHitCount(), 1);
+        assertEquals(response, expected.replace(resource, "acct:admin@" + host),
+                "Subject should be the resource of the request.");
+    }
 }
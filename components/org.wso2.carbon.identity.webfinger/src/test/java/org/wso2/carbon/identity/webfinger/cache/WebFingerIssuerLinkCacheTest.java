@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2022, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.webfinger.cache;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit test coverage for WebFingerIssuerLinkCache class.
+ */
+public class WebFingerIssuerLinkCacheTest {
+
+    private static final String LINKS = "[{\"rel\":\"http://openid.net/specs/connect/1.0/issuer\"," +
+            "\"href\":\"https://localhost:9443/oauth2/token\"}]";
+
+    @Test
+    public void testGetAndClear() {
+
+        WebFingerIssuerLinkCache cache = new WebFingerIssuerLinkCache(true, 60000, 10);
+        assertNull(cache.get("carbon.super"));
+        cache.put("carbon.super", LINKS);
+        assertEquals(cache.get("carbon.super"), LINKS);
+        assertNull(cache.get("wso2.com"), "Links should not be served for another tenant.");
+
+        cache.clear("carbon.super");
+        assertNull(cache.get("carbon.super"));
+        assertEquals(cache.getHitCount(), 1);
+        assertEquals(cache.getMissCount(), 3);
+    }
+
+    @Test
+    public void testExpiry() throws Exception {
+
+        WebFingerIssuerLinkCache cache = new WebFingerIssuerLinkCache(true, 1, 10);
+        cache.put("carbon.super", LINKS);
+        Thread.sleep(5);
+        assertNull(cache.get("carbon.super"));
+        assertEquals(cache.getSize(), 0);
+    }
+
+    @Test
+    public void testBoundedSize() {
+
+        WebFingerIssuerLinkCache cache = new WebFingerIssuerLinkCache(true, 60000, 10);
+        for (int i = 0; i < 25; i++) {
+            cache.put("tenant" + i + ".com", LINKS);
+        }
+        assertTrue(cache.getSize() <= 10);
+        assertTrue(cache.getEvictionCount() > 0);
+        assertEquals(cache.get("tenant24.com"), LINKS, "The latest tenant should be cached.");
+    }
+
+    @Test
+    public void testDisabled() {
+
+        WebFingerIssuerLinkCache cache = new WebFingerIssuerLinkCache(false, 60000, 10);
+        cache.put("carbon.super", LINKS);
+        assertNull(cache.get("carbon.super"));
+        assertEquals(cache.getSize(), 0);
+    }
+}
@@ -0,0 +1,34 @@
+CREATE TABLE IF NOT EXISTS IDN_OAUTH2_ISSUANCE_LOCK (
+            LOCK_KEY VARCHAR (64) NOT NULL,
+            LOCK_OWNER VARCHAR (255) NOT NULL,
+            LEASE_EXPIRY BIGINT NOT NULL,
+            PRIMARY KEY (LOCK_KEY)
+)ENGINE INNODB;
+
+CREATE TABLE IF NOT EXISTS IDN_OIDC_BC_LOGOUT_OUTBOX (
+            ID VARCHAR (36) NOT NULL,
+            LOGOUT_URL VARCHAR (2048) NOT NULL,
+            LOGOUT_TOKEN VARCHAR (4096) NOT NULL,
+            ATTEMPTS INTEGER DEFAULT 0,
+            CREATED_TIME BIGINT NOT NULL,
+            NEXT_ATTEMPT_TIME BIGINT NOT NULL,
+            EXPIRY_TIME BIGINT NOT NULL,
+            LEASE_OWNER VARCHAR (64),
+            LEASE_EXPIRY BIGINT DEFAULT 0,
+            PRIMARY KEY (ID)
+)ENGINE INNODB;
+
+CREATE INDEX IDX_OIDC_BCLO_NAT ON IDN_OIDC_BC_LOGOUT_OUTBOX(NEXT_ATTEMPT_TIME);
+CREATE INDEX IDX_OIDC_BCLO_LO ON IDN_OIDC_BC_LOGOUT_OUTBOX(LEASE_OWNER);
+
+CREATE TABLE IF NOT EXISTS IDN_OIDC_SESSION_PARTICIPANT (
+            SESSION_ID VARCHAR (255) NOT NULL,
+            TENANT_DOMAIN VARCHAR (255) NOT NULL,
+            CLIENT_ID VARCHAR (255) NOT NULL,
+            AUTHENTICATED_USER VARCHAR (255),
+            TIME_UPDATED BIGINT NOT NULL,
+            PRIMARY KEY (SESSION_ID, TENANT_DOMAIN, CLIENT_ID)
+)ENGINE INNODB;
+
+CREATE INDEX IDX_OIDC_SP_CLIENT ON IDN_OIDC_SESSION_PARTICIPANT(TENANT_DOMAIN, CLIENT_ID);
+CREATE INDEX IDX_OIDC_SP_USER ON IDN_OIDC_SESSION_PARTICIPANT(TENANT_DOMAIN, AUTHENTICATED_USER);
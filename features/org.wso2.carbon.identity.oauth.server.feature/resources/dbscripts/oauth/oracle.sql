@@ -0,0 +1,36 @@
+CREATE TABLE IDN_OAUTH2_ISSUANCE_LOCK (
+            LOCK_KEY VARCHAR2 (64) NOT NULL,
+            LOCK_OWNER VARCHAR2 (255) NOT NULL,
+            LEASE_EXPIRY NUMBER(19) NOT NULL,
+            PRIMARY KEY (LOCK_KEY))
+/
+
+CREATE TABLE IDN_OIDC_BC_LOGOUT_OUTBOX (
+            ID VARCHAR2 (36) NOT NULL,
+            LOGOUT_URL VARCHAR2 (2048) NOT NULL,
+            LOGOUT_TOKEN CLOB NOT NULL,
+            ATTEMPTS INTEGER DEFAULT 0,
+            CREATED_TIME NUMBER(19) NOT NULL,
+            NEXT_ATTEMPT_TIME NUMBER(19) NOT NULL,
+            EXPIRY_TIME NUMBER(19) NOT NULL,
+            LEASE_OWNER VARCHAR2 (64),
+            LEASE_EXPIRY NUMBER(19) DEFAULT 0,
+            PRIMARY KEY (ID))
+/
+CREATE INDEX IDX_OIDC_BCLO_NAT ON IDN_OIDC_BC_LOGOUT_OUTBOX(NEXT_ATTEMPT_TIME)
+/
+CREATE INDEX IDX_OIDC_BCLO_LO ON IDN_OIDC_BC_LOGOUT_OUTBOX(LEASE_OWNER)
+/
+
+CREATE TABLE IDN_OIDC_SESSION_PARTICIPANT (
+            SESSION_ID VARCHAR2 (255) NOT NULL,
+            TENANT_DOMAIN VARCHAR2 (255) NOT NULL,
+            CLIENT_ID VARCHAR2 (255) NOT NULL,
+            AUTHENTICATED_USER VARCHAR2 (255),
+            TIME_UPDATED NUMBER(19) NOT NULL,
+            PRIMARY KEY (SESSION_ID, TENANT_DOMAIN, CLIENT_ID))
+/
+CREATE INDEX IDX_OIDC_SP_CLIENT ON IDN_OIDC_SESSION_PARTICIPANT(TENANT_DOMAIN, CLIENT_ID)
+/
+CREATE INDEX IDX_OIDC_SP_USER ON IDN_OIDC_SESSION_PARTICIPANT(TENANT_DOMAIN, AUTHENTICATED_USER)
+/